@@ -0,0 +1,100 @@
+package com.linagora.consistency;
+
+import com.linagora.consistency.adapter.driving.BatchScanRunner;
+import com.linagora.consistency.configuration.AdapterConfiguration;
+import com.linagora.consistency.configuration.DomainConfiguration;
+import com.linagora.consistency.domain.port.driving.ForDetectingInconsistencies;
+import org.springframework.boot.Banner;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Headless entry point running a single scan without the web server, selected with {@code --batch}.
+ *
+ * <pre>
+ * java -jar consistency.jar --batch [--output=report.json|-] [--format=json|binary]
+ * </pre>
+ *
+ * The context only imports the adapter and domain configurations: no component scanning, so no
+ * controller, and no auto-configuration, so neither WebFlux nor Netty nor anything else the scan
+ * does not use. It is started lazily, so only the beans needed by the scan are created.
+ * Logs go to stderr so that the report can be streamed to stdout.
+ * Exit status: 0 when consistent, 1 when inconsistencies were found, 2 on failure.
+ */
+public final class BatchScanApplication {
+
+    static final String BATCH_OPTION = "--batch";
+
+    // A one-shot scan has no use for background rechecks, the live state or report caching
+    private static final List<String> OVERRIDES = List.of(
+        "--consistency.recheck.enabled=false",
+        "--consistency.live.enabled=false",
+        "--consistency.report.cache-ttl-seconds=0"
+    );
+
+    private BatchScanApplication() {
+    }
+
+    static boolean isRequested(String[] args) {
+        return List.of(args).contains(BATCH_OPTION);
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    static int run(String[] args) {
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+
+        DefaultApplicationArguments arguments = new DefaultApplicationArguments(args);
+        String output = optionValue(arguments, "output", "-");
+        List<String> contextArgs = new ArrayList<>(List.of(args));
+        contextArgs.addAll(OVERRIDES);
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BatchContext.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .lazyInitialization(true)
+                .properties(Map.of("logging.level.root", "WARN"))
+                .run(contextArgs.toArray(String[]::new))) {
+
+            BatchScanRunner.Format format = BatchScanRunner.Format.valueOf(
+                optionValue(arguments, "format", "json").toUpperCase(Locale.ROOT));
+            BatchScanRunner runner = new BatchScanRunner(context.getBean("inconsistencyDetector", ForDetectingInconsistencies.class));
+
+            if ("-".equals(output)) {
+                return runner.run(stdout, format);
+            }
+            try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(Path.of(output)))) {
+                return runner.run(file, format);
+            }
+        } catch (Exception e) {
+            System.err.println("Batch scan failed: " + e);
+            return BatchScanRunner.EXIT_FAILURE;
+        }
+    }
+
+    @Import({AdapterConfiguration.class, DomainConfiguration.class})
+    static class BatchContext {
+    }
+
+    private static String optionValue(DefaultApplicationArguments arguments, String name, String defaultValue) {
+        List<String> values = arguments.getOptionValues(name);
+        return values == null || values.isEmpty() ? defaultValue : values.get(0);
+    }
+}
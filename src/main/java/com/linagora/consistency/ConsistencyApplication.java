@@ -7,6 +7,9 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class ConsistencyApplication {
 
 	public static void main(String[] args) {
+		if (BatchScanApplication.isRequested(args)) {
+			System.exit(BatchScanApplication.run(args));
+		}
 		SpringApplication.run(ConsistencyApplication.class, args);
 	}
 
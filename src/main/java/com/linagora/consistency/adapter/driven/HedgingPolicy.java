@@ -0,0 +1,103 @@
+package com.linagora.consistency.adapter.driven;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Decides when a slow upstream request deserves a duplicate (hedged) request.
+ * The hedge delay is a live percentile of recent latencies (sliding window), so only the
+ * slowest requests are hedged. A token bucket caps hedges to a fraction of all requests:
+ * each request earns {@code budgetRatio} tokens and each hedge spends one.
+ * Thread-safe.
+ */
+public final class HedgingPolicy {
+
+    private static final int WINDOW_SIZE = 1024;
+    private static final int RECOMPUTE_EVERY = 64;
+    private static final double MAX_TOKENS = 10;
+
+    private final double percentile;
+    private final double budgetRatio;
+    private final int minSamples;
+
+    private final long[] latencies = new long[WINDOW_SIZE];
+    private int next;
+    private int count;
+    private int recordsSinceRecompute;
+    private long thresholdNanos = -1;
+    private double tokens;
+    private long requestCount;
+    private long hedgeCount;
+
+    /**
+     * @param percentile latency percentile after which a request is hedged, e.g. 0.95
+     * @param budgetRatio maximum share of extra requests, e.g. 0.05
+     * @param minSamples latencies to observe before hedging starts
+     */
+    public HedgingPolicy(double percentile, double budgetRatio, int minSamples) {
+        if (!(percentile > 0 && percentile < 1)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 1");
+        }
+        if (!(budgetRatio >= 0 && budgetRatio <= 1)) {
+            throw new IllegalArgumentException("Budget ratio must be between 0 and 1");
+        }
+        if (minSamples < 1 || minSamples > WINDOW_SIZE) {
+            throw new IllegalArgumentException("Minimum samples must be between 1 and " + WINDOW_SIZE);
+        }
+        this.percentile = percentile;
+        this.budgetRatio = budgetRatio;
+        this.minSamples = minSamples;
+    }
+
+    /**
+     * Registers a new primary request, earning hedge budget.
+     *
+     * @return delay after which the request may be hedged, empty while too few latencies were observed
+     */
+    public synchronized Optional<Duration> onRequest() {
+        requestCount++;
+        tokens = Math.min(MAX_TOKENS, tokens + budgetRatio);
+        return thresholdNanos < 0 ? Optional.empty() : Optional.of(Duration.ofNanos(thresholdNanos));
+    }
+
+    /**
+     * Spends hedge budget if available.
+     *
+     * @return true if a hedged request may be sent
+     */
+    public synchronized boolean tryAcquireHedge() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        hedgeCount++;
+        return true;
+    }
+
+    /**
+     * Records the latency of a completed (or abandoned) primary request.
+     *
+     * @param latency observed latency
+     */
+    public synchronized void recordLatency(Duration latency) {
+        latencies[next] = latency.toNanos();
+        next = (next + 1) % WINDOW_SIZE;
+        count = Math.min(WINDOW_SIZE, count + 1);
+        recordsSinceRecompute++;
+        if (count >= minSamples && (thresholdNanos < 0 || recordsSinceRecompute >= RECOMPUTE_EVERY)) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            thresholdNanos = sorted[(int) Math.min(count - 1, Math.ceil(percentile * count) - 1)];
+            recordsSinceRecompute = 0;
+        }
+    }
+
+    public synchronized long getRequestCount() {
+        return requestCount;
+    }
+
+    public synchronized long getHedgeCount() {
+        return hedgeCount;
+    }
+}
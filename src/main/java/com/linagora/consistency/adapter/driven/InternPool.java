@@ -0,0 +1,90 @@
+package com.linagora.consistency.adapter.driven;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Bounded, thread-safe pool of canonical value objects keyed by their string value.
+ * Repeated values decode to the same instance (and backing string), which shrinks
+ * retained heap and lets equality checks short-circuit on reference identity.
+ * Once the pool is full, each new value evicts one that was not used since the clock hand last passed it
+ * (CLOCK, an approximation of LRU), so the pool follows the values in use on a long-lived process.
+ * Hits only read the map and set a flag; misses take a lock, as they create a value anyway.
+ *
+ * @param <T> value object type
+ */
+public final class InternPool<T> {
+
+    private final ConcurrentHashMap<String, Entry<T>> pool = new ConcurrentHashMap<>();
+    private final Function<String, T> factory;
+    private final Entry<T>[] ring;
+    private int hand;
+
+    @SuppressWarnings("unchecked")
+    public InternPool(Function<String, T> factory, int maxSize) {
+        this.factory = Objects.requireNonNull(factory, "factory cannot be null");
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize cannot be negative");
+        }
+        this.ring = (Entry<T>[]) new Entry<?>[maxSize];
+    }
+
+    /**
+     * Returns the canonical instance for the given value, creating it if needed.
+     *
+     * @param value string value
+     * @return canonical value object
+     */
+    public T intern(String value) {
+        if (value == null) {
+            return factory.apply(null); // Let the value object report invalid input
+        }
+        Entry<T> existing = pool.get(value);
+        if (existing != null) {
+            existing.referenced = true;
+            return existing.value;
+        }
+
+        T created = factory.apply(value);
+        if (ring.length == 0) {
+            return created;
+        }
+        synchronized (ring) {
+            existing = pool.get(value);
+            if (existing != null) {
+                existing.referenced = true;
+                return existing.value;
+            }
+            // Give referenced entries a second chance, evict the first one that was not
+            while (ring[hand] != null && ring[hand].referenced) {
+                ring[hand].referenced = false;
+                hand = (hand + 1) % ring.length;
+            }
+            if (ring[hand] != null) {
+                pool.remove(ring[hand].key);
+            }
+            Entry<T> entry = new Entry<>(value, created);
+            ring[hand] = entry;
+            pool.put(value, entry);
+            hand = (hand + 1) % ring.length;
+            return created;
+        }
+    }
+
+    public int size() {
+        return pool.size();
+    }
+
+    private static final class Entry<T> {
+
+        private final String key;
+        private final T value;
+        private volatile boolean referenced;
+
+        private Entry(String key, T value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
@@ -7,82 +7,171 @@ import com.linagora.consistency.domain.port.driven.ForRetrievingGlobalFolders;
 import com.linagora.consistency.domain.port.driven.ForRetrievingUserFolders;
 import com.linagora.consistency.domain.port.driven.ForRetrievingUsers;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * REST adapter implementing all driven ports for external API communication.
  * Uses Spring WebClient for reactive HTTP calls.
  * This adapter translates between DTOs and domain models.
+ * With a trusted source, value objects are created without re-validating each row.
+ * Emails and folder names are interned so repeated values share a single instance.
+ * With a {@link HedgingPolicy}, slow per-user folder fetches get a duplicate request;
+ * the first response wins and the other request is cancelled.
+ * Each call is recorded as a Flight Recorder event while a recording enables it (see {@link UpstreamCallRecorder}).
  */
 public class RestApiAdapter implements
     ForRetrievingUsers,
     ForRetrievingUserFolders,
     ForRetrievingGlobalFolders {
 
+    public static final int DEFAULT_INTERN_POOL_SIZE = 100_000;
+
     private final WebClient webClient;
     private final Duration timeout;
+    private final boolean trustedSource;
+    private final InternPool<Email> emails;
+    private final InternPool<FolderName> folderNames;
+    private final Optional<HedgingPolicy> hedgingPolicy;
 
     public RestApiAdapter(WebClient webClient, Duration timeout) {
-        this.webClient = Objects.requireNonNull(webClient, "WebClient cannot be null");
+        this(webClient, timeout, false, DEFAULT_INTERN_POOL_SIZE, Optional.empty());
+    }
+
+    public RestApiAdapter(
+        WebClient webClient,
+        Duration timeout,
+        boolean trustedSource,
+        int internPoolSize,
+        Optional<HedgingPolicy> hedgingPolicy
+    ) {
+        this.webClient = Objects.requireNonNull(webClient, "WebClient cannot be null")
+            .mutate()
+            .filter(new UpstreamCallRecorder())
+            .build();
         this.timeout = Objects.requireNonNull(timeout, "Timeout cannot be null");
+        this.trustedSource = trustedSource;
+        this.emails = new InternPool<>(trustedSource ? Email::trusted : Email::of, internPoolSize);
+        this.folderNames = new InternPool<>(trustedSource ? FolderName::trusted : FolderName::of, internPoolSize);
+        this.hedgingPolicy = Objects.requireNonNull(hedgingPolicy, "hedgingPolicy cannot be null");
     }
 
     @Override
     public List<Email> retrieveAllUsers() {
-        return webClient.get()
+        return block(webClient.get()
             .uri("/users")
             .retrieve()
             .bodyToMono(String[].class)
             .flatMapMany(Flux::fromArray)
-            .map(Email::of)
+            .map(emails::intern)
             .collectList()
-            .timeout(timeout)
-            .block(); // Block here as domain service expects synchronous result
+            .timeout(timeout));
     }
 
     @Override
     public UserFolders retrieveFoldersForUser(Email userEmail) {
-        List<UserFolder> folders = webClient.get()
+        Mono<List<UserFolder>> request = webClient.get()
             .uri("/users/{email}/folders", userEmail.getValue())
+            .attribute(UpstreamCallRecorder.EMAIL_ATTRIBUTE, userEmail.getValue())
             .retrieve()
             .bodyToFlux(UserFolderDto.class)
             .map(this::toDomainUserFolder)
-            .collectList()
-            .timeout(timeout)
-            .block(); // Block here as domain service expects synchronous result
+            .collectList();
+
+        List<UserFolder> folders = block(hedgingPolicy
+            .map(policy -> hedged(request, policy))
+            .orElse(request)
+            .timeout(timeout));
 
         return UserFolders.of(userEmail, folders);
     }
 
     @Override
     public List<GlobalFolder> retrieveAllGlobalFolders() {
-        return webClient.get()
+        return block(webClient.get()
             .uri("/folders")
             .retrieve()
             .bodyToFlux(GlobalFolderDto.class)
             .map(this::toDomainGlobalFolder)
             .collectList()
-            .timeout(timeout)
-            .block(); // Block here as domain service expects synchronous result
+            .timeout(timeout));
+    }
+
+    @Override
+    public void streamAllGlobalFolders(Consumer<GlobalFolder> consumer) {
+        block(webClient.get()
+            .uri("/folders")
+            .retrieve()
+            .bodyToFlux(GlobalFolderDto.class)
+            .map(this::toDomainGlobalFolder)
+            .doOnNext(consumer)
+            .then()
+            .timeout(timeout));
+    }
+
+    /**
+     * Blocks for the result, as the domain service expects synchronous results.
+     * Interrupting the calling thread disposes the exchange, releasing its connection and buffers;
+     * the interrupt status, cleared by Reactor, is restored so that the caller stops as well.
+     */
+    private static <T> T block(Mono<T> result) {
+        try {
+            return result.block();
+        } catch (RuntimeException e) {
+            if (Exceptions.unwrap(e) instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Races the request against a duplicate sent once the policy's hedge delay has elapsed.
+     * The first signal wins and cancels the other request. Only the primary's errors count (as without
+     * hedging): a failing duplicate leaves the primary running, so hedging never lowers availability.
+     */
+    private <T> Mono<T> hedged(Mono<T> request, HedgingPolicy policy) {
+        Optional<Duration> hedgeDelay = policy.onRequest();
+        Mono<T> primary = Mono.defer(() -> {
+            long start = System.nanoTime();
+            Runnable record = () -> policy.recordLatency(Duration.ofNanos(System.nanoTime() - start));
+            // Abandoned primaries are recorded too, as a lower bound, so stragglers keep weighing on the percentile
+            return request.doOnSuccess(value -> record.run()).doOnCancel(record);
+        });
+        if (hedgeDelay.isEmpty()) {
+            return primary;
+        }
+
+        Mono<T> hedge = Mono.delay(hedgeDelay.get())
+            .flatMap(tick -> policy.tryAcquireHedge() ? request : Mono.never())
+            .onErrorResume(e -> Mono.never());
+        return Mono.firstWithSignal(primary, hedge);
     }
 
     private UserFolder toDomainUserFolder(UserFolderDto dto) {
         return UserFolder.of(
-            FolderId.of(dto.id()),
-            FolderName.of(dto.name())
+            toFolderId(dto.id()),
+            folderNames.intern(dto.name())
         );
     }
 
+    // Global rows repeat their owner: the pool decodes each distinct email once
     private GlobalFolder toDomainGlobalFolder(GlobalFolderDto dto) {
         return GlobalFolder.of(
-            FolderId.of(dto.id()),
-            Email.of(dto.user()),
-            FolderName.of(dto.name())
+            toFolderId(dto.id()),
+            emails.intern(dto.user()),
+            folderNames.intern(dto.name())
         );
     }
+
+    private FolderId toFolderId(String value) {
+        return trustedSource ? FolderId.trusted(value) : FolderId.of(value);
+    }
 }
@@ -0,0 +1,94 @@
+package com.linagora.consistency.adapter.driven;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * WebClient filter emitting a Flight Recorder event per upstream call, from the request until the
+ * response body is fully read, cancelled or failed. Hedged duplicates are separate calls.
+ * Requests pass through untouched when no recording enables the event.
+ */
+final class UpstreamCallRecorder implements ExchangeFilterFunction {
+
+    /**
+     * Request attribute naming the user a call is made for.
+     */
+    static final String EMAIL_ATTRIBUTE = UpstreamCallRecorder.class.getName() + ".email";
+
+    // Set by WebClient when the URI is given as a template, keeping the endpoint free of user values
+    private static final String URI_TEMPLATE_ATTRIBUTE = WebClient.class.getName() + ".uriTemplate";
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        UpstreamCallEvent event = new UpstreamCallEvent();
+        if (!event.isEnabled()) {
+            return next.exchange(request);
+        }
+
+        event.begin();
+        event.method = request.method().name();
+        event.endpoint = request.attribute(URI_TEMPLATE_ATTRIBUTE).map(String::valueOf).orElse(request.url().getPath());
+        event.email = request.attribute(EMAIL_ATTRIBUTE).map(String::valueOf).orElse(null);
+        AtomicBoolean committed = new AtomicBoolean();
+        Runnable commit = () -> {
+            if (committed.compareAndSet(false, true)) {
+                event.commit();
+            }
+        };
+        return next.exchange(request)
+            .doOnError(error -> {
+                event.error = error.getClass().getSimpleName();
+                commit.run();
+            })
+            .doOnCancel(commit)
+            .map(response -> {
+                event.status = response.statusCode().value();
+                return response.mutate()
+                    .body(body -> body
+                        .doOnNext(buffer -> event.bytes += buffer.readableByteCount())
+                        .doFinally(signal -> commit.run()))
+                    .build();
+            });
+    }
+
+    @Name("com.linagora.consistency.UpstreamCall")
+    @Label("Upstream Call")
+    @Category("Consistency")
+    @Description("HTTP call to the upstream API, until its body is read")
+    @StackTrace(false)
+    static final class UpstreamCallEvent extends Event {
+
+        @Label("Method")
+        String method;
+
+        @Label("Endpoint")
+        String endpoint;
+
+        @Label("Email")
+        String email;
+
+        @Label("Status")
+        @Description("HTTP status, 0 when no response was received")
+        int status;
+
+        @Label("Response Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Error")
+        String error;
+    }
+}
@@ -0,0 +1,348 @@
+package com.linagora.consistency.adapter.driven.history;
+
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.InconsistencyType;
+import com.linagora.consistency.domain.model.ReportSummary;
+import com.linagora.consistency.domain.port.driven.ForStoringReportHistory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * History store appending one record per generation to a local file.
+ *
+ * <p>File layout (big-endian):
+ * <pre>
+ * header  : magic, version
+ * records : payload length, payload, CRC32 of the payload
+ * payload : generation, epoch seconds, nanos, details flag,
+ *           type count, then (type name, count) per type,
+ *           user count, then with details only (email, count) per user,
+ *           fingerprint length, then the sorted hashes
+ * </pre>
+ * Records are appended. A record cut short or corrupted by a crash at the end of the file is dropped
+ * on load, and the file truncated so that appends continue from the last valid record.
+ * The offset of each generation's record is indexed on first use, so that loading one generation or
+ * the latest ones seeks to their records instead of reading the file from the start.
+ * Once the file holds twice as many generations as retained, or twice as many with details as kept,
+ * it is rewritten: generations beyond the retained ones are dropped and only the latest keep their
+ * counts by user and fingerprint, so the file stays bounded by the retention settings.
+ * Files written by version 1 (every record with details) are rewritten that way on first use.
+ */
+public class FileReportHistoryStore implements ForStoringReportHistory {
+
+    static final int MAGIC = 0x52485331; // "RHS1"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    private final Path historyFile;
+    private final int retainedGenerations;
+    private final int detailedGenerations;
+
+    // Record offsets by generation, null until the file is first read
+    private NavigableMap<Long, StoredRecord> records;
+    private long end;
+    private int detailedRecords;
+
+    /**
+     * @param retainedGenerations generations kept in the file, older ones are dropped when it is rewritten
+     * @param detailedGenerations latest generations keeping their counts by user and fingerprint in the file
+     */
+    public FileReportHistoryStore(Path historyFile, int retainedGenerations, int detailedGenerations) {
+        this.historyFile = Objects.requireNonNull(historyFile, "historyFile cannot be null");
+        if (detailedGenerations < 1 || detailedGenerations > retainedGenerations) {
+            throw new IllegalArgumentException("Detailed generations must be between 1 and the retained generations");
+        }
+        this.retainedGenerations = retainedGenerations;
+        this.detailedGenerations = detailedGenerations;
+    }
+
+    @Override
+    public synchronized List<ReportSummary> loadReportSummaries(int limit) {
+        if (!Files.isRegularFile(historyFile)) {
+            records = null;
+            return List.of();
+        }
+        try {
+            index();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load report history from " + historyFile, e);
+        }
+        try (FileChannel channel = FileChannel.open(historyFile, StandardOpenOption.READ)) {
+            List<ReportSummary> summaries = new ArrayList<>();
+            for (StoredRecord record : latest(limit)) {
+                summaries.add(readRecord(channel, record.offset(), false, VERSION)
+                    .orElseThrow(() -> new IOException("Corrupted report history record at offset " + record.offset())));
+            }
+            return List.copyOf(summaries);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load report history from " + historyFile, e);
+        }
+    }
+
+    /**
+     * @return the summary with its details, or empty if the generation was not stored or only its counts are kept
+     */
+    @Override
+    public synchronized Optional<ReportSummary> loadReportSummary(long generation) {
+        if (!Files.isRegularFile(historyFile)) {
+            records = null;
+            return Optional.empty();
+        }
+        try {
+            index();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load report history from " + historyFile, e);
+        }
+        try (FileChannel channel = FileChannel.open(historyFile, StandardOpenOption.READ)) {
+            StoredRecord record = records.get(generation);
+            if (record == null || !record.detailed()) {
+                return Optional.empty();
+            }
+            return readRecord(channel, record.offset(), true, VERSION);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load report history from " + historyFile, e);
+        }
+    }
+
+    @Override
+    public synchronized void appendReportSummary(ReportSummary summary) {
+        try {
+            Path parent = historyFile.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            if (Files.isRegularFile(historyFile) && Files.size(historyFile) > 0) {
+                index();
+            }
+            try (FileChannel channel = FileChannel.open(historyFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                if (channel.size() == 0) {
+                    writeFully(channel, ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip(), 0);
+                    records = new TreeMap<>();
+                    end = HEADER_SIZE;
+                    detailedRecords = 0;
+                }
+                ByteBuffer record = encodeRecord(summary);
+                writeFully(channel, record, end);
+                channel.force(false);
+                records.put(summary.getGeneration(), new StoredRecord(end, summary.hasDetails()));
+                end += record.capacity();
+                if (summary.hasDetails()) {
+                    detailedRecords++;
+                }
+
+                // Amortized: each rewrite follows at least as many appends as it keeps generations
+                if (records.size() > 2 * retainedGenerations || detailedRecords > 2 * detailedGenerations) {
+                    compact(channel, VERSION);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to report history " + historyFile, e);
+        }
+    }
+
+    /**
+     * Builds the record index unless already built, truncating a torn last record.
+     */
+    private void index() throws IOException {
+        if (records != null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(historyFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            index(channel);
+        }
+    }
+
+    private void index(FileChannel channel) throws IOException {
+        int version = checkHeader(channel);
+
+        // Hop over record lengths, reading each payload's prefix: generation, then the details flag
+        NavigableMap<Long, StoredRecord> indexed = new TreeMap<>();
+        long size = channel.size();
+        long position = HEADER_SIZE;
+        long last = -1;
+        ByteBuffer prefix = ByteBuffer.allocate(Integer.BYTES + (version == 1 ? Long.BYTES : 2 * Long.BYTES + Integer.BYTES + 1));
+        while (position + prefix.capacity() <= size) {
+            prefix.clear();
+            channel.read(prefix, position);
+            int length = prefix.getInt(0);
+            long next = position + Integer.BYTES + length + Integer.BYTES;
+            if (length < prefix.capacity() - Integer.BYTES || next > size) {
+                break;
+            }
+            boolean detailed = version == 1 || prefix.get(prefix.capacity() - 1) != 0;
+            indexed.put(prefix.getLong(Integer.BYTES), new StoredRecord(position, detailed));
+            last = position;
+            position = next;
+        }
+        // Only the last record can be torn by a crash; earlier ones are checked when decoded
+        if (last >= 0 && readRecord(channel, last, false, version).isEmpty()) {
+            indexed.pollLastEntry();
+            position = last;
+        }
+        if (position < size) {
+            channel.truncate(position);
+        }
+
+        records = indexed;
+        end = position;
+        detailedRecords = (int) indexed.values().stream().filter(StoredRecord::detailed).count();
+        if (version != VERSION) {
+            compact(channel, version);
+        }
+    }
+
+    /**
+     * Rewrites the file with the retained generations only, the latest ones with their details,
+     * then swaps it in place of the current one.
+     */
+    private void compact(FileChannel channel, int version) throws IOException {
+        Path parent = historyFile.toAbsolutePath().getParent();
+        Path compacted = Files.createTempFile(parent, historyFile.getFileName().toString(), ".tmp");
+        try {
+            NavigableMap<Long, StoredRecord> kept = new TreeMap<>();
+            long position = HEADER_SIZE;
+            int detailed = 0;
+            try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.WRITE)) {
+                writeFully(out, ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip(), 0);
+                List<StoredRecord> retained = latest(retainedGenerations);
+                for (int i = 0; i < retained.size(); i++) {
+                    StoredRecord record = retained.get(i);
+                    boolean withDetails = record.detailed() && i >= retained.size() - detailedGenerations;
+                    ReportSummary summary = readRecord(channel, record.offset(), withDetails, version)
+                        .orElseThrow(() -> new IOException("Corrupted report history record at offset " + record.offset()));
+                    ByteBuffer encoded = encodeRecord(summary);
+                    writeFully(out, encoded, position);
+                    kept.put(summary.getGeneration(), new StoredRecord(position, withDetails));
+                    position += encoded.capacity();
+                    detailed += withDetails ? 1 : 0;
+                }
+                out.force(false);
+            }
+            Files.move(compacted, historyFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            records = kept;
+            end = position;
+            detailedRecords = detailed;
+        } finally {
+            Files.deleteIfExists(compacted);
+        }
+    }
+
+    private List<StoredRecord> latest(int limit) {
+        List<StoredRecord> all = new ArrayList<>(records.values());
+        return all.subList(Math.max(0, all.size() - limit), all.size());
+    }
+
+    private int checkHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.read(header, 0);
+        if (header.position() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+            throw new IOException("Not a report history file: " + historyFile);
+        }
+        int version = header.getInt(Integer.BYTES);
+        if (version != 1 && version != VERSION) {
+            throw new IOException("Unsupported report history version " + version);
+        }
+        return version;
+    }
+
+    private Optional<ReportSummary> readRecord(FileChannel channel, long offset, boolean withDetails, int version) throws IOException {
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+        channel.read(lengthBuffer, offset);
+        ByteBuffer record = ByteBuffer.allocate(lengthBuffer.getInt(0) + Integer.BYTES);
+        while (record.hasRemaining()) {
+            if (channel.read(record, offset + Integer.BYTES + record.position()) < 0) {
+                return Optional.empty();
+            }
+        }
+        byte[] payload = new byte[record.capacity() - Integer.BYTES];
+        record.flip().get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != record.getInt()) {
+            return Optional.empty();
+        }
+        return Optional.of(decode(payload, withDetails, version));
+    }
+
+    private static ByteBuffer encodeRecord(ReportSummary summary) throws IOException {
+        byte[] payload = encode(summary);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return ByteBuffer.allocate(Integer.BYTES + payload.length + Integer.BYTES)
+            .putInt(payload.length)
+            .put(payload)
+            .putInt((int) crc.getValue())
+            .flip();
+    }
+
+    private static byte[] encode(ReportSummary summary) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(summary.getGeneration());
+            out.writeLong(summary.getGeneratedAt().getEpochSecond());
+            out.writeInt(summary.getGeneratedAt().getNano());
+            out.writeBoolean(summary.hasDetails());
+            out.writeInt(summary.getCountsByType().size());
+            for (Map.Entry<InconsistencyType, Long> entry : summary.getCountsByType().entrySet()) {
+                out.writeUTF(entry.getKey().name());
+                out.writeLong(entry.getValue());
+            }
+            out.writeInt(summary.getInconsistentUsers());
+            if (!summary.hasDetails()) {
+                return bytes.toByteArray();
+            }
+            for (Map.Entry<Email, Integer> entry : summary.getCountsByUser().entrySet()) {
+                out.writeUTF(entry.getKey().getValue());
+                out.writeInt(entry.getValue());
+            }
+            long[] fingerprint = summary.getFingerprint();
+            out.writeInt(fingerprint.length);
+            for (long hash : fingerprint) {
+                out.writeLong(hash);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ReportSummary decode(byte[] payload, boolean withDetails, int version) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        long generation = in.readLong();
+        Instant generatedAt = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        // Version 1 has no flag: every record has details
+        boolean hasDetails = version == 1 || in.readBoolean();
+        int typeCount = in.readInt();
+        Map<InconsistencyType, Long> countsByType = new EnumMap<>(InconsistencyType.class);
+        for (int i = 0; i < typeCount; i++) {
+            countsByType.put(InconsistencyType.valueOf(in.readUTF()), in.readLong());
+        }
+        int userCount = in.readInt();
+        if (!withDetails || !hasDetails) {
+            return ReportSummary.withoutDetails(generation, generatedAt, countsByType, userCount);
+        }
+        Map<Email, Integer> countsByUser = new HashMap<>(userCount * 2);
+        for (int i = 0; i < userCount; i++) {
+            countsByUser.put(Email.of(in.readUTF()), in.readInt());
+        }
+        long[] fingerprint = new long[in.readInt()];
+        for (int i = 0; i < fingerprint.length; i++) {
+            fingerprint[i] = in.readLong();
+        }
+        return ReportSummary.of(generation, generatedAt, countsByType, countsByUser, fingerprint);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private record StoredRecord(long offset, boolean detailed) {
+    }
+}
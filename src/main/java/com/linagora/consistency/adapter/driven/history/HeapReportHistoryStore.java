@@ -0,0 +1,28 @@
+package com.linagora.consistency.adapter.driven.history;
+
+import com.linagora.consistency.domain.model.ReportSummary;
+import com.linagora.consistency.domain.port.driven.ForStoringReportHistory;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * History store keeping nothing beyond what the history service holds in memory.
+ * Nothing survives a restart: used when no history file is configured.
+ */
+public class HeapReportHistoryStore implements ForStoringReportHistory {
+
+    @Override
+    public List<ReportSummary> loadReportSummaries(int limit) {
+        return List.of();
+    }
+
+    @Override
+    public Optional<ReportSummary> loadReportSummary(long generation) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void appendReportSummary(ReportSummary summary) {
+    }
+}
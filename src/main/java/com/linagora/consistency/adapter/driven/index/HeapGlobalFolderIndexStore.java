@@ -0,0 +1,24 @@
+package com.linagora.consistency.adapter.driven.index;
+
+import com.linagora.consistency.domain.model.GlobalFolderIndex;
+import com.linagora.consistency.domain.port.driven.ForStoringGlobalFolderIndex;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Index store keeping the index on the heap only.
+ * Nothing survives a restart: used when no index file is configured.
+ */
+public class HeapGlobalFolderIndexStore implements ForStoringGlobalFolderIndex {
+
+    @Override
+    public Optional<StoredIndex> loadGlobalFolderIndex() {
+        return Optional.empty();
+    }
+
+    @Override
+    public void storeGlobalFolderIndex(GlobalFolderIndex globalFolderIndex, Instant builtAt) {
+        // The caller's index is the heap copy
+    }
+}
@@ -0,0 +1,197 @@
+package com.linagora.consistency.adapter.driven.index;
+
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.FolderId;
+import com.linagora.consistency.domain.model.FolderName;
+import com.linagora.consistency.domain.model.GlobalFolder;
+import com.linagora.consistency.domain.model.GlobalFolderIndex;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Global folder index read directly from a memory-mapped file written by
+ * {@link MappedGlobalFolderIndexStore}. Only the folders of the requested user are decoded.
+ * The header counts and section sizes are checked against the file size when mapping, so that a file
+ * cut short is rejected instead of failing on lookups.
+ * Immutable and safe for concurrent reads (absolute reads only).
+ */
+final class MappedGlobalFolderIndex implements GlobalFolderIndex {
+
+    private final ByteBuffer buffer;
+    private final Instant builtAt;
+    private final int emailCount;
+    private final int recordCount;
+    private final int emailOffsetsPosition;
+    private final int emailBlobPosition;
+    private final int userTablePosition;
+    private final int stringOffsetsPosition;
+    private final int stringBlobPosition;
+    private final int recordsPosition;
+
+    /**
+     * @throws IllegalStateException if the file is not a supported index or its sections do not match its size
+     */
+    MappedGlobalFolderIndex(ByteBuffer buffer) {
+        this.buffer = buffer;
+        long size = buffer.capacity();
+        if (size < MappedGlobalFolderIndexStore.HEADER_SIZE
+            || buffer.getInt(0) != MappedGlobalFolderIndexStore.MAGIC
+            || buffer.getInt(Integer.BYTES) != MappedGlobalFolderIndexStore.VERSION) {
+            throw new IllegalStateException("Unsupported global folder index file");
+        }
+        this.builtAt = Instant.ofEpochMilli(buffer.getLong(2 * Integer.BYTES));
+        this.emailCount = buffer.getInt(2 * Integer.BYTES + Long.BYTES);
+        int stringCount = buffer.getInt(3 * Integer.BYTES + Long.BYTES);
+        this.recordCount = buffer.getInt(4 * Integer.BYTES + Long.BYTES);
+        if (emailCount < 0 || stringCount < 0 || recordCount < 0) {
+            throw corrupted();
+        }
+
+        // Each section's size follows from the header or the previous section, read only once known to be in the file
+        long emailOffsets = MappedGlobalFolderIndexStore.HEADER_SIZE;
+        long emailBlob = emailOffsets + (emailCount + 1L) * Integer.BYTES;
+        long userTable = emailBlob + blobSize(emailOffsets, emailBlob, emailCount, size);
+        long stringOffsets = userTable + (emailCount + 1L) * Integer.BYTES;
+        long stringBlob = stringOffsets + (stringCount + 1L) * Integer.BYTES;
+        long records = stringBlob + blobSize(stringOffsets, stringBlob, stringCount, size);
+        if (records + (long) recordCount * MappedGlobalFolderIndexStore.RECORD_SIZE != size
+            || buffer.getInt((int) (userTable + emailCount * (long) Integer.BYTES)) != recordCount) {
+            throw corrupted();
+        }
+
+        this.emailOffsetsPosition = (int) emailOffsets;
+        this.emailBlobPosition = (int) emailBlob;
+        this.userTablePosition = (int) userTable;
+        this.stringOffsetsPosition = (int) stringOffsets;
+        this.stringBlobPosition = (int) stringBlob;
+        this.recordsPosition = (int) records;
+    }
+
+    // Blob size is the last of its offsets, which must lie in the file, as must the blob
+    private long blobSize(long offsetsPosition, long blobPosition, int count, long size) {
+        if (blobPosition > size) {
+            throw corrupted();
+        }
+        long blobSize = buffer.getInt((int) (offsetsPosition + count * (long) Integer.BYTES));
+        if (blobSize < 0 || blobPosition + blobSize > size) {
+            throw corrupted();
+        }
+        return blobSize;
+    }
+
+    private static IllegalStateException corrupted() {
+        return new IllegalStateException("Global folder index file does not match its header");
+    }
+
+    /**
+     * @return when the stored index was built
+     */
+    Instant builtAt() {
+        return builtAt;
+    }
+
+    @Override
+    public Map<FolderId, GlobalFolder> foldersOf(Email userEmail) {
+        int emailIndex = findEmail(userEmail.getValue().getBytes(StandardCharsets.UTF_8));
+        if (emailIndex < 0) {
+            return Collections.emptyMap();
+        }
+
+        int first = buffer.getInt(userTablePosition + emailIndex * Integer.BYTES);
+        int end = buffer.getInt(userTablePosition + (emailIndex + 1) * Integer.BYTES);
+        Map<FolderId, GlobalFolder> folders = new LinkedHashMap<>(Math.max(16, (int) ((end - first) / 0.75f) + 1));
+        for (int record = first; record < end; record++) {
+            GlobalFolder folder = readFolder(record, userEmail);
+            folders.put(folder.getId(), folder);
+        }
+        return Collections.unmodifiableMap(folders);
+    }
+
+    @Override
+    public int folderCountOf(Email userEmail) {
+        int emailIndex = findEmail(userEmail.getValue().getBytes(StandardCharsets.UTF_8));
+        if (emailIndex < 0) {
+            return 0;
+        }
+        return buffer.getInt(userTablePosition + (emailIndex + 1) * Integer.BYTES)
+            - buffer.getInt(userTablePosition + emailIndex * Integer.BYTES);
+    }
+
+    @Override
+    public Set<Email> owners() {
+        Set<Email> owners = new LinkedHashSet<>(Math.max(16, (int) (emailCount / 0.75f) + 1));
+        for (int i = 0; i < emailCount; i++) {
+            owners.add(Email.trusted(readString(emailOffsetsPosition, emailBlobPosition, i)));
+        }
+        return Collections.unmodifiableSet(owners);
+    }
+
+    private GlobalFolder readFolder(int record, Email owner) {
+        int position = recordsPosition + record * MappedGlobalFolderIndexStore.RECORD_SIZE;
+        long mostSignificantBits = buffer.getLong(position);
+        long leastSignificantBits = buffer.getLong(position + Long.BYTES);
+        int nameIndex = buffer.getInt(position + 2 * Long.BYTES);
+        int idTextIndex = buffer.getInt(position + 2 * Long.BYTES + Integer.BYTES);
+
+        // Values were validated before being stored
+        FolderId id = idTextIndex < 0
+            ? FolderId.trusted(new UUID(mostSignificantBits, leastSignificantBits).toString())
+            : FolderId.of(readString(stringOffsetsPosition, stringBlobPosition, idTextIndex));
+        return GlobalFolder.of(
+            id,
+            owner,
+            FolderName.trusted(readString(stringOffsetsPosition, stringBlobPosition, nameIndex))
+        );
+    }
+
+    // Binary search over emails sorted by unsigned UTF-8 bytes, without decoding them
+    private int findEmail(byte[] target) {
+        int low = 0;
+        int high = emailCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareEmail(middle, target);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    private int compareEmail(int index, byte[] target) {
+        int start = buffer.getInt(emailOffsetsPosition + index * Integer.BYTES);
+        int end = buffer.getInt(emailOffsetsPosition + (index + 1) * Integer.BYTES);
+        int length = end - start;
+        int common = Math.min(length, target.length);
+        for (int i = 0; i < common; i++) {
+            int comparison = Integer.compare(
+                Byte.toUnsignedInt(buffer.get(emailBlobPosition + start + i)),
+                Byte.toUnsignedInt(target[i])
+            );
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, target.length);
+    }
+
+    private String readString(int offsetsPosition, int blobPosition, int index) {
+        int start = buffer.getInt(offsetsPosition + index * Integer.BYTES);
+        int end = buffer.getInt(offsetsPosition + (index + 1) * Integer.BYTES);
+        byte[] bytes = new byte[end - start];
+        buffer.get(blobPosition + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return "MappedGlobalFolderIndex{owners=" + emailCount + ", folders=" + recordCount + "}";
+    }
+}
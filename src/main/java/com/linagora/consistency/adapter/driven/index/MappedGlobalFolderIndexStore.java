@@ -0,0 +1,191 @@
+package com.linagora.consistency.adapter.driven.index;
+
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.FolderId;
+import com.linagora.consistency.domain.model.GlobalFolder;
+import com.linagora.consistency.domain.model.GlobalFolderIndex;
+import com.linagora.consistency.domain.port.driven.ForStoringGlobalFolderIndex;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Index store persisting the global folder index to a compact file served through
+ * {@link FileChannel#map}. Lookups read the page cache directly, so the index stays off-heap
+ * and a restarted instance can answer immediately.
+ *
+ * <p>File layout (big-endian):
+ * <pre>
+ * header       : magic, version, build time (epoch millis), email count, string count, record count
+ * emails       : (email count + 1) blob offsets, then UTF-8 blob sorted by bytes
+ * user table   : (email count + 1) first record index per email
+ * strings      : (string count + 1) blob offsets, then UTF-8 blob (names, non-canonical ids)
+ * records      : per folder, sorted by (email, id): id bits (2 longs), name index,
+ *                id text index (-1 when the id is a canonical lower-case UUID)
+ * </pre>
+ * The file is written to a temporary sibling and atomically moved into place.
+ * A single mapping is used, which limits the file to 2GB. A file that does not match its header, such as
+ * one from an older version or cut short, is not loaded, so that the index is downloaded again.
+ *
+ * <p>Mapped lookups decode ids and names on every call, so callers keep comparing against the heap
+ * index they stored; the mapping only serves warm starts through {@link #loadGlobalFolderIndex()}.
+ */
+public class MappedGlobalFolderIndexStore implements ForStoringGlobalFolderIndex {
+
+    static final int MAGIC = 0x47464931; // "GFI1"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 5 * Integer.BYTES + Long.BYTES;
+    static final int RECORD_SIZE = 2 * Long.BYTES + 2 * Integer.BYTES;
+
+    private final Path indexFile;
+
+    public MappedGlobalFolderIndexStore(Path indexFile) {
+        this.indexFile = Objects.requireNonNull(indexFile, "indexFile cannot be null");
+    }
+
+    @Override
+    public Optional<StoredIndex> loadGlobalFolderIndex() {
+        if (!Files.isRegularFile(indexFile)) {
+            return Optional.empty();
+        }
+        try {
+            MappedGlobalFolderIndex index = map();
+            return Optional.of(new StoredIndex(index, index.builtAt()));
+        } catch (IllegalStateException e) {
+            // Unusable file, replaced by the next download
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void storeGlobalFolderIndex(GlobalFolderIndex globalFolderIndex, Instant builtAt) {
+        try {
+            Path parent = indexFile.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temporaryFile = Files.createTempFile(parent, indexFile.getFileName().toString(), ".tmp");
+            try {
+                write(globalFolderIndex, builtAt, temporaryFile);
+                Files.move(temporaryFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporaryFile);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store global folder index to " + indexFile, e);
+        }
+    }
+
+    private MappedGlobalFolderIndex map() {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Global folder index too large to map: " + indexFile);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedGlobalFolderIndex(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map global folder index " + indexFile, e);
+        }
+    }
+
+    private void write(GlobalFolderIndex globalFolderIndex, Instant builtAt, Path target) throws IOException {
+        List<byte[]> emails = new ArrayList<>();
+        Map<byte[], Email> emailsByBytes = new IdentityHashMap<>();
+        for (Email email : globalFolderIndex.owners()) {
+            byte[] bytes = email.getValue().getBytes(StandardCharsets.UTF_8);
+            emails.add(bytes);
+            emailsByBytes.put(bytes, email);
+        }
+        emails.sort(Arrays::compareUnsigned);
+
+        int[] firstRecords = new int[emails.size()];
+        List<GlobalFolder> records = new ArrayList<>();
+        for (int i = 0; i < emails.size(); i++) {
+            List<GlobalFolder> userFolders = new ArrayList<>(globalFolderIndex.foldersOf(emailsByBytes.get(emails.get(i))).values());
+            userFolders.sort(Comparator
+                .comparingLong((GlobalFolder folder) -> folder.getId().getMostSignificantBits())
+                .thenComparingLong(folder -> folder.getId().getLeastSignificantBits()));
+            firstRecords[i] = records.size();
+            records.addAll(userFolders);
+        }
+
+        StringPool strings = new StringPool();
+        int[] nameIndexes = new int[records.size()];
+        int[] idTextIndexes = new int[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            GlobalFolder folder = records.get(i);
+            nameIndexes[i] = strings.indexOf(folder.getName().getValue());
+            idTextIndexes[i] = isCanonical(folder.getId()) ? -1 : strings.indexOf(folder.getId().getValue());
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(builtAt.toEpochMilli());
+            out.writeInt(emails.size());
+            out.writeInt(strings.size());
+            out.writeInt(records.size());
+
+            writeBlob(out, emails);
+            for (int firstRecord : firstRecords) {
+                out.writeInt(firstRecord);
+            }
+            out.writeInt(records.size());
+            writeBlob(out, strings.values());
+
+            for (int i = 0; i < records.size(); i++) {
+                FolderId id = records.get(i).getId();
+                out.writeLong(id.getMostSignificantBits());
+                out.writeLong(id.getLeastSignificantBits());
+                out.writeInt(nameIndexes[i]);
+                out.writeInt(idTextIndexes[i]);
+            }
+        }
+    }
+
+    private void writeBlob(DataOutputStream out, List<byte[]> values) throws IOException {
+        int offset = 0;
+        for (byte[] value : values) {
+            out.writeInt(offset);
+            offset += value.length;
+        }
+        out.writeInt(offset);
+        for (byte[] value : values) {
+            out.write(value);
+        }
+    }
+
+    private boolean isCanonical(FolderId id) {
+        return id.getValue().equals(new UUID(id.getMostSignificantBits(), id.getLeastSignificantBits()).toString());
+    }
+
+    private static final class StringPool {
+
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<byte[]> values = new ArrayList<>();
+
+        int indexOf(String value) {
+            return indexes.computeIfAbsent(value, key -> {
+                values.add(key.getBytes(StandardCharsets.UTF_8));
+                return values.size() - 1;
+            });
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        List<byte[]> values() {
+            return values;
+        }
+    }
+}
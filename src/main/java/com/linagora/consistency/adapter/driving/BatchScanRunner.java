@@ -0,0 +1,69 @@
+package com.linagora.consistency.adapter.driving;
+
+import com.linagora.consistency.domain.model.InconsistencyReport;
+import com.linagora.consistency.domain.port.driving.ForDetectingInconsistencies;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Objects;
+
+/**
+ * Command-line driving adapter: runs a single full scan and streams the report to an output stream,
+ * with the same encoders as the REST endpoint.
+ * The outcome is mapped to a process exit status so the scan can gate scripts and scheduled jobs.
+ */
+public final class BatchScanRunner {
+
+    public static final int EXIT_CONSISTENT = 0;
+    public static final int EXIT_INCONSISTENT = 1;
+    public static final int EXIT_FAILURE = 2;
+
+    /**
+     * Output encoding of the report.
+     */
+    public enum Format {
+        JSON,
+        BINARY
+    }
+
+    private final ForDetectingInconsistencies inconsistencyDetector;
+    private final DataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+    private final JsonReportWriter jsonReportWriter = new JsonReportWriter();
+    private final BinaryReportWriter binaryReportWriter = new BinaryReportWriter();
+
+    public BatchScanRunner(ForDetectingInconsistencies inconsistencyDetector) {
+        this.inconsistencyDetector = Objects.requireNonNull(inconsistencyDetector, "Inconsistency detector cannot be null");
+    }
+
+    /**
+     * Runs one scan and writes the encoded report chunk by chunk; the stream is flushed, not closed.
+     *
+     * @param output destination of the report
+     * @param format report encoding
+     * @return {@link #EXIT_CONSISTENT} when no inconsistency was found, {@link #EXIT_INCONSISTENT} otherwise
+     * @throws IOException if the report cannot be written
+     */
+    public int run(OutputStream output, Format format) throws IOException {
+        Objects.requireNonNull(output, "Output cannot be null");
+        Objects.requireNonNull(format, "Format cannot be null");
+
+        InconsistencyReport report = inconsistencyDetector.detectInconsistencies();
+        Flux<DataBuffer> chunks = switch (format) {
+            case JSON -> jsonReportWriter.write(report, bufferFactory);
+            case BINARY -> binaryReportWriter.write(report, bufferFactory);
+        };
+
+        DataBufferUtils.write(chunks, output)
+            .map(DataBufferUtils::release)
+            .then()
+            .block();
+        output.flush();
+
+        return report.hasInconsistencies() ? EXIT_INCONSISTENT : EXIT_CONSISTENT;
+    }
+}
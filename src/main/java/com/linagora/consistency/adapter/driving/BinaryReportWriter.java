@@ -0,0 +1,193 @@
+package com.linagora.consistency.adapter.driving;
+
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.FolderId;
+import com.linagora.consistency.domain.model.FolderName;
+import com.linagora.consistency.domain.model.Inconsistency;
+import com.linagora.consistency.domain.model.InconsistencyReport;
+import com.linagora.consistency.domain.model.InconsistencyType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compact binary encoding of a report for machine consumers.
+ *
+ * <p>Layout (integers are unsigned LEB128 varints unless stated otherwise):
+ * <pre>
+ * magic "ICR" + version byte
+ * type table      : count, then each type name (length + ASCII bytes)
+ *                   and a flag byte (bit 0 set when records of the type carry a folder id,
+ *                   bit 1 set when they also carry the id of the paired global folder)
+ * summary         : total count, then one count per type table entry
+ * email dictionary: count, then each email (length + UTF-8 bytes)
+ * runs            : type table index + run length, followed by run length records
+ * record          : folder id (16 bytes, big-endian UUID, only if flagged),
+ *                   global folder id (16 bytes, big-endian UUID, only if flagged), email dictionary index,
+ *                   global name, user name (length + 1 then UTF-8 bytes, 0 meaning null)
+ * </pre>
+ * Runs follow each other until total count records have been written.
+ */
+public final class BinaryReportWriter {
+
+    public static final String MEDIA_TYPE_VALUE = "application/vnd.linagora.inconsistency-report";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    static final byte[] MAGIC = {'I', 'C', 'R'};
+    static final byte VERSION = 3;
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int FLUSH_THRESHOLD = CHUNK_SIZE - 4 * 1024;
+    private static final int MAX_RUN_LENGTH = 512;
+
+    private static final InconsistencyType[] TYPES = InconsistencyType.values();
+
+    /**
+     * Encodes the report as a stream of binary chunks.
+     * The email dictionary is built in a first pass, records are then written lazily on demand.
+     *
+     * @param report the report to encode
+     * @param bufferFactory factory used to allocate output buffers
+     * @return flux of buffers forming the binary document
+     */
+    public Flux<DataBuffer> write(InconsistencyReport report, DataBufferFactory bufferFactory) {
+        List<Inconsistency> inconsistencies = report.getInconsistencies();
+
+        return Flux.<DataBuffer, Cursor>generate(Cursor::new, (cursor, sink) -> {
+            DataBuffer buffer = bufferFactory.allocateBuffer(CHUNK_SIZE);
+
+            try {
+                if (cursor.emailIndexes == null) {
+                    cursor.emailIndexes = writeHeader(buffer, report);
+                }
+
+                while (cursor.next < inconsistencies.size() && buffer.readableByteCount() < FLUSH_THRESHOLD) {
+                    cursor.next = writeRun(buffer, inconsistencies, cursor.next, cursor.emailIndexes);
+                }
+            } catch (RuntimeException e) {
+                // Not emitted yet, so not released by the subscriber nor by the discard hook
+                DataBufferUtils.release(buffer);
+                throw e;
+            }
+
+            sink.next(buffer);
+            if (cursor.next == inconsistencies.size()) {
+                sink.complete();
+            }
+            return cursor;
+        }).doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    private Map<Email, Integer> writeHeader(DataBuffer buffer, InconsistencyReport report) {
+        buffer.write(MAGIC);
+        buffer.write(VERSION);
+
+        writeVarInt(buffer, TYPES.length);
+        for (InconsistencyType type : TYPES) {
+            writeString(buffer, type.name());
+            buffer.write((byte) ((type.isFolderScoped() ? 1 : 0) | (type.pairsFolderIds() ? 2 : 0)));
+        }
+
+        writeVarInt(buffer, report.getTotalCount());
+        for (InconsistencyType type : TYPES) {
+            writeVarInt(buffer, report.getCountsByType().getOrDefault(type, 0L));
+        }
+
+        // Emails are numbered in order of first appearance
+        Map<Email, Integer> emailIndexes = new HashMap<>();
+        List<Email> emails = new ArrayList<>();
+        for (Inconsistency inconsistency : report.getInconsistencies()) {
+            if (emailIndexes.putIfAbsent(inconsistency.getUserEmail(), emails.size()) == null) {
+                emails.add(inconsistency.getUserEmail());
+            }
+        }
+
+        writeVarInt(buffer, emails.size());
+        for (Email email : emails) {
+            writeString(buffer, email.getValue());
+        }
+        return emailIndexes;
+    }
+
+    /**
+     * Writes the run starting at the given index, bounded by the chunk flush threshold.
+     *
+     * @return index of the first inconsistency not written
+     */
+    private int writeRun(DataBuffer buffer, List<Inconsistency> inconsistencies, int start, Map<Email, Integer> emailIndexes) {
+        InconsistencyType type = inconsistencies.get(start).getType();
+        int end = start + 1;
+        while (end < inconsistencies.size() && inconsistencies.get(end).getType() == type) {
+            end++;
+        }
+        // Bound runs so that a chunk never grows far beyond its initial size
+        end = Math.min(end, start + MAX_RUN_LENGTH);
+
+        writeVarInt(buffer, type.ordinal());
+        writeVarInt(buffer, end - start);
+        for (int i = start; i < end; i++) {
+            writeRecord(buffer, inconsistencies.get(i), emailIndexes);
+        }
+        return end;
+    }
+
+    private void writeRecord(DataBuffer buffer, Inconsistency inconsistency, Map<Email, Integer> emailIndexes) {
+        Optional<FolderId> folderId = inconsistency.getFolderId();
+        if (folderId.isPresent()) {
+            writeLong(buffer, folderId.get().getMostSignificantBits());
+            writeLong(buffer, folderId.get().getLeastSignificantBits());
+        }
+        Optional<FolderId> globalFolderId = inconsistency.getGlobalFolderId();
+        if (globalFolderId.isPresent()) {
+            writeLong(buffer, globalFolderId.get().getMostSignificantBits());
+            writeLong(buffer, globalFolderId.get().getLeastSignificantBits());
+        }
+        writeVarInt(buffer, emailIndexes.get(inconsistency.getUserEmail()));
+        writeNullableName(buffer, inconsistency.getGlobalFolderName());
+        writeNullableName(buffer, inconsistency.getUserFolderName());
+    }
+
+    private void writeNullableName(DataBuffer buffer, Optional<FolderName> name) {
+        if (name.isPresent()) {
+            byte[] bytes = name.get().getValue().getBytes(StandardCharsets.UTF_8);
+            writeVarInt(buffer, bytes.length + 1L);
+            buffer.write(bytes);
+        } else {
+            buffer.write((byte) 0);
+        }
+    }
+
+    private void writeString(DataBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(buffer, bytes.length);
+        buffer.write(bytes);
+    }
+
+    private void writeLong(DataBuffer buffer, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer.write((byte) (value >>> shift));
+        }
+    }
+
+    private void writeVarInt(DataBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.write((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.write((byte) value);
+    }
+
+    private static final class Cursor {
+        private int next;
+        private Map<Email, Integer> emailIndexes;
+    }
+}
@@ -0,0 +1,91 @@
+package com.linagora.consistency.adapter.driving;
+
+import com.linagora.consistency.domain.model.InconsistencyReport;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Holds the serialized and gzip-compressed JSON of the latest report generation.
+ * A generation is identified by the report instance: as long as the detector returns
+ * the same (cached) report, every client is served the same precomputed bytes.
+ */
+public class CompressedReportCache {
+
+    private final JsonReportWriter jsonReportWriter;
+    private final AtomicReference<Snapshot> latest = new AtomicReference<>();
+
+    public CompressedReportCache(JsonReportWriter jsonReportWriter) {
+        this.jsonReportWriter = jsonReportWriter;
+    }
+
+    /**
+     * Returns the encoded snapshot of the given report, encoding it only once per generation.
+     * Concurrent requests for a new generation wait for a single encoding.
+     *
+     * @param report the report to encode
+     * @return the JSON and gzip encodings of the report
+     */
+    public Snapshot snapshotOf(InconsistencyReport report) {
+        Snapshot current = latest.get();
+        if (current != null && current.report() == report) {
+            return current;
+        }
+
+        synchronized (this) {
+            current = latest.get();
+            if (current != null && current.report() == report) {
+                return current;
+            }
+            byte[] json = serialize(report);
+            Snapshot snapshot = new Snapshot(report, json, gzip(json));
+            latest.set(snapshot);
+            return snapshot;
+        }
+    }
+
+    private byte[] serialize(InconsistencyReport report) {
+        DataBuffer joined = DefaultDataBufferFactory.sharedInstance.join(
+            jsonReportWriter.write(report, DefaultDataBufferFactory.sharedInstance).collectList().block()
+        );
+        try {
+            byte[] json = new byte[joined.readableByteCount()];
+            joined.read(json);
+            return json;
+        } finally {
+            DataBufferUtils.release(joined);
+        }
+    }
+
+    private byte[] gzip(byte[] json) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 8 + 64);
+        try (GZIPOutputStream gzip = new BestCompressionGzipOutputStream(compressed)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compress report", e);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Encodings of one report generation.
+     */
+    public record Snapshot(InconsistencyReport report, byte[] json, byte[] gzip) {
+    }
+
+    // Compression happens once per generation, so favour ratio over speed
+    private static final class BestCompressionGzipOutputStream extends GZIPOutputStream {
+
+        private BestCompressionGzipOutputStream(ByteArrayOutputStream out) throws IOException {
+            super(out);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+}
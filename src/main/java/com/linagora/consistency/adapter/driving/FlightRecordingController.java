@@ -0,0 +1,170 @@
+package com.linagora.consistency.adapter.driving;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * REST controller (driving adapter) controlling an on-demand JDK Flight Recorder recording,
+ * which captures the scan, user comparison and upstream call events next to the JVM's own
+ * (GC, thread, allocation) events. No agent is needed, and the events cost close to nothing
+ * while no recording runs.
+ */
+@RestController
+@RequestMapping("/flight-recording")
+public class FlightRecordingController {
+
+    private static final int DUMP_BUFFER_SIZE = 64 * 1024;
+
+    private Recording recording;
+
+    /**
+     * POST /flight-recording?settings=default&maxAgeSeconds=900
+     * Starts a recording, keeping only the most recent events.
+     *
+     * @param settings JDK settings: default (low overhead) or profile (more detail)
+     * @param maxAgeSeconds how long events are kept, positive
+     * @return Mono of the recording status (201), 409 if a recording already runs
+     */
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<RecordingStatus> startRecording(
+        @RequestParam(defaultValue = "default") String settings,
+        @RequestParam(defaultValue = "900") long maxAgeSeconds
+    ) {
+        if (maxAgeSeconds <= 0) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "maxAgeSeconds must be positive"));
+        }
+        // Starting a recording to disk creates its repository files
+        return Mono.fromCallable(() -> start(settings, Duration.ofSeconds(maxAgeSeconds)))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * GET /flight-recording
+     * Returns the status of the current recording.
+     *
+     * @return Mono of the recording status (reactive response), 404 when none was started
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<RecordingStatus> getRecording() {
+        return Mono.fromCallable(() -> RecordingStatus.of(current()));
+    }
+
+    /**
+     * GET /flight-recording/dump
+     * Dumps the events recorded so far as a .jfr file, for JDK Mission Control or the jfr tool.
+     * The recording keeps running.
+     *
+     * @param response the current response, providing the (pooled) buffer factory
+     * @return Flux of file chunks (reactive response), 404 when no recording was started
+     */
+    @GetMapping(path = "/dump", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public Flux<DataBuffer> dumpRecording(ServerHttpResponse response) {
+        return Mono.fromCallable(this::dump)
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMapMany(file -> {
+                response.getHeaders().set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"consistency.jfr\"");
+                return DataBufferUtils.read(file, response.bufferFactory(), DUMP_BUFFER_SIZE)
+                    .doFinally(signal -> deleteQuietly(file));
+            });
+    }
+
+    /**
+     * DELETE /flight-recording
+     * Stops and discards the current recording.
+     *
+     * @return Mono completing once stopped (204), 404 when no recording was started
+     */
+    @DeleteMapping
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> stopRecording() {
+        // Closing flushes and deletes the recording's chunk files
+        return Mono.<Void>fromRunnable(this::close)
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private synchronized RecordingStatus start(String settings, Duration maxAge) {
+        if (recording != null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A recording is already running");
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings);
+        } catch (IOException | ParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown recording settings: " + settings, e);
+        }
+        Recording started = new Recording(configuration);
+        started.setName("consistency");
+        started.setMaxAge(maxAge);
+        started.setToDisk(true);
+        started.start();
+        recording = started;
+        return RecordingStatus.of(started);
+    }
+
+    private synchronized Recording current() {
+        if (recording == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No recording is running");
+        }
+        return recording;
+    }
+
+    private Path dump() throws IOException {
+        Path file = Files.createTempFile("consistency-", ".jfr");
+        try {
+            current().dump(file);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(file);
+            throw e;
+        }
+    }
+
+    private synchronized void close() {
+        current().close();
+        recording = null;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Left in the temporary directory
+        }
+    }
+
+    /**
+     * State of the recording.
+     */
+    public record RecordingStatus(long id, String state, Instant startTime, long maxAgeSeconds) {
+
+        static RecordingStatus of(Recording recording) {
+            Duration maxAge = recording.getMaxAge();
+            return new RecordingStatus(
+                recording.getId(),
+                recording.getState().name(),
+                recording.getState() == RecordingState.NEW ? null : recording.getStartTime(),
+                maxAge != null ? maxAge.toSeconds() : 0
+            );
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.linagora.consistency.adapter.driving;
+
+import com.linagora.consistency.domain.model.*;
+import com.linagora.consistency.domain.port.driving.ForIngestingFolderChanges;
+
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local driving adapter producing random folder change events, for exercising the live
+ * consistency state without an upstream notification source.
+ * Keeps a model of the folders it created so the resulting data can be scanned and compared.
+ * Deterministic for a given seed. Not thread-safe: {@link #start} runs it on a single scheduler thread.
+ */
+public final class FolderChangeEventGenerator {
+
+    private static final List<FolderName> NAMES = List.of(
+        FolderName.of("Inbox"),
+        FolderName.of("Sent"),
+        FolderName.of("Archive"),
+        FolderName.of("Drafts")
+    );
+
+    private final Random random;
+    private final List<Email> users;
+    private final List<List<FolderId>> folderIdsByUser;
+    private final Map<Email, Map<FolderId, FolderName>> userFolders = new LinkedHashMap<>();
+    private final Map<Email, Map<FolderId, FolderName>> globalFolders = new LinkedHashMap<>();
+
+    /**
+     * @param userCount number of synthetic users
+     * @param foldersPerUser number of distinct folder ids per user
+     * @param seed random seed
+     */
+    public FolderChangeEventGenerator(int userCount, int foldersPerUser, long seed) {
+        if (userCount <= 0 || foldersPerUser <= 0) {
+            throw new IllegalArgumentException("User and folder counts must be positive");
+        }
+        this.random = new Random(seed);
+        this.users = new ArrayList<>(userCount);
+        this.folderIdsByUser = new ArrayList<>(userCount);
+        for (int u = 0; u < userCount; u++) {
+            Email user = Email.of("user" + u + "@example.com");
+            users.add(user);
+            userFolders.put(user, new LinkedHashMap<>());
+            globalFolders.put(user, new LinkedHashMap<>());
+            List<FolderId> folderIds = new ArrayList<>(foldersPerUser);
+            for (int f = 0; f < foldersPerUser; f++) {
+                folderIds.add(FolderId.of(new UUID(random.nextLong(), random.nextLong()).toString()));
+            }
+            folderIdsByUser.add(folderIds);
+        }
+    }
+
+    /**
+     * Produces the next event: a creation if the picked folder is absent on the picked side,
+     * otherwise a rename or a deletion.
+     *
+     * @return the generated event, already applied to the model
+     */
+    public FolderChangeEvent next() {
+        int userIndex = random.nextInt(users.size());
+        Email user = users.get(userIndex);
+        List<FolderId> folderIds = folderIdsByUser.get(userIndex);
+        FolderId folderId = folderIds.get(random.nextInt(folderIds.size()));
+        FolderChangeEvent.Side side = random.nextBoolean() ? FolderChangeEvent.Side.USER : FolderChangeEvent.Side.GLOBAL;
+        Map<FolderId, FolderName> folders = (side == FolderChangeEvent.Side.USER ? userFolders : globalFolders).get(user);
+        FolderName name = NAMES.get(random.nextInt(NAMES.size()));
+
+        if (!folders.containsKey(folderId)) {
+            folders.put(folderId, name);
+            return FolderChangeEvent.created(side, user, folderId, name);
+        }
+        if (random.nextInt(3) == 0) {
+            folders.remove(folderId);
+            return FolderChangeEvent.deleted(side, user, folderId);
+        }
+        folders.put(folderId, name);
+        return FolderChangeEvent.renamed(side, user, folderId, name);
+    }
+
+    /**
+     * Feeds generated events to the ingestion port at a fixed rate.
+     *
+     * @param ingestion port receiving the events
+     * @param scheduler scheduler running the generation
+     * @param eventsPerSecond target rate
+     * @return handle to stop the generation
+     */
+    public ScheduledFuture<?> start(ForIngestingFolderChanges ingestion, ScheduledExecutorService scheduler, int eventsPerSecond) {
+        if (eventsPerSecond <= 0) {
+            throw new IllegalArgumentException("Event rate must be positive");
+        }
+        long periodMicros = Math.max(1, 1_000_000L / eventsPerSecond);
+        return scheduler.scheduleAtFixedRate(() -> ingestion.applyFolderChange(next()), 0, periodMicros, TimeUnit.MICROSECONDS);
+    }
+
+    public List<Email> getUsers() {
+        return Collections.unmodifiableList(users);
+    }
+
+    /**
+     * @return the user-side folders resulting from the events generated so far
+     */
+    public List<UserFolders> currentUserFolders() {
+        List<UserFolders> result = new ArrayList<>(users.size());
+        for (Map.Entry<Email, Map<FolderId, FolderName>> entry : userFolders.entrySet()) {
+            List<UserFolder> folders = new ArrayList<>();
+            entry.getValue().forEach((id, name) -> folders.add(UserFolder.of(id, name)));
+            result.add(UserFolders.of(entry.getKey(), folders));
+        }
+        return result;
+    }
+
+    /**
+     * @return the global-side folders resulting from the events generated so far
+     */
+    public List<GlobalFolder> currentGlobalFolders() {
+        List<GlobalFolder> result = new ArrayList<>();
+        for (Map.Entry<Email, Map<FolderId, FolderName>> entry : globalFolders.entrySet()) {
+            entry.getValue().forEach((id, name) -> result.add(GlobalFolder.of(id, entry.getKey(), name)));
+        }
+        return result;
+    }
+}
@@ -1,81 +1,193 @@
 package com.linagora.consistency.adapter.driving;
 
-import com.linagora.consistency.adapter.driving.dto.InconsistencyDto;
-import com.linagora.consistency.adapter.driving.dto.InconsistencyReportDto;
-import com.linagora.consistency.adapter.driving.dto.InconsistencySummaryDto;
-import com.linagora.consistency.domain.model.Inconsistency;
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.InconsistencyRateEstimate;
 import com.linagora.consistency.domain.model.InconsistencyReport;
-import com.linagora.consistency.domain.model.InconsistencyType;
 import com.linagora.consistency.domain.port.driving.ForDetectingInconsistencies;
+import com.linagora.consistency.domain.port.driving.ForDetectingUserInconsistencies;
+import com.linagora.consistency.domain.port.driving.ForEstimatingInconsistencyRates;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.format.annotation.DurationFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.time.Duration;
+import java.util.Optional;
 
 /**
  * REST controller (driving adapter) exposing the inconsistency detection endpoint.
- * Implements reactive WebFlux controller returning Mono for non-blocking responses.
+ * Implements reactive WebFlux controller streaming the report without intermediate DTOs.
  */
 @RestController
 @RequestMapping("/inconsistencies")
 public class InconsistencyController {
 
     private final ForDetectingInconsistencies inconsistencyDetector;
+    private final ForDetectingUserInconsistencies userInconsistencyDetector;
+    private final ForEstimatingInconsistencyRates rateEstimator;
+    private final Optional<CompressedReportCache> compressedReportCache;
+    private final JsonReportWriter jsonReportWriter = new JsonReportWriter();
+    private final BinaryReportWriter binaryReportWriter = new BinaryReportWriter();
 
-    public InconsistencyController(ForDetectingInconsistencies inconsistencyDetector) {
+    public InconsistencyController(
+        ForDetectingInconsistencies inconsistencyDetector,
+        ForDetectingUserInconsistencies userInconsistencyDetector,
+        ForEstimatingInconsistencyRates rateEstimator,
+        Optional<CompressedReportCache> compressedReportCache
+    ) {
         this.inconsistencyDetector = inconsistencyDetector;
+        this.userInconsistencyDetector = userInconsistencyDetector;
+        this.rateEstimator = rateEstimator;
+        this.compressedReportCache = compressedReportCache;
     }
 
     /**
      * GET /inconsistencies
      * Returns all detected inconsistencies between data sources.
+     * The domain report is encoded directly into response buffers, or served from the
+     * precomputed (gzip) snapshot of the current generation when report caching is enabled.
+     * With a deadline (e.g. {@code ?deadline=5s}), the scan stops fetching user folders when it is reached
+     * and the report is flagged partial, with its coverage and the users left unchecked. Scan modes that cannot
+     * stop early (sort-merge) reject a deadline.
      *
-     * @return Mono of InconsistencyReportDto (reactive response)
+     * @param request the current request, providing the accepted encodings
+     * @param response the current response, providing the (pooled) buffer factory
+     * @param deadline optional time budget of the scan
+     * @return Flux of JSON chunks (reactive response)
      */
-    @GetMapping
-    public Mono<InconsistencyReportDto> getInconsistencies() {
-        return Mono.fromCallable(inconsistencyDetector::detectInconsistencies)
-            .map(this::toDto)
-            .subscribeOn(Schedulers.boundedElastic()); // Run on separate thread pool
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<DataBuffer> getInconsistencies(
+        ServerHttpRequest request,
+        ServerHttpResponse response,
+        @RequestParam(required = false) @DurationFormat(style = DurationFormat.Style.SIMPLE) Duration deadline
+    ) {
+        if (deadline != null && (deadline.isNegative() || deadline.isZero())) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Deadline must be positive"));
+        }
+        if (deadline != null && !inconsistencyDetector.supportsDeadline()) {
+            // A full report returned unflagged would look like the scan fit the budget
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Deadline is not supported by the configured scan mode"));
+        }
+
+        return detectInconsistencies(deadline)
+            .flatMapMany(report -> compressedReportCache
+                // Partial reports are one-offs, the snapshot is kept for the cached generation
+                .filter(cache -> !report.isPartial())
+                .map(cache -> writeSnapshot(cache.snapshotOf(report), request, response))
+                .orElseGet(() -> jsonReportWriter.write(report, response.bufferFactory())));
+    }
+
+    /**
+     * GET /inconsistencies with Accept: application/vnd.linagora.inconsistency-report
+     * Returns the same report in the compact binary encoding described in {@link BinaryReportWriter}.
+     *
+     * @param response the current response, providing the (pooled) buffer factory
+     * @return Flux of binary chunks (reactive response)
+     */
+    @GetMapping(produces = BinaryReportWriter.MEDIA_TYPE_VALUE)
+    public Flux<DataBuffer> getInconsistenciesAsBinary(ServerHttpResponse response) {
+        return detectInconsistencies(null)
+            .flatMapMany(report -> binaryReportWriter.write(report, response.bufferFactory()));
+    }
+
+    /**
+     * GET /inconsistencies?mode=sample&confidence=0.95&margin=0.01
+     * Returns estimated shares of inconsistent users, overall and per type, with confidence intervals,
+     * computed from a stratified random sample of users instead of a full scan.
+     *
+     * @param confidence confidence level of the intervals
+     * @param margin targeted half-width of the intervals
+     * @return Mono of the estimate (reactive response)
+     */
+    @GetMapping(params = "mode=sample", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<InconsistencyRateEstimate> getInconsistencyRates(
+        @RequestParam(defaultValue = "0.95") double confidence,
+        @RequestParam(defaultValue = "0.05") double margin
+    ) {
+        return Mono.fromCallable(() -> rateEstimator.estimateInconsistencyRates(confidence, margin))
+            .subscribeOn(Schedulers.boundedElastic())
+            .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
     }
 
-    private InconsistencyReportDto toDto(InconsistencyReport report) {
-        InconsistencySummaryDto summary = new InconsistencySummaryDto(
-            report.getTotalCount(),
-            convertCountsByType(report.getCountsByType())
-        );
+    /**
+     * GET /inconsistencies/users/{email}
+     * Returns the inconsistencies of a single user, checked against the latest global index.
+     *
+     * @param email the user's email address
+     * @param response the current response, providing the (pooled) buffer factory
+     * @return Flux of JSON chunks (reactive response)
+     */
+    @GetMapping(path = "/users/{email}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<DataBuffer> getUserInconsistencies(@PathVariable String email, ServerHttpResponse response) {
+        Email userEmail;
+        try {
+            userEmail = Email.of(email);
+        } catch (IllegalArgumentException e) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+        }
+
+        return Mono.fromCallable(() -> userInconsistencyDetector.detectInconsistenciesForUser(userEmail))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMapMany(report -> jsonReportWriter.write(report, response.bufferFactory()));
+    }
+
+    private Mono<InconsistencyReport> detectInconsistencies(Duration deadline) {
+        // Run on separate thread pool. Cancelling the subscription, when the client goes away, interrupts
+        // that thread: the scan then cancels its pending fetches, which dispose their upstream exchanges
+        return Mono.fromCallable(() -> deadline != null
+                ? inconsistencyDetector.detectInconsistencies(deadline)
+                : inconsistencyDetector.detectInconsistencies())
+            .subscribeOn(Schedulers.boundedElastic());
+    }
 
-        List<InconsistencyDto> inconsistencies = report.getInconsistencies().stream()
-            .map(this::toDto)
-            .toList();
+    private Flux<DataBuffer> writeSnapshot(
+        CompressedReportCache.Snapshot snapshot,
+        ServerHttpRequest request,
+        ServerHttpResponse response
+    ) {
+        HttpHeaders headers = response.getHeaders();
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
 
-        return new InconsistencyReportDto(summary, inconsistencies);
+        // Setting Content-Encoding also keeps the server from compressing the body again
+        byte[] body = snapshot.json();
+        if (acceptsGzip(request.getHeaders())) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = snapshot.gzip();
+        }
+        headers.setContentLength(body.length);
+        return Flux.just(response.bufferFactory().wrap(body));
     }
 
-    private Map<String, Long> convertCountsByType(Map<InconsistencyType, Long> countsByType) {
-        return countsByType.entrySet().stream()
-            .collect(Collectors.toMap(
-                entry -> entry.getKey().name(),
-                Map.Entry::getValue
-            ));
+    private boolean acceptsGzip(HttpHeaders requestHeaders) {
+        for (String header : requestHeaders.getOrEmpty(HttpHeaders.ACCEPT_ENCODING)) {
+            for (String coding : header.split(",")) {
+                String[] parts = coding.trim().split(";");
+                if (parts[0].trim().equalsIgnoreCase("gzip") && !isZeroQuality(parts)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
-    private InconsistencyDto toDto(Inconsistency inconsistency) {
-        return new InconsistencyDto(
-            inconsistency.getType().name(),
-            inconsistency.getFolderId().getValue(),
-            inconsistency.getUserEmail().getValue(),
-            inconsistency.getGlobalFolderName()
-                .map(name -> name.getValue())
-                .orElse(null),
-            inconsistency.getUserFolderName()
-                .map(name -> name.getValue())
-                .orElse(null)
-        );
+    private boolean isZeroQuality(String[] codingParts) {
+        for (int i = 1; i < codingParts.length; i++) {
+            if (codingParts[i].trim().matches("q\\s*=\\s*0(\\.0{0,3})?")) {
+                return true;
+            }
+        }
+        return false;
     }
 }
@@ -0,0 +1,259 @@
+package com.linagora.consistency.adapter.driving;
+
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.FolderName;
+import com.linagora.consistency.domain.model.Inconsistency;
+import com.linagora.consistency.domain.model.InconsistencyReport;
+import com.linagora.consistency.domain.model.InconsistencyType;
+import com.linagora.consistency.domain.model.ScanCoverage;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Streaming JSON writer encoding a domain report straight into data buffers.
+ * Avoids intermediate DTOs: field keys and type names are precomputed byte arrays,
+ * and the inconsistencies are written in chunks allocated from the response buffer factory
+ * (pooled Netty buffers on the server).
+ */
+public final class JsonReportWriter {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int FLUSH_THRESHOLD = CHUNK_SIZE - 4 * 1024;
+
+    private static final byte[] SUMMARY_START = ascii("{\"summary\":{\"totalInconsistencies\":");
+    private static final byte[] COUNTS_BY_TYPE_START = ascii(",\"countsByType\":{");
+    private static final byte[] GLOBAL_INDEX_VERSION_FIELD = ascii(",\"globalIndexVersion\":");
+    private static final byte[] PARTIAL_COVERAGE_FIELD = ascii(",\"partial\":true,\"coveragePercent\":");
+    private static final byte[] CHECKED_USERS_FIELD = ascii(",\"checkedUsers\":");
+    private static final byte[] TOTAL_USERS_FIELD = ascii(",\"totalUsers\":");
+    private static final byte[] UNCHECKED_USERS_START = ascii(",\"uncheckedUsers\":[");
+    private static final byte[] INCONSISTENCIES_START = ascii("},\"inconsistencies\":[");
+    private static final byte[] REPORT_END = ascii("]}");
+
+    private static final byte[] TYPE_FIELD = ascii("{\"type\":");
+    private static final byte[] FOLDER_ID_FIELD = ascii(",\"folderId\":");
+    private static final byte[] GLOBAL_FOLDER_ID_FIELD = ascii(",\"globalFolderId\":");
+    private static final byte[] USER_EMAIL_FIELD = ascii(",\"userEmail\":");
+    private static final byte[] GLOBAL_FOLDER_NAME_FIELD = ascii(",\"globalFolderName\":");
+    private static final byte[] USER_FOLDER_NAME_FIELD = ascii(",\"userFolderName\":");
+    private static final byte[] NULL = ascii("null");
+
+    private static final byte[] HEX_DIGITS = ascii("0123456789abcdef");
+
+    // Quoted type names indexed by ordinal, e.g. "NAME_MISMATCH" with surrounding quotes
+    private static final byte[][] QUOTED_TYPE_NAMES = quotedTypeNames();
+
+    /**
+     * Encodes the report as a stream of JSON chunks.
+     * Buffers are produced lazily on demand and released if the subscriber cancels.
+     *
+     * @param report the report to encode
+     * @param bufferFactory factory used to allocate output buffers
+     * @return flux of buffers forming the JSON document
+     */
+    public Flux<DataBuffer> write(InconsistencyReport report, DataBufferFactory bufferFactory) {
+        List<Inconsistency> inconsistencies = report.getInconsistencies();
+
+        return Flux.<DataBuffer, Integer>generate(() -> -1, (next, sink) -> {
+            DataBuffer buffer = bufferFactory.allocateBuffer(CHUNK_SIZE);
+            int index = next;
+
+            try {
+                if (index < 0) {
+                    writeSummary(buffer, report);
+                    index = 0;
+                }
+
+                while (index < inconsistencies.size() && buffer.readableByteCount() < FLUSH_THRESHOLD) {
+                    if (index > 0) {
+                        buffer.write((byte) ',');
+                    }
+                    writeInconsistency(buffer, inconsistencies.get(index));
+                    index++;
+                }
+            } catch (RuntimeException e) {
+                // Not emitted yet, so not released by the subscriber nor by the discard hook
+                DataBufferUtils.release(buffer);
+                throw e;
+            }
+
+            if (index == inconsistencies.size()) {
+                buffer.write(REPORT_END);
+                sink.next(buffer);
+                sink.complete();
+            } else {
+                sink.next(buffer);
+            }
+            return index;
+        }).doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+    }
+
+    private void writeSummary(DataBuffer buffer, InconsistencyReport report) {
+        buffer.write(SUMMARY_START);
+        writeNumber(buffer, report.getTotalCount());
+        buffer.write(COUNTS_BY_TYPE_START);
+
+        boolean first = true;
+        for (Map.Entry<InconsistencyType, Long> entry : report.getCountsByType().entrySet()) {
+            if (!first) {
+                buffer.write((byte) ',');
+            }
+            buffer.write(QUOTED_TYPE_NAMES[entry.getKey().ordinal()]);
+            buffer.write((byte) ':');
+            writeNumber(buffer, entry.getValue());
+            first = false;
+        }
+
+        buffer.write((byte) '}');
+
+        if (report.getGlobalIndexVersion().isPresent()) {
+            buffer.write(GLOBAL_INDEX_VERSION_FIELD);
+            writeNumber(buffer, report.getGlobalIndexVersion().getAsLong());
+        }
+        report.getCoverage().ifPresent(coverage -> writeCoverage(buffer, coverage));
+        buffer.write(INCONSISTENCIES_START);
+    }
+
+    /**
+     * Writes the coverage of a partial report. The unchecked users may outgrow the chunk size,
+     * the buffer then expands: partial reports are rare, and bounded by the users list.
+     */
+    private void writeCoverage(DataBuffer buffer, ScanCoverage coverage) {
+        buffer.write(PARTIAL_COVERAGE_FIELD);
+        // Two decimals rounded down, so that a partial report never shows 100, and never in exponent notation
+        buffer.write(ascii(Double.toString(Math.floor(coverage.getPercentage() * 100) / 100)));
+        buffer.write(CHECKED_USERS_FIELD);
+        writeNumber(buffer, coverage.getCheckedUsers());
+        buffer.write(TOTAL_USERS_FIELD);
+        writeNumber(buffer, coverage.getTotalUsers());
+        buffer.write(UNCHECKED_USERS_START);
+        List<Email> uncheckedUsers = coverage.getUncheckedUsers();
+        for (int i = 0; i < uncheckedUsers.size(); i++) {
+            if (i > 0) {
+                buffer.write((byte) ',');
+            }
+            writeString(buffer, uncheckedUsers.get(i).getValue());
+        }
+        buffer.write((byte) ']');
+    }
+
+    void writeInconsistency(DataBuffer buffer, Inconsistency inconsistency) {
+        buffer.write(TYPE_FIELD);
+        buffer.write(QUOTED_TYPE_NAMES[inconsistency.getType().ordinal()]);
+        buffer.write(FOLDER_ID_FIELD);
+        if (inconsistency.getFolderId().isPresent()) {
+            writeString(buffer, inconsistency.getFolderId().get().getValue());
+        } else {
+            buffer.write(NULL);
+        }
+        if (inconsistency.getGlobalFolderId().isPresent()) {
+            buffer.write(GLOBAL_FOLDER_ID_FIELD);
+            writeString(buffer, inconsistency.getGlobalFolderId().get().getValue());
+        }
+        buffer.write(USER_EMAIL_FIELD);
+        writeString(buffer, inconsistency.getUserEmail().getValue());
+        buffer.write(GLOBAL_FOLDER_NAME_FIELD);
+        writeName(buffer, inconsistency.getGlobalFolderName());
+        buffer.write(USER_FOLDER_NAME_FIELD);
+        writeName(buffer, inconsistency.getUserFolderName());
+        buffer.write((byte) '}');
+    }
+
+    private void writeName(DataBuffer buffer, Optional<FolderName> name) {
+        if (name.isPresent()) {
+            writeString(buffer, name.get().getValue());
+        } else {
+            buffer.write(NULL);
+        }
+    }
+
+    /**
+     * Writes a non-negative number digit by digit, without intermediate strings.
+     */
+    private void writeNumber(DataBuffer buffer, long value) {
+        long divisor = 1;
+        while (divisor <= value / 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.write((byte) ('0' + value / divisor % 10));
+        }
+    }
+
+    /**
+     * Writes a quoted JSON string, escaping as required and encoding as UTF-8 without
+     * intermediate byte arrays.
+     */
+    private void writeString(DataBuffer buffer, String value) {
+        buffer.write((byte) '"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                writeAscii(buffer, c);
+            } else if (c < 0x800) {
+                buffer.write((byte) (0xC0 | (c >> 6)));
+                buffer.write((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.write((byte) (0xF0 | (codePoint >> 18)));
+                buffer.write((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.write((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.write((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate: emit as an escape rather than invalid UTF-8
+                writeUnicodeEscape(buffer, c);
+            } else {
+                buffer.write((byte) (0xE0 | (c >> 12)));
+                buffer.write((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.write((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        buffer.write((byte) '"');
+    }
+
+    private void writeAscii(DataBuffer buffer, char c) {
+        switch (c) {
+            case '"' -> buffer.write((byte) '\\').write((byte) '"');
+            case '\\' -> buffer.write((byte) '\\').write((byte) '\\');
+            case '\n' -> buffer.write((byte) '\\').write((byte) 'n');
+            case '\r' -> buffer.write((byte) '\\').write((byte) 'r');
+            case '\t' -> buffer.write((byte) '\\').write((byte) 't');
+            default -> {
+                if (c < 0x20) {
+                    writeUnicodeEscape(buffer, c);
+                } else {
+                    buffer.write((byte) c);
+                }
+            }
+        }
+    }
+
+    private void writeUnicodeEscape(DataBuffer buffer, char c) {
+        buffer.write((byte) '\\').write((byte) 'u')
+            .write(HEX_DIGITS[(c >> 12) & 0xF])
+            .write(HEX_DIGITS[(c >> 8) & 0xF])
+            .write(HEX_DIGITS[(c >> 4) & 0xF])
+            .write(HEX_DIGITS[c & 0xF]);
+    }
+
+    private static byte[][] quotedTypeNames() {
+        InconsistencyType[] types = InconsistencyType.values();
+        byte[][] names = new byte[types.length][];
+        for (InconsistencyType type : types) {
+            names[type.ordinal()] = ascii('"' + type.name() + '"');
+        }
+        return names;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
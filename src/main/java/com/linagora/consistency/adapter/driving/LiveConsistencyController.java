@@ -0,0 +1,136 @@
+package com.linagora.consistency.adapter.driving;
+
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.FolderChangeEvent;
+import com.linagora.consistency.domain.model.FolderId;
+import com.linagora.consistency.domain.model.FolderName;
+import com.linagora.consistency.domain.port.driving.ForIngestingFolderChanges;
+import com.linagora.consistency.domain.port.driving.ForQueryingLiveInconsistencies;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * REST controller (driving adapter) feeding folder change events into the live consistency state
+ * and serving its inconsistencies without scanning.
+ * Only registered when the live state is enabled.
+ */
+@RestController
+@RequestMapping("/live")
+@ConditionalOnProperty(name = "consistency.live.enabled", havingValue = "true")
+public class LiveConsistencyController {
+
+    private final ForIngestingFolderChanges folderChangeIngestion;
+    private final ForQueryingLiveInconsistencies liveInconsistencies;
+    private final JsonReportWriter jsonReportWriter = new JsonReportWriter();
+
+    public LiveConsistencyController(
+        ForIngestingFolderChanges folderChangeIngestion,
+        ForQueryingLiveInconsistencies liveInconsistencies
+    ) {
+        this.folderChangeIngestion = folderChangeIngestion;
+        this.liveInconsistencies = liveInconsistencies;
+    }
+
+    /**
+     * POST /live/folder-changes
+     * Applies a batch of folder change events, in order, off the event loop. The whole batch is validated first.
+     *
+     * @param changes the events to apply
+     * @return empty response once applied (202)
+     */
+    @PostMapping(path = "/folder-changes", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Mono<Void> postFolderChanges(@RequestBody List<FolderChangeRequest> changes) {
+        List<FolderChangeEvent> events = new ArrayList<>(changes.size());
+        try {
+            for (FolderChangeRequest change : changes) {
+                events.add(change.toEvent());
+            }
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+        }
+        // Applying waits for the state's lock, which a reconcile or report rebuild may hold
+        return Mono.fromRunnable(() -> events.forEach(folderChangeIngestion::applyFolderChange))
+            .subscribeOn(Schedulers.boundedElastic())
+            .then();
+    }
+
+    /**
+     * GET /live/inconsistencies
+     * Returns the live inconsistencies of every tracked user.
+     *
+     * @param response the current response, providing the (pooled) buffer factory
+     * @return Flux of JSON chunks (reactive response)
+     */
+    @GetMapping(path = "/inconsistencies", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<DataBuffer> getLiveInconsistencies(ServerHttpResponse response) {
+        // Assembled from the per-user reports on the first read after changes
+        return Mono.fromCallable(liveInconsistencies::liveInconsistencies)
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMapMany(report -> jsonReportWriter.write(report, response.bufferFactory()));
+    }
+
+    /**
+     * GET /live/inconsistencies/users/{email}
+     * Returns the live inconsistencies of a single user.
+     *
+     * @param email the user's email address
+     * @param response the current response, providing the (pooled) buffer factory
+     * @return Flux of JSON chunks (reactive response)
+     */
+    @GetMapping(path = "/inconsistencies/users/{email}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<DataBuffer> getLiveUserInconsistencies(@PathVariable String email, ServerHttpResponse response) {
+        Email userEmail;
+        try {
+            userEmail = Email.of(email);
+        } catch (IllegalArgumentException e) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+        }
+        return Mono.fromCallable(() -> liveInconsistencies.liveInconsistenciesForUser(userEmail))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMapMany(report -> jsonReportWriter.write(report, response.bufferFactory()));
+    }
+
+    /**
+     * POST /live/reconcile
+     * Rebuilds the live state from a full load of both sources.
+     *
+     * @return empty response once reconciled
+     */
+    @PostMapping("/reconcile")
+    public Mono<Void> reconcile() {
+        return Mono.fromRunnable(liveInconsistencies::reconcile)
+            .subscribeOn(Schedulers.boundedElastic())
+            .then();
+    }
+
+    /**
+     * Folder change as posted by notification sources.
+     * {@code side} is USER or GLOBAL, {@code kind} is CREATED, RENAMED or DELETED,
+     * {@code name} is required unless the folder is deleted.
+     */
+    public record FolderChangeRequest(String side, String kind, String userEmail, String folderId, String name) {
+
+        FolderChangeEvent toEvent() {
+            return FolderChangeEvent.of(
+                FolderChangeEvent.Side.valueOf(side),
+                FolderChangeEvent.Kind.valueOf(kind),
+                Email.of(userEmail),
+                FolderId.of(folderId),
+                Optional.ofNullable(name).map(FolderName::of)
+            );
+        }
+    }
+}
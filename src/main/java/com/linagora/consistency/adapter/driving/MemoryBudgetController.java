@@ -0,0 +1,58 @@
+package com.linagora.consistency.adapter.driving;
+
+import com.linagora.consistency.domain.model.MemoryBudgetStatistics;
+import com.linagora.consistency.domain.port.driving.ForMonitoringMemoryBudget;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * REST controller (driving adapter) exposing the use of the scan memory budget.
+ */
+@RestController
+@RequestMapping("/memory-budget")
+public class MemoryBudgetController {
+
+    private final ForMonitoringMemoryBudget memoryBudget;
+
+    public MemoryBudgetController(ForMonitoringMemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * GET /memory-budget
+     * Returns the estimated size of in-flight user folders against the budget.
+     *
+     * @return Mono of the budget use (reactive response)
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<MemoryBudgetMetrics> getMemoryBudget() {
+        return Mono.fromCallable(() -> MemoryBudgetMetrics.of(memoryBudget.statistics()));
+    }
+
+    /**
+     * Use of the memory budget.
+     */
+    public record MemoryBudgetMetrics(
+        long budgetBytes,
+        long inFlightBytes,
+        long peakInFlightBytes,
+        double utilization,
+        long admittedFetches,
+        long deferredAdmissions
+    ) {
+
+        static MemoryBudgetMetrics of(MemoryBudgetStatistics statistics) {
+            return new MemoryBudgetMetrics(
+                statistics.getBudgetBytes(),
+                statistics.getInFlightBytes(),
+                statistics.getPeakInFlightBytes(),
+                statistics.getUtilization(),
+                statistics.getAdmittedFetches(),
+                statistics.getDeferredAdmissions()
+            );
+        }
+    }
+}
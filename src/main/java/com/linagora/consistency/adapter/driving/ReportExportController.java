@@ -0,0 +1,50 @@
+package com.linagora.consistency.adapter.driving;
+
+import com.linagora.consistency.domain.port.driving.ForDetectingInconsistencies;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Locale;
+
+/**
+ * REST controller (driving adapter) archiving full reports as chunked files on the server.
+ * Only registered when an export directory is configured.
+ */
+@RestController
+@RequestMapping("/inconsistencies/exports")
+@ConditionalOnExpression("'${consistency.export.directory:}' != ''")
+public class ReportExportController {
+
+    private final ForDetectingInconsistencies inconsistencyDetector;
+    private final ReportExporter reportExporter;
+
+    public ReportExportController(ForDetectingInconsistencies inconsistencyDetector, ReportExporter reportExporter) {
+        this.inconsistencyDetector = inconsistencyDetector;
+        this.reportExporter = reportExporter;
+    }
+
+    /**
+     * POST /inconsistencies/exports?format=csv
+     * Scans (or reuses the cached report) and writes it into a new export directory.
+     *
+     * @param format csv or jsonl
+     * @return Mono of the export manifest once every file is written (201)
+     */
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<ReportExporter.ExportManifest> postExport(@RequestParam(defaultValue = "csv") String format) {
+        ReportExporter.Format exportFormat;
+        try {
+            exportFormat = ReportExporter.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown export format: " + format, e));
+        }
+        return Mono.fromCallable(() -> reportExporter.export(inconsistencyDetector.detectInconsistencies(), exportFormat))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,347 @@
+package com.linagora.consistency.adapter.driving;
+
+import com.linagora.consistency.domain.model.FolderId;
+import com.linagora.consistency.domain.model.FolderName;
+import com.linagora.consistency.domain.model.Inconsistency;
+import com.linagora.consistency.domain.model.InconsistencyReport;
+import com.linagora.consistency.domain.model.InconsistencyType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archives full reports as CSV or JSON-lines files.
+ * The report is split into contiguous shards written in parallel; each shard rolls over to a new
+ * chunk file when the next row would exceed the chunk size, so every chunk is readable on its own
+ * (CSV chunks repeat the header). Rows are encoded into one reused direct buffer per shard and
+ * written through a {@link FileChannel}, optionally gzip-compressed per chunk.
+ * A {@code manifest.json} listing the chunks with their row count, size and SHA-256 is written last,
+ * so its presence marks a complete export.
+ *
+ * <p>Writing adds one buffer per shard to the heap, whatever the report size. The report itself is
+ * an in-memory list produced by the detector beforehand, so the exportable size remains bounded by
+ * the heap, as for {@code GET /inconsistencies}.
+ */
+public class ReportExporter {
+
+    /**
+     * Row encoding of the exported files.
+     */
+    public enum Format {
+        CSV("csv"),
+        JSONL("jsonl");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    /**
+     * One exported file.
+     *
+     * @param file file name, relative to the export directory
+     * @param shard index of the shard that wrote it
+     * @param rows number of inconsistencies
+     * @param bytes file size
+     * @param sha256 hex SHA-256 of the file content
+     */
+    public record ExportedChunk(String file, int shard, long rows, long bytes, String sha256) {
+    }
+
+    /**
+     * Content of the manifest file.
+     */
+    public record ExportManifest(
+        String exportId,
+        Instant exportedAt,
+        String format,
+        boolean gzip,
+        long totalRows,
+        Map<InconsistencyType, Long> countsByType,
+        List<ExportedChunk> chunks
+    ) {
+    }
+
+    static final String MANIFEST_FILE = "manifest.json";
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int FLUSH_THRESHOLD = BUFFER_SIZE - 64 * 1024;
+    private static final byte[] CSV_HEADER = "type,folderId,userEmail,globalFolderName,userFolderName,globalFolderId\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final DateTimeFormatter EXPORT_ID_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS'Z'").withZone(ZoneOffset.UTC);
+
+    private final Path directory;
+    private final long maxChunkBytes;
+    private final int shards;
+    private final boolean gzip;
+    private final ExecutorService executorService;
+    private final Clock clock;
+    private final JsonReportWriter jsonReportWriter = new JsonReportWriter();
+    private final DefaultDataBufferFactory directBufferFactory = new DefaultDataBufferFactory(true, BUFFER_SIZE);
+
+    /**
+     * @param directory parent directory of the exports, one subdirectory per export
+     * @param maxChunkBytes maximum (uncompressed) size of a chunk file; a single larger row gets a chunk of its own
+     * @param shards maximum number of files written in parallel
+     * @param gzip whether chunk files are gzip-compressed
+     * @param executorService pool running the shard writers, distinct from the scan pool so that exports do not delay scans
+     * @param clock source of the export timestamps
+     */
+    public ReportExporter(Path directory, long maxChunkBytes, int shards, boolean gzip, ExecutorService executorService, Clock clock) {
+        if (maxChunkBytes <= 0 || shards <= 0) {
+            throw new IllegalArgumentException("Chunk size and shard count must be positive");
+        }
+        this.directory = Objects.requireNonNull(directory, "directory cannot be null");
+        this.maxChunkBytes = maxChunkBytes;
+        this.shards = shards;
+        this.gzip = gzip;
+        this.executorService = Objects.requireNonNull(executorService, "executorService cannot be null");
+        this.clock = Objects.requireNonNull(clock, "clock cannot be null");
+    }
+
+    /**
+     * Writes the report into a new export directory, named after the export time and a random suffix
+     * so that concurrent exports never share a directory.
+     *
+     * @param report the report to export
+     * @param format row encoding
+     * @return the manifest, also written as {@value #MANIFEST_FILE}
+     */
+    public ExportManifest export(InconsistencyReport report, Format format) {
+        Instant exportedAt = clock.instant();
+        String exportId = String.format("export-%s-%08x", EXPORT_ID_FORMAT.format(exportedAt), ThreadLocalRandom.current().nextInt());
+        Path exportDirectory = directory.resolve(exportId);
+        try {
+            Files.createDirectories(directory);
+            Files.createDirectory(exportDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create export directory " + exportDirectory, e);
+        }
+
+        List<Inconsistency> inconsistencies = report.getInconsistencies();
+        int shardCount = Math.min(shards, inconsistencies.size());
+        List<Callable<List<ExportedChunk>>> writers = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            List<Inconsistency> rows = inconsistencies.subList(
+                (int) ((long) inconsistencies.size() * shard / shardCount),
+                (int) ((long) inconsistencies.size() * (shard + 1) / shardCount)
+            );
+            ShardWriter writer = new ShardWriter(exportDirectory, shard, format);
+            writers.add(() -> writer.writeAll(rows));
+        }
+
+        List<ExportedChunk> chunks = new ArrayList<>();
+        try {
+            for (Future<List<ExportedChunk>> future : executorService.invokeAll(writers)) {
+                chunks.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while exporting report", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error exporting report to " + exportDirectory, e.getCause());
+        }
+
+        ExportManifest manifest = new ExportManifest(
+            exportId,
+            exportedAt,
+            format.extension,
+            gzip,
+            inconsistencies.size(),
+            report.getCountsByType(),
+            chunks
+        );
+        writeManifest(exportDirectory, manifest);
+        return manifest;
+    }
+
+    private void writeManifest(Path exportDirectory, ExportManifest manifest) {
+        try {
+            Path temporaryFile = Files.createTempFile(exportDirectory, MANIFEST_FILE, ".tmp");
+            try (OutputStream output = Files.newOutputStream(temporaryFile)) {
+                JsonMapper.builder().build().writerWithDefaultPrettyPrinter().writeValue(output, manifest);
+            }
+            Files.move(temporaryFile, exportDirectory.resolve(MANIFEST_FILE), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write export manifest in " + exportDirectory, e);
+        }
+    }
+
+    /**
+     * Writes the rows of one shard into rolling chunk files. Confined to one thread.
+     */
+    private final class ShardWriter {
+
+        private final Path exportDirectory;
+        private final int shard;
+        private final Format format;
+        private final List<ExportedChunk> chunks = new ArrayList<>();
+        private DataBuffer buffer;
+        private int chunkIndex;
+        private String chunkFile;
+        private WritableByteChannel target;
+        private MessageDigest digest;
+        private long chunkBytes;
+        private long chunkRows;
+
+        ShardWriter(Path exportDirectory, int shard, Format format) {
+            this.exportDirectory = exportDirectory;
+            this.shard = shard;
+            this.format = format;
+        }
+
+        List<ExportedChunk> writeAll(List<Inconsistency> rows) throws IOException {
+            buffer = directBufferFactory.allocateBuffer(BUFFER_SIZE);
+            try {
+                for (Inconsistency row : rows) {
+                    append(row);
+                }
+                if (target != null) {
+                    closeChunk();
+                }
+                return chunks;
+            } finally {
+                DataBufferUtils.release(buffer);
+                if (target != null) {
+                    target.close();
+                }
+            }
+        }
+
+        private void append(Inconsistency row) throws IOException {
+            if (target == null) {
+                openChunk();
+            }
+            int rowStart = buffer.writePosition();
+            encode(row);
+            if (chunkRows > 0 && chunkBytes + buffer.readableByteCount() > maxChunkBytes) {
+                // Move the row to a new chunk rather than exceed the size cap
+                buffer.writePosition(rowStart);
+                closeChunk();
+                openChunk();
+                encode(row);
+            }
+            chunkRows++;
+            if (buffer.readableByteCount() >= FLUSH_THRESHOLD) {
+                flush();
+            }
+        }
+
+        private void encode(Inconsistency row) {
+            switch (format) {
+                case CSV -> {
+                    writeCsvField(row.getType().name());
+                    buffer.write((byte) ',');
+                    writeCsvField(row.getFolderId().map(FolderId::getValue).orElse(""));
+                    buffer.write((byte) ',');
+                    writeCsvField(row.getUserEmail().getValue());
+                    buffer.write((byte) ',');
+                    writeCsvField(row.getGlobalFolderName().map(FolderName::getValue).orElse(""));
+                    buffer.write((byte) ',');
+                    writeCsvField(row.getUserFolderName().map(FolderName::getValue).orElse(""));
+                    buffer.write((byte) ',');
+                    writeCsvField(row.getGlobalFolderId().map(FolderId::getValue).orElse(""));
+                    buffer.write((byte) '\r').write((byte) '\n');
+                }
+                case JSONL -> {
+                    jsonReportWriter.writeInconsistency(buffer, row);
+                    buffer.write((byte) '\n');
+                }
+            }
+        }
+
+        private void writeCsvField(String value) {
+            boolean quoted = false;
+            for (int i = 0; i < value.length() && !quoted; i++) {
+                char c = value.charAt(i);
+                quoted = c == ',' || c == '"' || c == '\r' || c == '\n';
+            }
+            if (quoted) {
+                buffer.write((byte) '"');
+                buffer.write(value.replace("\"", "\"\""), StandardCharsets.UTF_8);
+                buffer.write((byte) '"');
+            } else {
+                buffer.write(value, StandardCharsets.UTF_8);
+            }
+        }
+
+        private void openChunk() throws IOException {
+            chunkFile = String.format("part-%05d-%05d.%s%s", shard, chunkIndex++, format.extension, gzip ? ".gz" : "");
+            FileChannel channel = FileChannel.open(exportDirectory.resolve(chunkFile), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            digest = sha256();
+            if (gzip) {
+                // Hash the compressed bytes as they reach the file
+                OutputStream file = new DigestOutputStream(Channels.newOutputStream(channel), digest);
+                target = Channels.newChannel(new GZIPOutputStream(file, 64 * 1024));
+            } else {
+                target = channel;
+            }
+            chunkBytes = 0;
+            chunkRows = 0;
+            if (format == Format.CSV) {
+                buffer.write(CSV_HEADER);
+            }
+        }
+
+        private void flush() throws IOException {
+            try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+                while (iterator.hasNext()) {
+                    ByteBuffer bytes = iterator.next();
+                    chunkBytes += bytes.remaining();
+                    if (!gzip) {
+                        digest.update(bytes.duplicate());
+                    }
+                    while (bytes.hasRemaining()) {
+                        target.write(bytes);
+                    }
+                }
+            }
+            buffer.readPosition(0).writePosition(0);
+        }
+
+        private void closeChunk() throws IOException {
+            flush();
+            target.close();
+            target = null;
+            long size = Files.size(exportDirectory.resolve(chunkFile));
+            chunks.add(new ExportedChunk(chunkFile, shard, chunkRows, size, HexFormat.of().formatHex(digest.digest())));
+        }
+
+        private MessageDigest sha256() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+    }
+}
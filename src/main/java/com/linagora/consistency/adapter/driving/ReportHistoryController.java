@@ -0,0 +1,92 @@
+package com.linagora.consistency.adapter.driving;
+
+import com.linagora.consistency.domain.model.InconsistencyType;
+import com.linagora.consistency.domain.model.ReportDiff;
+import com.linagora.consistency.domain.model.ReportSummary;
+import com.linagora.consistency.domain.port.driving.ForQueryingReportHistory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * REST controller (driving adapter) serving the report history: count trends and
+ * generation-to-generation diffs, computed from stored summaries without scanning.
+ */
+@RestController
+@RequestMapping("/history")
+public class ReportHistoryController {
+
+    private final ForQueryingReportHistory reportHistory;
+
+    public ReportHistoryController(ForQueryingReportHistory reportHistory) {
+        this.reportHistory = reportHistory;
+    }
+
+    /**
+     * GET /history/trend?limit=100
+     * Returns the counts of the latest generations, oldest first.
+     *
+     * @param limit maximum number of generations
+     * @return Mono of the trend points (reactive response)
+     */
+    @GetMapping(path = "/trend", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<List<TrendPoint>> getTrend(@RequestParam(defaultValue = "100") int limit) {
+        return Mono.fromCallable(() -> reportHistory.trend(limit).stream().map(TrendPoint::of).toList())
+            .onErrorMap(IllegalArgumentException.class, e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+    }
+
+    /**
+     * GET /history/diff?from=41&to=42
+     * Returns the changes between two generations, or between the two latest ones when no generation is given.
+     *
+     * @param from the earlier generation
+     * @param to the later generation
+     * @return Mono of the diff (reactive response), 404 when a generation is unknown
+     */
+    @GetMapping(path = "/diff", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ReportDiff> getDiff(@RequestParam Optional<Long> from, @RequestParam Optional<Long> to) {
+        if (from.isPresent() != to.isPresent()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Both from and to are required, or neither"));
+        }
+        // Linear in the size of both generations, and may read them back from the store
+        return Mono.fromCallable(() -> from.isPresent()
+                ? reportHistory.diff(from.get(), to.get())
+                : reportHistory.latestDiff())
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(Mono::justOrEmpty)
+            .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Generation not found")));
+    }
+
+    /**
+     * Counts of one generation.
+     */
+    public record TrendPoint(
+        long generation,
+        Instant generatedAt,
+        long totalInconsistencies,
+        int inconsistentUsers,
+        Map<InconsistencyType, Long> countsByType
+    ) {
+
+        static TrendPoint of(ReportSummary summary) {
+            return new TrendPoint(
+                summary.getGeneration(),
+                summary.getGeneratedAt(),
+                summary.getTotalCount(),
+                summary.getInconsistentUsers(),
+                summary.getCountsByType()
+            );
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.linagora.consistency.adapter.driving;
+
+import com.linagora.consistency.domain.model.InconsistencyType;
+import com.linagora.consistency.domain.model.TenantScanResult;
+import com.linagora.consistency.domain.model.TenantStatistics;
+import com.linagora.consistency.domain.port.driving.ForDetectingTenantInconsistencies;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST controller (driving adapter) exposing per-tenant scans and counters.
+ * Only registered when tenants are configured.
+ */
+@RestController
+@RequestMapping("/tenants")
+@ConditionalOnProperty(name = "consistency.tenants[0].name")
+public class TenantController {
+
+    private final ForDetectingTenantInconsistencies tenantInconsistencyDetector;
+    private final JsonReportWriter jsonReportWriter = new JsonReportWriter();
+
+    public TenantController(ForDetectingTenantInconsistencies tenantInconsistencyDetector) {
+        this.tenantInconsistencyDetector = tenantInconsistencyDetector;
+    }
+
+    /**
+     * GET /tenants
+     * Returns the scheduling and scan counters of every tenant.
+     *
+     * @return Mono of the counters (reactive response)
+     */
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<List<TenantMetrics>> getTenants() {
+        return Mono.fromCallable(() -> tenantInconsistencyDetector.statistics().stream().map(TenantMetrics::of).toList());
+    }
+
+    /**
+     * GET /tenants/inconsistencies
+     * Scans every tenant concurrently and returns the summary of each report, or the error of each failed scan.
+     *
+     * @return Mono of the summaries by tenant (reactive response)
+     */
+    @GetMapping(path = "/inconsistencies", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<List<TenantSummary>> getAllTenantInconsistencies() {
+        return Mono.fromCallable(() -> tenantInconsistencyDetector.detectAllTenants().entrySet().stream()
+                .map(entry -> TenantSummary.of(entry.getKey(), entry.getValue()))
+                .toList())
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * GET /tenants/{tenant}/inconsistencies
+     * Returns the full report of one tenant, in the same format as GET /inconsistencies.
+     *
+     * @param tenant the tenant name
+     * @param response the current response, providing the (pooled) buffer factory
+     * @return Flux of JSON chunks (reactive response), 404 when the tenant is unknown
+     */
+    @GetMapping(path = "/{tenant}/inconsistencies", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<DataBuffer> getTenantInconsistencies(@PathVariable String tenant, ServerHttpResponse response) {
+        return Mono.fromCallable(() -> tenantInconsistencyDetector.detectInconsistencies(tenant))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(Mono::justOrEmpty)
+            .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown tenant: " + tenant)))
+            .flatMapMany(report -> jsonReportWriter.write(report, response.bufferFactory()));
+    }
+
+    /**
+     * Counters of one tenant.
+     */
+    public record TenantMetrics(
+        String tenant,
+        int weight,
+        int maxConcurrency,
+        int queuedTasks,
+        int runningTasks,
+        long completedTasks,
+        long busyMillis,
+        long scans,
+        long failedScans,
+        Instant lastScanAt,
+        Long lastScanMillis,
+        long lastScanInconsistencies
+    ) {
+
+        static TenantMetrics of(TenantStatistics statistics) {
+            return new TenantMetrics(
+                statistics.getTenant(),
+                statistics.getWeight(),
+                statistics.getMaxConcurrency(),
+                statistics.getQueuedTasks(),
+                statistics.getRunningTasks(),
+                statistics.getCompletedTasks(),
+                statistics.getBusyTime().toMillis(),
+                statistics.getScans(),
+                statistics.getFailedScans(),
+                statistics.getLastScanAt().orElse(null),
+                statistics.getLastScanDuration().map(duration -> duration.toMillis()).orElse(null),
+                statistics.getLastScanInconsistencies()
+            );
+        }
+    }
+
+    /**
+     * Summary of one tenant's report; only the error is set when its scan failed.
+     */
+    public record TenantSummary(String tenant, Long totalInconsistencies, Map<InconsistencyType, Long> countsByType, String error) {
+
+        static TenantSummary of(String tenant, TenantScanResult result) {
+            return result.getReport()
+                .map(report -> new TenantSummary(tenant, (long) report.getTotalCount(), report.getCountsByType(), null))
+                .orElseGet(() -> new TenantSummary(tenant, null, null, result.getError().orElseThrow()));
+        }
+    }
+}
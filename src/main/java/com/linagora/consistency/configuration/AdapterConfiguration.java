@@ -1,15 +1,35 @@
 package com.linagora.consistency.configuration;
 
+import com.linagora.consistency.adapter.driven.HedgingPolicy;
 import com.linagora.consistency.adapter.driven.RestApiAdapter;
+import com.linagora.consistency.adapter.driven.history.FileReportHistoryStore;
+import com.linagora.consistency.adapter.driven.history.HeapReportHistoryStore;
+import com.linagora.consistency.adapter.driven.index.HeapGlobalFolderIndexStore;
+import com.linagora.consistency.adapter.driven.index.MappedGlobalFolderIndexStore;
+import com.linagora.consistency.adapter.driving.CompressedReportCache;
+import com.linagora.consistency.adapter.driving.FolderChangeEventGenerator;
+import com.linagora.consistency.adapter.driving.JsonReportWriter;
+import com.linagora.consistency.adapter.driving.ReportExporter;
 import com.linagora.consistency.domain.port.driven.ForRetrievingGlobalFolders;
 import com.linagora.consistency.domain.port.driven.ForRetrievingUserFolders;
 import com.linagora.consistency.domain.port.driven.ForRetrievingUsers;
+import com.linagora.consistency.domain.port.driven.ForStoringGlobalFolderIndex;
+import com.linagora.consistency.domain.port.driven.ForStoringReportHistory;
+import com.linagora.consistency.domain.port.driving.ForIngestingFolderChanges;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.nio.file.Path;
+import java.time.Clock;
 import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Spring configuration for adapters.
@@ -24,6 +44,57 @@ public class AdapterConfiguration {
     @Value("${mock.api.timeout-seconds:10}")
     private int timeoutSeconds;
 
+    @Value("${mock.api.trusted-source:false}")
+    private boolean trustedSource;
+
+    @Value("${mock.api.intern-pool-size:" + RestApiAdapter.DEFAULT_INTERN_POOL_SIZE + "}")
+    private int internPoolSize;
+
+    @Value("${mock.api.hedging.enabled:false}")
+    private boolean hedgingEnabled;
+
+    @Value("${mock.api.hedging.percentile:0.95}")
+    private double hedgingPercentile;
+
+    @Value("${mock.api.hedging.budget-ratio:0.05}")
+    private double hedgingBudgetRatio;
+
+    @Value("${mock.api.hedging.min-samples:100}")
+    private int hedgingMinSamples;
+
+    @Value("${consistency.index.path:}")
+    private String globalIndexPath;
+
+    @Value("${consistency.history.path:}")
+    private String reportHistoryPath;
+
+    @Value("${consistency.history.retained-generations:1000}")
+    private int reportHistoryRetainedGenerations;
+
+    @Value("${consistency.history.detailed-generations:100}")
+    private int reportHistoryDetailedGenerations;
+
+    @Value("${consistency.export.directory:}")
+    private String exportDirectory;
+
+    @Value("${consistency.export.chunk-size-mb:256}")
+    private long exportChunkSizeMb;
+
+    @Value("${consistency.export.shards:4}")
+    private int exportShards;
+
+    @Value("${consistency.export.gzip:false}")
+    private boolean exportGzip;
+
+    @Value("${consistency.live.generator.events-per-second:0}")
+    private int generatorEventsPerSecond;
+
+    @Value("${consistency.live.generator.users:100}")
+    private int generatorUsers;
+
+    @Value("${consistency.live.generator.folders-per-user:20}")
+    private int generatorFoldersPerUser;
+
     @Bean
     public WebClient webClient() {
         return WebClient.builder()
@@ -31,9 +102,87 @@ public class AdapterConfiguration {
             .build();
     }
 
+    @Bean
+    @ConditionalOnExpression("${consistency.report.cache-ttl-seconds:0} > 0")
+    public CompressedReportCache compressedReportCache() {
+        return new CompressedReportCache(new JsonReportWriter());
+    }
+
+    @Bean
+    @ConditionalOnExpression("'${consistency.export.directory:}' != ''")
+    public ReportExporter reportExporter(@Qualifier("exportExecutorService") ExecutorService exportExecutorService) {
+        return new ReportExporter(
+            Path.of(exportDirectory),
+            exportChunkSizeMb * 1024L * 1024L,
+            exportShards,
+            exportGzip,
+            exportExecutorService,
+            Clock.systemUTC()
+        );
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnExpression("'${consistency.export.directory:}' != ''")
+    public ExecutorService exportExecutorService() {
+        // Shard writers, kept off the pool of the scans' API calls
+        return Executors.newFixedThreadPool(exportShards);
+    }
+
+    @Bean
+    public ForStoringGlobalFolderIndex globalFolderIndexStore() {
+        return newGlobalFolderIndexStore("");
+    }
+
+    @Bean
+    public ForStoringReportHistory reportHistoryStore() {
+        return newReportHistoryStore("");
+    }
+
     @Bean
     public RestApiAdapter restApiAdapter(WebClient webClient) {
-        return new RestApiAdapter(webClient, Duration.ofSeconds(timeoutSeconds));
+        return newRestApiAdapter(webClient);
+    }
+
+    /**
+     * @param suffix appended to the configured file name, to keep one index per tenant
+     */
+    ForStoringGlobalFolderIndex newGlobalFolderIndexStore(String suffix) {
+        if (globalIndexPath.isBlank()) {
+            return new HeapGlobalFolderIndexStore();
+        }
+        // Memory-mapped index file, reused after restarts
+        return new MappedGlobalFolderIndexStore(Path.of(globalIndexPath + suffix));
+    }
+
+    /**
+     * @param suffix appended to the configured file name, to keep one history per tenant
+     */
+    ForStoringReportHistory newReportHistoryStore(String suffix) {
+        if (reportHistoryPath.isBlank()) {
+            return new HeapReportHistoryStore();
+        }
+        // History file reloaded after restarts, compacted as generations accumulate
+        return new FileReportHistoryStore(
+            Path.of(reportHistoryPath + suffix),
+            reportHistoryRetainedGenerations,
+            reportHistoryDetailedGenerations
+        );
+    }
+
+    /**
+     * Adapter with the shared mock.api settings (timeout, trust, interning, hedging) on the given client.
+     */
+    RestApiAdapter newRestApiAdapter(WebClient webClient) {
+        Optional<HedgingPolicy> hedgingPolicy = hedgingEnabled
+            ? Optional.of(new HedgingPolicy(hedgingPercentile, hedgingBudgetRatio, hedgingMinSamples))
+            : Optional.empty();
+        return new RestApiAdapter(
+            webClient,
+            Duration.ofSeconds(timeoutSeconds),
+            trustedSource,
+            internPoolSize,
+            hedgingPolicy
+        );
     }
 
     @Bean
@@ -50,4 +199,16 @@ public class AdapterConfiguration {
     public ForRetrievingGlobalFolders globalFoldersRetriever(RestApiAdapter restApiAdapter) {
         return restApiAdapter;
     }
+
+    @Bean
+    @ConditionalOnExpression("${consistency.live.enabled:false} and ${consistency.live.generator.events-per-second:0} > 0")
+    public FolderChangeEventGenerator folderChangeEventGenerator(
+        ForIngestingFolderChanges folderChangeIngestion,
+        ScheduledExecutorService scheduler
+    ) {
+        // Local testing only: synthetic users, stopped with the scheduler
+        FolderChangeEventGenerator generator = new FolderChangeEventGenerator(generatorUsers, generatorFoldersPerUser, System.nanoTime());
+        generator.start(folderChangeIngestion, scheduler, generatorEventsPerSecond);
+        return generator;
+    }
 }
@@ -1,15 +1,40 @@
 package com.linagora.consistency.configuration;
 
+import com.linagora.consistency.domain.model.NameEquivalence;
 import com.linagora.consistency.domain.port.driven.ForRetrievingGlobalFolders;
 import com.linagora.consistency.domain.port.driven.ForRetrievingUserFolders;
 import com.linagora.consistency.domain.port.driven.ForRetrievingUsers;
+import com.linagora.consistency.domain.port.driven.ForStoringGlobalFolderIndex;
+import com.linagora.consistency.domain.port.driven.ForStoringReportHistory;
 import com.linagora.consistency.domain.port.driving.ForDetectingInconsistencies;
+import com.linagora.consistency.domain.port.driving.ForDetectingUserInconsistencies;
+import com.linagora.consistency.domain.port.driving.ForEstimatingInconsistencyRates;
+import com.linagora.consistency.domain.rule.InconsistencyRules;
+import com.linagora.consistency.domain.service.AdaptiveRecheckScheduler;
+import com.linagora.consistency.domain.service.CachingInconsistencyDetector;
+import com.linagora.consistency.domain.service.GlobalIndexCache;
+import com.linagora.consistency.domain.service.InFlightMemoryGovernor;
 import com.linagora.consistency.domain.service.InconsistencyDetectionService;
+import com.linagora.consistency.domain.service.LiveConsistencyState;
+import com.linagora.consistency.domain.service.ReportHistoryService;
+import com.linagora.consistency.domain.service.SamplingInconsistencyEstimator;
+import com.linagora.consistency.domain.service.SortMergeInconsistencyDetectionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Random;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Spring configuration for domain layer.
@@ -18,26 +43,312 @@ import java.util.concurrent.Executors;
 @Configuration
 public class DomainConfiguration {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(DomainConfiguration.class);
+
+    @Value("${consistency.report.cache-ttl-seconds:0}")
+    private int reportCacheTtlSeconds;
+
+    @Value("${consistency.scan.mode:in-memory}")
+    private String scanMode;
+
+    @Value("${consistency.scan.split-size:" + InconsistencyDetectionService.DEFAULT_SPLIT_SIZE + "}")
+    private int scanSplitSize;
+
+    @Value("${consistency.scan.memory-budget-mb:0}")
+    private long scanMemoryBudgetMb;
+
+    @Value("${consistency.scan.sort-merge.memory-budget-mb:256}")
+    private long sortMergeMemoryBudgetMb;
+
+    @Value("${consistency.scan.sort-merge.directory:${java.io.tmpdir}}")
+    private String sortMergeDirectory;
+
+    @Value("${consistency.name-equivalence.normalization:none}")
+    private String nameNormalization;
+
+    @Value("${consistency.name-equivalence.case-insensitive:false}")
+    private boolean nameCaseInsensitive;
+
+    @Value("${consistency.name-equivalence.trim:false}")
+    private boolean nameTrim;
+
+    @Value("${consistency.id-drift-pairing:true}")
+    private boolean idDriftPairing;
+
+    @Value("${consistency.index.max-staleness-seconds:0}")
+    private long globalIndexMaxStalenessSeconds;
+
+    @Value("${consistency.index.refresh-ahead-seconds:60}")
+    private long globalIndexRefreshAheadSeconds;
+
+    @Value("${consistency.recheck.enabled:false}")
+    private boolean recheckEnabled;
+
+    @Value("${consistency.recheck.hot-interval-seconds:300}")
+    private long recheckHotIntervalSeconds;
+
+    @Value("${consistency.recheck.cold-interval-seconds:21600}")
+    private long recheckColdIntervalSeconds;
+
+    @Value("${consistency.history.retained-generations:1000}")
+    private int historyRetainedGenerations;
+
+    @Value("${consistency.live.reconcile-interval-seconds:3600}")
+    private long liveReconcileIntervalSeconds;
+
+    @Bean
+    public InconsistencyRules inconsistencyRules() {
+        InconsistencyRules rules = InconsistencyRules.defaults(NameEquivalence.of(
+            NameEquivalence.Normalization.valueOf(nameNormalization.toUpperCase(Locale.ROOT)),
+            nameCaseInsensitive,
+            nameTrim
+        ));
+        return idDriftPairing ? rules.withIdDriftPairing() : rules;
+    }
+
+    @Bean
+    public InconsistencyDetectionService inconsistencyDetectionService(
+        ForRetrievingUsers userRetriever,
+        ForRetrievingUserFolders userFoldersRetriever,
+        ForRetrievingGlobalFolders globalFoldersRetriever,
+        ForStoringGlobalFolderIndex globalFolderIndexStore,
+        InconsistencyRules inconsistencyRules,
+        ExecutorService executorService,
+        InFlightMemoryGovernor memoryGovernor
+    ) {
+        return newInconsistencyDetectionService(
+            userRetriever,
+            userFoldersRetriever,
+            globalFoldersRetriever,
+            globalFolderIndexStore,
+            inconsistencyRules,
+            executorService,
+            executorService,
+            memoryGovernor
+        );
+    }
+
+    /**
+     * @param executorService runs upstream calls
+     * @param comparisonExecutorService runs comparisons, outside any quota on upstream calls
+     */
+    InconsistencyDetectionService newInconsistencyDetectionService(
+        ForRetrievingUsers userRetriever,
+        ForRetrievingUserFolders userFoldersRetriever,
+        ForRetrievingGlobalFolders globalFoldersRetriever,
+        ForStoringGlobalFolderIndex globalFolderIndexStore,
+        InconsistencyRules inconsistencyRules,
+        ExecutorService executorService,
+        ExecutorService comparisonExecutorService,
+        InFlightMemoryGovernor memoryGovernor
+    ) {
+        GlobalIndexCache globalIndexCache = new GlobalIndexCache(
+            globalFoldersRetriever,
+            globalFolderIndexStore,
+            inconsistencyRules,
+            Duration.ofSeconds(globalIndexMaxStalenessSeconds),
+            Duration.ofSeconds(Math.min(globalIndexRefreshAheadSeconds, globalIndexMaxStalenessSeconds)),
+            Clock.systemUTC()
+        );
+        if (globalIndexMaxStalenessSeconds > 0) {
+            // Checked twice per refresh-ahead window, so that refreshes start before the deadline. Each cache
+            // has its own thread, so that scans, rechecks and other caches' refreshes never delay its window
+            long checkIntervalSeconds = Math.max(1, Math.min(globalIndexRefreshAheadSeconds, globalIndexMaxStalenessSeconds) / 2);
+            ScheduledExecutorService refreshScheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "global-index-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            refreshScheduler.scheduleWithFixedDelay(
+                () -> runQuietly(globalIndexCache::refreshIfDue, "Global index refresh"),
+                0,
+                checkIntervalSeconds,
+                TimeUnit.SECONDS
+            );
+        }
+        return new InconsistencyDetectionService(
+            userRetriever,
+            userFoldersRetriever,
+            globalIndexCache,
+            inconsistencyRules,
+            executorService,
+            comparisonExecutorService,
+            scanSplitSize,
+            memoryGovernor
+        );
+    }
+
+    @Bean
+    public InFlightMemoryGovernor inFlightMemoryGovernor() {
+        // One budget for the whole heap, shared by every scan including tenants'
+        long budgetBytes = scanMemoryBudgetMb > 0
+            ? scanMemoryBudgetMb * 1024L * 1024L
+            : Runtime.getRuntime().maxMemory() / 4;
+        return new InFlightMemoryGovernor(budgetBytes);
+    }
+
     @Bean
     public ForDetectingInconsistencies inconsistencyDetector(
+        InconsistencyDetectionService inconsistencyDetectionService,
         ForRetrievingUsers userRetriever,
         ForRetrievingUserFolders userFoldersRetriever,
         ForRetrievingGlobalFolders globalFoldersRetriever,
+        InconsistencyRules inconsistencyRules,
+        ReportHistoryService reportHistory,
+        ExecutorService executorService,
+        ScheduledExecutorService scheduler
+    ) {
+        ForDetectingInconsistencies detector = newFullScanDetector(
+            inconsistencyDetectionService,
+            userRetriever,
+            userFoldersRetriever,
+            globalFoldersRetriever,
+            inconsistencyRules,
+            executorService
+        );
+        // Each full scan becomes a history generation, cached or merged reports do not
+        detector = reportHistory.recording(detector);
+        if (recheckEnabled) {
+            // Hot users rechecked individually, full scans only on the cold interval
+            AdaptiveRecheckScheduler recheckScheduler = new AdaptiveRecheckScheduler(
+                detector,
+                inconsistencyDetectionService,
+                executorService,
+                Duration.ofSeconds(recheckHotIntervalSeconds),
+                Duration.ofSeconds(recheckColdIntervalSeconds),
+                Clock.systemUTC()
+            );
+            scheduler.scheduleWithFixedDelay(
+                () -> runQuietly(recheckScheduler::tick, "Adaptive recheck"),
+                0,
+                recheckHotIntervalSeconds,
+                TimeUnit.SECONDS
+            );
+            detector = recheckScheduler;
+        }
+        return cachedIfConfigured(detector);
+    }
+
+    /**
+     * In-memory or sort-merge full scan, as configured.
+     */
+    ForDetectingInconsistencies newFullScanDetector(
+        InconsistencyDetectionService inconsistencyDetectionService,
+        ForRetrievingUsers userRetriever,
+        ForRetrievingUserFolders userFoldersRetriever,
+        ForRetrievingGlobalFolders globalFoldersRetriever,
+        InconsistencyRules inconsistencyRules,
         ExecutorService executorService
     ) {
-        return new InconsistencyDetectionService(
+        if (!"sort-merge".equals(scanMode)) {
+            return inconsistencyDetectionService;
+        }
+        // Out-of-core comparison for datasets larger than the heap
+        return new SortMergeInconsistencyDetectionService(
             userRetriever,
             userFoldersRetriever,
             globalFoldersRetriever,
+            inconsistencyRules,
+            executorService,
+            Path.of(sortMergeDirectory),
+            sortMergeMemoryBudgetMb * 1024L * 1024L,
+            inconsistencyDetectionService::reserveGlobalIndexVersion
+        );
+    }
+
+    ForDetectingInconsistencies cachedIfConfigured(ForDetectingInconsistencies detector) {
+        if (reportCacheTtlSeconds <= 0) {
+            return detector;
+        }
+        // Reuse each report generation until it expires
+        return new CachingInconsistencyDetector(
+            detector,
+            Duration.ofSeconds(reportCacheTtlSeconds),
+            Clock.systemUTC()
+        );
+    }
+
+    @Bean
+    public ReportHistoryService reportHistory(ForStoringReportHistory reportHistoryStore) {
+        return newReportHistory(reportHistoryStore);
+    }
+
+    ReportHistoryService newReportHistory(ForStoringReportHistory reportHistoryStore) {
+        return new ReportHistoryService(reportHistoryStore, historyRetainedGenerations, Clock.systemUTC());
+    }
+
+    @Bean
+    public ForDetectingUserInconsistencies userInconsistencyDetector(InconsistencyDetectionService inconsistencyDetectionService) {
+        return inconsistencyDetectionService;
+    }
+
+    @Bean
+    public ForEstimatingInconsistencyRates rateEstimator(
+        ForRetrievingUsers userRetriever,
+        InconsistencyDetectionService inconsistencyDetectionService,
+        ExecutorService executorService
+    ) {
+        return new SamplingInconsistencyEstimator(
+            userRetriever,
+            inconsistencyDetectionService,
+            executorService,
+            new Random()
+        );
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "consistency.live.enabled", havingValue = "true")
+    public LiveConsistencyState liveConsistencyState(
+        ForRetrievingUsers userRetriever,
+        ForRetrievingUserFolders userFoldersRetriever,
+        ForRetrievingGlobalFolders globalFoldersRetriever,
+        InconsistencyRules inconsistencyRules,
+        ExecutorService executorService,
+        ScheduledExecutorService scheduler
+    ) {
+        LiveConsistencyState state = new LiveConsistencyState(
+            userRetriever,
+            userFoldersRetriever,
+            globalFoldersRetriever,
+            inconsistencyRules,
             executorService
         );
+        if (liveReconcileIntervalSeconds > 0) {
+            // Initial load, then occasional full reconciliation passes
+            scheduler.scheduleWithFixedDelay(
+                () -> runQuietly(state::reconcile, "Live state reconciliation"),
+                0,
+                liveReconcileIntervalSeconds,
+                TimeUnit.SECONDS
+            );
+        }
+        return state;
+    }
+
+    private static void runQuietly(Runnable task, String name) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            // Keep the schedule alive: state stays as is and the next run retries
+            LOGGER.warn("{} failed", name, e);
+        }
+    }
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService scheduler() {
+        // Background periodic tasks (reconciliation, rechecks, local event generation); global index
+        // refreshes have their own threads
+        return Executors.newScheduledThreadPool(2);
     }
 
     @Bean(destroyMethod = "shutdown")
     public ExecutorService executorService() {
         // Fixed thread pool for parallel API calls
         // Size based on typical number of users (can be configured)
-        int threadPoolSize = Runtime.getRuntime().availableProcessors() * 2;
-        return Executors.newFixedThreadPool(threadPoolSize);
+        return Executors.newFixedThreadPool(executorThreads());
+    }
+
+    int executorThreads() {
+        return Runtime.getRuntime().availableProcessors() * 2;
     }
 }
@@ -0,0 +1,126 @@
+package com.linagora.consistency.configuration;
+
+import com.linagora.consistency.adapter.driven.RestApiAdapter;
+import com.linagora.consistency.domain.port.driving.ForDetectingInconsistencies;
+import com.linagora.consistency.domain.port.driving.ForDetectingTenantInconsistencies;
+import com.linagora.consistency.domain.rule.InconsistencyRules;
+import com.linagora.consistency.domain.service.InFlightMemoryGovernor;
+import com.linagora.consistency.domain.service.InconsistencyDetectionService;
+import com.linagora.consistency.domain.service.MultiTenantInconsistencyDetector;
+import com.linagora.consistency.domain.service.WeightedFairExecutor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * Spring configuration for multi-tenant scanning, active when {@code consistency.tenants} lists at least one tenant.
+ * Each tenant gets its own upstream adapter, global index, report history and report cache, built with the
+ * same settings as the single upstream, and its own lane of the shared executor for upstream calls.
+ * Comparisons run on the shared executor directly, so a lane's quota only bounds its tenant's upstream calls.
+ */
+@Configuration
+@ConditionalOnProperty(name = "consistency.tenants[0].name")
+public class TenantConfiguration {
+
+    private static final Pattern TENANT_NAME = Pattern.compile("[A-Za-z0-9_-]+");
+
+    /**
+     * One entry of {@code consistency.tenants}.
+     *
+     * @param name tenant name, used in URLs and file names
+     * @param baseUrl base URL of the tenant's upstream API
+     * @param weight share of the shared executor when tenants compete, 1 by default
+     * @param maxConcurrency maximum concurrent upstream calls, the executor size by default; comparisons
+     *                       run outside this quota
+     */
+    public record TenantProperties(String name, String baseUrl, Integer weight, Integer maxConcurrency) {
+    }
+
+    private final AdapterConfiguration adapterConfiguration;
+    private final DomainConfiguration domainConfiguration;
+
+    public TenantConfiguration(AdapterConfiguration adapterConfiguration, DomainConfiguration domainConfiguration) {
+        this.adapterConfiguration = adapterConfiguration;
+        this.domainConfiguration = domainConfiguration;
+    }
+
+    @Bean
+    public ForDetectingTenantInconsistencies tenantInconsistencyDetector(
+        Environment environment,
+        InconsistencyRules inconsistencyRules,
+        ExecutorService executorService,
+        InFlightMemoryGovernor memoryGovernor
+    ) {
+        List<TenantProperties> tenants = Binder.get(environment)
+            .bind("consistency.tenants", Bindable.listOf(TenantProperties.class))
+            .orElse(List.of());
+
+        int parallelism = domainConfiguration.executorThreads();
+        WeightedFairExecutor fairExecutor = new WeightedFairExecutor(executorService, parallelism);
+        List<MultiTenantInconsistencyDetector.Tenant> scanners = new ArrayList<>(tenants.size());
+        for (TenantProperties tenant : tenants) {
+            if (tenant.name() == null || !TENANT_NAME.matcher(tenant.name()).matches() || tenant.baseUrl() == null) {
+                throw new IllegalArgumentException("Each tenant needs a name made of letters, digits, '-' or '_', and a base-url: " + tenant);
+            }
+            WeightedFairExecutor.Lane lane = fairExecutor.lane(
+                tenant.name(),
+                tenant.weight() != null ? tenant.weight() : 1,
+                tenant.maxConcurrency() != null ? tenant.maxConcurrency() : parallelism
+            );
+            scanners.add(new MultiTenantInconsistencyDetector.Tenant(tenant.name(), newTenantDetector(tenant, inconsistencyRules, lane, executorService, memoryGovernor), lane));
+        }
+
+        // Scans only wait on their lanes, so idle coordinator threads are not kept around; unbounded, since
+        // overlapping calls to scan all tenants each need one thread per tenant
+        ExecutorService coordinatorExecutor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "tenant-scan");
+            thread.setDaemon(true);
+            return thread;
+        });
+        return new MultiTenantInconsistencyDetector(scanners, coordinatorExecutor, Clock.systemUTC());
+    }
+
+    private ForDetectingInconsistencies newTenantDetector(
+        TenantProperties tenant,
+        InconsistencyRules inconsistencyRules,
+        WeightedFairExecutor.Lane lane,
+        ExecutorService comparisonExecutorService,
+        InFlightMemoryGovernor memoryGovernor
+    ) {
+        RestApiAdapter restApiAdapter = adapterConfiguration.newRestApiAdapter(
+            WebClient.builder().baseUrl(tenant.baseUrl()).build()
+        );
+        String fileSuffix = "." + tenant.name();
+        InconsistencyDetectionService inconsistencyDetectionService = domainConfiguration.newInconsistencyDetectionService(
+            restApiAdapter,
+            restApiAdapter,
+            restApiAdapter,
+            adapterConfiguration.newGlobalFolderIndexStore(fileSuffix),
+            inconsistencyRules,
+            lane,
+            comparisonExecutorService,
+            memoryGovernor
+        );
+        ForDetectingInconsistencies detector = domainConfiguration.newFullScanDetector(
+            inconsistencyDetectionService,
+            restApiAdapter,
+            restApiAdapter,
+            restApiAdapter,
+            inconsistencyRules,
+            lane
+        );
+        detector = domainConfiguration.newReportHistory(adapterConfiguration.newReportHistoryStore(fileSuffix)).recording(detector);
+        return domainConfiguration.cachedIfConfigured(detector);
+    }
+}
@@ -11,17 +11,27 @@ public final class Email {
     private final String value;
 
     private Email(String value) {
+        this.value = value;
+    }
+
+    public static Email of(String value) {
         if (value == null || value.isBlank()) {
             throw new IllegalArgumentException("Email cannot be null or blank");
         }
-        if (!value.contains("@")) {
+        if (value.indexOf('@') < 0) {
             throw new IllegalArgumentException("Invalid email format: " + value);
         }
-        this.value = value;
+        return new Email(value);
     }
 
-    public static Email of(String value) {
-        return new Email(value);
+    /**
+     * Creates an email from a source trusted to only send valid addresses, skipping validation.
+     *
+     * @param value email address
+     * @return the email
+     */
+    public static Email trusted(String value) {
+        return new Email(Objects.requireNonNull(value, "Email cannot be null"));
     }
 
     public String getValue() {
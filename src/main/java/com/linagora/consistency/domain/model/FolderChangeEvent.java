@@ -0,0 +1,110 @@
+package com.linagora.consistency.domain.model;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Value object describing a change to one folder on one side of the comparison.
+ * Global-side events are keyed by the folder owner.
+ * Immutable.
+ */
+public final class FolderChangeEvent {
+
+    /**
+     * Data source the change happened in.
+     */
+    public enum Side {
+        USER,
+        GLOBAL
+    }
+
+    /**
+     * Kind of change. Creations and renames both carry the folder's current name.
+     */
+    public enum Kind {
+        CREATED,
+        RENAMED,
+        DELETED
+    }
+
+    private final Side side;
+    private final Kind kind;
+    private final Email userEmail;
+    private final FolderId folderId;
+    private final Optional<FolderName> name;
+
+    private FolderChangeEvent(Side side, Kind kind, Email userEmail, FolderId folderId, Optional<FolderName> name) {
+        this.side = Objects.requireNonNull(side, "Side cannot be null");
+        this.kind = Objects.requireNonNull(kind, "Kind cannot be null");
+        this.userEmail = Objects.requireNonNull(userEmail, "Email cannot be null");
+        this.folderId = Objects.requireNonNull(folderId, "FolderId cannot be null");
+        this.name = Objects.requireNonNull(name, "name cannot be null");
+        if ((kind == Kind.DELETED) == name.isPresent()) {
+            throw new IllegalArgumentException("Name must be given for creations and renames only");
+        }
+    }
+
+    public static FolderChangeEvent of(Side side, Kind kind, Email userEmail, FolderId folderId, Optional<FolderName> name) {
+        return new FolderChangeEvent(side, kind, userEmail, folderId, name);
+    }
+
+    public static FolderChangeEvent created(Side side, Email userEmail, FolderId folderId, FolderName name) {
+        return new FolderChangeEvent(side, Kind.CREATED, userEmail, folderId, Optional.of(name));
+    }
+
+    public static FolderChangeEvent renamed(Side side, Email userEmail, FolderId folderId, FolderName name) {
+        return new FolderChangeEvent(side, Kind.RENAMED, userEmail, folderId, Optional.of(name));
+    }
+
+    public static FolderChangeEvent deleted(Side side, Email userEmail, FolderId folderId) {
+        return new FolderChangeEvent(side, Kind.DELETED, userEmail, folderId, Optional.empty());
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Email getUserEmail() {
+        return userEmail;
+    }
+
+    public FolderId getFolderId() {
+        return folderId;
+    }
+
+    public Optional<FolderName> getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FolderChangeEvent that = (FolderChangeEvent) o;
+        return side == that.side
+            && kind == that.kind
+            && Objects.equals(userEmail, that.userEmail)
+            && Objects.equals(folderId, that.folderId)
+            && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(side, kind, userEmail, folderId, name);
+    }
+
+    @Override
+    public String toString() {
+        return "FolderChangeEvent{" +
+            "side=" + side +
+            ", kind=" + kind +
+            ", user=" + userEmail +
+            ", folderId=" + folderId +
+            ", name=" + name.map(FolderName::getValue).orElse("N/A") +
+            '}';
+    }
+}
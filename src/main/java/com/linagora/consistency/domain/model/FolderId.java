@@ -1,48 +1,151 @@
 package com.linagora.consistency.domain.model;
 
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.UUID;
 
 /**
  * Value Object representing a folder unique identifier.
  * Immutable and validates UUID format.
+ * The canonical 36-character form is parsed without allocation and the parsed
+ * 128-bit value is kept for cheap hashing, comparison and binary encoding.
  */
 public final class FolderId {
 
+    private static final int CANONICAL_LENGTH = 36;
+    private static final byte[] HEX_VALUES = hexValues();
+
     private final String value;
+    private final long mostSignificantBits;
+    private final long leastSignificantBits;
+
+    private FolderId(String value, long mostSignificantBits, long leastSignificantBits) {
+        this.value = value;
+        this.mostSignificantBits = mostSignificantBits;
+        this.leastSignificantBits = leastSignificantBits;
+    }
 
-    private FolderId(String value) {
+    public static FolderId of(String value) {
         if (value == null || value.isBlank()) {
             throw new IllegalArgumentException("FolderId cannot be null or blank");
         }
-        // Validate UUID format
+        if (value.length() != CANONICAL_LENGTH) {
+            return ofNonCanonical(value);
+        }
+        if (value.charAt(8) != '-' || value.charAt(13) != '-' || value.charAt(18) != '-' || value.charAt(23) != '-') {
+            throw new IllegalArgumentException("Invalid UUID format: " + value);
+        }
+        long mostSignificantBits = parseHex(value, 0, 8) << 32
+            | parseHex(value, 9, 13) << 16
+            | parseHex(value, 14, 18);
+        long leastSignificantBits = parseHex(value, 19, 23) << 48
+            | parseHex(value, 24, 36);
+        return new FolderId(value, mostSignificantBits, leastSignificantBits);
+    }
+
+    /**
+     * Creates a folder id from a source trusted to only send canonical UUIDs.
+     * Skips the separate validation pass: digits are checked while parsed, in a single branch at the end,
+     * and anything that is not a canonical UUID falls back to {@link #of(String)}.
+     *
+     * @param value canonical UUID string
+     * @return the folder id
+     */
+    public static FolderId trusted(String value) {
+        if (value == null || value.length() != CANONICAL_LENGTH
+            || value.charAt(8) != '-' || value.charAt(13) != '-' || value.charAt(18) != '-' || value.charAt(23) != '-') {
+            return of(value);
+        }
+        long mostSignificantBits = 0;
+        long leastSignificantBits = 0;
+        // Negative as soon as one digit is invalid
+        int invalid = 0;
+        for (int i = 0; i < 18; i++) {
+            if (i != 8 && i != 13) {
+                int digit = hexDigit(value.charAt(i));
+                invalid |= digit;
+                mostSignificantBits = mostSignificantBits << 4 | (digit & 0xF);
+            }
+        }
+        for (int i = 19; i < CANONICAL_LENGTH; i++) {
+            if (i != 23) {
+                int digit = hexDigit(value.charAt(i));
+                invalid |= digit;
+                leastSignificantBits = leastSignificantBits << 4 | (digit & 0xF);
+            }
+        }
+        if (invalid < 0) {
+            return of(value);
+        }
+        return new FolderId(value, mostSignificantBits, leastSignificantBits);
+    }
+
+    // Lenient forms accepted by UUID.fromString (e.g. without leading zeros) keep working
+    private static FolderId ofNonCanonical(String value) {
+        UUID uuid;
         try {
-            UUID.fromString(value);
+            uuid = UUID.fromString(value);
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("Invalid UUID format: " + value, e);
         }
-        this.value = value;
+        return new FolderId(value, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
     }
 
-    public static FolderId of(String value) {
-        return new FolderId(value);
+    private static long parseHex(String value, int start, int end) {
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = hexDigit(value.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid UUID format: " + value);
+            }
+            result = result << 4 | digit;
+        }
+        return result;
+    }
+
+    private static int hexDigit(char c) {
+        return c < 128 ? HEX_VALUES[c] : -1;
+    }
+
+    private static byte[] hexValues() {
+        byte[] values = new byte[128];
+        Arrays.fill(values, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            values['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            values['a' + i] = (byte) (10 + i);
+            values['A' + i] = (byte) (10 + i);
+        }
+        return values;
     }
 
     public String getValue() {
         return value;
     }
 
+    public long getMostSignificantBits() {
+        return mostSignificantBits;
+    }
+
+    public long getLeastSignificantBits() {
+        return leastSignificantBits;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         FolderId folderId = (FolderId) o;
-        return Objects.equals(value, folderId.value);
+        // Compare parsed bits first, the string check keeps equality textual
+        return mostSignificantBits == folderId.mostSignificantBits
+            && leastSignificantBits == folderId.leastSignificantBits
+            && Objects.equals(value, folderId.value);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(value);
+        return Long.hashCode(mostSignificantBits ^ leastSignificantBits);
     }
 
     @Override
@@ -9,22 +9,43 @@ import java.util.Objects;
 public final class FolderName {
 
     private final String value;
+    // Comparison key under the last equivalence this name was compared with; a process normally uses one
+    private volatile NameEquivalence.Key equivalenceKey;
 
     private FolderName(String value) {
-        if (value == null || value.isBlank()) {
-            throw new IllegalArgumentException("FolderName cannot be null or blank");
-        }
         this.value = value;
     }
 
     public static FolderName of(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("FolderName cannot be null or blank");
+        }
         return new FolderName(value);
     }
 
+    /**
+     * Creates a folder name from a source trusted to only send valid names, skipping validation.
+     *
+     * @param value folder name
+     * @return the folder name
+     */
+    public static FolderName trusted(String value) {
+        return new FolderName(Objects.requireNonNull(value, "FolderName cannot be null"));
+    }
+
     public String getValue() {
         return value;
     }
 
+    NameEquivalence.Key keyUnder(NameEquivalence equivalence) {
+        NameEquivalence.Key key = equivalenceKey;
+        if (key == null || key.equivalence() != equivalence) {
+            key = equivalence.keyOf(value);
+            equivalenceKey = key;
+        }
+        return key;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,73 @@
+package com.linagora.consistency.domain.model;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only index of global folders by owner and folder id.
+ * Implementations may live on the heap or be served from an off-heap store.
+ */
+public interface GlobalFolderIndex {
+
+    /**
+     * Returns the global folders owned by a user, keyed by folder id.
+     *
+     * @param userEmail the owner's email address
+     * @return the user's global folders (empty if none)
+     */
+    Map<FolderId, GlobalFolder> foldersOf(Email userEmail);
+
+    /**
+     * Returns the number of global folders owned by a user, without materializing them.
+     *
+     * @param userEmail the owner's email address
+     * @return the size of {@link #foldersOf(Email)}
+     */
+    default int folderCountOf(Email userEmail) {
+        return foldersOf(userEmail).size();
+    }
+
+    /**
+     * Returns every user owning at least one global folder.
+     *
+     * @return owners' email addresses
+     */
+    Set<Email> owners();
+
+    /**
+     * Builds an in-memory index. The first folder wins when (owner, folder id) is duplicated.
+     *
+     * @param globalFolders folders to index
+     * @return heap-backed index
+     */
+    static GlobalFolderIndex of(List<GlobalFolder> globalFolders) {
+        Builder builder = builder();
+        globalFolders.forEach(builder::add);
+        return builder.build();
+    }
+
+    /**
+     * @return a builder of an in-memory index, fed one row at a time
+     */
+    static Builder builder() {
+        return new InMemoryGlobalFolderIndex.Builder();
+    }
+
+    /**
+     * Builds an in-memory index row by row, so that callers can inspect rows in the indexing pass.
+     * Single use, not thread-safe.
+     */
+    interface Builder {
+
+        /**
+         * Indexes a row unless its owner already has a row with the same folder id.
+         *
+         * @param folder the row
+         * @return the row already kept for the same (owner, folder id), or null when this row was kept
+         */
+        GlobalFolder add(GlobalFolder folder);
+
+        GlobalFolderIndex build();
+    }
+}
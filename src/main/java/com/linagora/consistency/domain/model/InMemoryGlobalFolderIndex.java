@@ -0,0 +1,58 @@
+package com.linagora.consistency.domain.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Heap-backed global folder index.
+ * Immutable.
+ */
+final class InMemoryGlobalFolderIndex implements GlobalFolderIndex {
+
+    private final Map<Email, Map<FolderId, GlobalFolder>> foldersByUser;
+
+    private InMemoryGlobalFolderIndex(Map<Email, Map<FolderId, GlobalFolder>> foldersByUser) {
+        this.foldersByUser = foldersByUser;
+    }
+
+    static final class Builder implements GlobalFolderIndex.Builder {
+
+        private Map<Email, Map<FolderId, GlobalFolder>> foldersByUser = new HashMap<>();
+
+        @Override
+        public GlobalFolder add(GlobalFolder folder) {
+            // Keep first in case of duplicates
+            return foldersByUser.computeIfAbsent(folder.getUserEmail(), email -> new HashMap<>())
+                .putIfAbsent(folder.getId(), folder);
+        }
+
+        @Override
+        public GlobalFolderIndex build() {
+            InMemoryGlobalFolderIndex index = new InMemoryGlobalFolderIndex(foldersByUser);
+            foldersByUser = null;
+            return index;
+        }
+    }
+
+    @Override
+    public Map<FolderId, GlobalFolder> foldersOf(Email userEmail) {
+        return Collections.unmodifiableMap(foldersByUser.getOrDefault(userEmail, Collections.emptyMap()));
+    }
+
+    @Override
+    public int folderCountOf(Email userEmail) {
+        return foldersByUser.getOrDefault(userEmail, Collections.emptyMap()).size();
+    }
+
+    @Override
+    public Set<Email> owners() {
+        return Collections.unmodifiableSet(foldersByUser.keySet());
+    }
+
+    @Override
+    public String toString() {
+        return "InMemoryGlobalFolderIndex{owners=" + foldersByUser.size() + "}";
+    }
+}
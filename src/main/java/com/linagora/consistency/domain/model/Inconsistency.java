@@ -10,23 +10,42 @@ import java.util.Optional;
 public final class Inconsistency {
 
     private final InconsistencyType type;
-    private final FolderId folderId;
+    private final Optional<FolderId> folderId;
+    private final Optional<FolderId> globalFolderId;
     private final Email userEmail;
     private final Optional<FolderName> globalFolderName;
     private final Optional<FolderName> userFolderName;
 
     private Inconsistency(
         InconsistencyType type,
-        FolderId folderId,
+        Optional<FolderId> folderId,
+        Email userEmail,
+        Optional<FolderName> globalFolderName,
+        Optional<FolderName> userFolderName
+    ) {
+        this(type, folderId, Optional.empty(), userEmail, globalFolderName, userFolderName);
+    }
+
+    private Inconsistency(
+        InconsistencyType type,
+        Optional<FolderId> folderId,
+        Optional<FolderId> globalFolderId,
         Email userEmail,
         Optional<FolderName> globalFolderName,
         Optional<FolderName> userFolderName
     ) {
         this.type = Objects.requireNonNull(type, "Type cannot be null");
-        this.folderId = Objects.requireNonNull(folderId, "FolderId cannot be null");
+        this.folderId = Objects.requireNonNull(folderId, "folderId cannot be null");
+        this.globalFolderId = Objects.requireNonNull(globalFolderId, "globalFolderId cannot be null");
         this.userEmail = Objects.requireNonNull(userEmail, "Email cannot be null");
         this.globalFolderName = Objects.requireNonNull(globalFolderName, "globalFolderName cannot be null");
         this.userFolderName = Objects.requireNonNull(userFolderName, "userFolderName cannot be null");
+        if (type.isFolderScoped() != folderId.isPresent()) {
+            throw new IllegalArgumentException("Folder id presence does not match type " + type);
+        }
+        if (type.pairsFolderIds() != globalFolderId.isPresent()) {
+            throw new IllegalArgumentException("Global folder id presence does not match type " + type);
+        }
     }
 
     public static Inconsistency nameMismatch(
@@ -37,7 +56,7 @@ public final class Inconsistency {
     ) {
         return new Inconsistency(
             InconsistencyType.NAME_MISMATCH,
-            folderId,
+            Optional.of(Objects.requireNonNull(folderId, "FolderId cannot be null")),
             userEmail,
             Optional.of(globalName),
             Optional.of(userName)
@@ -51,7 +70,7 @@ public final class Inconsistency {
     ) {
         return new Inconsistency(
             InconsistencyType.MISSING_IN_GLOBAL,
-            folderId,
+            Optional.of(Objects.requireNonNull(folderId, "FolderId cannot be null")),
             userEmail,
             Optional.empty(),
             Optional.of(userName)
@@ -65,21 +84,100 @@ public final class Inconsistency {
     ) {
         return new Inconsistency(
             InconsistencyType.MISSING_IN_USER_FOLDERS,
-            folderId,
+            Optional.of(Objects.requireNonNull(folderId, "FolderId cannot be null")),
             userEmail,
             Optional.of(globalName),
             Optional.empty()
         );
     }
 
+    public static Inconsistency idMismatch(
+        FolderId userFolderId,
+        FolderId globalFolderId,
+        Email userEmail,
+        FolderName globalName,
+        FolderName userName
+    ) {
+        return new Inconsistency(
+            InconsistencyType.ID_MISMATCH,
+            Optional.of(Objects.requireNonNull(userFolderId, "FolderId cannot be null")),
+            Optional.of(Objects.requireNonNull(globalFolderId, "Global FolderId cannot be null")),
+            userEmail,
+            Optional.of(globalName),
+            Optional.of(userName)
+        );
+    }
+
+    public static Inconsistency duplicateInGlobal(
+        FolderId folderId,
+        Email userEmail,
+        FolderName duplicateName
+    ) {
+        return new Inconsistency(
+            InconsistencyType.DUPLICATE_IN_GLOBAL,
+            Optional.of(Objects.requireNonNull(folderId, "FolderId cannot be null")),
+            userEmail,
+            Optional.of(duplicateName),
+            Optional.empty()
+        );
+    }
+
+    public static Inconsistency crossUserIdCollision(
+        FolderId folderId,
+        Email otherUserEmail,
+        FolderName otherName
+    ) {
+        return new Inconsistency(
+            InconsistencyType.CROSS_USER_ID_COLLISION,
+            Optional.of(Objects.requireNonNull(folderId, "FolderId cannot be null")),
+            otherUserEmail,
+            Optional.of(otherName),
+            Optional.empty()
+        );
+    }
+
+    public static Inconsistency orphanedOwner(
+        FolderId folderId,
+        Email ownerEmail,
+        FolderName globalName
+    ) {
+        return new Inconsistency(
+            InconsistencyType.ORPHANED_OWNER,
+            Optional.of(Objects.requireNonNull(folderId, "FolderId cannot be null")),
+            ownerEmail,
+            Optional.of(globalName),
+            Optional.empty()
+        );
+    }
+
+    public static Inconsistency userWithoutGlobalFolders(Email userEmail) {
+        return new Inconsistency(
+            InconsistencyType.USER_WITHOUT_GLOBAL_FOLDERS,
+            Optional.empty(),
+            userEmail,
+            Optional.empty(),
+            Optional.empty()
+        );
+    }
+
     public InconsistencyType getType() {
         return type;
     }
 
-    public FolderId getFolderId() {
+    /**
+     * @return the folder id, empty for user-scoped types
+     */
+    public Optional<FolderId> getFolderId() {
         return folderId;
     }
 
+    /**
+     * @return the global-side folder id when it differs from {@link #getFolderId()}, only for {@link InconsistencyType#ID_MISMATCH}
+     */
+    public Optional<FolderId> getGlobalFolderId() {
+        return globalFolderId;
+    }
+
     public Email getUserEmail() {
         return userEmail;
     }
@@ -99,6 +197,7 @@ public final class Inconsistency {
         Inconsistency that = (Inconsistency) o;
         return type == that.type
             && Objects.equals(folderId, that.folderId)
+            && Objects.equals(globalFolderId, that.globalFolderId)
             && Objects.equals(userEmail, that.userEmail)
             && Objects.equals(globalFolderName, that.globalFolderName)
             && Objects.equals(userFolderName, that.userFolderName);
@@ -106,14 +205,15 @@ public final class Inconsistency {
 
     @Override
     public int hashCode() {
-        return Objects.hash(type, folderId, userEmail, globalFolderName, userFolderName);
+        return Objects.hash(type, folderId, globalFolderId, userEmail, globalFolderName, userFolderName);
     }
 
     @Override
     public String toString() {
         return "Inconsistency{" +
             "type=" + type +
-            ", folderId=" + folderId +
+            ", folderId=" + folderId.map(FolderId::getValue).orElse("N/A") +
+            globalFolderId.map(id -> ", globalFolderId=" + id.getValue()).orElse("") +
             ", user=" + userEmail +
             ", globalName=" + globalFolderName.map(FolderName::getValue).orElse("N/A") +
             ", userName=" + userFolderName.map(FolderName::getValue).orElse("N/A") +
@@ -0,0 +1,99 @@
+package com.linagora.consistency.domain.model;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Estimated share of users affected by inconsistencies, computed from a random sample of users.
+ * Immutable.
+ */
+public final class InconsistencyRateEstimate {
+
+    /**
+     * Point estimate of a proportion with its confidence interval, all in [0, 1].
+     */
+    public record Interval(double estimate, double lower, double upper) {
+
+        public Interval {
+            if (!(0 <= lower && lower <= estimate && estimate <= upper && upper <= 1)) {
+                throw new IllegalArgumentException("Invalid interval: " + lower + " <= " + estimate + " <= " + upper);
+            }
+        }
+    }
+
+    private final int populationSize;
+    private final int sampleSize;
+    private final double confidence;
+    private final Interval inconsistentUsers;
+    private final Map<InconsistencyType, Interval> usersByType;
+
+    private InconsistencyRateEstimate(
+        int populationSize,
+        int sampleSize,
+        double confidence,
+        Interval inconsistentUsers,
+        Map<InconsistencyType, Interval> usersByType
+    ) {
+        if (sampleSize < 0 || sampleSize > populationSize) {
+            throw new IllegalArgumentException("Sample size must be between 0 and the population size");
+        }
+        if (!(confidence > 0 && confidence < 1)) {
+            throw new IllegalArgumentException("Confidence must be between 0 and 1");
+        }
+        this.populationSize = populationSize;
+        this.sampleSize = sampleSize;
+        this.confidence = confidence;
+        this.inconsistentUsers = Objects.requireNonNull(inconsistentUsers, "inconsistentUsers cannot be null");
+        this.usersByType = Collections.unmodifiableMap(new EnumMap<>(
+            Objects.requireNonNull(usersByType, "usersByType cannot be null")
+        ));
+    }
+
+    public static InconsistencyRateEstimate of(
+        int populationSize,
+        int sampleSize,
+        double confidence,
+        Interval inconsistentUsers,
+        Map<InconsistencyType, Interval> usersByType
+    ) {
+        return new InconsistencyRateEstimate(populationSize, sampleSize, confidence, inconsistentUsers, usersByType);
+    }
+
+    public int getPopulationSize() {
+        return populationSize;
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * @return share of users with at least one inconsistency
+     */
+    public Interval getInconsistentUsers() {
+        return inconsistentUsers;
+    }
+
+    /**
+     * @return share of users with at least one inconsistency of each type
+     */
+    public Map<InconsistencyType, Interval> getUsersByType() {
+        return usersByType;
+    }
+
+    @Override
+    public String toString() {
+        return "InconsistencyRateEstimate{" +
+            "population=" + populationSize +
+            ", sample=" + sampleSize +
+            ", confidence=" + confidence +
+            ", inconsistentUsers=" + inconsistentUsers +
+            '}';
+    }
+}
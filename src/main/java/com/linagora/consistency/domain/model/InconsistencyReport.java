@@ -5,6 +5,8 @@ import java.util.stream.Collectors;
 
 /**
  * Aggregate representing the complete inconsistency analysis report.
+ * Reports computed against the global folder index carry the version of the index snapshot they used.
+ * Partial reports, from scans stopped at their deadline, also carry the coverage of the scan.
  * Immutable.
  */
 public final class InconsistencyReport {
@@ -12,21 +14,44 @@ public final class InconsistencyReport {
     private final List<Inconsistency> inconsistencies;
     private final int totalCount;
     private final Map<InconsistencyType, Long> countsByType;
+    private final Long globalIndexVersion;
+    private final ScanCoverage coverage;
 
-    private InconsistencyReport(List<Inconsistency> inconsistencies) {
+    private InconsistencyReport(List<Inconsistency> inconsistencies, Long globalIndexVersion, ScanCoverage coverage) {
         this.inconsistencies = Collections.unmodifiableList(
             Objects.requireNonNull(inconsistencies, "Inconsistencies cannot be null")
         );
         this.totalCount = inconsistencies.size();
         this.countsByType = calculateCountsByType(inconsistencies);
+        this.globalIndexVersion = globalIndexVersion;
+        this.coverage = coverage;
     }
 
     public static InconsistencyReport of(List<Inconsistency> inconsistencies) {
-        return new InconsistencyReport(inconsistencies);
+        return new InconsistencyReport(inconsistencies, null, null);
+    }
+
+    /**
+     * @param globalIndexVersion version of the global folder index snapshot the report was computed against
+     */
+    public static InconsistencyReport of(List<Inconsistency> inconsistencies, long globalIndexVersion) {
+        return new InconsistencyReport(inconsistencies, globalIndexVersion, null);
+    }
+
+    /**
+     * @param globalIndexVersion version of the global folder index snapshot the report was computed against
+     * @param coverage users checked before the deadline, some users being left unchecked
+     */
+    public static InconsistencyReport partial(List<Inconsistency> inconsistencies, long globalIndexVersion, ScanCoverage coverage) {
+        Objects.requireNonNull(coverage, "coverage cannot be null");
+        if (coverage.isComplete()) {
+            throw new IllegalArgumentException("A partial report must leave users unchecked");
+        }
+        return new InconsistencyReport(inconsistencies, globalIndexVersion, coverage);
     }
 
     public static InconsistencyReport empty() {
-        return new InconsistencyReport(Collections.emptyList());
+        return new InconsistencyReport(Collections.emptyList(), null, null);
     }
 
     private Map<InconsistencyType, Long> calculateCountsByType(List<Inconsistency> inconsistencies) {
@@ -47,6 +72,27 @@ public final class InconsistencyReport {
         return countsByType;
     }
 
+    /**
+     * @return version of the global folder index snapshot used, empty for reports not tied to one snapshot
+     */
+    public OptionalLong getGlobalIndexVersion() {
+        return globalIndexVersion != null ? OptionalLong.of(globalIndexVersion) : OptionalLong.empty();
+    }
+
+    /**
+     * @return true if the scan stopped at its deadline before checking every user
+     */
+    public boolean isPartial() {
+        return coverage != null;
+    }
+
+    /**
+     * @return coverage of the scan, only for partial reports
+     */
+    public Optional<ScanCoverage> getCoverage() {
+        return Optional.ofNullable(coverage);
+    }
+
     public boolean hasInconsistencies() {
         return totalCount > 0;
     }
@@ -66,6 +112,8 @@ public final class InconsistencyReport {
 
     @Override
     public String toString() {
-        return "InconsistencyReport{total=" + totalCount + ", byType=" + countsByType + "}";
+        return "InconsistencyReport{total=" + totalCount + ", byType=" + countsByType
+            + (globalIndexVersion != null ? ", globalIndexVersion=" + globalIndexVersion : "")
+            + (coverage != null ? ", coverage=" + coverage : "") + "}";
     }
 }
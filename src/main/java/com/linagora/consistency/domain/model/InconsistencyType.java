@@ -2,6 +2,7 @@ package com.linagora.consistency.domain.model;
 
 /**
  * Enumeration of all possible inconsistency types.
+ * Types are folder-scoped unless stated otherwise.
  */
 public enum InconsistencyType {
     /**
@@ -17,5 +18,58 @@ public enum InconsistencyType {
     /**
      * Folder exists in global data but not in user-specific data.
      */
-    MISSING_IN_USER_FOLDERS
+    MISSING_IN_USER_FOLDERS,
+
+    /**
+     * Folder missing in global data and global folder missing in user data, with equivalent names:
+     * most likely the same folder under two ids. Carries the user-side id and the global-side id.
+     */
+    ID_MISMATCH(true, true),
+
+    /**
+     * Folder appears more than once for the same user in global data.
+     */
+    DUPLICATE_IN_GLOBAL,
+
+    /**
+     * Folder id is owned by more than one user in global data.
+     */
+    CROSS_USER_ID_COLLISION,
+
+    /**
+     * Folder in global data owned by a user not returned by the users endpoint.
+     */
+    ORPHANED_OWNER,
+
+    /**
+     * User returned by the users endpoint owns no folder in global data.
+     * User-scoped: carries no folder id.
+     */
+    USER_WITHOUT_GLOBAL_FOLDERS(false, false);
+
+    private final boolean folderScoped;
+    private final boolean pairsFolderIds;
+
+    InconsistencyType() {
+        this(true, false);
+    }
+
+    InconsistencyType(boolean folderScoped, boolean pairsFolderIds) {
+        this.folderScoped = folderScoped;
+        this.pairsFolderIds = pairsFolderIds;
+    }
+
+    /**
+     * @return true if inconsistencies of this type always refer to a folder id
+     */
+    public boolean isFolderScoped() {
+        return folderScoped;
+    }
+
+    /**
+     * @return true if inconsistencies of this type also refer to a second, global-side folder id
+     */
+    public boolean pairsFolderIds() {
+        return pairsFolderIds;
+    }
 }
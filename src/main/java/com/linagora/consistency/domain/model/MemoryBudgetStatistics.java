@@ -0,0 +1,103 @@
+package com.linagora.consistency.domain.model;
+
+import java.util.Objects;
+
+/**
+ * Use of the heap budget for in-flight user folders, as of when it was read.
+ * Sizes are estimates of the retained heap, not measurements.
+ * Immutable.
+ */
+public final class MemoryBudgetStatistics {
+
+    private final long budgetBytes;
+    private final long inFlightBytes;
+    private final long peakInFlightBytes;
+    private final long admittedFetches;
+    private final long deferredAdmissions;
+
+    private MemoryBudgetStatistics(
+        long budgetBytes,
+        long inFlightBytes,
+        long peakInFlightBytes,
+        long admittedFetches,
+        long deferredAdmissions
+    ) {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("Budget must be positive");
+        }
+        this.budgetBytes = budgetBytes;
+        this.inFlightBytes = inFlightBytes;
+        this.peakInFlightBytes = peakInFlightBytes;
+        this.admittedFetches = admittedFetches;
+        this.deferredAdmissions = deferredAdmissions;
+    }
+
+    public static MemoryBudgetStatistics of(
+        long budgetBytes,
+        long inFlightBytes,
+        long peakInFlightBytes,
+        long admittedFetches,
+        long deferredAdmissions
+    ) {
+        return new MemoryBudgetStatistics(budgetBytes, inFlightBytes, peakInFlightBytes, admittedFetches, deferredAdmissions);
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * @return estimated size of the user folders fetched or being fetched, and not compared yet
+     */
+    public long getInFlightBytes() {
+        return inFlightBytes;
+    }
+
+    public long getPeakInFlightBytes() {
+        return peakInFlightBytes;
+    }
+
+    /**
+     * @return in-flight bytes as a fraction of the budget, above 1 when a single user exceeds it
+     */
+    public double getUtilization() {
+        return (double) inFlightBytes / budgetBytes;
+    }
+
+    public long getAdmittedFetches() {
+        return admittedFetches;
+    }
+
+    /**
+     * @return times a fetch was refused until earlier users were compared and released
+     */
+    public long getDeferredAdmissions() {
+        return deferredAdmissions;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MemoryBudgetStatistics that = (MemoryBudgetStatistics) o;
+        return budgetBytes == that.budgetBytes && inFlightBytes == that.inFlightBytes
+            && peakInFlightBytes == that.peakInFlightBytes && admittedFetches == that.admittedFetches
+            && deferredAdmissions == that.deferredAdmissions;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(budgetBytes, inFlightBytes, peakInFlightBytes, admittedFetches, deferredAdmissions);
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryBudgetStatistics{" +
+            "budgetBytes=" + budgetBytes +
+            ", inFlightBytes=" + inFlightBytes +
+            ", peakInFlightBytes=" + peakInFlightBytes +
+            ", admittedFetches=" + admittedFetches +
+            ", deferredAdmissions=" + deferredAdmissions +
+            '}';
+    }
+}
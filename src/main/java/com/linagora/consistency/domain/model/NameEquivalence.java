@@ -0,0 +1,144 @@
+package com.linagora.consistency.domain.model;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Policy deciding whether two folder names denote the same name: optional Unicode normalization,
+ * case folding and surrounding whitespace stripping.
+ * The comparison key of a name is computed on first use and cached on the {@link FolderName} itself,
+ * so comparing interned names costs a reference check, then a hash check, then at most one string comparison.
+ * Immutable.
+ */
+public final class NameEquivalence {
+
+    /**
+     * Unicode normalization applied before comparing.
+     */
+    public enum Normalization {
+        NONE(null),
+        NFC(Normalizer.Form.NFC),
+        NFKC(Normalizer.Form.NFKC);
+
+        private final Normalizer.Form form;
+
+        Normalization(Normalizer.Form form) {
+            this.form = form;
+        }
+    }
+
+    /**
+     * Comparison key of a name under one equivalence.
+     */
+    record Key(NameEquivalence equivalence, String value, int hash) {
+    }
+
+    private static final NameEquivalence EXACT = new NameEquivalence(Normalization.NONE, false, false);
+
+    private final Normalization normalization;
+    private final boolean caseInsensitive;
+    private final boolean trim;
+
+    private NameEquivalence(Normalization normalization, boolean caseInsensitive, boolean trim) {
+        this.normalization = Objects.requireNonNull(normalization, "normalization cannot be null");
+        this.caseInsensitive = caseInsensitive;
+        this.trim = trim;
+    }
+
+    public static NameEquivalence of(Normalization normalization, boolean caseInsensitive, boolean trim) {
+        if (normalization == Normalization.NONE && !caseInsensitive && !trim) {
+            return EXACT;
+        }
+        return new NameEquivalence(normalization, caseInsensitive, trim);
+    }
+
+    /**
+     * Names are equivalent only when equal.
+     */
+    public static NameEquivalence exact() {
+        return EXACT;
+    }
+
+    public boolean isExact() {
+        return this == EXACT;
+    }
+
+    /**
+     * @param first a name
+     * @param second another name
+     * @return whether both names are the same under this policy
+     */
+    public boolean equivalent(FolderName first, FolderName second) {
+        if (first == second || first.equals(second)) {
+            return true;
+        }
+        if (isExact()) {
+            return false;
+        }
+        Key firstKey = first.keyUnder(this);
+        Key secondKey = second.keyUnder(this);
+        return firstKey.hash() == secondKey.hash() && firstKey.value().equals(secondKey.value());
+    }
+
+    /**
+     * Returns the key under which equivalent names are equal, cached on the name, for hashing names.
+     *
+     * @param name a folder name
+     * @return the comparison key of the name
+     */
+    public String comparisonKey(FolderName name) {
+        return isExact() ? name.getValue() : name.keyUnder(this).value();
+    }
+
+    /**
+     * @param name a folder name
+     * @return the form under which equivalent names are equal
+     */
+    public String normalize(String name) {
+        String key = name;
+        if (normalization.form != null) {
+            key = Normalizer.normalize(key, normalization.form);
+        }
+        if (caseInsensitive) {
+            // Upper then lower case approximates full case folding (e.g. "ß" and "SS")
+            key = key.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+            if (normalization.form != null) {
+                // Normalize, fold, normalize again as NFKC_Casefold does: compatibility characters only
+                // reach their folded form once normalized ("ℌ" to "H"), and folding can undo a normal form
+                key = Normalizer.normalize(key, normalization.form);
+            }
+        }
+        if (trim) {
+            key = key.strip();
+        }
+        return key;
+    }
+
+    Key keyOf(String name) {
+        String key = normalize(name);
+        return new Key(this, key, key.hashCode());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        NameEquivalence that = (NameEquivalence) o;
+        return normalization == that.normalization && caseInsensitive == that.caseInsensitive && trim == that.trim;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(normalization, caseInsensitive, trim);
+    }
+
+    @Override
+    public String toString() {
+        return "NameEquivalence{" +
+            "normalization=" + normalization +
+            ", caseInsensitive=" + caseInsensitive +
+            ", trim=" + trim +
+            '}';
+    }
+}
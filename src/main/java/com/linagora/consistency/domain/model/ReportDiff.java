@@ -0,0 +1,130 @@
+package com.linagora.consistency.domain.model;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Changes between two report generations, computed from their summaries only.
+ * Inconsistencies are matched by fingerprint hash: "added" ones are in the later generation only,
+ * "resolved" ones in the earlier generation only.
+ * Immutable.
+ */
+public final class ReportDiff {
+
+    private final long fromGeneration;
+    private final long toGeneration;
+    private final Instant fromGeneratedAt;
+    private final Instant toGeneratedAt;
+    private final long addedInconsistencies;
+    private final long resolvedInconsistencies;
+    private final long unchangedInconsistencies;
+    private final Map<InconsistencyType, Long> countDeltasByType;
+    private final Map<Email, Integer> countDeltasByUser;
+
+    private ReportDiff(ReportSummary from, ReportSummary to) {
+        Objects.requireNonNull(from, "from cannot be null");
+        Objects.requireNonNull(to, "to cannot be null");
+        if (!from.hasDetails() || !to.hasDetails()) {
+            throw new IllegalArgumentException("Both summaries must keep their details");
+        }
+        this.fromGeneration = from.getGeneration();
+        this.toGeneration = to.getGeneration();
+        this.fromGeneratedAt = from.getGeneratedAt();
+        this.toGeneratedAt = to.getGeneratedAt();
+
+        // Multiset intersection of the two sorted fingerprints
+        long[] before = from.fingerprint;
+        long[] after = to.fingerprint;
+        int i = 0;
+        int j = 0;
+        long unchanged = 0;
+        while (i < before.length && j < after.length) {
+            if (before[i] < after[j]) {
+                i++;
+            } else if (before[i] > after[j]) {
+                j++;
+            } else {
+                unchanged++;
+                i++;
+                j++;
+            }
+        }
+        this.unchangedInconsistencies = unchanged;
+        this.addedInconsistencies = after.length - unchanged;
+        this.resolvedInconsistencies = before.length - unchanged;
+
+        Map<InconsistencyType, Long> typeDeltas = new EnumMap<>(InconsistencyType.class);
+        from.getCountsByType().forEach((type, count) -> typeDeltas.merge(type, -count, Long::sum));
+        to.getCountsByType().forEach((type, count) -> typeDeltas.merge(type, count, Long::sum));
+        typeDeltas.values().removeIf(delta -> delta == 0);
+        this.countDeltasByType = Collections.unmodifiableMap(typeDeltas);
+
+        Map<Email, Integer> userDeltas = new HashMap<>();
+        from.getCountsByUser().forEach((user, count) -> userDeltas.merge(user, -count, Integer::sum));
+        to.getCountsByUser().forEach((user, count) -> userDeltas.merge(user, count, Integer::sum));
+        userDeltas.values().removeIf(delta -> delta == 0);
+        this.countDeltasByUser = Collections.unmodifiableMap(userDeltas);
+    }
+
+    /**
+     * @param from the earlier generation
+     * @param to the later generation
+     * @return the changes from {@code from} to {@code to}
+     */
+    public static ReportDiff between(ReportSummary from, ReportSummary to) {
+        return new ReportDiff(from, to);
+    }
+
+    public long getFromGeneration() {
+        return fromGeneration;
+    }
+
+    public long getToGeneration() {
+        return toGeneration;
+    }
+
+    public Instant getFromGeneratedAt() {
+        return fromGeneratedAt;
+    }
+
+    public Instant getToGeneratedAt() {
+        return toGeneratedAt;
+    }
+
+    public long getAddedInconsistencies() {
+        return addedInconsistencies;
+    }
+
+    public long getResolvedInconsistencies() {
+        return resolvedInconsistencies;
+    }
+
+    public long getUnchangedInconsistencies() {
+        return unchangedInconsistencies;
+    }
+
+    /**
+     * @return count changes of the types whose count changed
+     */
+    public Map<InconsistencyType, Long> getCountDeltasByType() {
+        return countDeltasByType;
+    }
+
+    /**
+     * @return count changes of the users whose count changed; positive when the user got worse
+     */
+    public Map<Email, Integer> getCountDeltasByUser() {
+        return countDeltasByUser;
+    }
+
+    @Override
+    public String toString() {
+        return "ReportDiff{" +
+            "from=" + fromGeneration +
+            ", to=" + toGeneration +
+            ", added=" + addedInconsistencies +
+            ", resolved=" + resolvedInconsistencies +
+            ", unchanged=" + unchangedInconsistencies +
+            '}';
+    }
+}
@@ -0,0 +1,219 @@
+package com.linagora.consistency.domain.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Aggregates of one report generation kept in the report history: counts by type and, as details,
+ * counts by user and a fingerprint of the inconsistency set. The details are enough to compare two
+ * generations without their full reports, but grow with the report; {@link #withoutDetails()} keeps
+ * the counts only, a few bytes per generation.
+ * The fingerprint is the sorted multiset of 64-bit hashes of the inconsistencies; the hash only depends
+ * on the inconsistency values, so fingerprints stay comparable across restarts.
+ * Immutable.
+ */
+public final class ReportSummary {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long generation;
+    private final Instant generatedAt;
+    private final Map<InconsistencyType, Long> countsByType;
+    private final int inconsistentUsers;
+    private final Map<Email, Integer> countsByUser; // Null without details
+    final long[] fingerprint; // Null without details, read by ReportDiff without copying
+
+    private ReportSummary(
+        long generation,
+        Instant generatedAt,
+        Map<InconsistencyType, Long> countsByType,
+        int inconsistentUsers,
+        Map<Email, Integer> countsByUser,
+        long[] fingerprint
+    ) {
+        if (generation < 0) {
+            throw new IllegalArgumentException("Generation cannot be negative");
+        }
+        if (inconsistentUsers < 0) {
+            throw new IllegalArgumentException("Inconsistent users cannot be negative");
+        }
+        this.generation = generation;
+        this.generatedAt = Objects.requireNonNull(generatedAt, "generatedAt cannot be null");
+        Map<InconsistencyType, Long> counts = new EnumMap<>(InconsistencyType.class);
+        counts.putAll(Objects.requireNonNull(countsByType, "countsByType cannot be null"));
+        this.countsByType = Collections.unmodifiableMap(counts);
+        this.inconsistentUsers = inconsistentUsers;
+        this.countsByUser = countsByUser == null ? null : Collections.unmodifiableMap(new HashMap<>(countsByUser));
+        this.fingerprint = fingerprint == null ? null : fingerprint.clone();
+        if (this.fingerprint != null) {
+            Arrays.sort(this.fingerprint);
+            if (this.fingerprint.length != getTotalCount()) {
+                throw new IllegalArgumentException("Fingerprint must hold one hash per inconsistency");
+            }
+        }
+    }
+
+    public static ReportSummary of(
+        long generation,
+        Instant generatedAt,
+        Map<InconsistencyType, Long> countsByType,
+        Map<Email, Integer> countsByUser,
+        long[] fingerprint
+    ) {
+        Objects.requireNonNull(countsByUser, "countsByUser cannot be null");
+        Objects.requireNonNull(fingerprint, "fingerprint cannot be null");
+        return new ReportSummary(generation, generatedAt, countsByType, countsByUser.size(), countsByUser, fingerprint);
+    }
+
+    /**
+     * @return a summary without details
+     */
+    public static ReportSummary withoutDetails(
+        long generation,
+        Instant generatedAt,
+        Map<InconsistencyType, Long> countsByType,
+        int inconsistentUsers
+    ) {
+        return new ReportSummary(generation, generatedAt, countsByType, inconsistentUsers, null, null);
+    }
+
+    /**
+     * Computes the aggregates of a report.
+     *
+     * @param generation sequence number of the report in the history
+     * @param generatedAt when the report was produced
+     * @param report the report to summarize
+     * @return the summary
+     */
+    public static ReportSummary summarize(long generation, Instant generatedAt, InconsistencyReport report) {
+        List<Inconsistency> inconsistencies = report.getInconsistencies();
+        Map<Email, Integer> countsByUser = new HashMap<>();
+        long[] fingerprint = new long[inconsistencies.size()];
+        for (int i = 0; i < fingerprint.length; i++) {
+            Inconsistency inconsistency = inconsistencies.get(i);
+            countsByUser.merge(inconsistency.getUserEmail(), 1, Integer::sum);
+            fingerprint[i] = hash(inconsistency);
+        }
+        return of(generation, generatedAt, report.getCountsByType(), countsByUser, fingerprint);
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public Instant getGeneratedAt() {
+        return generatedAt;
+    }
+
+    public Map<InconsistencyType, Long> getCountsByType() {
+        return countsByType;
+    }
+
+    /**
+     * @return number of users having at least one inconsistency
+     */
+    public int getInconsistentUsers() {
+        return inconsistentUsers;
+    }
+
+    /**
+     * @return whether counts by user and the fingerprint are kept
+     */
+    public boolean hasDetails() {
+        return fingerprint != null;
+    }
+
+    /**
+     * @return the same counts, without counts by user and fingerprint
+     */
+    public ReportSummary withoutDetails() {
+        return hasDetails() ? withoutDetails(generation, generatedAt, countsByType, inconsistentUsers) : this;
+    }
+
+    /**
+     * @return number of inconsistencies of each user having at least one
+     * @throws IllegalStateException without details
+     */
+    public Map<Email, Integer> getCountsByUser() {
+        checkDetails();
+        return countsByUser;
+    }
+
+    public long getTotalCount() {
+        long total = 0;
+        for (long count : countsByType.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return sorted hashes of the inconsistencies, one per inconsistency
+     * @throws IllegalStateException without details
+     */
+    public long[] getFingerprint() {
+        checkDetails();
+        return fingerprint.clone();
+    }
+
+    private void checkDetails() {
+        if (!hasDetails()) {
+            throw new IllegalStateException("Details of generation " + generation + " are not kept");
+        }
+    }
+
+    // FNV-1a over the UTF-8 fields, with a separator so that field boundaries matter, then a final mix
+    private static long hash(Inconsistency inconsistency) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = hash(hash, inconsistency.getType().name());
+        hash = hash(hash, inconsistency.getFolderId().map(FolderId::getValue).orElse(""));
+        if (inconsistency.getGlobalFolderId().isPresent()) {
+            // Only hashed when present, so fingerprints of other types stay stable across versions
+            hash = hash(hash, inconsistency.getGlobalFolderId().get().getValue());
+        }
+        hash = hash(hash, inconsistency.getUserEmail().getValue());
+        hash = hash(hash, inconsistency.getGlobalFolderName().map(FolderName::getValue).orElse(""));
+        hash = hash(hash, inconsistency.getUserFolderName().map(FolderName::getValue).orElse(""));
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long hash(long hash, String field) {
+        for (byte b : field.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+        }
+        return (hash ^ 0xFF) * FNV_PRIME;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ReportSummary that = (ReportSummary) o;
+        return generation == that.generation
+            && generatedAt.equals(that.generatedAt)
+            && countsByType.equals(that.countsByType)
+            && inconsistentUsers == that.inconsistentUsers
+            && Objects.equals(countsByUser, that.countsByUser)
+            && Arrays.equals(fingerprint, that.fingerprint);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(generation, generatedAt, countsByType, inconsistentUsers, countsByUser, Arrays.hashCode(fingerprint));
+    }
+
+    @Override
+    public String toString() {
+        return "ReportSummary{" +
+            "generation=" + generation +
+            ", generatedAt=" + generatedAt +
+            ", total=" + getTotalCount() +
+            ", users=" + inconsistentUsers +
+            '}';
+    }
+}
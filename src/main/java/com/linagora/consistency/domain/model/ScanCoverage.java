@@ -0,0 +1,71 @@
+package com.linagora.consistency.domain.model;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Share of the users a scan managed to check before its deadline.
+ * Immutable.
+ */
+public final class ScanCoverage {
+
+    private final int totalUsers;
+    private final List<Email> uncheckedUsers;
+
+    private ScanCoverage(int totalUsers, List<Email> uncheckedUsers) {
+        this.uncheckedUsers = List.copyOf(Objects.requireNonNull(uncheckedUsers, "uncheckedUsers cannot be null"));
+        if (totalUsers < this.uncheckedUsers.size()) {
+            throw new IllegalArgumentException("Unchecked users cannot outnumber the users");
+        }
+        this.totalUsers = totalUsers;
+    }
+
+    /**
+     * @param totalUsers users the scan had to check
+     * @param uncheckedUsers users whose folders were not compared
+     */
+    public static ScanCoverage of(int totalUsers, List<Email> uncheckedUsers) {
+        return new ScanCoverage(totalUsers, uncheckedUsers);
+    }
+
+    public int getTotalUsers() {
+        return totalUsers;
+    }
+
+    public int getCheckedUsers() {
+        return totalUsers - uncheckedUsers.size();
+    }
+
+    public List<Email> getUncheckedUsers() {
+        return uncheckedUsers;
+    }
+
+    /**
+     * @return checked users as a percentage of all users, 100 when there are no users
+     */
+    public double getPercentage() {
+        return totalUsers == 0 ? 100 : 100.0 * getCheckedUsers() / totalUsers;
+    }
+
+    public boolean isComplete() {
+        return uncheckedUsers.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ScanCoverage that = (ScanCoverage) o;
+        return totalUsers == that.totalUsers && uncheckedUsers.equals(that.uncheckedUsers);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(totalUsers, uncheckedUsers);
+    }
+
+    @Override
+    public String toString() {
+        return "ScanCoverage{checkedUsers=" + getCheckedUsers() + ", totalUsers=" + totalUsers + "}";
+    }
+}
@@ -0,0 +1,68 @@
+package com.linagora.consistency.domain.model;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Outcome of one tenant's scan when scanning every tenant: its report, or why the scan failed.
+ * Immutable.
+ */
+public final class TenantScanResult {
+
+    private final InconsistencyReport report;
+    private final String error;
+
+    private TenantScanResult(InconsistencyReport report, String error) {
+        this.report = report;
+        this.error = error;
+    }
+
+    public static TenantScanResult succeeded(InconsistencyReport report) {
+        return new TenantScanResult(Objects.requireNonNull(report, "report cannot be null"), null);
+    }
+
+    /**
+     * @param error description of the failure
+     */
+    public static TenantScanResult failed(String error) {
+        return new TenantScanResult(null, Objects.requireNonNull(error, "error cannot be null"));
+    }
+
+    public boolean isSuccessful() {
+        return report != null;
+    }
+
+    /**
+     * @return the report, empty if the scan failed
+     */
+    public Optional<InconsistencyReport> getReport() {
+        return Optional.ofNullable(report);
+    }
+
+    /**
+     * @return why the scan failed, empty if it succeeded
+     */
+    public Optional<String> getError() {
+        return Optional.ofNullable(error);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TenantScanResult that = (TenantScanResult) o;
+        return Objects.equals(report, that.report) && Objects.equals(error, that.error);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(report, error);
+    }
+
+    @Override
+    public String toString() {
+        return isSuccessful()
+            ? "TenantScanResult{total=" + report.getTotalCount() + "}"
+            : "TenantScanResult{error=" + error + "}";
+    }
+}
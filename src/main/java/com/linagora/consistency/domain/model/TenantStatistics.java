@@ -0,0 +1,160 @@
+package com.linagora.consistency.domain.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Scheduling and scan counters of one tenant, as of when they were read.
+ * Immutable.
+ */
+public final class TenantStatistics {
+
+    private final String tenant;
+    private final int weight;
+    private final int maxConcurrency;
+    private final int queuedTasks;
+    private final int runningTasks;
+    private final long completedTasks;
+    private final Duration busyTime;
+    private final long scans;
+    private final long failedScans;
+    private final Instant lastScanAt;
+    private final Duration lastScanDuration;
+    private final long lastScanInconsistencies;
+
+    private TenantStatistics(
+        String tenant,
+        int weight,
+        int maxConcurrency,
+        int queuedTasks,
+        int runningTasks,
+        long completedTasks,
+        Duration busyTime,
+        long scans,
+        long failedScans,
+        Instant lastScanAt,
+        Duration lastScanDuration,
+        long lastScanInconsistencies
+    ) {
+        this.tenant = Objects.requireNonNull(tenant, "tenant cannot be null");
+        this.weight = weight;
+        this.maxConcurrency = maxConcurrency;
+        this.queuedTasks = queuedTasks;
+        this.runningTasks = runningTasks;
+        this.completedTasks = completedTasks;
+        this.busyTime = Objects.requireNonNull(busyTime, "busyTime cannot be null");
+        this.scans = scans;
+        this.failedScans = failedScans;
+        this.lastScanAt = lastScanAt;
+        this.lastScanDuration = lastScanDuration;
+        this.lastScanInconsistencies = lastScanInconsistencies;
+    }
+
+    /**
+     * @param lastScanAt end of the last successful scan, null if none
+     * @param lastScanDuration duration of the last successful scan, null if none
+     */
+    public static TenantStatistics of(
+        String tenant,
+        int weight,
+        int maxConcurrency,
+        int queuedTasks,
+        int runningTasks,
+        long completedTasks,
+        Duration busyTime,
+        long scans,
+        long failedScans,
+        Instant lastScanAt,
+        Duration lastScanDuration,
+        long lastScanInconsistencies
+    ) {
+        return new TenantStatistics(tenant, weight, maxConcurrency, queuedTasks, runningTasks, completedTasks,
+            busyTime, scans, failedScans, lastScanAt, lastScanDuration, lastScanInconsistencies);
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @return upstream calls waiting for a slot of the shared pool
+     */
+    public int getQueuedTasks() {
+        return queuedTasks;
+    }
+
+    public int getRunningTasks() {
+        return runningTasks;
+    }
+
+    public long getCompletedTasks() {
+        return completedTasks;
+    }
+
+    /**
+     * @return total time the shared pool spent on this tenant
+     */
+    public Duration getBusyTime() {
+        return busyTime;
+    }
+
+    public long getScans() {
+        return scans;
+    }
+
+    public long getFailedScans() {
+        return failedScans;
+    }
+
+    public Optional<Instant> getLastScanAt() {
+        return Optional.ofNullable(lastScanAt);
+    }
+
+    public Optional<Duration> getLastScanDuration() {
+        return Optional.ofNullable(lastScanDuration);
+    }
+
+    public long getLastScanInconsistencies() {
+        return lastScanInconsistencies;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TenantStatistics that = (TenantStatistics) o;
+        return weight == that.weight && maxConcurrency == that.maxConcurrency && queuedTasks == that.queuedTasks
+            && runningTasks == that.runningTasks && completedTasks == that.completedTasks && scans == that.scans
+            && failedScans == that.failedScans && lastScanInconsistencies == that.lastScanInconsistencies
+            && tenant.equals(that.tenant) && busyTime.equals(that.busyTime)
+            && Objects.equals(lastScanAt, that.lastScanAt) && Objects.equals(lastScanDuration, that.lastScanDuration);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tenant, weight, maxConcurrency, queuedTasks, runningTasks, completedTasks, busyTime,
+            scans, failedScans, lastScanAt, lastScanDuration, lastScanInconsistencies);
+    }
+
+    @Override
+    public String toString() {
+        return "TenantStatistics{" +
+            "tenant='" + tenant + '\'' +
+            ", queuedTasks=" + queuedTasks +
+            ", runningTasks=" + runningTasks +
+            ", completedTasks=" + completedTasks +
+            ", scans=" + scans +
+            ", failedScans=" + failedScans +
+            '}';
+    }
+}
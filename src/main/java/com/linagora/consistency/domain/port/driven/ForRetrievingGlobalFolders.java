@@ -3,6 +3,7 @@ package com.linagora.consistency.domain.port.driven;
 import com.linagora.consistency.domain.model.GlobalFolder;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Secondary port (driven) for retrieving global folders from external data source.
@@ -16,4 +17,15 @@ public interface ForRetrievingGlobalFolders {
      * @return list of global folders
      */
     List<GlobalFolder> retrieveAllGlobalFolders();
+
+    /**
+     * Streams all folders across all users to the given consumer, in source order.
+     * Implementations able to decode incrementally should override this so that
+     * callers never hold the full list.
+     *
+     * @param consumer receives each global folder
+     */
+    default void streamAllGlobalFolders(Consumer<GlobalFolder> consumer) {
+        retrieveAllGlobalFolders().forEach(consumer);
+    }
 }
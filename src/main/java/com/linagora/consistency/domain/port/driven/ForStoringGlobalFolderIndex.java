@@ -0,0 +1,44 @@
+package com.linagora.consistency.domain.port.driven;
+
+import com.linagora.consistency.domain.model.GlobalFolderIndex;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Secondary port (driven) for keeping the global folder index across restarts.
+ * Framework-agnostic.
+ */
+public interface ForStoringGlobalFolderIndex {
+
+    /**
+     * A stored index with the time its global folders were downloaded, so that its age survives restarts.
+     *
+     * @param index the stored index
+     * @param builtAt when the index was built
+     */
+    record StoredIndex(GlobalFolderIndex index, Instant builtAt) {
+
+        public StoredIndex {
+            Objects.requireNonNull(index, "index cannot be null");
+            Objects.requireNonNull(builtAt, "builtAt cannot be null");
+        }
+    }
+
+    /**
+     * Loads the most recently stored index, if any.
+     *
+     * @return the stored index, or empty when nothing usable was stored
+     */
+    Optional<StoredIndex> loadGlobalFolderIndex();
+
+    /**
+     * Stores an index built from freshly downloaded global folders, replacing the previous one.
+     * The caller keeps using the given index; the stored copy serves {@link #loadGlobalFolderIndex()}.
+     *
+     * @param globalFolderIndex index to store
+     * @param builtAt when the global folders were downloaded
+     */
+    void storeGlobalFolderIndex(GlobalFolderIndex globalFolderIndex, Instant builtAt);
+}
@@ -0,0 +1,37 @@
+package com.linagora.consistency.domain.port.driven;
+
+import com.linagora.consistency.domain.model.ReportSummary;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Secondary port (driven) for keeping report generation summaries across restarts.
+ * Summaries are appended; stores may later drop the details of older ones, keeping their counts only.
+ * Framework-agnostic.
+ */
+public interface ForStoringReportHistory {
+
+    /**
+     * Loads the counts of the stored summaries.
+     *
+     * @param limit maximum number of summaries, the most recent ones are kept
+     * @return stored summaries without details, in generation order, empty when nothing was stored yet
+     */
+    List<ReportSummary> loadReportSummaries(int limit);
+
+    /**
+     * Loads one stored summary with its details.
+     *
+     * @param generation the generation to load
+     * @return the summary, or empty if the generation was not stored or its details were not kept
+     */
+    Optional<ReportSummary> loadReportSummary(long generation);
+
+    /**
+     * Appends the summary of a new generation.
+     *
+     * @param summary the summary to store
+     */
+    void appendReportSummary(ReportSummary summary);
+}
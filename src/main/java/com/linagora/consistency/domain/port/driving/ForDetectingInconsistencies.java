@@ -2,6 +2,8 @@ package com.linagora.consistency.domain.port.driving;
 
 import com.linagora.consistency.domain.model.InconsistencyReport;
 
+import java.time.Duration;
+
 /**
  * Primary port (driving) for detecting folder inconsistencies.
  * This is the main use case interface exposed by the domain.
@@ -15,4 +17,23 @@ public interface ForDetectingInconsistencies {
      * @return a report containing all detected inconsistencies
      */
     InconsistencyReport detectInconsistencies();
+
+    /**
+     * Detects inconsistencies within a time budget. At the deadline, no more user folders are fetched
+     * and the report covers the users checked so far, flagged partial with the users left unchecked.
+     * Detectors that cannot stop early run to completion, see {@link #supportsDeadline()}.
+     *
+     * @param deadline time budget of the detection
+     * @return a report, partial if the deadline was reached before checking every user
+     */
+    default InconsistencyReport detectInconsistencies(Duration deadline) {
+        return detectInconsistencies();
+    }
+
+    /**
+     * @return whether {@link #detectInconsistencies(Duration)} stops at the deadline, rather than running to completion
+     */
+    default boolean supportsDeadline() {
+        return false;
+    }
 }
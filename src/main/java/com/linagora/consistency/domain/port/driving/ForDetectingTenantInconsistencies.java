@@ -0,0 +1,43 @@
+package com.linagora.consistency.domain.port.driving;
+
+import com.linagora.consistency.domain.model.InconsistencyReport;
+import com.linagora.consistency.domain.model.TenantScanResult;
+import com.linagora.consistency.domain.model.TenantStatistics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Primary port (driving) for detecting inconsistencies of several independent upstream tenants,
+ * each with its own reports.
+ * Framework-agnostic.
+ */
+public interface ForDetectingTenantInconsistencies {
+
+    /**
+     * @return names of the configured tenants, in configuration order
+     */
+    List<String> tenants();
+
+    /**
+     * Detects the inconsistencies of one tenant.
+     *
+     * @param tenant the tenant name
+     * @return the tenant's report, or empty if the tenant is unknown
+     */
+    Optional<InconsistencyReport> detectInconsistencies(String tenant);
+
+    /**
+     * Detects the inconsistencies of every tenant concurrently. A failing tenant does not discard
+     * the reports of the others.
+     *
+     * @return the report or failure of each tenant, in configuration order
+     */
+    Map<String, TenantScanResult> detectAllTenants();
+
+    /**
+     * @return current counters of each tenant, in configuration order
+     */
+    List<TenantStatistics> statistics();
+}
@@ -0,0 +1,42 @@
+package com.linagora.consistency.domain.port.driving;
+
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.InconsistencyReport;
+import com.linagora.consistency.domain.model.InconsistencyType;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Primary port (driving) for checking the folders of a single user.
+ * Framework-agnostic.
+ */
+public interface ForDetectingUserInconsistencies {
+
+    /**
+     * Types a single-user check can report; the other types come from the global data as a whole.
+     */
+    Set<InconsistencyType> USER_CHECK_TYPES = Collections.unmodifiableSet(EnumSet.of(
+        InconsistencyType.NAME_MISMATCH,
+        InconsistencyType.MISSING_IN_GLOBAL,
+        InconsistencyType.MISSING_IN_USER_FOLDERS,
+        InconsistencyType.ID_MISMATCH
+    ));
+
+    /**
+     * Detects inconsistencies between one user's folders and the latest global index.
+     *
+     * @param userEmail the user's email address
+     * @return a report containing the user's inconsistencies
+     */
+    InconsistencyReport detectInconsistenciesForUser(Email userEmail);
+
+    /**
+     * Brings the global index up to date ahead of a batch of single-user checks, so that they compare
+     * against the current global folders rather than an index kept since an earlier download.
+     * Does nothing for checkers that do not keep an index.
+     */
+    default void refreshGlobalIndex() {
+    }
+}
@@ -0,0 +1,20 @@
+package com.linagora.consistency.domain.port.driving;
+
+import com.linagora.consistency.domain.model.InconsistencyRateEstimate;
+
+/**
+ * Primary port (driving) for estimating inconsistency rates from a sample of users,
+ * when approximate figures are enough and a full scan is too expensive.
+ * Framework-agnostic.
+ */
+public interface ForEstimatingInconsistencyRates {
+
+    /**
+     * Estimates the share of inconsistent users, overall and per type.
+     *
+     * @param confidence confidence level of the intervals, e.g. 0.95
+     * @param margin targeted half-width of the intervals, e.g. 0.01
+     * @return the estimated rates
+     */
+    InconsistencyRateEstimate estimateInconsistencyRates(double confidence, double margin);
+}
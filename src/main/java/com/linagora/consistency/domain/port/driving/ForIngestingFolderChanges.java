@@ -0,0 +1,17 @@
+package com.linagora.consistency.domain.port.driving;
+
+import com.linagora.consistency.domain.model.FolderChangeEvent;
+
+/**
+ * Primary port (driving) for feeding folder change notifications into the live consistency state.
+ * Framework-agnostic.
+ */
+public interface ForIngestingFolderChanges {
+
+    /**
+     * Applies one folder change, updating the affected user's inconsistencies.
+     *
+     * @param event the change to apply
+     */
+    void applyFolderChange(FolderChangeEvent event);
+}
@@ -0,0 +1,15 @@
+package com.linagora.consistency.domain.port.driving;
+
+import com.linagora.consistency.domain.model.MemoryBudgetStatistics;
+
+/**
+ * Primary port (driving) for reading how much of the heap budget in-flight user folders currently use.
+ * Framework-agnostic.
+ */
+public interface ForMonitoringMemoryBudget {
+
+    /**
+     * @return current use of the budget
+     */
+    MemoryBudgetStatistics statistics();
+}
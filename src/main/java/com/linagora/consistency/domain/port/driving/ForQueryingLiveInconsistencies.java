@@ -0,0 +1,32 @@
+package com.linagora.consistency.domain.port.driving;
+
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.InconsistencyReport;
+
+/**
+ * Primary port (driving) for reading the live consistency state without scanning.
+ * Framework-agnostic.
+ */
+public interface ForQueryingLiveInconsistencies {
+
+    /**
+     * Returns the current inconsistencies of every tracked user.
+     *
+     * @return a report of the live inconsistencies
+     */
+    InconsistencyReport liveInconsistencies();
+
+    /**
+     * Returns the current inconsistencies of one user.
+     *
+     * @param userEmail the user's email address
+     * @return a report of the user's live inconsistencies (empty if the user is not tracked)
+     */
+    InconsistencyReport liveInconsistenciesForUser(Email userEmail);
+
+    /**
+     * Rebuilds the live state from a full load of both sources.
+     * Changes applied while the load is in progress are replayed on the rebuilt state.
+     */
+    void reconcile();
+}
@@ -0,0 +1,40 @@
+package com.linagora.consistency.domain.port.driving;
+
+import com.linagora.consistency.domain.model.ReportDiff;
+import com.linagora.consistency.domain.model.ReportSummary;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Primary port (driving) for reading the history of report generations from stored aggregates,
+ * without scanning or reloading full reports.
+ * Framework-agnostic.
+ */
+public interface ForQueryingReportHistory {
+
+    /**
+     * Returns the most recent generations, oldest first.
+     *
+     * @param limit maximum number of generations
+     * @return summaries of the latest generations
+     */
+    List<ReportSummary> trend(int limit);
+
+    /**
+     * Compares two generations.
+     *
+     * @param fromGeneration the earlier generation
+     * @param toGeneration the later generation
+     * @return the changes, or empty if a generation is unknown, no longer retained, or its details
+     *         were not stored
+     */
+    Optional<ReportDiff> diff(long fromGeneration, long toGeneration);
+
+    /**
+     * Compares the two most recent generations.
+     *
+     * @return the changes, or empty if fewer than two generations are known
+     */
+    Optional<ReportDiff> latestDiff();
+}
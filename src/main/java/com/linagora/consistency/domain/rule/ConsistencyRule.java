@@ -0,0 +1,54 @@
+package com.linagora.consistency.domain.rule;
+
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.GlobalFolder;
+import com.linagora.consistency.domain.model.Inconsistency;
+import com.linagora.consistency.domain.model.UserFolder;
+
+import java.util.function.Consumer;
+
+/**
+ * Service Provider Interface for consistency rules.
+ * Rules are called back from a single fused pass over the data (see {@link InconsistencyRules}),
+ * so adding a rule adds neither a traversal nor per-folder allocations.
+ * Each hook defaults to a no-op; a rule only overrides what it needs.
+ */
+public interface ConsistencyRule {
+
+    /**
+     * Called once per global row, in source order.
+     *
+     * @param folder the global row
+     * @param keptForOwner the row the index kept for the same owner and folder id, or null when it keeps this one
+     * @param firstWithSameId the first row seen with the same folder id (any owner), or null
+     * @param sink receives detected inconsistencies
+     */
+    default void onGlobalFolder(
+        GlobalFolder folder,
+        GlobalFolder keptForOwner,
+        GlobalFolder firstWithSameId,
+        Consumer<Inconsistency> sink
+    ) {
+    }
+
+    /**
+     * Called once per user folder.
+     *
+     * @param userEmail the user
+     * @param userFolder the user-side folder
+     * @param globalFolder the user's global folder with the same id, or null
+     * @param sink receives detected inconsistencies
+     */
+    default void onUserFolder(Email userEmail, UserFolder userFolder, GlobalFolder globalFolder, Consumer<Inconsistency> sink) {
+    }
+
+    /**
+     * Called once per global folder of the user without a user-side counterpart.
+     *
+     * @param userEmail the user
+     * @param globalFolder the global-side folder
+     * @param sink receives detected inconsistencies
+     */
+    default void onGlobalOnlyFolder(Email userEmail, GlobalFolder globalFolder, Consumer<Inconsistency> sink) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.linagora.consistency.domain.rule;
+
+import com.linagora.consistency.domain.model.GlobalFolder;
+import com.linagora.consistency.domain.model.Inconsistency;
+
+import java.util.function.Consumer;
+
+/**
+ * Reports global rows whose folder id was first listed for another owner.
+ * The inconsistency is attached to the later owner, once: the owner's repetitions are duplicates.
+ */
+public final class CrossUserIdCollisionRule implements ConsistencyRule {
+
+    @Override
+    public void onGlobalFolder(
+        GlobalFolder folder,
+        GlobalFolder keptForOwner,
+        GlobalFolder firstWithSameId,
+        Consumer<Inconsistency> sink
+    ) {
+        // The owner's first row with this id, while another owner listed the id earlier
+        if (keptForOwner == null && firstWithSameId != null) {
+            sink.accept(Inconsistency.crossUserIdCollision(folder.getId(), folder.getUserEmail(), folder.getName()));
+        }
+    }
+}
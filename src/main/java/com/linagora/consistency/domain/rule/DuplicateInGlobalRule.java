@@ -0,0 +1,25 @@
+package com.linagora.consistency.domain.rule;
+
+import com.linagora.consistency.domain.model.GlobalFolder;
+import com.linagora.consistency.domain.model.Inconsistency;
+
+import java.util.function.Consumer;
+
+/**
+ * Reports global rows repeating a folder id already listed for the same owner.
+ * The first row is the one kept by the index; each repetition is reported.
+ */
+public final class DuplicateInGlobalRule implements ConsistencyRule {
+
+    @Override
+    public void onGlobalFolder(
+        GlobalFolder folder,
+        GlobalFolder keptForOwner,
+        GlobalFolder firstWithSameId,
+        Consumer<Inconsistency> sink
+    ) {
+        if (keptForOwner != null) {
+            sink.accept(Inconsistency.duplicateInGlobal(folder.getId(), folder.getUserEmail(), folder.getName()));
+        }
+    }
+}
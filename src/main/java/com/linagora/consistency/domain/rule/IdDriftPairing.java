@@ -0,0 +1,97 @@
+package com.linagora.consistency.domain.rule;
+
+import com.linagora.consistency.domain.model.Inconsistency;
+import com.linagora.consistency.domain.model.InconsistencyType;
+import com.linagora.consistency.domain.model.NameEquivalence;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Sink buffering the inconsistencies of one user, then replacing each pair of a
+ * {@link InconsistencyType#MISSING_IN_GLOBAL} and a {@link InconsistencyType#MISSING_IN_USER_FOLDERS}
+ * with equivalent names by a single {@link InconsistencyType#ID_MISMATCH}.
+ * Pairing is a hash join on the names' comparison keys, linear in the user's inconsistencies.
+ * When several folders share a name on both sides, they are paired in source order.
+ * Other inconsistencies pass through; the original order is kept, a pair taking the place of its user-side entry.
+ */
+final class IdDriftPairing implements Consumer<Inconsistency> {
+
+    private final NameEquivalence nameEquivalence;
+    private final Consumer<Inconsistency> sink;
+    private final List<Inconsistency> pending = new ArrayList<>();
+    private int missingInGlobal;
+    private int missingInUserFolders;
+
+    IdDriftPairing(NameEquivalence nameEquivalence, Consumer<Inconsistency> sink) {
+        this.nameEquivalence = nameEquivalence;
+        this.sink = sink;
+    }
+
+    @Override
+    public void accept(Inconsistency inconsistency) {
+        switch (inconsistency.getType()) {
+            case MISSING_IN_GLOBAL -> missingInGlobal++;
+            case MISSING_IN_USER_FOLDERS -> missingInUserFolders++;
+            default -> {
+            }
+        }
+        pending.add(inconsistency);
+    }
+
+    /**
+     * Pairs the buffered inconsistencies and forwards them to the sink.
+     */
+    void flush() {
+        if (missingInGlobal > 0 && missingInUserFolders > 0) {
+            pair();
+        } else {
+            pending.forEach(sink);
+        }
+        pending.clear();
+        missingInGlobal = 0;
+        missingInUserFolders = 0;
+    }
+
+    private void pair() {
+        // Build side: global-only folders by name, in source order
+        Map<String, ArrayDeque<Integer>> globalOnlyByName = new HashMap<>(missingInUserFolders * 2);
+        for (int i = 0; i < pending.size(); i++) {
+            Inconsistency inconsistency = pending.get(i);
+            if (inconsistency.getType() == InconsistencyType.MISSING_IN_USER_FOLDERS) {
+                globalOnlyByName
+                    .computeIfAbsent(nameEquivalence.comparisonKey(inconsistency.getGlobalFolderName().orElseThrow()), name -> new ArrayDeque<>(1))
+                    .add(i);
+            }
+        }
+
+        // Probe side: user-only folders
+        boolean[] paired = new boolean[pending.size()];
+        for (int i = 0; i < pending.size(); i++) {
+            Inconsistency userOnly = pending.get(i);
+            if (userOnly.getType() != InconsistencyType.MISSING_IN_GLOBAL) {
+                continue;
+            }
+            ArrayDeque<Integer> candidates = globalOnlyByName.get(nameEquivalence.comparisonKey(userOnly.getUserFolderName().orElseThrow()));
+            if (candidates == null || candidates.isEmpty()) {
+                continue;
+            }
+            int globalOnlyIndex = candidates.poll();
+            Inconsistency globalOnly = pending.get(globalOnlyIndex);
+            paired[globalOnlyIndex] = true;
+            pending.set(i, Inconsistency.idMismatch(
+                userOnly.getFolderId().orElseThrow(),
+                globalOnly.getFolderId().orElseThrow(),
+                userOnly.getUserEmail(),
+                globalOnly.getGlobalFolderName().orElseThrow(),
+                userOnly.getUserFolderName().orElseThrow()
+            ));
+        }
+
+        for (int i = 0; i < pending.size(); i++) {
+            if (!paired[i]) {
+                sink.accept(pending.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.linagora.consistency.domain.rule;
+
+import com.linagora.consistency.domain.model.*;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Rule engine running every registered {@link ConsistencyRule} in fused passes:
+ * one pass over global rows and one pass per user over the user's indexed folders.
+ * Immutable.
+ */
+public final class InconsistencyRules {
+
+    private final ConsistencyRule[] rules;
+    private final NameEquivalence nameEquivalence;
+    private final boolean pairIdDrift;
+
+    private InconsistencyRules(List<ConsistencyRule> rules, NameEquivalence nameEquivalence, boolean pairIdDrift) {
+        this.rules = Objects.requireNonNull(rules, "rules cannot be null").toArray(ConsistencyRule[]::new);
+        this.nameEquivalence = Objects.requireNonNull(nameEquivalence, "nameEquivalence cannot be null");
+        this.pairIdDrift = pairIdDrift;
+    }
+
+    public static InconsistencyRules of(List<ConsistencyRule> rules) {
+        return new InconsistencyRules(rules, NameEquivalence.exact(), false);
+    }
+
+    /**
+     * Built-in rules covering every {@link InconsistencyType}.
+     */
+    public static InconsistencyRules defaults() {
+        return defaults(NameEquivalence.exact());
+    }
+
+    /**
+     * Built-in rules covering every {@link InconsistencyType}, comparing names under the given equivalence.
+     */
+    public static InconsistencyRules defaults(NameEquivalence nameEquivalence) {
+        return new InconsistencyRules(List.of(
+            new MissingInGlobalRule(),
+            new NameMismatchRule(nameEquivalence),
+            new MissingInUserFoldersRule(),
+            new DuplicateInGlobalRule(),
+            new CrossUserIdCollisionRule()
+        ), nameEquivalence, false);
+    }
+
+    /**
+     * Same rules, additionally reporting a user-only folder and a global-only folder of the same user
+     * with equivalent names as one {@link InconsistencyType#ID_MISMATCH} in {@link #inspectUserFolders}.
+     */
+    public InconsistencyRules withIdDriftPairing() {
+        return new InconsistencyRules(Arrays.asList(rules), nameEquivalence, true);
+    }
+
+    public boolean pairsIdDrift() {
+        return pairIdDrift;
+    }
+
+    /**
+     * Indexes global rows by owner and inspects them in the same pass. The index tells which row
+     * it keeps per (owner, folder id); the first row per folder id, any owner, is tracked alongside
+     * for cross-user checks.
+     *
+     * @param globalFolders global rows in source order
+     * @param sink receives detected inconsistencies
+     * @return in-memory index of the rows, first row kept per (owner, folder id)
+     */
+    public GlobalFolderIndex indexGlobalFolders(Iterable<GlobalFolder> globalFolders, Consumer<Inconsistency> sink) {
+        GlobalFolderIndex.Builder index = GlobalFolderIndex.builder();
+        Map<FolderId, GlobalFolder> firstById = new HashMap<>();
+        for (GlobalFolder folder : globalFolders) {
+            GlobalFolder keptForOwner = index.add(folder);
+            GlobalFolder firstWithSameId = firstById.putIfAbsent(folder.getId(), folder);
+            for (ConsistencyRule rule : rules) {
+                rule.onGlobalFolder(folder, keptForOwner, firstWithSameId, sink);
+            }
+        }
+        return index.build();
+    }
+
+    /**
+     * Single pass over one user's folders against the user's global folders.
+     * With id drift pairing, the user's inconsistencies are buffered and paired by name before reaching the sink.
+     *
+     * @param userFolders the user's folders
+     * @param userGlobalFolders the user's global folders by id
+     * @param sink receives detected inconsistencies
+     */
+    public void inspectUserFolders(
+        UserFolders userFolders,
+        Map<FolderId, GlobalFolder> userGlobalFolders,
+        Consumer<Inconsistency> sink
+    ) {
+        IdDriftPairing pairing = pairIdDrift ? new IdDriftPairing(nameEquivalence, sink) : null;
+        if (pairing != null) {
+            sink = pairing;
+        }
+        Email userEmail = userFolders.getUserEmail();
+        Set<FolderId> checkedFolderIds = new HashSet<>();
+
+        for (UserFolder userFolder : userFolders.getFolders()) {
+            checkedFolderIds.add(userFolder.getId());
+            inspectUserFolder(userEmail, userFolder, userGlobalFolders, sink);
+        }
+
+        for (GlobalFolder globalFolder : userGlobalFolders.values()) {
+            if (!checkedFolderIds.contains(globalFolder.getId())) {
+                inspectGlobalOnlyFolder(userEmail, globalFolder, sink);
+            }
+        }
+
+        if (pairing != null) {
+            pairing.flush();
+        }
+    }
+
+    /**
+     * User-side part of {@link #inspectUserFolders} for a range of one user's folders, so that
+     * a user with many folders can be inspected in parallel pieces. Not paired for id drift:
+     * pass the concatenated results of all pieces to {@link #pairUserInconsistencies}.
+     *
+     * @param userEmail the user
+     * @param userFolderRange consecutive folders of the user
+     * @param userGlobalFolders all the user's global folders by id
+     * @param sink receives detected inconsistencies
+     */
+    public void inspectUserFolderRange(
+        Email userEmail,
+        List<UserFolder> userFolderRange,
+        Map<FolderId, GlobalFolder> userGlobalFolders,
+        Consumer<Inconsistency> sink
+    ) {
+        for (UserFolder userFolder : userFolderRange) {
+            inspectUserFolder(userEmail, userFolder, userGlobalFolders, sink);
+        }
+    }
+
+    /**
+     * Global-side part of {@link #inspectUserFolders} for a range of one user's global folders.
+     * Not paired for id drift, see {@link #inspectUserFolderRange}.
+     *
+     * @param userEmail the user
+     * @param globalFolderRange consecutive global folders of the user, in index order
+     * @param userFolderIds ids of all the user's folders
+     * @param sink receives detected inconsistencies
+     */
+    public void inspectGlobalFolderRange(
+        Email userEmail,
+        List<GlobalFolder> globalFolderRange,
+        Set<FolderId> userFolderIds,
+        Consumer<Inconsistency> sink
+    ) {
+        for (GlobalFolder globalFolder : globalFolderRange) {
+            if (!userFolderIds.contains(globalFolder.getId())) {
+                inspectGlobalOnlyFolder(userEmail, globalFolder, sink);
+            }
+        }
+    }
+
+    private void inspectUserFolder(
+        Email userEmail,
+        UserFolder userFolder,
+        Map<FolderId, GlobalFolder> userGlobalFolders,
+        Consumer<Inconsistency> sink
+    ) {
+        GlobalFolder globalFolder = userGlobalFolders.get(userFolder.getId());
+        for (ConsistencyRule rule : rules) {
+            rule.onUserFolder(userEmail, userFolder, globalFolder, sink);
+        }
+    }
+
+    private void inspectGlobalOnlyFolder(Email userEmail, GlobalFolder globalFolder, Consumer<Inconsistency> sink) {
+        for (ConsistencyRule rule : rules) {
+            rule.onGlobalOnlyFolder(userEmail, globalFolder, sink);
+        }
+    }
+
+    /**
+     * Applies id drift pairing, when enabled, to inconsistencies gathered for one user outside
+     * {@link #inspectUserFolders}, such as the key groups of a merge join.
+     *
+     * @param userInconsistencies every inconsistency found for one user, in detection order
+     * @param sink receives the inconsistencies, paired
+     */
+    public void pairUserInconsistencies(List<Inconsistency> userInconsistencies, Consumer<Inconsistency> sink) {
+        if (!pairIdDrift) {
+            userInconsistencies.forEach(sink);
+            return;
+        }
+        IdDriftPairing pairing = new IdDriftPairing(nameEquivalence, sink);
+        userInconsistencies.forEach(pairing);
+        pairing.flush();
+    }
+
+    /**
+     * Runs the per-folder hooks for one (user, folder id) key group, as produced by a merge join.
+     * Key groups see a single folder id, so id drift is not paired here; see {@link #pairUserInconsistencies}.
+     *
+     * @param userEmail the user
+     * @param userGroup user-side folders with this id
+     * @param globalGroup global-side folders of the user with this id, first kept
+     * @param sink receives detected inconsistencies
+     */
+    public void inspectKeyGroup(
+        Email userEmail,
+        List<UserFolder> userGroup,
+        List<GlobalFolder> globalGroup,
+        Consumer<Inconsistency> sink
+    ) {
+        GlobalFolder globalFolder = globalGroup.isEmpty() ? null : globalGroup.get(0);
+        for (int i = 0; i < globalGroup.size(); i++) {
+            for (ConsistencyRule rule : rules) {
+                // A key group holds one owner, so the first row with the same id is the kept one
+                GlobalFolder keptForOwner = i == 0 ? null : globalFolder;
+                rule.onGlobalFolder(globalGroup.get(i), keptForOwner, keptForOwner, sink);
+            }
+        }
+        for (UserFolder userFolder : userGroup) {
+            for (ConsistencyRule rule : rules) {
+                rule.onUserFolder(userEmail, userFolder, globalFolder, sink);
+            }
+        }
+        if (userGroup.isEmpty() && globalFolder != null) {
+            for (ConsistencyRule rule : rules) {
+                rule.onGlobalOnlyFolder(userEmail, globalFolder, sink);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.linagora.consistency.domain.rule;
+
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.GlobalFolder;
+import com.linagora.consistency.domain.model.Inconsistency;
+import com.linagora.consistency.domain.model.UserFolder;
+
+import java.util.function.Consumer;
+
+/**
+ * Reports user folders absent from global data.
+ */
+public final class MissingInGlobalRule implements ConsistencyRule {
+
+    @Override
+    public void onUserFolder(Email userEmail, UserFolder userFolder, GlobalFolder globalFolder, Consumer<Inconsistency> sink) {
+        if (globalFolder == null) {
+            sink.accept(Inconsistency.missingInGlobal(userFolder.getId(), userEmail, userFolder.getName()));
+        }
+    }
+}
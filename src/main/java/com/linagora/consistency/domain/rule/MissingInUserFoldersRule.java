@@ -0,0 +1,18 @@
+package com.linagora.consistency.domain.rule;
+
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.GlobalFolder;
+import com.linagora.consistency.domain.model.Inconsistency;
+
+import java.util.function.Consumer;
+
+/**
+ * Reports global folders absent from the user's folders.
+ */
+public final class MissingInUserFoldersRule implements ConsistencyRule {
+
+    @Override
+    public void onGlobalOnlyFolder(Email userEmail, GlobalFolder globalFolder, Consumer<Inconsistency> sink) {
+        sink.accept(Inconsistency.missingInUserFolders(globalFolder.getId(), userEmail, globalFolder.getName()));
+    }
+}
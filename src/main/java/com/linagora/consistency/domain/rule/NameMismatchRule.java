@@ -0,0 +1,38 @@
+package com.linagora.consistency.domain.rule;
+
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.GlobalFolder;
+import com.linagora.consistency.domain.model.Inconsistency;
+import com.linagora.consistency.domain.model.NameEquivalence;
+import com.linagora.consistency.domain.model.UserFolder;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Reports folders present on both sides under names that are not equivalent.
+ */
+public final class NameMismatchRule implements ConsistencyRule {
+
+    private final NameEquivalence nameEquivalence;
+
+    public NameMismatchRule() {
+        this(NameEquivalence.exact());
+    }
+
+    public NameMismatchRule(NameEquivalence nameEquivalence) {
+        this.nameEquivalence = Objects.requireNonNull(nameEquivalence, "nameEquivalence cannot be null");
+    }
+
+    @Override
+    public void onUserFolder(Email userEmail, UserFolder userFolder, GlobalFolder globalFolder, Consumer<Inconsistency> sink) {
+        if (globalFolder != null && !nameEquivalence.equivalent(userFolder.getName(), globalFolder.getName())) {
+            sink.accept(Inconsistency.nameMismatch(
+                userFolder.getId(),
+                userEmail,
+                globalFolder.getName(),
+                userFolder.getName()
+            ));
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.Inconsistency;
+import com.linagora.consistency.domain.model.InconsistencyReport;
+import com.linagora.consistency.domain.port.driving.ForDetectingInconsistencies;
+import com.linagora.consistency.domain.port.driving.ForDetectingUserInconsistencies;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Decorator keeping a merged report fresh with far fewer upstream calls than repeated full scans.
+ * Inconsistencies cluster on few users, so each user gets a heat score, decayed at every check and
+ * raised when the user is inconsistent or their result changed. Hot users are rechecked individually
+ * every hot interval (one upstream call each, plus one refresh of the user checker's global index per
+ * batch, so that they are compared against current global folders rather than those of the last full
+ * scan); everyone else is only covered by the full scan run every cold interval. Callers always get the
+ * latest merged report without triggering upstream calls, except for the very first one. Upstream calls run outside the state's lock and the merged report
+ * is swapped in once complete, so readers never wait for a tick.
+ * The merged report keeps the global index version when every part of it was computed against the
+ * same index snapshot.
+ * Scans given a deadline bypass the merged report: they run the full scanner with that deadline
+ * and leave the scheduler's state untouched, since a partial report cannot stand for the users it missed.
+ * {@link #tick()} is meant to be called periodically, at least as often as the hot interval.
+ */
+public class AdaptiveRecheckScheduler implements ForDetectingInconsistencies {
+
+    private static final double DECAY = 0.5;
+    private static final double HOT_THRESHOLD = 0.25;
+
+    private final ForDetectingInconsistencies fullScanner;
+    private final ForDetectingUserInconsistencies userChecker;
+    private final ExecutorService executorService;
+    private final Duration hotInterval;
+    private final Duration coldInterval;
+    private final Clock clock;
+
+    private final Object tickLock = new Object();
+    private final Map<Email, UserHistory> histories = new HashMap<>();
+    private List<Inconsistency> globalInconsistencies = List.of();
+    private OptionalLong fullScanVersion = OptionalLong.empty();
+    private Instant lastFullScan;
+    private volatile InconsistencyReport mergedReport;
+
+    public AdaptiveRecheckScheduler(
+        ForDetectingInconsistencies fullScanner,
+        ForDetectingUserInconsistencies userChecker,
+        ExecutorService executorService,
+        Duration hotInterval,
+        Duration coldInterval,
+        Clock clock
+    ) {
+        this.fullScanner = Objects.requireNonNull(fullScanner, "fullScanner cannot be null");
+        this.userChecker = Objects.requireNonNull(userChecker, "userChecker cannot be null");
+        this.executorService = Objects.requireNonNull(executorService, "executorService cannot be null");
+        this.hotInterval = Objects.requireNonNull(hotInterval, "hotInterval cannot be null");
+        this.coldInterval = Objects.requireNonNull(coldInterval, "coldInterval cannot be null");
+        this.clock = Objects.requireNonNull(clock, "clock cannot be null");
+        if (hotInterval.compareTo(coldInterval) > 0) {
+            throw new IllegalArgumentException("Hot interval cannot exceed cold interval");
+        }
+    }
+
+    @Override
+    public InconsistencyReport detectInconsistencies() {
+        InconsistencyReport current = mergedReport;
+        if (current != null) {
+            return current;
+        }
+        tick();
+        return mergedReport;
+    }
+
+    @Override
+    public InconsistencyReport detectInconsistencies(Duration deadline) {
+        return fullScanner.detectInconsistencies(deadline);
+    }
+
+    @Override
+    public boolean supportsDeadline() {
+        return fullScanner.supportsDeadline();
+    }
+
+    /**
+     * Runs whatever is due: a full scan once the cold interval has elapsed,
+     * otherwise individual rechecks of hot users whose hot interval has elapsed.
+     * Concurrent ticks run one after the other.
+     */
+    public void tick() {
+        synchronized (tickLock) {
+            Instant now = clock.instant();
+            if (lastFullScan == null || !now.isBefore(lastFullScan.plus(coldInterval))) {
+                applyFullScan(fullScanner.detectInconsistencies(), now);
+                lastFullScan = now;
+            } else {
+                recheckHotUsers(now);
+            }
+        }
+    }
+
+    /**
+     * @return users currently rechecked on the hot interval
+     */
+    public synchronized Set<Email> hotUsers() {
+        Set<Email> hot = new HashSet<>();
+        histories.forEach((user, history) -> {
+            if (history.isHot()) {
+                hot.add(user);
+            }
+        });
+        return hot;
+    }
+
+    private synchronized void applyFullScan(InconsistencyReport report, Instant now) {
+        Map<Email, List<Inconsistency>> byUser = new HashMap<>();
+        List<Inconsistency> global = new ArrayList<>();
+        for (Inconsistency inconsistency : report.getInconsistencies()) {
+            if (ForDetectingUserInconsistencies.USER_CHECK_TYPES.contains(inconsistency.getType())) {
+                byUser.computeIfAbsent(inconsistency.getUserEmail(), user -> new ArrayList<>()).add(inconsistency);
+            } else {
+                global.add(inconsistency);
+            }
+        }
+
+        // Users absent from the scan are consistent now
+        for (Map.Entry<Email, UserHistory> entry : histories.entrySet()) {
+            if (!byUser.containsKey(entry.getKey())) {
+                entry.getValue().record(List.of(), report, now);
+            }
+        }
+        byUser.forEach((user, inconsistencies) ->
+            histories.computeIfAbsent(user, email -> new UserHistory()).record(inconsistencies, report, now));
+
+        histories.values().removeIf(history -> !history.isHot() && history.inconsistencies.isEmpty());
+        globalInconsistencies = global;
+        fullScanVersion = report.getGlobalIndexVersion();
+        mergedReport = merge();
+    }
+
+    private void recheckHotUsers(Instant now) {
+        List<Email> due = dueUsers(now);
+        if (due.isEmpty()) {
+            return;
+        }
+
+        // Once per batch: the index otherwise dates from the last full scan, up to a cold interval ago
+        userChecker.refreshGlobalIndex();
+        List<Callable<InconsistencyReport>> checks = due.stream()
+            .map(user -> (Callable<InconsistencyReport>) () -> userChecker.detectInconsistenciesForUser(user))
+            .toList();
+        List<InconsistencyReport> reports = new ArrayList<>(due.size());
+        try {
+            for (Future<InconsistencyReport> future : executorService.invokeAll(checks)) {
+                reports.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while rechecking users", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error rechecking users", e.getCause());
+        }
+        recordRechecks(due, reports, now);
+    }
+
+    private synchronized List<Email> dueUsers(Instant now) {
+        List<Email> due = new ArrayList<>();
+        histories.forEach((user, history) -> {
+            if (history.isHot() && !now.isBefore(history.lastChecked.plus(hotInterval))) {
+                due.add(user);
+            }
+        });
+        return due;
+    }
+
+    private synchronized void recordRechecks(List<Email> users, List<InconsistencyReport> reports, Instant now) {
+        for (int i = 0; i < users.size(); i++) {
+            List<Inconsistency> inconsistencies = reports.get(i).getInconsistencies().stream()
+                .filter(inconsistency -> ForDetectingUserInconsistencies.USER_CHECK_TYPES.contains(inconsistency.getType()))
+                .toList();
+            histories.get(users.get(i)).record(inconsistencies, reports.get(i), now);
+        }
+        mergedReport = merge();
+    }
+
+    private InconsistencyReport merge() {
+        List<Inconsistency> merged = new ArrayList<>(globalInconsistencies);
+        OptionalLong version = fullScanVersion;
+        for (UserHistory history : histories.values()) {
+            merged.addAll(history.inconsistencies);
+            if (!history.version.equals(fullScanVersion)) {
+                version = OptionalLong.empty();
+            }
+        }
+        return version.isPresent()
+            ? InconsistencyReport.of(merged, version.getAsLong())
+            : InconsistencyReport.of(merged);
+    }
+
+    private static final class UserHistory {
+        private List<Inconsistency> inconsistencies = List.of();
+        private OptionalLong version = OptionalLong.empty();
+        private double heat;
+        private Instant lastChecked;
+
+        private void record(List<Inconsistency> latest, InconsistencyReport checkedIn, Instant checkedAt) {
+            boolean changed = !new HashSet<>(latest).equals(new HashSet<>(inconsistencies));
+            heat = heat * DECAY + (latest.isEmpty() ? 0 : 1) + (changed ? 1 : 0);
+            inconsistencies = latest;
+            version = checkedIn.getGlobalIndexVersion();
+            lastChecked = checkedAt;
+        }
+
+        private boolean isHot() {
+            return heat >= HOT_THRESHOLD;
+        }
+    }
+}
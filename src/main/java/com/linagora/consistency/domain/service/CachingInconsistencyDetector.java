@@ -0,0 +1,97 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.model.InconsistencyReport;
+import com.linagora.consistency.domain.port.driving.ForDetectingInconsistencies;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Decorator serving the same report instance to every caller until it becomes stale.
+ * Each generated report is a distinct instance, so adapters can precompute
+ * encodings once per generation. Concurrent callers of a stale cache share a single scan, except callers
+ * with a deadline, which do not wait for a scan they did not start.
+ * Partial reports, from scans stopped at their deadline, are returned but never cached.
+ */
+public class CachingInconsistencyDetector implements ForDetectingInconsistencies {
+
+    private final ForDetectingInconsistencies delegate;
+    private final Duration timeToLive;
+    private final Clock clock;
+    private final ReentrantLock scanLock = new ReentrantLock();
+    private volatile CachedReport cached;
+
+    public CachingInconsistencyDetector(ForDetectingInconsistencies delegate, Duration timeToLive, Clock clock) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate cannot be null");
+        this.timeToLive = Objects.requireNonNull(timeToLive, "timeToLive cannot be null");
+        this.clock = Objects.requireNonNull(clock, "clock cannot be null");
+    }
+
+    @Override
+    public InconsistencyReport detectInconsistencies() {
+        CachedReport current = cached;
+        if (isFresh(current)) {
+            return current.report();
+        }
+
+        scanLock.lock();
+        try {
+            return cachedOr(delegate::detectInconsistencies);
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    /**
+     * Never waits on another caller's scan: while one is running, the caller scans on its own within
+     * its deadline instead of sharing it. A complete report from such a scan is still cached.
+     */
+    @Override
+    public InconsistencyReport detectInconsistencies(Duration deadline) {
+        CachedReport current = cached;
+        if (isFresh(current)) {
+            return current.report();
+        }
+
+        if (!scanLock.tryLock()) {
+            return cache(delegate.detectInconsistencies(deadline));
+        }
+        try {
+            return cachedOr(() -> delegate.detectInconsistencies(deadline));
+        } finally {
+            scanLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean supportsDeadline() {
+        return delegate.supportsDeadline();
+    }
+
+    // Called with the scan lock held, so that callers waiting on it reuse the report of the scan before them
+    private InconsistencyReport cachedOr(Supplier<InconsistencyReport> scan) {
+        CachedReport current = cached;
+        if (isFresh(current)) {
+            return current.report();
+        }
+        return cache(scan.get());
+    }
+
+    private InconsistencyReport cache(InconsistencyReport report) {
+        if (!report.isPartial()) {
+            cached = new CachedReport(report, clock.instant());
+        }
+        return report;
+    }
+
+    private boolean isFresh(CachedReport current) {
+        return current != null && current.generatedAt().plus(timeToLive).isAfter(clock.instant());
+    }
+
+    private record CachedReport(InconsistencyReport report, Instant generatedAt) {
+    }
+}
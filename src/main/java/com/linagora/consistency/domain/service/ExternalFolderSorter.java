@@ -0,0 +1,238 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.FolderId;
+import com.linagora.consistency.domain.model.FolderName;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * External merge sort of folder records.
+ * Records are buffered until the memory budget is reached, then written as a sorted run
+ * to a temporary file. Reading merges the runs with a k-way merge. A merge reads at most
+ * as many runs as the budget has room for read buffers, so when there are more runs they
+ * are first merged in groups into longer runs, as many passes as needed; memory use and
+ * open files stay bounded by the budget whatever the input size.
+ * Not thread-safe.
+ */
+final class ExternalFolderSorter implements Closeable {
+
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_FAN_IN = 128;
+
+    private final Path directory;
+    private final long memoryBudgetBytes;
+    private final int maxFanIn;
+    private final List<Path> runs = new ArrayList<>();
+    private final List<DataInputStream> openReaders = new ArrayList<>();
+    private List<FolderRecord> buffer = new ArrayList<>();
+    private long bufferedBytes;
+
+    ExternalFolderSorter(Path directory, long memoryBudgetBytes) {
+        this.directory = directory;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        // One read buffer per merged run, and at least two runs so that every pass makes progress
+        this.maxFanIn = (int) Math.max(2, Math.min(MAX_FAN_IN, memoryBudgetBytes / IO_BUFFER_SIZE));
+    }
+
+    void add(FolderRecord record) {
+        buffer.add(record);
+        bufferedBytes += record.estimatedSize();
+        if (bufferedBytes >= memoryBudgetBytes) {
+            spill();
+        }
+    }
+
+    int runCount() {
+        return runs.size();
+    }
+
+    /**
+     * Returns all added records in sort order. Must be called once, after the last add.
+     */
+    Iterator<FolderRecord> sorted() {
+        if (runs.isEmpty()) {
+            // Everything fits in the budget: plain in-memory sort
+            buffer.sort(FolderRecord.SORT_ORDER);
+            return buffer.iterator();
+        }
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+        buffer = List.of();
+        while (runs.size() > maxFanIn) {
+            mergePass();
+        }
+        return new MergingIterator(List.copyOf(runs));
+    }
+
+    private void spill() {
+        buffer.sort(FolderRecord.SORT_ORDER);
+        writeRun(buffer.iterator());
+        buffer = new ArrayList<>();
+        bufferedBytes = 0;
+    }
+
+    /**
+     * Merges the runs in groups of at most the fan-in, each group into one new run.
+     */
+    private void mergePass() {
+        // Runs stay listed until deleted, so that close() cleans up after a failed pass
+        List<Path> inputs = List.copyOf(runs);
+        for (int from = 0; from + 1 < inputs.size(); from += maxFanIn) {
+            List<Path> group = inputs.subList(from, Math.min(from + maxFanIn, inputs.size()));
+            MergingIterator merged = new MergingIterator(group);
+            writeRun(merged);
+            merged.close();
+            for (Path run : group) {
+                delete(run);
+                runs.remove(run);
+            }
+        }
+    }
+
+    private void writeRun(Iterator<FolderRecord> records) {
+        try {
+            Path run = Files.createTempFile(directory, "folders-run-", ".bin");
+            runs.add(run);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER_SIZE))) {
+                while (records.hasNext()) {
+                    FolderRecord record = records.next();
+                    writeString(out, record.userEmail().getValue());
+                    writeString(out, record.folderId().getValue());
+                    writeString(out, record.name().getValue());
+                    out.writeLong(record.sequence());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill sorted run to " + directory, e);
+        }
+    }
+
+    // Length-prefixed UTF-8: unlike writeUTF, not limited to 64 KB per string
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void delete(Path run) {
+        try {
+            Files.deleteIfExists(run);
+        } catch (IOException ignored) {
+            // Best effort cleanup of temporary files
+        }
+    }
+
+    @Override
+    public void close() {
+        for (DataInputStream reader : openReaders) {
+            closeQuietly(reader);
+        }
+        for (Path run : runs) {
+            delete(run);
+        }
+    }
+
+    private static void closeQuietly(DataInputStream reader) {
+        try {
+            reader.close();
+        } catch (IOException ignored) {
+            // Best effort: the run file is deleted anyway
+        }
+    }
+
+    /**
+     * K-way merge over sorted runs using a priority queue of run heads.
+     */
+    private final class MergingIterator implements Iterator<FolderRecord> {
+
+        private final PriorityQueue<RunHead> heads = new PriorityQueue<>(
+            Comparator.comparing(RunHead::record, FolderRecord.SORT_ORDER)
+        );
+        private final List<DataInputStream> readers = new ArrayList<>();
+
+        private MergingIterator(List<Path> mergedRuns) {
+            try {
+                for (Path run : mergedRuns) {
+                    DataInputStream reader = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), IO_BUFFER_SIZE));
+                    readers.add(reader);
+                    openReaders.add(reader);
+                    RunHead head = new RunHead(reader);
+                    if (head.advance()) {
+                        heads.add(head);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open sorted runs", e);
+            }
+        }
+
+        void close() {
+            for (DataInputStream reader : readers) {
+                closeQuietly(reader);
+            }
+            openReaders.removeAll(readers);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public FolderRecord next() {
+            RunHead head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            FolderRecord record = head.record();
+            if (head.advance()) {
+                heads.add(head);
+            }
+            return record;
+        }
+    }
+
+    private static final class RunHead {
+
+        private final DataInputStream reader;
+        private FolderRecord record;
+
+        private RunHead(DataInputStream reader) {
+            this.reader = reader;
+        }
+
+        FolderRecord record() {
+            return record;
+        }
+
+        boolean advance() {
+            try {
+                // Records were validated before being spilled
+                record = new FolderRecord(
+                    Email.trusted(readString(reader)),
+                    FolderId.of(readString(reader)),
+                    FolderName.trusted(readString(reader)),
+                    reader.readLong()
+                );
+                return true;
+            } catch (EOFException e) {
+                record = null;
+                return false;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read sorted run", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.FolderId;
+import com.linagora.consistency.domain.model.FolderName;
+
+import java.util.Comparator;
+
+/**
+ * One folder row (user-side or global-side) as handled by the sort-merge engine.
+ * The sequence number keeps the original order among rows sharing the same key.
+ */
+record FolderRecord(Email userEmail, FolderId folderId, FolderName name, long sequence) {
+
+    static final Comparator<FolderRecord> KEY_ORDER = Comparator
+        .comparing((FolderRecord record) -> record.userEmail().getValue())
+        .thenComparing(record -> record.folderId().getValue());
+
+    static final Comparator<FolderRecord> SORT_ORDER = KEY_ORDER
+        .thenComparingLong(FolderRecord::sequence);
+
+    /**
+     * Rough retained size on the heap, used to enforce the memory budget.
+     */
+    long estimatedSize() {
+        return 96L + 2L * (userEmail.getValue().length() + folderId.getValue().length() + name.getValue().length());
+    }
+}
@@ -0,0 +1,205 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.model.GlobalFolder;
+import com.linagora.consistency.domain.model.GlobalFolderIndex;
+import com.linagora.consistency.domain.model.Inconsistency;
+import com.linagora.consistency.domain.port.driven.ForRetrievingGlobalFolders;
+import com.linagora.consistency.domain.port.driven.ForStoringGlobalFolderIndex;
+import com.linagora.consistency.domain.rule.InconsistencyRules;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-lived holder of the global folder index, shared by full scans and single-user checks.
+ * With a staleness deadline, the index is downloaded once and reused until the deadline; {@link #refreshIfDue()},
+ * run periodically, downloads the next one ahead of the deadline. Each new index is a new {@link Snapshot}
+ * swapped in atomically: readers take the current snapshot without locking, and only wait when no usable
+ * snapshot exists (first use, or deadline missed because refreshes failed). Downloads are single-flight.
+ * Without a deadline, every full scan downloads the index and single-user checks reuse the latest one.
+ * The first single-user check after a restart starts from the stored index instead of downloading, unless
+ * the stored index is already past the staleness deadline: its age counts from when it was built, not loaded.
+ */
+public class GlobalIndexCache {
+
+    /**
+     * One version of the global folder index.
+     *
+     * @param index the index
+     * @param globalInconsistencies inconsistencies found among the global folders themselves,
+     *                              only known for downloaded snapshots
+     * @param version increases with every snapshot or {@link #reserveVersion reserved version} of this cache, starting at 1
+     * @param loadedAt when the snapshot's global folders were downloaded, before being stored for a loaded one
+     * @param downloaded false for a snapshot loaded from the store, which full scans do not use
+     */
+    public record Snapshot(
+        GlobalFolderIndex index,
+        List<Inconsistency> globalInconsistencies,
+        long version,
+        Instant loadedAt,
+        boolean downloaded
+    ) {
+
+        public Snapshot {
+            Objects.requireNonNull(index, "index cannot be null");
+            globalInconsistencies = List.copyOf(globalInconsistencies);
+            Objects.requireNonNull(loadedAt, "loadedAt cannot be null");
+        }
+    }
+
+    private final ForRetrievingGlobalFolders globalFoldersRetriever;
+    private final ForStoringGlobalFolderIndex globalFolderIndexStore;
+    private final InconsistencyRules rules;
+    private final Duration maxStaleness;
+    private final Duration refreshAfter;
+    private final Clock clock;
+    private final Object lock = new Object();
+    private volatile Snapshot snapshot;
+    private final AtomicLong versions = new AtomicLong();
+
+    /**
+     * @param maxStaleness age after which a snapshot is no longer used, zero to download on every full scan
+     * @param refreshAhead how long before the deadline background refreshes start
+     */
+    public GlobalIndexCache(
+        ForRetrievingGlobalFolders globalFoldersRetriever,
+        ForStoringGlobalFolderIndex globalFolderIndexStore,
+        InconsistencyRules rules,
+        Duration maxStaleness,
+        Duration refreshAhead,
+        Clock clock
+    ) {
+        this.globalFoldersRetriever = Objects.requireNonNull(globalFoldersRetriever, "globalFoldersRetriever cannot be null");
+        this.globalFolderIndexStore = Objects.requireNonNull(globalFolderIndexStore, "globalFolderIndexStore cannot be null");
+        this.rules = Objects.requireNonNull(rules, "rules cannot be null");
+        this.maxStaleness = Objects.requireNonNull(maxStaleness, "maxStaleness cannot be null");
+        Objects.requireNonNull(refreshAhead, "refreshAhead cannot be null");
+        if (maxStaleness.isNegative() || refreshAhead.isNegative() || refreshAhead.compareTo(maxStaleness) > 0) {
+            throw new IllegalArgumentException("Refresh-ahead must be between zero and the maximum staleness");
+        }
+        this.refreshAfter = maxStaleness.minus(refreshAhead);
+        this.clock = Objects.requireNonNull(clock, "clock cannot be null");
+    }
+
+    /**
+     * @return a cache downloading the index on every full scan
+     */
+    public static GlobalIndexCache withoutStaleness(
+        ForRetrievingGlobalFolders globalFoldersRetriever,
+        ForStoringGlobalFolderIndex globalFolderIndexStore,
+        InconsistencyRules rules
+    ) {
+        return new GlobalIndexCache(globalFoldersRetriever, globalFolderIndexStore, rules, Duration.ZERO, Duration.ZERO, Clock.systemUTC());
+    }
+
+    /**
+     * @return a downloaded snapshot within the staleness deadline, downloading one if needed
+     */
+    public Snapshot forFullScan() {
+        Snapshot current = snapshot;
+        if (isCaching() && current != null && current.downloaded() && !isExpired(current)) {
+            return current;
+        }
+        return refresh(current);
+    }
+
+    /**
+     * @return the current snapshot, possibly loaded from the store, unless past the staleness deadline
+     */
+    public Snapshot forUserCheck() {
+        Snapshot current = snapshot;
+        if (current != null && !isExpired(current)) {
+            return current;
+        }
+
+        synchronized (lock) {
+            if (snapshot == null) {
+                // Warm start from the stored index, download only if nothing was stored yet
+                Optional<ForStoringGlobalFolderIndex.StoredIndex> stored = globalFolderIndexStore.loadGlobalFolderIndex();
+                if (stored.isPresent() && !isExpired(stored.get().builtAt())) {
+                    snapshot = new Snapshot(stored.get().index(), List.of(), versions.incrementAndGet(), stored.get().builtAt(), false);
+                    return snapshot;
+                }
+            }
+            return refresh(current);
+        }
+    }
+
+    /**
+     * Downloads the next snapshot when the current one has reached the refresh-ahead point,
+     * or was loaded from the store. Does nothing without a staleness deadline.
+     */
+    public void refreshIfDue() {
+        Snapshot current = snapshot;
+        if (!isCaching()) {
+            return;
+        }
+        if (current == null || !current.downloaded() || !clock.instant().isBefore(current.loadedAt().plus(refreshAfter))) {
+            refresh(current);
+        }
+    }
+
+    /**
+     * Downloads the next snapshot whatever the age of the current one; callers arriving during
+     * the download wait for it and share its snapshot.
+     */
+    public Snapshot refreshNow() {
+        return refresh(snapshot);
+    }
+
+    /**
+     * Reserves a version for a {@code /folders} download made outside this cache, such as a sort-merge scan,
+     * so that no report shares a version with a snapshot it did not use. Does not wait for a refresh.
+     */
+    public long reserveVersion() {
+        return versions.incrementAndGet();
+    }
+
+    /**
+     * @return the current snapshot, if any was loaded yet
+     */
+    public Optional<Snapshot> current() {
+        return Optional.ofNullable(snapshot);
+    }
+
+    /**
+     * Downloads a snapshot, unless another caller swapped in a downloaded one while this one waited.
+     *
+     * @param observed the snapshot the caller found unsuitable
+     */
+    private Snapshot refresh(Snapshot observed) {
+        synchronized (lock) {
+            Snapshot current = snapshot;
+            if (current != observed && current != null && current.downloaded() && !isExpired(current)) {
+                return current;
+            }
+
+            List<GlobalFolder> globalFolders = globalFoldersRetriever.retrieveAllGlobalFolders();
+            List<Inconsistency> globalInconsistencies = new ArrayList<>();
+            // Checked while indexing, and compared against the heap index rather than the stored copy
+            GlobalFolderIndex index = rules.indexGlobalFolders(globalFolders, globalInconsistencies::add);
+            Instant builtAt = clock.instant();
+            globalFolderIndexStore.storeGlobalFolderIndex(index, builtAt);
+            snapshot = new Snapshot(index, globalInconsistencies, versions.incrementAndGet(), builtAt, true);
+            return snapshot;
+        }
+    }
+
+    private boolean isCaching() {
+        return !maxStaleness.isZero();
+    }
+
+    private boolean isExpired(Snapshot candidate) {
+        return isExpired(candidate.loadedAt());
+    }
+
+    private boolean isExpired(Instant loadedAt) {
+        return isCaching() && !clock.instant().isBefore(loadedAt.plus(maxStaleness));
+    }
+}
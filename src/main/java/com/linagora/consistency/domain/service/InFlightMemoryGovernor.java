@@ -0,0 +1,137 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.model.MemoryBudgetStatistics;
+import com.linagora.consistency.domain.model.UserFolder;
+import com.linagora.consistency.domain.model.UserFolders;
+import com.linagora.consistency.domain.port.driving.ForMonitoringMemoryBudget;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for user folders held in memory by full scans, shared by all scans of the process.
+ * A scan reserves the estimated retained size of a user before fetching it, corrects the reservation
+ * once the folders arrive, and releases it after comparing them. A reservation is only admitted while
+ * the in-flight total stays within the budget, or when nothing is in flight, so that a single user larger
+ * than the budget still goes through alone. Scans hitting the budget therefore slow down to fewer
+ * concurrent users instead of exhausting the heap.
+ */
+public final class InFlightMemoryGovernor implements ForMonitoringMemoryBudget {
+
+    // Compressed oops: UserFolder, FolderId and FolderName objects, their two Strings and byte arrays, list slot
+    private static final long FOLDER_OVERHEAD_BYTES = 144;
+    private static final long USER_OVERHEAD_BYTES = 96;
+    // Folder id plus a typical name, used before the folders are known
+    private static final long EXPECTED_FOLDER_BYTES = FOLDER_OVERHEAD_BYTES + 36 + 24;
+
+    private final long budgetBytes;
+    private long inFlightBytes;
+    private long peakInFlightBytes;
+    private long admittedFetches;
+    private long deferredAdmissions;
+
+    /**
+     * @param budgetBytes maximum estimated size of the user folders held at once
+     */
+    public InFlightMemoryGovernor(long budgetBytes) {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("Memory budget must be positive");
+        }
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * @return a governor admitting every fetch, still keeping the statistics
+     */
+    public static InFlightMemoryGovernor unbounded() {
+        return new InFlightMemoryGovernor(Long.MAX_VALUE);
+    }
+
+    /**
+     * @param expectedFolders expected folder count of a user, usually its global folder count
+     * @return estimated retained size of the user's folders, before fetching them
+     */
+    static long estimateRetainedBytes(int expectedFolders) {
+        return USER_OVERHEAD_BYTES + Math.max(1, expectedFolders) * EXPECTED_FOLDER_BYTES;
+    }
+
+    /**
+     * @return estimated retained size of fetched folders, counting one byte per character
+     */
+    static long estimateRetainedBytes(UserFolders userFolders) {
+        long bytes = USER_OVERHEAD_BYTES;
+        for (UserFolder folder : userFolders.getFolders()) {
+            bytes += FOLDER_OVERHEAD_BYTES + folder.getId().getValue().length() + folder.getName().getValue().length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Reserves bytes if they fit the budget, or if nothing is in flight.
+     *
+     * @return true if reserved, false if the caller should release memory first, or wait
+     */
+    synchronized boolean tryAdmit(long bytes) {
+        if (inFlightBytes > 0 && bytes > budgetBytes - inFlightBytes) {
+            deferredAdmissions++;
+            return false;
+        }
+        reserve(bytes);
+        return true;
+    }
+
+    /**
+     * Reserves bytes, waiting for other scans to release memory.
+     * Only for callers holding no reservation, which could otherwise wait for themselves.
+     */
+    synchronized void admit(long bytes) throws InterruptedException {
+        admit(bytes, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reserves bytes, waiting at most the given time for other scans to release memory.
+     *
+     * @return true if reserved, false if the time elapsed first
+     */
+    synchronized boolean admit(long bytes, long timeoutNanos) throws InterruptedException {
+        if (inFlightBytes > 0 && bytes > budgetBytes - inFlightBytes) {
+            deferredAdmissions++;
+        }
+        long start = System.nanoTime();
+        while (inFlightBytes > 0 && bytes > budgetBytes - inFlightBytes) {
+            long remainingNanos = timeoutNanos - (System.nanoTime() - start);
+            if (remainingNanos <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+        }
+        reserve(bytes);
+        return true;
+    }
+
+    /**
+     * Replaces a reservation by the size actually retained.
+     */
+    synchronized void resize(long reservedBytes, long retainedBytes) {
+        inFlightBytes += retainedBytes - reservedBytes;
+        peakInFlightBytes = Math.max(peakInFlightBytes, inFlightBytes);
+        if (retainedBytes < reservedBytes) {
+            notifyAll();
+        }
+    }
+
+    synchronized void release(long bytes) {
+        inFlightBytes -= bytes;
+        notifyAll();
+    }
+
+    private void reserve(long bytes) {
+        inFlightBytes += bytes;
+        peakInFlightBytes = Math.max(peakInFlightBytes, inFlightBytes);
+        admittedFetches++;
+    }
+
+    @Override
+    public synchronized MemoryBudgetStatistics statistics() {
+        return MemoryBudgetStatistics.of(budgetBytes, inFlightBytes, peakInFlightBytes, admittedFetches, deferredAdmissions);
+    }
+}
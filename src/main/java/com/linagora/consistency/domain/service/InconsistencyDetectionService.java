@@ -4,142 +4,380 @@ import com.linagora.consistency.domain.model.*;
 import com.linagora.consistency.domain.port.driven.ForRetrievingGlobalFolders;
 import com.linagora.consistency.domain.port.driven.ForRetrievingUserFolders;
 import com.linagora.consistency.domain.port.driven.ForRetrievingUsers;
+import com.linagora.consistency.domain.port.driven.ForStoringGlobalFolderIndex;
 import com.linagora.consistency.domain.port.driving.ForDetectingInconsistencies;
+import com.linagora.consistency.domain.port.driving.ForDetectingUserInconsistencies;
+import com.linagora.consistency.domain.rule.InconsistencyRules;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
 
 /**
  * Domain service implementing the core business logic for inconsistency detection.
- * Pure domain logic without any framework dependencies.
+ * Pure domain logic without any framework dependencies: besides the JDK, the only instrumentation is
+ * Flight Recorder events ({@code jdk.jfr}, part of the JDK), declared next to the services emitting them.
  * Uses ExecutorService for parallel processing to optimize performance.
+ * The global index comes from a {@link GlobalIndexCache}: downloaded on each full scan, or reused until
+ * its staleness deadline when configured. Reports carry the version of the index snapshot they used.
+ * Comparison is delegated to the configured {@link InconsistencyRules}.
+ * Users are fetched longest first by their global folder count, and compared in parallel with
+ * oversized users split into pieces (see {@link ParallelUserComparison}). Comparisons may run on another
+ * executor than fetches, so that a quota on upstream calls does not also throttle comparisons.
+ * Fetches are admitted by an {@link InFlightMemoryGovernor}: when the estimated size of the users
+ * fetched but not compared yet reaches its budget, those users are compared and released first.
+ * Scans given a deadline stop fetching when it is reached and return a partial report of the users
+ * compared so far.
+ * Full scans are recorded as {@link ScanEvent}s while a Flight Recorder recording enables them.
  */
-public class InconsistencyDetectionService implements ForDetectingInconsistencies {
+public class InconsistencyDetectionService implements ForDetectingInconsistencies, ForDetectingUserInconsistencies {
+
+    /**
+     * Default maximum number of folders compared by one task.
+     */
+    public static final int DEFAULT_SPLIT_SIZE = 10_000;
 
     private final ForRetrievingUsers userRetriever;
     private final ForRetrievingUserFolders userFoldersRetriever;
-    private final ForRetrievingGlobalFolders globalFoldersRetriever;
+    private final GlobalIndexCache globalIndexCache;
+    private final InconsistencyRules rules;
     private final ExecutorService executorService;
+    private final ParallelUserComparison comparison;
+    private final InFlightMemoryGovernor memoryGovernor;
 
     public InconsistencyDetectionService(
         ForRetrievingUsers userRetriever,
         ForRetrievingUserFolders userFoldersRetriever,
         ForRetrievingGlobalFolders globalFoldersRetriever,
+        ForStoringGlobalFolderIndex globalFolderIndexStore,
+        InconsistencyRules rules,
         ExecutorService executorService
+    ) {
+        this(userRetriever, userFoldersRetriever,
+            GlobalIndexCache.withoutStaleness(globalFoldersRetriever, globalFolderIndexStore, rules),
+            rules, executorService, DEFAULT_SPLIT_SIZE, InFlightMemoryGovernor.unbounded());
+    }
+
+    /**
+     * @param globalIndexCache provides the global folder index, possibly reused across scans
+     * @param executorService runs both user folder fetches and comparisons
+     * @param splitSize users with more (user-side plus global-side) folders are compared in pieces of this size
+     * @param memoryGovernor admits user fetches within the heap budget, possibly shared with other services
+     */
+    public InconsistencyDetectionService(
+        ForRetrievingUsers userRetriever,
+        ForRetrievingUserFolders userFoldersRetriever,
+        GlobalIndexCache globalIndexCache,
+        InconsistencyRules rules,
+        ExecutorService executorService,
+        int splitSize,
+        InFlightMemoryGovernor memoryGovernor
+    ) {
+        this(userRetriever, userFoldersRetriever, globalIndexCache, rules, executorService, executorService, splitSize, memoryGovernor);
+    }
+
+    /**
+     * @param globalIndexCache provides the global folder index, possibly reused across scans
+     * @param executorService runs user folder fetches (upstream calls)
+     * @param comparisonExecutorService runs comparison tasks
+     * @param splitSize users with more (user-side plus global-side) folders are compared in pieces of this size
+     * @param memoryGovernor admits user fetches within the heap budget, possibly shared with other services
+     */
+    public InconsistencyDetectionService(
+        ForRetrievingUsers userRetriever,
+        ForRetrievingUserFolders userFoldersRetriever,
+        GlobalIndexCache globalIndexCache,
+        InconsistencyRules rules,
+        ExecutorService executorService,
+        ExecutorService comparisonExecutorService,
+        int splitSize,
+        InFlightMemoryGovernor memoryGovernor
     ) {
         this.userRetriever = Objects.requireNonNull(userRetriever, "userRetriever cannot be null");
         this.userFoldersRetriever = Objects.requireNonNull(userFoldersRetriever, "userFoldersRetriever cannot be null");
-        this.globalFoldersRetriever = Objects.requireNonNull(globalFoldersRetriever, "globalFoldersRetriever cannot be null");
+        this.globalIndexCache = Objects.requireNonNull(globalIndexCache, "globalIndexCache cannot be null");
+        this.rules = Objects.requireNonNull(rules, "rules cannot be null");
         this.executorService = Objects.requireNonNull(executorService, "executorService cannot be null");
+        this.comparison = new ParallelUserComparison(
+            rules,
+            Objects.requireNonNull(comparisonExecutorService, "comparisonExecutorService cannot be null"),
+            splitSize
+        );
+        this.memoryGovernor = Objects.requireNonNull(memoryGovernor, "memoryGovernor cannot be null");
     }
 
     @Override
     public InconsistencyReport detectInconsistencies() {
-        // Fetch global folders (single call)
-        List<GlobalFolder> globalFolders = globalFoldersRetriever.retrieveAllGlobalFolders();
+        return scan(Deadline.NONE);
+    }
+
+    /**
+     * The global index and the users list are always retrieved. At the deadline, fetches not started yet
+     * are dropped and running ones cancelled, while the users already fetched are still compared.
+     * Global folder and owner inconsistencies do not depend on user folders and are always complete.
+     */
+    @Override
+    public InconsistencyReport detectInconsistencies(Duration deadline) {
+        Objects.requireNonNull(deadline, "deadline cannot be null");
+        if (deadline.isNegative() || deadline.isZero()) {
+            throw new IllegalArgumentException("Deadline must be positive");
+        }
+        return scan(Deadline.in(deadline));
+    }
+
+    @Override
+    public boolean supportsDeadline() {
+        return true;
+    }
+
+    private InconsistencyReport scan(Deadline deadline) {
+        ScanEvent event = new ScanEvent();
+        event.begin();
+
+        // Global folders checked and indexed, downloaded (single call) unless a fresh snapshot is cached
+        long start = System.nanoTime();
+        GlobalIndexCache.Snapshot snapshot = globalIndexCache.forFullScan();
+        GlobalFolderIndex globalIndex = snapshot.index();
+        List<Inconsistency> inconsistencies = new ArrayList<>(snapshot.globalInconsistencies());
+        long globalIndexReady = System.nanoTime();
 
         // Fetch all users
         List<Email> users = userRetriever.retrieveAllUsers();
+        long usersFetched = System.nanoTime();
 
-        // Fetch user folders in parallel using ExecutorService
-        List<UserFolders> allUserFolders = fetchAllUserFoldersInParallel(users);
+        // Fetch user folders in parallel, largest users first so that they do not start last,
+        // and detect inconsistencies
+        List<List<Inconsistency>> userInconsistencies = fetchAndCompare(users, globalIndex, deadline);
+        List<Email> uncheckedUsers = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            if (userInconsistencies.get(i) != null) {
+                inconsistencies.addAll(userInconsistencies.get(i));
+            } else {
+                uncheckedUsers.add(users.get(i));
+            }
+        }
+        long usersCompared = System.nanoTime();
+        reconcileOwners(users, globalIndex, inconsistencies);
 
-        // Detect inconsistencies
-        List<Inconsistency> inconsistencies = compareAndDetectInconsistencies(allUserFolders, globalFolders);
+        if (event.shouldCommit()) {
+            event.globalIndex = globalIndexReady - start;
+            event.usersFetch = usersFetched - globalIndexReady;
+            event.userComparison = usersCompared - usersFetched;
+            event.ownerReconciliation = System.nanoTime() - usersCompared;
+            event.globalIndexVersion = snapshot.version();
+            event.users = users.size();
+            event.uncheckedUsers = uncheckedUsers.size();
+            event.inconsistencies = inconsistencies.size();
+            event.commit();
+        }
+        if (!uncheckedUsers.isEmpty()) {
+            return InconsistencyReport.partial(inconsistencies, snapshot.version(), ScanCoverage.of(users.size(), uncheckedUsers));
+        }
+        return InconsistencyReport.of(inconsistencies, snapshot.version());
+    }
+
+    @Override
+    public InconsistencyReport detectInconsistenciesForUser(Email userEmail) {
+        GlobalIndexCache.Snapshot snapshot = globalIndexCache.forUserCheck();
+        UserFolders userFolders = userFoldersRetriever.retrieveFoldersForUser(userEmail);
+
+        List<Inconsistency> inconsistencies = new ArrayList<>();
+        rules.inspectUserFolders(userFolders, snapshot.index().foldersOf(userEmail), inconsistencies::add);
 
-        return InconsistencyReport.of(inconsistencies);
+        return InconsistencyReport.of(inconsistencies, snapshot.version());
     }
 
-    private List<UserFolders> fetchAllUserFoldersInParallel(List<Email> users) {
-        List<Callable<UserFolders>> tasks = users.stream()
-            .map(email -> (Callable<UserFolders>) () -> userFoldersRetriever.retrieveFoldersForUser(email))
-            .toList();
+    @Override
+    public void refreshGlobalIndex() {
+        globalIndexCache.refreshNow();
+    }
 
-        try {
-            List<Future<UserFolders>> futures = executorService.invokeAll(tasks);
-            List<UserFolders> results = new ArrayList<>();
+    /**
+     * Reserves a global index version for a {@code /folders} download made by another full scan mode,
+     * so that its reports never share a version with this service's snapshots.
+     */
+    public long reserveGlobalIndexVersion() {
+        return globalIndexCache.reserveVersion();
+    }
 
-            for (Future<UserFolders> future : futures) {
-                results.add(future.get());
-            }
+    /**
+     * Fetches user folders in parallel, largest users first, each fetch waiting for its estimated size to be
+     * admitted by the memory governor. While the budget is full, the users fetched so far are compared and
+     * released, so that fetches resume as memory becomes available.
+     * At the deadline, no more fetches are submitted and pending ones are cancelled.
+     *
+     * @return each user's inconsistencies, in the order of the given users, null for users left unchecked
+     */
+    private List<List<Inconsistency>> fetchAndCompare(List<Email> users, GlobalFolderIndex globalIndex, Deadline deadline) {
+        Integer[] fetchOrder = new Integer[users.size()];
+        int[] folderCounts = new int[users.size()];
+        for (int i = 0; i < fetchOrder.length; i++) {
+            fetchOrder[i] = i;
+            folderCounts[i] = globalIndex.folderCountOf(users.get(i));
+        }
+        Arrays.sort(fetchOrder, Comparator.comparingInt((Integer i) -> folderCounts[i]).reversed());
 
+        List<List<Inconsistency>> results = new ArrayList<>(Collections.nCopies(users.size(), null));
+        CompletionService<FetchedUser> completionService = new ExecutorCompletionService<>(executorService);
+        // Completed futures hold user folders: they are forgotten as soon as taken
+        Set<Future<FetchedUser>> pending = new LinkedHashSet<>();
+        InFlight inFlight = new InFlight();
+        try {
+            for (Integer i : fetchOrder) {
+                Email userEmail = users.get(i);
+                long estimate = InFlightMemoryGovernor.estimateRetainedBytes(folderCounts[i]);
+                if (deadline.hasPassed() || !admit(estimate, completionService, pending, globalIndex, results, inFlight, deadline)) {
+                    // This user and the following ones stay unchecked
+                    break;
+                }
+                inFlight.bytes += estimate;
+                pending.add(completionService.submit(() ->
+                    new FetchedUser(i, userFoldersRetriever.retrieveFoldersForUser(userEmail), estimate)));
+            }
+            compareAndRelease(takeCompleted(completionService, pending, true, inFlight, deadline), globalIndex, results, inFlight);
             return results;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new RuntimeException("Interrupted while fetching user folders", e);
         } catch (ExecutionException e) {
             throw new RuntimeException("Error fetching user folders", e.getCause());
+        } finally {
+            // Whatever stopped the scan, including an interrupted comparison, no fetch may outlive it
+            cancelNewestFirst(new ArrayList<>(pending));
+            // Reservations of failed or abandoned fetches
+            memoryGovernor.release(inFlight.bytes);
+        }
+    }
+
+    /**
+     * Reserves the estimated size of a fetch, comparing and releasing fetched users while the budget is full.
+     *
+     * @return false if the deadline was reached first
+     */
+    private boolean admit(
+        long estimate,
+        CompletionService<FetchedUser> completionService,
+        Set<Future<FetchedUser>> pending,
+        GlobalFolderIndex globalIndex,
+        List<List<Inconsistency>> results,
+        InFlight inFlight,
+        Deadline deadline
+    ) throws InterruptedException, ExecutionException {
+        while (!memoryGovernor.tryAdmit(estimate)) {
+            if (pending.isEmpty()) {
+                // The budget is held by other scans
+                return memoryGovernor.admit(estimate, deadline.remainingNanos());
+            }
+            compareAndRelease(takeCompleted(completionService, pending, false, inFlight, deadline), globalIndex, results, inFlight);
+            if (deadline.hasPassed()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Takes at least one completed fetch, or all of them, plus those already completed,
+     * replacing their reservation by the estimated size of the fetched folders.
+     * Waits no longer than the deadline, possibly taking none.
+     */
+    private List<FetchedUser> takeCompleted(
+        CompletionService<FetchedUser> completionService,
+        Set<Future<FetchedUser>> pending,
+        boolean all,
+        InFlight inFlight,
+        Deadline deadline
+    ) throws InterruptedException, ExecutionException {
+        List<FetchedUser> completed = new ArrayList<>();
+        Future<FetchedUser> future = pending.isEmpty() ? null : completionService.poll(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        while (future != null) {
+            pending.remove(future);
+            FetchedUser fetched = future.get();
+            long retained = InFlightMemoryGovernor.estimateRetainedBytes(fetched.userFolders());
+            memoryGovernor.resize(fetched.reservedBytes(), retained);
+            inFlight.bytes += retained - fetched.reservedBytes();
+            completed.add(new FetchedUser(fetched.index(), fetched.userFolders(), retained));
+            future = all && !pending.isEmpty()
+                ? completionService.poll(deadline.remainingNanos(), TimeUnit.NANOSECONDS)
+                : completionService.poll();
         }
+        return completed;
     }
 
-    private List<Inconsistency> compareAndDetectInconsistencies(
-        List<UserFolders> allUserFolders,
-        List<GlobalFolder> globalFolders
+    /**
+     * Cancels queued fetches before interrupting running ones,
+     * so that workers freed by the interrupts find no fetch left to start.
+     */
+    static void cancelNewestFirst(List<? extends Future<?>> futures) {
+        for (int i = futures.size() - 1; i >= 0; i--) {
+            futures.get(i).cancel(true);
+        }
+    }
+
+    private void compareAndRelease(
+        List<FetchedUser> fetched,
+        GlobalFolderIndex globalIndex,
+        List<List<Inconsistency>> results,
+        InFlight inFlight
     ) {
-        List<Inconsistency> inconsistencies = new ArrayList<>();
+        List<List<Inconsistency>> compared = comparison.compare(
+            fetched.stream().map(FetchedUser::userFolders).toList(),
+            globalIndex
+        );
+        long retained = 0;
+        for (int i = 0; i < fetched.size(); i++) {
+            results.set(fetched.get(i).index(), compared.get(i));
+            retained += fetched.get(i).reservedBytes();
+        }
+        memoryGovernor.release(retained);
+        inFlight.bytes -= retained;
+    }
 
-        // Index global folders by (user, folderId) for efficient lookup
-        Map<Email, Map<FolderId, GlobalFolder>> globalFoldersByUser = indexGlobalFoldersByUser(globalFolders);
-
-        // Check each user's folders against global data
-        for (UserFolders userFolders : allUserFolders) {
-            Email userEmail = userFolders.getUserEmail();
-            Map<FolderId, GlobalFolder> userGlobalFolders = globalFoldersByUser.getOrDefault(userEmail, Collections.emptyMap());
-
-            // Check for inconsistencies in user folders
-            Set<FolderId> checkedFolderIds = new HashSet<>();
-
-            for (UserFolder userFolder : userFolders.getFolders()) {
-                FolderId folderId = userFolder.getId();
-                checkedFolderIds.add(folderId);
-
-                if (!userGlobalFolders.containsKey(folderId)) {
-                    // Folder exists in user data but not in global data
-                    inconsistencies.add(Inconsistency.missingInGlobal(
-                        folderId,
-                        userEmail,
-                        userFolder.getName()
-                    ));
-                } else {
-                    // Check if names match
-                    GlobalFolder globalFolder = userGlobalFolders.get(folderId);
-                    if (!userFolder.getName().equals(globalFolder.getName())) {
-                        inconsistencies.add(Inconsistency.nameMismatch(
-                            folderId,
-                            userEmail,
-                            globalFolder.getName(),
-                            userFolder.getName()
-                        ));
-                    }
-                }
-            }
+    /**
+     * Folders of the user at a given position, with the bytes reserved for them.
+     */
+    private record FetchedUser(int index, UserFolders userFolders, long reservedBytes) {
+    }
 
-            // Check for folders in global data but not in user data
-            for (Map.Entry<FolderId, GlobalFolder> entry : userGlobalFolders.entrySet()) {
-                if (!checkedFolderIds.contains(entry.getKey())) {
-                    GlobalFolder globalFolder = entry.getValue();
-                    inconsistencies.add(Inconsistency.missingInUserFolders(
-                        globalFolder.getId(),
-                        userEmail,
-                        globalFolder.getName()
-                    ));
-                }
-            }
+    /**
+     * Point in time, on the {@link System#nanoTime()} scale, at which a scan stops fetching.
+     */
+    private record Deadline(long atNanos, boolean bounded) {
+
+        static final Deadline NONE = new Deadline(0, false);
+
+        static Deadline in(Duration budget) {
+            return new Deadline(System.nanoTime() + budget.toNanos(), true);
         }
 
-        return inconsistencies;
+        long remainingNanos() {
+            return bounded ? Math.max(0, atNanos - System.nanoTime()) : Long.MAX_VALUE;
+        }
+
+        boolean hasPassed() {
+            return remainingNanos() == 0;
+        }
+    }
+
+    /**
+     * Bytes reserved by one scan and not released yet.
+     */
+    private static final class InFlight {
+        private long bytes;
     }
 
-    private Map<Email, Map<FolderId, GlobalFolder>> indexGlobalFoldersByUser(List<GlobalFolder> globalFolders) {
-        return globalFolders.stream()
-            .collect(Collectors.groupingBy(
-                GlobalFolder::getUserEmail,
-                Collectors.toMap(
-                    GlobalFolder::getId,
-                    folder -> folder,
-                    (existing, replacement) -> existing // Keep first in case of duplicates
-                )
-            ));
+    /**
+     * Reports global folders of owners missing from the users list, and listed users owning no global folder.
+     */
+    private void reconcileOwners(List<Email> users, GlobalFolderIndex globalIndex, List<Inconsistency> inconsistencies) {
+        OwnerCoverage coverage = new OwnerCoverage(users);
+        for (Email owner : globalIndex.owners()) {
+            if (!coverage.markOwner(owner)) {
+                for (GlobalFolder folder : globalIndex.foldersOf(owner).values()) {
+                    inconsistencies.add(Inconsistency.orphanedOwner(folder.getId(), owner, folder.getName()));
+                }
+            }
+        }
+        coverage.forEachUserWithoutGlobalFolders(user -> inconsistencies.add(Inconsistency.userWithoutGlobalFolders(user)));
     }
 }
@@ -0,0 +1,229 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.model.*;
+import com.linagora.consistency.domain.port.driven.ForRetrievingGlobalFolders;
+import com.linagora.consistency.domain.port.driven.ForRetrievingUserFolders;
+import com.linagora.consistency.domain.port.driven.ForRetrievingUsers;
+import com.linagora.consistency.domain.port.driving.ForIngestingFolderChanges;
+import com.linagora.consistency.domain.port.driving.ForQueryingLiveInconsistencies;
+import com.linagora.consistency.domain.rule.InconsistencyRules;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Live, per-user consistency state kept current by folder change events.
+ * Each event re-evaluates only the changed (user, folder id) pair through the configured
+ * {@link InconsistencyRules}, then re-pairs that user's inconsistencies for id drift like full
+ * scans do and updates that user's entry in an aggregate of the reports of inconsistent users.
+ * An event thus costs the changed user's inconsistencies, whatever the other users' state.
+ * Queries read the aggregate: the report of every user is assembled outside the lock, at most
+ * once per batch of changes.
+ * Full loads ({@link #reconcile()}) are only needed occasionally to correct drift.
+ * Covers folder-scoped comparisons; ownership checks remain part of full scans.
+ * Thread-safe.
+ */
+public class LiveConsistencyState implements ForIngestingFolderChanges, ForQueryingLiveInconsistencies {
+
+    private final ForRetrievingUsers userRetriever;
+    private final ForRetrievingUserFolders userFoldersRetriever;
+    private final ForRetrievingGlobalFolders globalFoldersRetriever;
+    private final InconsistencyRules rules;
+    private final ExecutorService executorService;
+
+    private final Object lock = new Object();
+    private final Object reconcileLock = new Object();
+    private Map<Email, UserState> states = new HashMap<>();
+    private Map<Email, InconsistencyReport> inconsistentUsers = new LinkedHashMap<>();
+    private long changes;
+    private List<FolderChangeEvent> changesDuringReconcile;
+    private volatile InconsistencyReport snapshot = InconsistencyReport.empty();
+
+    public LiveConsistencyState(
+        ForRetrievingUsers userRetriever,
+        ForRetrievingUserFolders userFoldersRetriever,
+        ForRetrievingGlobalFolders globalFoldersRetriever,
+        InconsistencyRules rules,
+        ExecutorService executorService
+    ) {
+        this.userRetriever = Objects.requireNonNull(userRetriever, "userRetriever cannot be null");
+        this.userFoldersRetriever = Objects.requireNonNull(userFoldersRetriever, "userFoldersRetriever cannot be null");
+        this.globalFoldersRetriever = Objects.requireNonNull(globalFoldersRetriever, "globalFoldersRetriever cannot be null");
+        this.rules = Objects.requireNonNull(rules, "rules cannot be null");
+        this.executorService = Objects.requireNonNull(executorService, "executorService cannot be null");
+    }
+
+    @Override
+    public void applyFolderChange(FolderChangeEvent event) {
+        Objects.requireNonNull(event, "event cannot be null");
+        synchronized (lock) {
+            track(event.getUserEmail(), apply(states, event));
+            if (changesDuringReconcile != null) {
+                changesDuringReconcile.add(event);
+            }
+            changes++;
+            snapshot = null;
+        }
+    }
+
+    @Override
+    public InconsistencyReport liveInconsistencies() {
+        InconsistencyReport current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        List<InconsistencyReport> reports;
+        long readAt;
+        synchronized (lock) {
+            if (snapshot != null) {
+                return snapshot;
+            }
+            reports = List.copyOf(inconsistentUsers.values());
+            readAt = changes;
+        }
+
+        // Assembled outside the lock so that events are not held up by a large report
+        List<Inconsistency> inconsistencies = new ArrayList<>();
+        for (InconsistencyReport report : reports) {
+            inconsistencies.addAll(report.getInconsistencies());
+        }
+        InconsistencyReport assembled = InconsistencyReport.of(inconsistencies);
+        synchronized (lock) {
+            if (changes == readAt) {
+                snapshot = assembled;
+            }
+        }
+        return assembled;
+    }
+
+    @Override
+    public InconsistencyReport liveInconsistenciesForUser(Email userEmail) {
+        synchronized (lock) {
+            return inconsistentUsers.getOrDefault(userEmail, InconsistencyReport.empty());
+        }
+    }
+
+    @Override
+    public void reconcile() {
+        synchronized (reconcileLock) {
+            synchronized (lock) {
+                changesDuringReconcile = new ArrayList<>();
+            }
+            try {
+                Map<Email, UserState> rebuilt = load();
+                synchronized (lock) {
+                    for (FolderChangeEvent event : changesDuringReconcile) {
+                        apply(rebuilt, event);
+                    }
+                    states = rebuilt;
+                    inconsistentUsers = new LinkedHashMap<>();
+                    for (Map.Entry<Email, UserState> entry : rebuilt.entrySet()) {
+                        track(entry.getKey(), entry.getValue());
+                    }
+                    changes++;
+                    snapshot = null;
+                }
+            } finally {
+                synchronized (lock) {
+                    changesDuringReconcile = null;
+                }
+            }
+        }
+    }
+
+    private Map<Email, UserState> load() {
+        List<Email> users = userRetriever.retrieveAllUsers();
+        List<UserFolders> allUserFolders = UserFoldersFetcher.fetchAllInParallel(userFoldersRetriever, users, executorService);
+
+        Map<Email, UserState> loaded = new HashMap<>();
+        for (UserFolders userFolders : allUserFolders) {
+            UserState state = loaded.computeIfAbsent(userFolders.getUserEmail(), email -> new UserState());
+            for (UserFolder folder : userFolders.getFolders()) {
+                state.userFolders.put(folder.getId(), folder.getName());
+            }
+        }
+        // Same scope as full scans: global folders of listed users, first one wins on duplicates
+        for (GlobalFolder folder : globalFoldersRetriever.retrieveAllGlobalFolders()) {
+            UserState state = loaded.get(folder.getUserEmail());
+            if (state != null) {
+                state.globalFolders.putIfAbsent(folder.getId(), folder.getName());
+            }
+        }
+
+        for (Map.Entry<Email, UserState> entry : loaded.entrySet()) {
+            UserState state = entry.getValue();
+            Set<FolderId> folderIds = new HashSet<>(state.userFolders.keySet());
+            folderIds.addAll(state.globalFolders.keySet());
+            for (FolderId folderId : folderIds) {
+                evaluate(entry.getKey(), state, folderId);
+            }
+        }
+        return loaded;
+    }
+
+    private UserState apply(Map<Email, UserState> target, FolderChangeEvent event) {
+        UserState state = target.computeIfAbsent(event.getUserEmail(), email -> new UserState());
+        Map<FolderId, FolderName> side = event.getSide() == FolderChangeEvent.Side.USER
+            ? state.userFolders
+            : state.globalFolders;
+
+        if (event.getKind() == FolderChangeEvent.Kind.DELETED) {
+            side.remove(event.getFolderId());
+        } else {
+            side.put(event.getFolderId(), event.getName().orElseThrow());
+        }
+
+        evaluate(event.getUserEmail(), state, event.getFolderId());
+        return state;
+    }
+
+    // Adjusts the aggregate for one user, whose report may have changed
+    private void track(Email userEmail, UserState state) {
+        InconsistencyReport report = state.report(rules);
+        if (report.hasInconsistencies()) {
+            inconsistentUsers.put(userEmail, report);
+        } else {
+            inconsistentUsers.remove(userEmail);
+        }
+    }
+
+    private void evaluate(Email userEmail, UserState state, FolderId folderId) {
+        FolderName userName = state.userFolders.get(folderId);
+        FolderName globalName = state.globalFolders.get(folderId);
+
+        List<Inconsistency> found = new ArrayList<>(1);
+        rules.inspectKeyGroup(
+            userEmail,
+            userName == null ? List.of() : List.of(UserFolder.of(folderId, userName)),
+            globalName == null ? List.of() : List.of(GlobalFolder.of(folderId, userEmail, globalName)),
+            found::add
+        );
+
+        if (found.isEmpty()) {
+            state.inconsistencies.remove(folderId);
+        } else {
+            state.inconsistencies.put(folderId, found);
+        }
+        state.report = null;
+    }
+
+    private static final class UserState {
+        private final Map<FolderId, FolderName> userFolders = new HashMap<>();
+        private final Map<FolderId, FolderName> globalFolders = new HashMap<>();
+        private final Map<FolderId, List<Inconsistency>> inconsistencies = new LinkedHashMap<>();
+        private InconsistencyReport report; // Null when stale
+
+        private InconsistencyReport report(InconsistencyRules rules) {
+            if (report == null) {
+                List<Inconsistency> unpaired = new ArrayList<>();
+                for (List<Inconsistency> folderInconsistencies : inconsistencies.values()) {
+                    unpaired.addAll(folderInconsistencies);
+                }
+                List<Inconsistency> paired = new ArrayList<>(unpaired.size());
+                rules.pairUserInconsistencies(unpaired, paired::add);
+                report = InconsistencyReport.of(paired);
+            }
+            return report;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.model.InconsistencyReport;
+import com.linagora.consistency.domain.model.TenantScanResult;
+import com.linagora.consistency.domain.model.TenantStatistics;
+import com.linagora.consistency.domain.port.driving.ForDetectingInconsistencies;
+import com.linagora.consistency.domain.port.driving.ForDetectingTenantInconsistencies;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Routes scans to per-tenant detectors, each wired to its own upstream and running its upstream
+ * calls in its own lane of a shared {@link WeightedFairExecutor}.
+ * Scanning all tenants starts every tenant's scan at once: the tenants then compete for the shared
+ * pool only through their lanes, so a large tenant slows the others down by its weight, not by its size.
+ * Each tenant's outcome is returned on its own, so one failing upstream leaves the other reports intact.
+ */
+public class MultiTenantInconsistencyDetector implements ForDetectingTenantInconsistencies {
+
+    /**
+     * One tenant: its detection chain and the lane its upstream calls run in.
+     */
+    public record Tenant(String name, ForDetectingInconsistencies detector, WeightedFairExecutor.Lane lane) {
+
+        public Tenant {
+            Objects.requireNonNull(name, "name cannot be null");
+            Objects.requireNonNull(detector, "detector cannot be null");
+            Objects.requireNonNull(lane, "lane cannot be null");
+        }
+    }
+
+    private final Map<String, Tenant> tenants = new LinkedHashMap<>();
+    private final Map<String, ScanCounters> counters = new HashMap<>();
+    private final ExecutorService coordinatorExecutor;
+    private final Clock clock;
+
+    /**
+     * @param tenants the tenants, with unique names
+     * @param coordinatorExecutor runs the (blocking) scan of each tenant when scanning all of them;
+     *                            must not reject tasks, and needs one thread per tenant and concurrent
+     *                            call for scans to overlap
+     * @param clock source of the scan timestamps
+     */
+    public MultiTenantInconsistencyDetector(List<Tenant> tenants, ExecutorService coordinatorExecutor, Clock clock) {
+        for (Tenant tenant : tenants) {
+            if (this.tenants.putIfAbsent(tenant.name(), tenant) != null) {
+                throw new IllegalArgumentException("Duplicate tenant: " + tenant.name());
+            }
+            counters.put(tenant.name(), new ScanCounters());
+        }
+        this.coordinatorExecutor = Objects.requireNonNull(coordinatorExecutor, "coordinatorExecutor cannot be null");
+        this.clock = Objects.requireNonNull(clock, "clock cannot be null");
+    }
+
+    @Override
+    public List<String> tenants() {
+        return List.copyOf(tenants.keySet());
+    }
+
+    @Override
+    public Optional<InconsistencyReport> detectInconsistencies(String tenant) {
+        return Optional.ofNullable(tenants.get(tenant)).map(this::scan);
+    }
+
+    @Override
+    public Map<String, TenantScanResult> detectAllTenants() {
+        List<Tenant> all = List.copyOf(tenants.values());
+        List<Callable<InconsistencyReport>> scans = all.stream()
+            .map(tenant -> (Callable<InconsistencyReport>) () -> scan(tenant))
+            .toList();
+
+        Map<String, TenantScanResult> results = new LinkedHashMap<>();
+        try {
+            List<Future<InconsistencyReport>> futures = coordinatorExecutor.invokeAll(scans);
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.put(all.get(i).name(), TenantScanResult.succeeded(futures.get(i).get()));
+                } catch (ExecutionException e) {
+                    // Already counted as a failed scan
+                    results.put(all.get(i).name(), TenantScanResult.failed(String.valueOf(e.getCause())));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while scanning tenants", e);
+        }
+        return results;
+    }
+
+    @Override
+    public List<TenantStatistics> statistics() {
+        return tenants.values().stream()
+            .map(tenant -> counters.get(tenant.name()).snapshot(tenant))
+            .toList();
+    }
+
+    private InconsistencyReport scan(Tenant tenant) {
+        ScanCounters scanCounters = counters.get(tenant.name());
+        Instant start = clock.instant();
+        try {
+            InconsistencyReport report = tenant.detector().detectInconsistencies();
+            Instant end = clock.instant();
+            scanCounters.succeeded(end, Duration.between(start, end), report.getTotalCount());
+            return report;
+        } catch (RuntimeException e) {
+            scanCounters.failed();
+            throw e;
+        }
+    }
+
+    private static final class ScanCounters {
+
+        private long scans;
+        private long failedScans;
+        private Instant lastScanAt;
+        private Duration lastScanDuration;
+        private long lastScanInconsistencies;
+
+        synchronized void succeeded(Instant at, Duration duration, long inconsistencies) {
+            scans++;
+            lastScanAt = at;
+            lastScanDuration = duration;
+            lastScanInconsistencies = inconsistencies;
+        }
+
+        synchronized void failed() {
+            scans++;
+            failedScans++;
+        }
+
+        synchronized TenantStatistics snapshot(Tenant tenant) {
+            WeightedFairExecutor.Lane lane = tenant.lane();
+            return TenantStatistics.of(
+                tenant.name(),
+                lane.getWeight(),
+                lane.getMaxConcurrency(),
+                lane.getQueuedTasks(),
+                lane.getRunningTasks(),
+                lane.getCompletedTasks(),
+                lane.getBusyTime(),
+                scans,
+                failedScans,
+                lastScanAt,
+                lastScanDuration,
+                lastScanInconsistencies
+            );
+        }
+    }
+}
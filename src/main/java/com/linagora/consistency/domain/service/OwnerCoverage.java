@@ -0,0 +1,62 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.model.Email;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Reconciles the users returned by the users endpoint with the owners of global folders.
+ * Listed users are interned to dense ids once; owners are then marked in a {@link BitSet},
+ * so both set differences cost one hash lookup per owner and one bit scan over users.
+ * Not thread-safe.
+ */
+final class OwnerCoverage {
+
+    private final List<Email> users = new ArrayList<>();
+    private final Map<Email, Integer> userIds;
+    private final BitSet owning;
+
+    OwnerCoverage(Collection<Email> listedUsers) {
+        this.userIds = new HashMap<>(Math.max(16, (int) (listedUsers.size() / 0.75f) + 1));
+        for (Email user : listedUsers) {
+            if (userIds.putIfAbsent(user, users.size()) == null) {
+                users.add(user);
+            }
+        }
+        this.owning = new BitSet(users.size());
+    }
+
+    /**
+     * @return listed users without duplicates, in listing order
+     */
+    List<Email> users() {
+        return Collections.unmodifiableList(users);
+    }
+
+    /**
+     * Records that a user owns global folders.
+     *
+     * @param owner the owner's email address
+     * @return false if the owner is not a listed user (orphaned owner)
+     */
+    boolean markOwner(Email owner) {
+        Integer id = userIds.get(owner);
+        if (id == null) {
+            return false;
+        }
+        owning.set(id);
+        return true;
+    }
+
+    /**
+     * Visits listed users that were never marked as owners, in listing order.
+     *
+     * @param visitor receives each user without global folders
+     */
+    void forEachUserWithoutGlobalFolders(Consumer<Email> visitor) {
+        for (int id = owning.nextClearBit(0); id < users.size(); id = owning.nextClearBit(id + 1)) {
+            visitor.accept(users.get(id));
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.model.*;
+import com.linagora.consistency.domain.rule.InconsistencyRules;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Compares every user's folders against the global index in parallel, balanced for skewed folder counts.
+ * The work of a user is estimated as its user-side plus global-side folder count. Users above the split size
+ * are cut into pieces of at most that many folders (user-side ranges, then global-side ranges), smaller users
+ * are batched up to the same size, and tasks are submitted longest first. Pool threads take the next task
+ * as soon as they are idle, so the tail of the scan is made of small tasks and the makespan approaches
+ * total work divided by the pool size, instead of being bounded by the largest user.
+ * The result is identical, in content and order, to inspecting each user sequentially.
+ */
+final class ParallelUserComparison {
+
+    private final InconsistencyRules rules;
+    private final ExecutorService executorService;
+    private final int splitSize;
+
+    ParallelUserComparison(InconsistencyRules rules, ExecutorService executorService, int splitSize) {
+        if (splitSize <= 0) {
+            throw new IllegalArgumentException("Split size must be positive");
+        }
+        this.rules = rules;
+        this.executorService = executorService;
+        this.splitSize = splitSize;
+    }
+
+    /**
+     * @param allUserFolders users' folders
+     * @param globalIndex the global index
+     * @return the inconsistencies of each user, in the order of the given users
+     */
+    List<List<Inconsistency>> compare(List<UserFolders> allUserFolders, GlobalFolderIndex globalIndex) {
+        List<Piece> pieces = new ArrayList<>();
+        List<List<Piece>> piecesByUser = new ArrayList<>(allUserFolders.size());
+        for (UserFolders userFolders : allUserFolders) {
+            List<Piece> userPieces = split(userFolders, globalIndex);
+            piecesByUser.add(userPieces);
+            pieces.addAll(userPieces);
+        }
+
+        runLongestFirst(pieces);
+
+        List<List<Inconsistency>> results = new ArrayList<>(piecesByUser.size());
+        for (List<Piece> userPieces : piecesByUser) {
+            if (userPieces.size() == 1 && userPieces.get(0).wholeUser) {
+                results.add(userPieces.get(0).result);
+            } else {
+                List<Inconsistency> userInconsistencies = new ArrayList<>();
+                userPieces.forEach(piece -> userInconsistencies.addAll(piece.result));
+                List<Inconsistency> paired = new ArrayList<>(userInconsistencies.size());
+                rules.pairUserInconsistencies(userInconsistencies, paired::add);
+                results.add(paired);
+            }
+        }
+        return results;
+    }
+
+    private List<Piece> split(UserFolders userFolders, GlobalFolderIndex globalIndex) {
+        Email userEmail = userFolders.getUserEmail();
+        List<UserFolder> folders = userFolders.getFolders();
+        int globalCount = globalIndex.folderCountOf(userEmail);
+        if (folders.size() + globalCount <= splitSize) {
+            // Global folders are looked up by the worker, off the planning thread
+            return List.of(new Piece(userEmail, folders.size(), globalCount, true, sink ->
+                rules.inspectUserFolders(userFolders, globalIndex.foldersOf(userEmail), sink)));
+        }
+
+        Map<FolderId, GlobalFolder> userGlobalFolders = globalIndex.foldersOf(userEmail);
+        List<GlobalFolder> globalFolders = List.copyOf(userGlobalFolders.values());
+        Set<FolderId> userFolderIds = new HashSet<>(Math.max(16, (int) (folders.size() / 0.75f) + 1));
+        for (UserFolder folder : folders) {
+            userFolderIds.add(folder.getId());
+        }
+
+        List<Piece> pieces = new ArrayList<>();
+        for (int start = 0; start < folders.size(); start += splitSize) {
+            List<UserFolder> range = folders.subList(start, Math.min(folders.size(), start + splitSize));
+            pieces.add(new Piece(userEmail, range.size(), 0, false, sink ->
+                rules.inspectUserFolderRange(userEmail, range, userGlobalFolders, sink)));
+        }
+        for (int start = 0; start < globalFolders.size(); start += splitSize) {
+            List<GlobalFolder> range = globalFolders.subList(start, Math.min(globalFolders.size(), start + splitSize));
+            pieces.add(new Piece(userEmail, 0, range.size(), false, sink ->
+                rules.inspectGlobalFolderRange(userEmail, range, userFolderIds, sink)));
+        }
+        return pieces;
+    }
+
+    private void runLongestFirst(List<Piece> pieces) {
+        List<Piece> byWork = new ArrayList<>(pieces);
+        byWork.sort(Comparator.comparingInt((Piece piece) -> piece.work).reversed());
+
+        // Batch small pieces so that tasks stay around the split size
+        List<Callable<Void>> tasks = new ArrayList<>();
+        List<Piece> batch = new ArrayList<>();
+        int batchWork = 0;
+        for (Piece piece : byWork) {
+            if (!batch.isEmpty() && batchWork + piece.work > splitSize) {
+                tasks.add(taskOf(batch));
+                batch = new ArrayList<>();
+                batchWork = 0;
+            }
+            batch.add(piece);
+            batchWork += piece.work;
+        }
+        if (!batch.isEmpty()) {
+            tasks.add(taskOf(batch));
+        }
+
+        try {
+            for (Future<Void> future : executorService.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while comparing user folders", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error comparing user folders", e.getCause());
+        }
+    }
+
+    private static Callable<Void> taskOf(List<Piece> batch) {
+        return () -> {
+            for (Piece piece : batch) {
+                // Pieces ignore interrupts, a cancelled scan stops at the next one
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Comparison cancelled");
+                }
+                piece.run();
+            }
+            return null;
+        };
+    }
+
+    /**
+     * Part of one user's comparison, writing into its own result list (published by the task's future).
+     * Each run is recorded as a {@link UserComparisonEvent}.
+     */
+    private static final class Piece {
+
+        private final Email userEmail;
+        private final int userFolders;
+        private final int globalFolders;
+        private final int work;
+        private final boolean wholeUser;
+        private final Consumer<Consumer<Inconsistency>> inspection;
+        private final List<Inconsistency> result = new ArrayList<>();
+
+        Piece(Email userEmail, int userFolders, int globalFolders, boolean wholeUser, Consumer<Consumer<Inconsistency>> inspection) {
+            this.userEmail = userEmail;
+            this.userFolders = userFolders;
+            this.globalFolders = globalFolders;
+            this.work = userFolders + globalFolders;
+            this.wholeUser = wholeUser;
+            this.inspection = inspection;
+        }
+
+        void run() {
+            UserComparisonEvent event = new UserComparisonEvent();
+            event.begin();
+            inspection.accept(result::add);
+            if (event.shouldCommit()) {
+                event.email = userEmail.getValue();
+                event.userFolders = userFolders;
+                event.globalFolders = globalFolders;
+                event.inconsistencies = result.size();
+                event.split = !wholeUser;
+                event.commit();
+            }
+        }
+    }
+}
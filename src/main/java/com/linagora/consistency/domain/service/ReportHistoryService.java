@@ -0,0 +1,155 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.model.InconsistencyReport;
+import com.linagora.consistency.domain.model.ReportDiff;
+import com.linagora.consistency.domain.model.ReportSummary;
+import com.linagora.consistency.domain.port.driven.ForStoringReportHistory;
+import com.linagora.consistency.domain.port.driving.ForDetectingInconsistencies;
+import com.linagora.consistency.domain.port.driving.ForQueryingReportHistory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Domain service recording a summary of each report generation and answering trend and diff queries
+ * from those summaries.
+ * Summaries are appended to the store and the counts of the most recent ones are kept in memory, so
+ * trends never touch the store. Counts by user and fingerprints grow with the report and are only kept
+ * for the {@value #DETAILED_GENERATIONS} latest generations; diffs involving older generations load
+ * them back from the store. Generations are numbered from 1, continuing after the stored ones on restart.
+ */
+public class ReportHistoryService implements ForQueryingReportHistory {
+
+    static final int DETAILED_GENERATIONS = 2;
+
+    private final ForStoringReportHistory store;
+    private final int retainedGenerations;
+    private final Clock clock;
+    // Immutable snapshot in generation order, replaced on each append
+    private volatile List<ReportSummary> summaries;
+
+    public ReportHistoryService(ForStoringReportHistory store, int retainedGenerations, Clock clock) {
+        if (retainedGenerations < 2) {
+            throw new IllegalArgumentException("At least two generations must be retained");
+        }
+        this.store = Objects.requireNonNull(store, "store cannot be null");
+        this.retainedGenerations = retainedGenerations;
+        this.clock = Objects.requireNonNull(clock, "clock cannot be null");
+        List<ReportSummary> loaded = new ArrayList<>(store.loadReportSummaries(retainedGenerations));
+        for (int i = Math.max(0, loaded.size() - DETAILED_GENERATIONS); i < loaded.size(); i++) {
+            ReportSummary counts = loaded.get(i);
+            loaded.set(i, store.loadReportSummary(counts.getGeneration()).orElse(counts));
+        }
+        this.summaries = List.copyOf(loaded);
+    }
+
+    /**
+     * Wraps a detector so that every complete report it produces is recorded as a new generation.
+     * Partial reports, from scans stopped at their deadline, would show as a drop in the trend and are not recorded.
+     *
+     * @param delegate the detector producing full reports
+     * @return a detector returning the delegate's reports unchanged
+     */
+    public ForDetectingInconsistencies recording(ForDetectingInconsistencies delegate) {
+        Objects.requireNonNull(delegate, "delegate cannot be null");
+        return new ForDetectingInconsistencies() {
+            @Override
+            public InconsistencyReport detectInconsistencies() {
+                return recordIfComplete(delegate.detectInconsistencies());
+            }
+
+            @Override
+            public InconsistencyReport detectInconsistencies(Duration deadline) {
+                return recordIfComplete(delegate.detectInconsistencies(deadline));
+            }
+
+            @Override
+            public boolean supportsDeadline() {
+                return delegate.supportsDeadline();
+            }
+        };
+    }
+
+    private InconsistencyReport recordIfComplete(InconsistencyReport report) {
+        if (!report.isPartial()) {
+            record(report);
+        }
+        return report;
+    }
+
+    /**
+     * Summarizes and stores a report as the next generation.
+     *
+     * @param report the report to record
+     * @return the stored summary
+     */
+    public synchronized ReportSummary record(InconsistencyReport report) {
+        List<ReportSummary> current = summaries;
+        long generation = current.isEmpty() ? 1 : current.get(current.size() - 1).getGeneration() + 1;
+        ReportSummary summary = ReportSummary.summarize(generation, clock.instant(), report);
+        store.appendReportSummary(summary);
+
+        List<ReportSummary> next = new ArrayList<>(current.subList(Math.max(0, current.size() + 1 - retainedGenerations), current.size()));
+        next.add(summary);
+        int firstDetailed = next.size() - DETAILED_GENERATIONS;
+        if (firstDetailed > 0) {
+            next.set(firstDetailed - 1, next.get(firstDetailed - 1).withoutDetails());
+        }
+        summaries = List.copyOf(next);
+        return summary;
+    }
+
+    @Override
+    public List<ReportSummary> trend(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        List<ReportSummary> current = summaries;
+        return current.subList(Math.max(0, current.size() - limit), current.size());
+    }
+
+    @Override
+    public Optional<ReportDiff> diff(long fromGeneration, long toGeneration) {
+        List<ReportSummary> current = summaries;
+        Optional<ReportSummary> from = find(current, fromGeneration).flatMap(this::withDetails);
+        Optional<ReportSummary> to = find(current, toGeneration).flatMap(this::withDetails);
+        if (from.isEmpty() || to.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(ReportDiff.between(from.get(), to.get()));
+    }
+
+    private Optional<ReportSummary> withDetails(ReportSummary summary) {
+        return summary.hasDetails() ? Optional.of(summary) : store.loadReportSummary(summary.getGeneration());
+    }
+
+    @Override
+    public Optional<ReportDiff> latestDiff() {
+        List<ReportSummary> current = summaries;
+        if (current.size() < 2) {
+            return Optional.empty();
+        }
+        return diff(current.get(current.size() - 2).getGeneration(), current.get(current.size() - 1).getGeneration());
+    }
+
+    private Optional<ReportSummary> find(List<ReportSummary> current, long generation) {
+        int low = 0;
+        int high = current.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long candidate = current.get(middle).getGeneration();
+            if (candidate < generation) {
+                low = middle + 1;
+            } else if (candidate > generation) {
+                high = middle - 1;
+            } else {
+                return Optional.of(current.get(middle));
+            }
+        }
+        return Optional.empty();
+    }
+}
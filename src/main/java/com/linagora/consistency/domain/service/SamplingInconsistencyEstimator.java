@@ -0,0 +1,258 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.model.*;
+import com.linagora.consistency.domain.port.driven.ForRetrievingUsers;
+import com.linagora.consistency.domain.port.driving.ForDetectingUserInconsistencies;
+import com.linagora.consistency.domain.port.driving.ForEstimatingInconsistencyRates;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Estimates inconsistency rates from a stratified random sample of users.
+ * Users are stratified by email domain with proportional allocation, so large tenants cannot be
+ * missed by chance. Domains too small to get one sampled user are pooled into one stratum, so that
+ * every stratum is sampled and the estimate keeps their weight. The sample size is the one giving the requested margin in the worst case
+ * (a rate of 50%), with finite population correction: about 385 users for 95% ± 5%, whatever
+ * the number of users. Each sampled user costs one single-user check (one upstream call).
+ * Intervals are Wilson score intervals on the stratified estimate, which stay meaningful
+ * for rates close to 0. Rates by type only cover the types a single-user check can report
+ * ({@link ForDetectingUserInconsistencies#USER_CHECK_TYPES}): the sample says nothing of the others.
+ */
+public class SamplingInconsistencyEstimator implements ForEstimatingInconsistencyRates {
+
+    private final ForRetrievingUsers userRetriever;
+    private final ForDetectingUserInconsistencies userChecker;
+    private final ExecutorService executorService;
+    private final Random random;
+
+    public SamplingInconsistencyEstimator(
+        ForRetrievingUsers userRetriever,
+        ForDetectingUserInconsistencies userChecker,
+        ExecutorService executorService,
+        Random random
+    ) {
+        this.userRetriever = Objects.requireNonNull(userRetriever, "userRetriever cannot be null");
+        this.userChecker = Objects.requireNonNull(userChecker, "userChecker cannot be null");
+        this.executorService = Objects.requireNonNull(executorService, "executorService cannot be null");
+        this.random = Objects.requireNonNull(random, "random cannot be null");
+    }
+
+    @Override
+    public InconsistencyRateEstimate estimateInconsistencyRates(double confidence, double margin) {
+        if (!(confidence > 0 && confidence < 1)) {
+            throw new IllegalArgumentException("Confidence must be between 0 and 1");
+        }
+        if (!(margin > 0 && margin <= 0.5)) {
+            throw new IllegalArgumentException("Margin must be between 0 (excluded) and 0.5");
+        }
+        double z = inverseStandardNormal(1 - (1 - confidence) / 2);
+
+        List<List<Email>> domains = stratifyByDomain(new LinkedHashSet<>(userRetriever.retrieveAllUsers()));
+        int populationSize = domains.stream().mapToInt(List::size).sum();
+        int sampleSize = sampleSize(populationSize, z, margin);
+        List<List<Email>> strata = poolSmallDomains(domains, populationSize, sampleSize);
+        int[] allocation = allocate(strata, populationSize, sampleSize);
+
+        List<Email> sampledUsers = new ArrayList<>(sampleSize);
+        List<Integer> sampledStrata = new ArrayList<>(sampleSize);
+        for (int h = 0; h < strata.size(); h++) {
+            for (Email user : sample(strata.get(h), allocation[h])) {
+                sampledUsers.add(user);
+                sampledStrata.add(h);
+            }
+        }
+
+        // Per-stratum counts of inconsistent users, overall (last column) and per type
+        int typeCount = InconsistencyType.values().length;
+        int[][] counts = new int[strata.size()][typeCount + 1];
+        List<InconsistencyReport> reports = checkAll(sampledUsers);
+        for (int i = 0; i < reports.size(); i++) {
+            InconsistencyReport report = reports.get(i);
+            int[] stratumCounts = counts[sampledStrata.get(i)];
+            if (report.hasInconsistencies()) {
+                stratumCounts[typeCount]++;
+            }
+            for (InconsistencyType type : report.getCountsByType().keySet()) {
+                stratumCounts[type.ordinal()]++;
+            }
+        }
+
+        // Stratified estimates: proportions weighted by stratum size
+        double[] rates = new double[typeCount + 1];
+        for (int h = 0; h < strata.size(); h++) {
+            double weight = (double) strata.get(h).size() / populationSize;
+            for (int t = 0; t <= typeCount; t++) {
+                rates[t] += weight * counts[h][t] / allocation[h];
+            }
+        }
+
+        Map<InconsistencyType, InconsistencyRateEstimate.Interval> intervalsByType = new EnumMap<>(InconsistencyType.class);
+        for (InconsistencyType type : ForDetectingUserInconsistencies.USER_CHECK_TYPES) {
+            intervalsByType.put(type, wilsonInterval(rates[type.ordinal()], sampleSize, populationSize, z));
+        }
+        return InconsistencyRateEstimate.of(
+            populationSize,
+            sampleSize,
+            confidence,
+            wilsonInterval(rates[typeCount], sampleSize, populationSize, z),
+            intervalsByType
+        );
+    }
+
+    static int sampleSize(int populationSize, double z, double margin) {
+        if (populationSize == 0) {
+            return 0;
+        }
+        double infinitePopulation = z * z * 0.25 / (margin * margin);
+        double corrected = infinitePopulation / (1 + (infinitePopulation - 1) / populationSize);
+        return (int) Math.min(populationSize, Math.ceil(corrected));
+    }
+
+    private List<List<Email>> stratifyByDomain(Collection<Email> users) {
+        Map<String, List<Email>> byDomain = new TreeMap<>();
+        for (Email user : users) {
+            String value = user.getValue();
+            String domain = value.substring(value.lastIndexOf('@') + 1).toLowerCase(Locale.ROOT);
+            byDomain.computeIfAbsent(domain, key -> new ArrayList<>()).add(user);
+        }
+        return new ArrayList<>(byDomain.values());
+    }
+
+    /**
+     * Pools the domains whose proportional allocation is below one user into a single stratum, and that
+     * stratum into the smallest domain if it is still below one user. Every stratum then gets at least
+     * one sampled user; skipping unsampled ones would drop their weight and underestimate every rate.
+     */
+    private List<List<Email>> poolSmallDomains(List<List<Email>> domains, int populationSize, int sampleSize) {
+        List<List<Email>> strata = new ArrayList<>();
+        List<Email> pooled = new ArrayList<>();
+        for (List<Email> domain : domains) {
+            if ((double) sampleSize * domain.size() / populationSize >= 1) {
+                strata.add(domain);
+            } else {
+                pooled.addAll(domain);
+            }
+        }
+        if (pooled.isEmpty()) {
+            return strata;
+        }
+        if ((double) sampleSize * pooled.size() / populationSize < 1 && !strata.isEmpty()) {
+            Collections.min(strata, Comparator.comparingInt(List::size)).addAll(pooled);
+        } else {
+            strata.add(pooled);
+        }
+        return strata;
+    }
+
+    /**
+     * Proportional allocation rounded with the largest remainder method, so that it sums to the sample size.
+     */
+    private int[] allocate(List<List<Email>> strata, int populationSize, int sampleSize) {
+        int[] allocation = new int[strata.size()];
+        double[] remainders = new double[strata.size()];
+        int allocated = 0;
+        for (int h = 0; h < strata.size(); h++) {
+            double exact = (double) sampleSize * strata.get(h).size() / populationSize;
+            allocation[h] = (int) exact;
+            remainders[h] = exact - allocation[h];
+            allocated += allocation[h];
+        }
+        while (allocated < sampleSize) {
+            int largest = 0;
+            for (int h = 1; h < strata.size(); h++) {
+                if (remainders[h] > remainders[largest]) {
+                    largest = h;
+                }
+            }
+            allocation[largest]++;
+            remainders[largest] = -1;
+            allocated++;
+        }
+        return allocation;
+    }
+
+    private List<Email> sample(List<Email> stratum, int count) {
+        // Partial Fisher-Yates shuffle on a copy
+        List<Email> copy = new ArrayList<>(stratum);
+        synchronized (random) {
+            for (int i = 0; i < count; i++) {
+                Collections.swap(copy, i, i + random.nextInt(copy.size() - i));
+            }
+        }
+        return copy.subList(0, count);
+    }
+
+    private List<InconsistencyReport> checkAll(List<Email> users) {
+        List<Callable<InconsistencyReport>> checks = users.stream()
+            .map(user -> (Callable<InconsistencyReport>) () -> userChecker.detectInconsistenciesForUser(user))
+            .toList();
+        try {
+            List<InconsistencyReport> reports = new ArrayList<>(checks.size());
+            for (Future<InconsistencyReport> future : executorService.invokeAll(checks)) {
+                reports.add(future.get());
+            }
+            return reports;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while checking sampled users", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error checking sampled users", e.getCause());
+        }
+    }
+
+    private InconsistencyRateEstimate.Interval wilsonInterval(double rate, int sampleSize, int populationSize, double z) {
+        if (sampleSize == 0) {
+            return new InconsistencyRateEstimate.Interval(0, 0, 1);
+        }
+        rate = Math.min(1, Math.max(0, rate));
+        double finitePopulationCorrection = populationSize > 1
+            ? (double) (populationSize - sampleSize) / (populationSize - 1)
+            : 0;
+        if (finitePopulationCorrection == 0) {
+            // Every user was checked: the rate is exact
+            return new InconsistencyRateEstimate.Interval(rate, rate, rate);
+        }
+        double n = sampleSize / finitePopulationCorrection;
+        double z2 = z * z;
+        double denominator = 1 + z2 / n;
+        double center = (rate + z2 / (2 * n)) / denominator;
+        double halfWidth = z / denominator * Math.sqrt(rate * (1 - rate) / n + z2 / (4 * n * n));
+        return new InconsistencyRateEstimate.Interval(
+            rate,
+            Math.max(0, Math.min(rate, center - halfWidth)),
+            Math.min(1, Math.max(rate, center + halfWidth))
+        );
+    }
+
+    /**
+     * Quantile function of the standard normal distribution (Acklam's rational approximation,
+     * relative error below 1.15e-9).
+     */
+    static double inverseStandardNormal(double p) {
+        final double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+            1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        final double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+            6.680131188771972e+01, -1.328068155288572e+01};
+        final double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+            -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        final double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+            3.754408661907416e+00};
+        final double low = 0.02425;
+
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - low) {
+            double q = Math.sqrt(-2 * Math.log(1 - p));
+            return -(((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+            / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+}
@@ -0,0 +1,230 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.model.*;
+import com.linagora.consistency.domain.port.driven.ForRetrievingGlobalFolders;
+import com.linagora.consistency.domain.port.driven.ForRetrievingUserFolders;
+import com.linagora.consistency.domain.port.driven.ForRetrievingUsers;
+import com.linagora.consistency.domain.port.driving.ForDetectingInconsistencies;
+import com.linagora.consistency.domain.rule.InconsistencyRules;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Out-of-core variant of the inconsistency detection for datasets larger than the heap.
+ * Both sides are spilled to temporary files as sorted runs keyed by (user, folder id),
+ * then joined with a streaming merge. Buffered folder rows stay within the configured budget
+ * (split between both sides) whatever the number of folders.
+ * Produces the same inconsistencies as {@link InconsistencyDetectionService}, ordered by key,
+ * except cross-user id collisions: rows are grouped per user, so rules only see repeated ids
+ * within one user's folders.
+ *
+ * <p>Beyond the budget, the heap holds: the listed users, once; the folders of at most
+ * {@value #MAX_PENDING_FETCHES} fetched users waiting to be spilled; the inconsistencies of the
+ * user being merged; and the report. Inconsistencies are not spilled, since the report returns
+ * them all at once and would set the same peak.
+ */
+public class SortMergeInconsistencyDetectionService implements ForDetectingInconsistencies {
+
+    static final int MAX_PENDING_FETCHES = 64;
+
+    private final ForRetrievingUsers userRetriever;
+    private final ForRetrievingUserFolders userFoldersRetriever;
+    private final ForRetrievingGlobalFolders globalFoldersRetriever;
+    private final InconsistencyRules rules;
+    private final ExecutorService executorService;
+    private final Path spillDirectory;
+    private final long memoryBudgetBytes;
+    private final LongSupplier globalIndexVersions;
+
+    public SortMergeInconsistencyDetectionService(
+        ForRetrievingUsers userRetriever,
+        ForRetrievingUserFolders userFoldersRetriever,
+        ForRetrievingGlobalFolders globalFoldersRetriever,
+        InconsistencyRules rules,
+        ExecutorService executorService,
+        Path spillDirectory,
+        long memoryBudgetBytes
+    ) {
+        this(userRetriever, userFoldersRetriever, globalFoldersRetriever, rules, executorService, spillDirectory,
+            memoryBudgetBytes, new AtomicLong()::incrementAndGet);
+    }
+
+    /**
+     * @param globalIndexVersions hands out the version of each {@code /folders} download, shared with
+     *                            the index of single-user checks so that reports never reuse a version
+     */
+    public SortMergeInconsistencyDetectionService(
+        ForRetrievingUsers userRetriever,
+        ForRetrievingUserFolders userFoldersRetriever,
+        ForRetrievingGlobalFolders globalFoldersRetriever,
+        InconsistencyRules rules,
+        ExecutorService executorService,
+        Path spillDirectory,
+        long memoryBudgetBytes,
+        LongSupplier globalIndexVersions
+    ) {
+        this.userRetriever = Objects.requireNonNull(userRetriever, "userRetriever cannot be null");
+        this.userFoldersRetriever = Objects.requireNonNull(userFoldersRetriever, "userFoldersRetriever cannot be null");
+        this.globalFoldersRetriever = Objects.requireNonNull(globalFoldersRetriever, "globalFoldersRetriever cannot be null");
+        this.rules = Objects.requireNonNull(rules, "rules cannot be null");
+        this.executorService = Objects.requireNonNull(executorService, "executorService cannot be null");
+        this.spillDirectory = Objects.requireNonNull(spillDirectory, "spillDirectory cannot be null");
+        if (memoryBudgetBytes <= 0) {
+            throw new IllegalArgumentException("Memory budget must be positive");
+        }
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.globalIndexVersions = Objects.requireNonNull(globalIndexVersions, "globalIndexVersions cannot be null");
+    }
+
+    @Override
+    public InconsistencyReport detectInconsistencies() {
+        // Only owners returned by /users are compared, as in the in-memory path
+        OwnerCoverage coverage = new OwnerCoverage(userRetriever.retrieveAllUsers());
+        List<Inconsistency> ownershipInconsistencies = new ArrayList<>();
+        long globalIndexVersion = globalIndexVersions.getAsLong();
+
+        try (ExternalFolderSorter globalSide = new ExternalFolderSorter(spillDirectory, memoryBudgetBytes / 2);
+             ExternalFolderSorter userSide = new ExternalFolderSorter(spillDirectory, memoryBudgetBytes / 2)) {
+
+            long[] globalSequence = {0};
+            globalFoldersRetriever.streamAllGlobalFolders(folder -> {
+                if (coverage.markOwner(folder.getUserEmail())) {
+                    globalSide.add(new FolderRecord(folder.getUserEmail(), folder.getId(), folder.getName(), globalSequence[0]++));
+                } else {
+                    ownershipInconsistencies.add(Inconsistency.orphanedOwner(folder.getId(), folder.getUserEmail(), folder.getName()));
+                }
+            });
+            coverage.forEachUserWithoutGlobalFolders(user ->
+                ownershipInconsistencies.add(Inconsistency.userWithoutGlobalFolders(user)));
+
+            spillUserFoldersAsFetched(coverage.users(), userSide);
+
+            List<Inconsistency> inconsistencies = mergeJoin(userSide.sorted(), globalSide.sorted());
+            inconsistencies.addAll(ownershipInconsistencies);
+            return InconsistencyReport.of(inconsistencies, globalIndexVersion);
+        }
+    }
+
+    /**
+     * Fetches user folders in parallel and spills each user as soon as it arrives,
+     * instead of holding every user's folders until all fetches complete. At most
+     * {@value #MAX_PENDING_FETCHES} fetches are pending, so that results cannot pile up
+     * when spilling falls behind.
+     */
+    private void spillUserFoldersAsFetched(List<Email> users, ExternalFolderSorter userSide) {
+        CompletionService<UserFolders> completionService = new ExecutorCompletionService<>(executorService);
+        Set<Future<UserFolders>> pending = new LinkedHashSet<>();
+        Iterator<Email> remaining = users.iterator();
+
+        long sequence = 0;
+        try {
+            while (remaining.hasNext() && pending.size() < MAX_PENDING_FETCHES) {
+                Email email = remaining.next();
+                pending.add(completionService.submit(() -> userFoldersRetriever.retrieveFoldersForUser(email)));
+            }
+            while (!pending.isEmpty()) {
+                Future<UserFolders> completed = completionService.take();
+                pending.remove(completed);
+                UserFolders userFolders = completed.get();
+                if (remaining.hasNext()) {
+                    Email email = remaining.next();
+                    pending.add(completionService.submit(() -> userFoldersRetriever.retrieveFoldersForUser(email)));
+                }
+                for (UserFolder folder : userFolders.getFolders()) {
+                    userSide.add(new FolderRecord(userFolders.getUserEmail(), folder.getId(), folder.getName(), sequence++));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while fetching user folders", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error fetching user folders", e.getCause());
+        } finally {
+            // No-op once every fetch completed, stops the others when spilling fails or the scan is interrupted
+            InconsistencyDetectionService.cancelNewestFirst(new ArrayList<>(pending));
+        }
+    }
+
+    /**
+     * Streaming merge join over both sorted sides. Only rows sharing one (user, folder id)
+     * key are held at a time, plus the inconsistencies of the current user, which are paired
+     * for id drift once the join moves past the user.
+     */
+    private List<Inconsistency> mergeJoin(Iterator<FolderRecord> userRecords, Iterator<FolderRecord> globalRecords) {
+        List<Inconsistency> inconsistencies = new ArrayList<>();
+        List<Inconsistency> userInconsistencies = new ArrayList<>();
+        Email currentUser = null;
+        PeekingIterator userSide = new PeekingIterator(userRecords);
+        PeekingIterator globalSide = new PeekingIterator(globalRecords);
+
+        while (userSide.hasNext() || globalSide.hasNext()) {
+            FolderRecord key = smallestHead(userSide, globalSide);
+            List<FolderRecord> userGroup = userSide.takeGroup(key);
+            List<FolderRecord> globalGroup = globalSide.takeGroup(key);
+
+            // Both sides are sorted by user first, so a user's key groups are contiguous
+            if (!key.userEmail().equals(currentUser)) {
+                rules.pairUserInconsistencies(userInconsistencies, inconsistencies::add);
+                userInconsistencies.clear();
+                currentUser = key.userEmail();
+            }
+
+            // Global rows keep source order within a group, so the first one wins on duplicates
+            rules.inspectKeyGroup(
+                key.userEmail(),
+                userGroup.stream().map(user -> UserFolder.of(user.folderId(), user.name())).toList(),
+                globalGroup.stream().map(global -> GlobalFolder.of(global.folderId(), global.userEmail(), global.name())).toList(),
+                userInconsistencies::add
+            );
+        }
+        rules.pairUserInconsistencies(userInconsistencies, inconsistencies::add);
+        return inconsistencies;
+    }
+
+    private FolderRecord smallestHead(PeekingIterator userSide, PeekingIterator globalSide) {
+        if (!userSide.hasNext()) {
+            return globalSide.peek();
+        }
+        if (!globalSide.hasNext()) {
+            return userSide.peek();
+        }
+        return FolderRecord.KEY_ORDER.compare(userSide.peek(), globalSide.peek()) <= 0
+            ? userSide.peek()
+            : globalSide.peek();
+    }
+
+    private static final class PeekingIterator {
+
+        private final Iterator<FolderRecord> delegate;
+        private FolderRecord head;
+
+        private PeekingIterator(Iterator<FolderRecord> delegate) {
+            this.delegate = delegate;
+            this.head = delegate.hasNext() ? delegate.next() : null;
+        }
+
+        boolean hasNext() {
+            return head != null;
+        }
+
+        FolderRecord peek() {
+            return head;
+        }
+
+        List<FolderRecord> takeGroup(FolderRecord key) {
+            if (head == null || FolderRecord.KEY_ORDER.compare(head, key) != 0) {
+                return List.of();
+            }
+            List<FolderRecord> group = new ArrayList<>(1);
+            while (head != null && FolderRecord.KEY_ORDER.compare(head, key) == 0) {
+                group.add(head);
+                head = delegate.hasNext() ? delegate.next() : null;
+            }
+            return group;
+        }
+    }
+}
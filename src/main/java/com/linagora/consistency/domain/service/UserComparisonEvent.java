@@ -0,0 +1,36 @@
+package com.linagora.consistency.domain.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of one comparison task of {@link ParallelUserComparison}:
+ * a whole user, or one range of an oversized user.
+ */
+@Name("com.linagora.consistency.UserComparison")
+@Label("User Comparison")
+@Category("Consistency")
+@Description("Comparison of a user's folders, or of a range of them, against the global index")
+@StackTrace(false)
+final class UserComparisonEvent extends Event {
+
+    @Label("Email")
+    String email;
+
+    @Label("User Folders")
+    int userFolders;
+
+    @Label("Global Folders")
+    int globalFolders;
+
+    @Label("Inconsistencies")
+    int inconsistencies;
+
+    @Label("Split")
+    @Description("Whether this is only a range of the user's folders")
+    boolean split;
+}
@@ -0,0 +1,47 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.UserFolders;
+import com.linagora.consistency.domain.port.driven.ForRetrievingUserFolders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Fetches the folders of many users in parallel, shared by the services performing full loads.
+ */
+final class UserFoldersFetcher {
+
+    private UserFoldersFetcher() {
+    }
+
+    static List<UserFolders> fetchAllInParallel(
+        ForRetrievingUserFolders userFoldersRetriever,
+        List<Email> users,
+        ExecutorService executorService
+    ) {
+        List<Callable<UserFolders>> tasks = users.stream()
+            .map(email -> (Callable<UserFolders>) () -> userFoldersRetriever.retrieveFoldersForUser(email))
+            .toList();
+
+        try {
+            List<Future<UserFolders>> futures = executorService.invokeAll(tasks);
+            List<UserFolders> results = new ArrayList<>();
+
+            for (Future<UserFolders> future : futures) {
+                results.add(future.get());
+            }
+
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while fetching user folders", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error fetching user folders", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.linagora.consistency.domain.service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares one thread pool between lanes, one per tenant, with weighted-fair queueing.
+ * Each lane queues its own tasks; whenever a pool slot is free, the backlogged lane with the
+ * smallest virtual finish time runs its next task, and that time advances by {@code 1 / weight}.
+ * Over any busy period, lanes therefore get pool slots in proportion to their weights, so a tenant
+ * with a huge backlog cannot starve the others. A lane never runs more than its own concurrency quota,
+ * and a lane becoming backlogged again starts from the current virtual time rather than from credit
+ * accumulated while idle.
+ */
+public final class WeightedFairExecutor {
+
+    private final ExecutorService executorService;
+    private final int parallelism;
+    private final List<Lane> lanes = new ArrayList<>();
+    private int running;
+    private double virtualTime;
+
+    /**
+     * @param executorService the shared pool
+     * @param parallelism number of tasks handed to the pool at once, usually its thread count
+     */
+    public WeightedFairExecutor(ExecutorService executorService, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.executorService = Objects.requireNonNull(executorService, "executorService cannot be null");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Adds a lane.
+     *
+     * @param name name of the lane, for statistics
+     * @param weight share of the pool relative to other backlogged lanes
+     * @param maxConcurrency maximum number of tasks of this lane running at once
+     * @return an executor service queueing its tasks in the new lane
+     */
+    public Lane lane(String name, int weight, int maxConcurrency) {
+        if (weight <= 0 || maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Weight and concurrency quota must be positive");
+        }
+        Lane lane = new Lane(Objects.requireNonNull(name, "name cannot be null"), weight, maxConcurrency);
+        synchronized (this) {
+            lanes.add(lane);
+        }
+        return lane;
+    }
+
+    private void dispatch() {
+        List<Runnable> dispatched = new ArrayList<>();
+        synchronized (this) {
+            while (running < parallelism) {
+                Lane next = null;
+                for (Lane lane : lanes) {
+                    if (!lane.queue.isEmpty() && lane.running < lane.maxConcurrency
+                        && (next == null || lane.virtualFinish < next.virtualFinish)) {
+                        next = lane;
+                    }
+                }
+                if (next == null) {
+                    break;
+                }
+                virtualTime = next.virtualFinish;
+                next.virtualFinish += 1.0 / next.weight;
+                next.running++;
+                running++;
+                dispatched.add(next.wrap(next.queue.poll()));
+            }
+        }
+        // Hand over outside the lock: the pool may run the task on the calling thread
+        for (Runnable task : dispatched) {
+            try {
+                executorService.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Caller runs, so that the lane's bookkeeping and waiting callers still complete
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * Executor service view of one lane. Shutting a lane down only stops it from accepting tasks;
+     * the shared pool is owned by the caller.
+     */
+    public final class Lane extends AbstractExecutorService {
+
+        private final String name;
+        private final int weight;
+        private final int maxConcurrency;
+        private final Queue<Runnable> queue = new ArrayDeque<>();
+        private int running;
+        private double virtualFinish;
+        private long completedTasks;
+        private long busyNanos;
+        private boolean shutdown;
+
+        private Lane(String name, int weight, int maxConcurrency) {
+            this.name = name;
+            this.weight = weight;
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            Objects.requireNonNull(command, "command cannot be null");
+            synchronized (WeightedFairExecutor.this) {
+                if (shutdown) {
+                    throw new RejectedExecutionException("Lane " + name + " is shut down");
+                }
+                if (queue.isEmpty() && running == 0) {
+                    // Newly backlogged: no credit for the time spent idle
+                    virtualFinish = Math.max(virtualFinish, virtualTime);
+                }
+                queue.add(command);
+            }
+            dispatch();
+        }
+
+        private Runnable wrap(Runnable task) {
+            return () -> {
+                long start = System.nanoTime();
+                try {
+                    task.run();
+                } finally {
+                    synchronized (WeightedFairExecutor.this) {
+                        busyNanos += System.nanoTime() - start;
+                        completedTasks++;
+                        running--;
+                        WeightedFairExecutor.this.running--;
+                        WeightedFairExecutor.this.notifyAll();
+                    }
+                    dispatch();
+                }
+            };
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public int getQueuedTasks() {
+            synchronized (WeightedFairExecutor.this) {
+                return queue.size();
+            }
+        }
+
+        public int getRunningTasks() {
+            synchronized (WeightedFairExecutor.this) {
+                return running;
+            }
+        }
+
+        public long getCompletedTasks() {
+            synchronized (WeightedFairExecutor.this) {
+                return completedTasks;
+            }
+        }
+
+        /**
+         * @return total time the lane's tasks spent running
+         */
+        public Duration getBusyTime() {
+            synchronized (WeightedFairExecutor.this) {
+                return Duration.ofNanos(busyNanos);
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            synchronized (WeightedFairExecutor.this) {
+                shutdown = true;
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            synchronized (WeightedFairExecutor.this) {
+                shutdown = true;
+                List<Runnable> pending = new ArrayList<>(queue);
+                queue.clear();
+                WeightedFairExecutor.this.notifyAll();
+                return pending;
+            }
+        }
+
+        @Override
+        public boolean isShutdown() {
+            synchronized (WeightedFairExecutor.this) {
+                return shutdown;
+            }
+        }
+
+        @Override
+        public boolean isTerminated() {
+            synchronized (WeightedFairExecutor.this) {
+                return shutdown && queue.isEmpty() && running == 0;
+            }
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            synchronized (WeightedFairExecutor.this) {
+                while (!isTerminated()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(WeightedFairExecutor.this, remaining);
+                }
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.linagora.consistency.adapter.driven;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgingPolicyTest {
+
+    @Test
+    void shouldNotHedgeBeforeEnoughSamples() {
+        HedgingPolicy policy = new HedgingPolicy(0.9, 0.05, 10);
+        for (int i = 0; i < 9; i++) {
+            policy.recordLatency(Duration.ofMillis(i));
+        }
+
+        assertEquals(Optional.empty(), policy.onRequest());
+    }
+
+    @Test
+    void shouldHedgeAfterLatencyPercentile() {
+        HedgingPolicy policy = new HedgingPolicy(0.9, 0.05, 10);
+        for (int i = 1; i <= 10; i++) {
+            policy.recordLatency(Duration.ofMillis(i * 10));
+        }
+
+        assertEquals(Optional.of(Duration.ofMillis(90)), policy.onRequest());
+    }
+
+    @Test
+    void shouldCapHedgesToBudget() {
+        HedgingPolicy policy = new HedgingPolicy(0.9, 0.05, 1);
+
+        int hedges = 0;
+        for (int i = 0; i < 1_000; i++) {
+            policy.onRequest();
+            if (policy.tryAcquireHedge()) {
+                hedges++;
+            }
+        }
+
+        assertEquals(50, hedges);
+        assertEquals(50, policy.getHedgeCount());
+        assertEquals(1_000, policy.getRequestCount());
+    }
+}
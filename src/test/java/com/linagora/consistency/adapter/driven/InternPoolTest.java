@@ -0,0 +1,70 @@
+package com.linagora.consistency.adapter.driven;
+
+import com.linagora.consistency.domain.model.Email;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InternPoolTest {
+
+    @Test
+    void shouldReturnCanonicalInstanceForRepeatedValues() {
+        InternPool<Email> pool = new InternPool<>(Email::of, 10);
+
+        Email first = pool.intern(new String("john@example.com"));
+        Email second = pool.intern(new String("john@example.com"));
+
+        assertSame(first, second);
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    void shouldEvictValuesNoLongerInUseOnceFull() {
+        InternPool<Email> pool = new InternPool<>(Email::of, 2);
+        pool.intern("john@example.com");
+        pool.intern("alice@example.com");
+
+        Email first = pool.intern("bob@example.com");
+        Email second = pool.intern("bob@example.com");
+
+        assertSame(first, second);
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    void shouldKeepValuesUsedSinceTheLastEviction() {
+        InternPool<Email> pool = new InternPool<>(Email::of, 2);
+        Email john = pool.intern("john@example.com");
+        pool.intern("alice@example.com");
+        pool.intern("bob@example.com");
+
+        // john was evicted first, alice next unless used again
+        Email bob = pool.intern("bob@example.com");
+        pool.intern("carol@example.com");
+
+        assertNotSame(john, pool.intern("john@example.com"));
+        assertSame(bob, pool.intern("bob@example.com"));
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    void shouldNotPoolWithZeroSize() {
+        InternPool<Email> pool = new InternPool<>(Email::of, 0);
+
+        Email first = pool.intern("john@example.com");
+        Email second = pool.intern("john@example.com");
+
+        assertEquals(first, second);
+        assertNotSame(first, second);
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    void shouldValidateValuesThroughFactory() {
+        InternPool<Email> pool = new InternPool<>(Email::of, 10);
+
+        assertThrows(IllegalArgumentException.class, () -> pool.intern(null));
+        assertThrows(IllegalArgumentException.class, () -> pool.intern("invalid-email"));
+        assertEquals(0, pool.size());
+    }
+}
@@ -0,0 +1,179 @@
+package com.linagora.consistency.adapter.driven;
+
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.FolderName;
+import com.linagora.consistency.domain.model.UserFolders;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RestApiAdapterTest {
+
+    private static final String FOLDERS = "[{\"id\":\"550e8400-e29b-41d4-a716-446655440000\",\"name\":\"Inbox\"}]";
+    private static final Email USER = Email.of("john@example.com");
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger cancellations = new AtomicInteger();
+
+    @Test
+    void shouldHedgeStragglerAndCancelIt() {
+        // Given - every call is fast except the 11th
+        HedgingPolicy policy = new HedgingPolicy(0.9, 0.5, 10);
+        RestApiAdapter adapter = adapter(call -> call == 11 ? Duration.ofSeconds(5) : Duration.ofMillis(5), policy);
+        for (int i = 0; i < 10; i++) {
+            adapter.retrieveFoldersForUser(USER);
+        }
+
+        // When
+        long start = System.nanoTime();
+        UserFolders folders = adapter.retrieveFoldersForUser(USER);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        // Then
+        assertEquals(FolderName.of("Inbox"), folders.getFolders().get(0).getName());
+        assertTrue(elapsed.compareTo(Duration.ofSeconds(2)) < 0, "took " + elapsed);
+        assertEquals(12, calls.get());
+        assertEquals(1, policy.getHedgeCount());
+        assertEquals(1, cancellations.get());
+    }
+
+    @Test
+    void shouldWaitForPrimaryWhenHedgeFails() {
+        // Given - the 11th call is slow, its duplicate fails fast
+        HedgingPolicy policy = new HedgingPolicy(0.9, 0.5, 10);
+        RestApiAdapter adapter = adapter(
+            call -> call == 11 ? Duration.ofMillis(300) : Duration.ofMillis(5),
+            call -> call == 12 ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK,
+            policy
+        );
+        for (int i = 0; i < 10; i++) {
+            adapter.retrieveFoldersForUser(USER);
+        }
+
+        // When
+        UserFolders folders = adapter.retrieveFoldersForUser(USER);
+
+        // Then
+        assertEquals(FolderName.of("Inbox"), folders.getFolders().get(0).getName());
+        assertEquals(12, calls.get());
+        assertEquals(1, policy.getHedgeCount());
+    }
+
+    @Test
+    void shouldNotHedgeWithoutBudget() {
+        // Given
+        HedgingPolicy policy = new HedgingPolicy(0.9, 0, 10);
+        RestApiAdapter adapter = adapter(call -> call == 11 ? Duration.ofMillis(300) : Duration.ofMillis(5), policy);
+
+        // When
+        for (int i = 0; i < 11; i++) {
+            adapter.retrieveFoldersForUser(USER);
+        }
+
+        // Then
+        assertEquals(11, calls.get());
+        assertEquals(0, policy.getHedgeCount());
+    }
+
+    @Test
+    void shouldRecordUpstreamCallEvents() throws Exception {
+        // Given
+        RestApiAdapter adapter = adapter(call -> Duration.ZERO, new HedgingPolicy(0.9, 0, 10));
+        Path file = Files.createTempFile("upstream-", ".jfr");
+
+        // When
+        try (Recording recording = new Recording()) {
+            recording.enable("com.linagora.consistency.UpstreamCall");
+            recording.start();
+            adapter.retrieveFoldersForUser(USER);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        // Then
+        try {
+            RecordedEvent call = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals("com.linagora.consistency.UpstreamCall"))
+                .findFirst().orElseThrow();
+            assertEquals("GET", call.getString("method"));
+            assertEquals("/users/{email}/folders", call.getString("endpoint"));
+            assertEquals("john@example.com", call.getString("email"));
+            assertEquals(200, call.getInt("status"));
+            assertEquals(FOLDERS.length(), call.getLong("bytes"));
+            assertNull(call.getString("error"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void shouldDisposeTheExchangeWhenTheCallingThreadIsInterrupted() throws Exception {
+        // Given a call that would take 30 seconds
+        RestApiAdapter adapter = adapter(call -> Duration.ofSeconds(30), new HedgingPolicy(0.9, 0, 10));
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        AtomicBoolean interruptRestored = new AtomicBoolean();
+        Thread caller = new Thread(() -> {
+            try {
+                adapter.retrieveFoldersForUser(USER);
+            } catch (RuntimeException e) {
+                failure.set(e);
+                interruptRestored.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        caller.start();
+        while (calls.get() == 0) {
+            Thread.onSpinWait();
+        }
+
+        // When
+        long start = System.nanoTime();
+        caller.interrupt();
+        caller.join(5_000);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        // Then
+        assertFalse(caller.isAlive());
+        assertTrue(elapsed.compareTo(Duration.ofSeconds(1)) < 0, "took " + elapsed);
+        assertInstanceOf(InterruptedException.class, Exceptions.unwrap(failure.get()));
+        assertTrue(interruptRestored.get());
+        assertEquals(1, cancellations.get());
+    }
+
+    private RestApiAdapter adapter(IntFunction<Duration> latencyOfCall, HedgingPolicy policy) {
+        return adapter(latencyOfCall, call -> HttpStatus.OK, policy);
+    }
+
+    private RestApiAdapter adapter(IntFunction<Duration> latencyOfCall, IntFunction<HttpStatus> statusOfCall, HedgingPolicy policy) {
+        ExchangeFunction exchange = request -> {
+            int call = calls.incrementAndGet();
+            return Mono.delay(latencyOfCall.apply(call))
+                .map(tick -> ClientResponse.create(statusOfCall.apply(call))
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(FOLDERS)
+                    .build())
+                .doOnCancel(cancellations::incrementAndGet);
+        };
+        WebClient webClient = WebClient.builder().exchangeFunction(exchange).build();
+        return new RestApiAdapter(webClient, Duration.ofSeconds(10), false, 100, Optional.of(policy));
+    }
+}
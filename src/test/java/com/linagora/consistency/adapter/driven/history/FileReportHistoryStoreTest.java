@@ -0,0 +1,173 @@
+package com.linagora.consistency.adapter.driven.history;
+
+import com.linagora.consistency.domain.model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileReportHistoryStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final InconsistencyReport report = InconsistencyReport.of(List.of(
+        Inconsistency.missingInGlobal(
+            FolderId.of("550e8400-e29b-41d4-a716-446655440000"),
+            Email.of("john@example.com"),
+            FolderName.of("Reçus")
+        ),
+        Inconsistency.userWithoutGlobalFolders(Email.of("alice@exämple.com"))
+    ));
+
+    private ReportSummary summary(long generation) {
+        return ReportSummary.summarize(generation, Instant.parse("2024-01-01T00:00:00.123456789Z").plusSeconds(generation), report);
+    }
+
+    private static FileReportHistoryStore store(Path historyFile) {
+        return new FileReportHistoryStore(historyFile, 1000, 100);
+    }
+
+    @Test
+    void shouldReturnEmptyWhenNothingWasStored() {
+        FileReportHistoryStore store = store(directory.resolve("history.bin"));
+
+        assertTrue(store.loadReportSummaries(10).isEmpty());
+    }
+
+    @Test
+    void shouldReloadAppendedSummariesAfterRestart() {
+        Path historyFile = directory.resolve("nested/history.bin");
+        FileReportHistoryStore store = store(historyFile);
+        store.appendReportSummary(summary(1));
+        store.appendReportSummary(summary(2));
+        store.appendReportSummary(summary(3));
+
+        List<ReportSummary> reloaded = store(historyFile).loadReportSummaries(2);
+
+        assertEquals(List.of(summary(2).withoutDetails(), summary(3).withoutDetails()), reloaded);
+        assertEquals(2, reloaded.get(0).getInconsistentUsers());
+    }
+
+    @Test
+    void shouldLoadOneGenerationWithItsDetails() {
+        Path historyFile = directory.resolve("history.bin");
+        FileReportHistoryStore store = store(historyFile);
+        store.appendReportSummary(summary(1));
+        store.appendReportSummary(summary(2));
+
+        FileReportHistoryStore restarted = store(historyFile);
+
+        assertEquals(summary(1), restarted.loadReportSummary(1).orElseThrow());
+        assertTrue(restarted.loadReportSummary(1).orElseThrow().hasDetails());
+        assertTrue(restarted.loadReportSummary(3).isEmpty());
+    }
+
+    @Test
+    void shouldDropTornLastRecordAndKeepAppending() throws IOException {
+        Path historyFile = directory.resolve("history.bin");
+        FileReportHistoryStore store = store(historyFile);
+        store.appendReportSummary(summary(1));
+        long validSize = Files.size(historyFile);
+        store.appendReportSummary(summary(2));
+        // Simulate a crash in the middle of the second append
+        try (var channel = Files.newByteChannel(historyFile, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(historyFile) - 5);
+        }
+
+        FileReportHistoryStore restarted = store(historyFile);
+        assertEquals(List.of(summary(1).withoutDetails()), restarted.loadReportSummaries(10));
+        assertEquals(validSize, Files.size(historyFile));
+
+        restarted.appendReportSummary(summary(2));
+        assertEquals(List.of(summary(1).withoutDetails(), summary(2).withoutDetails()), restarted.loadReportSummaries(10));
+    }
+
+    @Test
+    void shouldRejectForeignFile() throws IOException {
+        Path historyFile = directory.resolve("history.bin");
+        Files.writeString(historyFile, "not a history file");
+
+        assertThrows(RuntimeException.class, () -> store(historyFile).loadReportSummaries(10));
+    }
+
+    @Test
+    void shouldCompactOlderGenerationsDownToCounts() throws IOException {
+        // Given - 4 generations retained, the 2 latest with details
+        Path historyFile = directory.resolve("history.bin");
+        FileReportHistoryStore store = new FileReportHistoryStore(historyFile, 4, 2);
+        for (long generation = 1; generation <= 4; generation++) {
+            store.appendReportSummary(summary(generation));
+        }
+        long uncompactedSize = Files.size(historyFile);
+
+        // When - a fifth generation with details exceeds twice the detailed ones
+        store.appendReportSummary(summary(5));
+
+        // Then
+        assertTrue(Files.size(historyFile) < uncompactedSize);
+        FileReportHistoryStore restarted = new FileReportHistoryStore(historyFile, 4, 2);
+        assertEquals(
+            List.of(summary(2).withoutDetails(), summary(3).withoutDetails(), summary(4).withoutDetails(), summary(5).withoutDetails()),
+            restarted.loadReportSummaries(10)
+        );
+        assertTrue(restarted.loadReportSummary(1).isEmpty());
+        assertTrue(restarted.loadReportSummary(3).isEmpty());
+        assertEquals(summary(4), restarted.loadReportSummary(4).orElseThrow());
+        assertEquals(summary(5), store.loadReportSummary(5).orElseThrow());
+
+        restarted.appendReportSummary(summary(6));
+        assertEquals(summary(6), restarted.loadReportSummary(6).orElseThrow());
+    }
+
+    @Test
+    void shouldRewriteVersion1Files() throws IOException {
+        // Given - a version 1 record: no details flag, always with details
+        Path historyFile = directory.resolve("history.bin");
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(payload)) {
+            out.writeLong(7);
+            out.writeLong(1_700_000_000L);
+            out.writeInt(0);
+            out.writeInt(1);
+            out.writeUTF(InconsistencyType.MISSING_IN_GLOBAL.name());
+            out.writeLong(1);
+            out.writeInt(1);
+            out.writeUTF("john@example.com");
+            out.writeInt(1);
+            out.writeInt(1);
+            out.writeLong(42);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload.toByteArray());
+        ByteBuffer file = ByteBuffer.allocate(4 * Integer.BYTES + payload.size())
+            .putInt(FileReportHistoryStore.MAGIC)
+            .putInt(1)
+            .putInt(payload.size())
+            .put(payload.toByteArray())
+            .putInt((int) crc.getValue());
+        Files.write(historyFile, file.array());
+
+        // When
+        FileReportHistoryStore store = store(historyFile);
+        ReportSummary loaded = store.loadReportSummary(7).orElseThrow();
+
+        // Then
+        assertEquals(Map.of(Email.of("john@example.com"), 1), loaded.getCountsByUser());
+        assertEquals(List.of(loaded.withoutDetails()), store.loadReportSummaries(10));
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(historyFile))) {
+            assertEquals(FileReportHistoryStore.MAGIC, in.readInt());
+            assertEquals(FileReportHistoryStore.VERSION, in.readInt());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.linagora.consistency.adapter.driven.index;
+
+import com.linagora.consistency.domain.model.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedGlobalFolderIndexStoreTest {
+
+    private static final Instant BUILT_AT = Instant.parse("2024-01-01T10:15:30.123Z");
+
+    @TempDir
+    Path directory;
+
+    private final Email john = Email.of("john@example.com");
+    private final Email alice = Email.of("alice@exämple.com");
+    private final FolderId inbox = FolderId.of("550e8400-e29b-41d4-a716-446655440000");
+    private final FolderId sent = FolderId.of("550E8400-E29B-41D4-A716-446655440001");
+    private final FolderId archive = FolderId.of("00000000-0000-0000-0000-000000000002");
+
+    private final List<GlobalFolder> globalFolders = List.of(
+        GlobalFolder.of(inbox, john, FolderName.of("Inbox")),
+        GlobalFolder.of(sent, john, FolderName.of("Envoyés")),
+        GlobalFolder.of(inbox, john, FolderName.of("Duplicate")),
+        GlobalFolder.of(archive, alice, FolderName.of("Inbox"))
+    );
+
+    @Test
+    void shouldReturnEmptyWhenNothingWasStored() {
+        MappedGlobalFolderIndexStore store = new MappedGlobalFolderIndexStore(directory.resolve("index.bin"));
+
+        assertTrue(store.loadGlobalFolderIndex().isEmpty());
+    }
+
+    @Test
+    void shouldServeSameFoldersAsInMemoryIndex() {
+        MappedGlobalFolderIndexStore store = new MappedGlobalFolderIndexStore(directory.resolve("index.bin"));
+
+        store.storeGlobalFolderIndex(GlobalFolderIndex.of(globalFolders), BUILT_AT);
+        GlobalFolderIndex mapped = store.loadGlobalFolderIndex().orElseThrow().index();
+        GlobalFolderIndex inMemory = GlobalFolderIndex.of(globalFolders);
+
+        assertEquals(inMemory.foldersOf(john), mapped.foldersOf(john));
+        assertEquals(inMemory.foldersOf(alice), mapped.foldersOf(alice));
+        assertEquals(inMemory.owners(), mapped.owners());
+        assertTrue(mapped.foldersOf(Email.of("nobody@example.com")).isEmpty());
+    }
+
+    @Test
+    void shouldReloadStoredIndexAfterRestart() {
+        Path indexFile = directory.resolve("nested/index.bin");
+        new MappedGlobalFolderIndexStore(indexFile).storeGlobalFolderIndex(GlobalFolderIndex.of(globalFolders), BUILT_AT);
+
+        GlobalFolderIndex reloaded = new MappedGlobalFolderIndexStore(indexFile).loadGlobalFolderIndex().orElseThrow().index();
+
+        Map<FolderId, GlobalFolder> johnFolders = reloaded.foldersOf(john);
+        assertEquals(Set.of(inbox, sent), johnFolders.keySet());
+        assertEquals(FolderName.of("Inbox"), johnFolders.get(inbox).getName());
+        assertEquals(sent.getValue(), johnFolders.get(sent).getId().getValue());
+    }
+
+    @Test
+    void shouldReplacePreviousIndex() {
+        MappedGlobalFolderIndexStore store = new MappedGlobalFolderIndexStore(directory.resolve("index.bin"));
+        store.storeGlobalFolderIndex(GlobalFolderIndex.of(globalFolders), BUILT_AT);
+        GlobalFolderIndex previous = store.loadGlobalFolderIndex().orElseThrow().index();
+
+        store.storeGlobalFolderIndex(GlobalFolderIndex.of(List.of(GlobalFolder.of(archive, john, FolderName.of("Archive")))), BUILT_AT);
+        GlobalFolderIndex current = store.loadGlobalFolderIndex().orElseThrow().index();
+
+        assertEquals(Set.of(archive), current.foldersOf(john).keySet());
+        assertEquals(Set.of(inbox, sent), previous.foldersOf(john).keySet());
+    }
+
+    @Test
+    void shouldKeepBuildTimeAcrossRestarts() {
+        Path indexFile = directory.resolve("index.bin");
+        new MappedGlobalFolderIndexStore(indexFile).storeGlobalFolderIndex(GlobalFolderIndex.of(globalFolders), BUILT_AT);
+
+        assertEquals(BUILT_AT, new MappedGlobalFolderIndexStore(indexFile).loadGlobalFolderIndex().orElseThrow().builtAt());
+    }
+
+    @Test
+    void shouldNotLoadFileCutShort() throws IOException {
+        Path indexFile = directory.resolve("index.bin");
+        new MappedGlobalFolderIndexStore(indexFile).storeGlobalFolderIndex(GlobalFolderIndex.of(globalFolders), BUILT_AT);
+        // Simulate a crash while the file was written in place
+        try (var channel = Files.newByteChannel(indexFile, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(indexFile) - 10);
+        }
+
+        assertTrue(new MappedGlobalFolderIndexStore(indexFile).loadGlobalFolderIndex().isEmpty());
+    }
+
+    @Test
+    void shouldNotLoadFileWhoseHeaderOverstatesItsSections() throws IOException {
+        Path indexFile = directory.resolve("index.bin");
+        new MappedGlobalFolderIndexStore(indexFile).storeGlobalFolderIndex(GlobalFolderIndex.of(globalFolders), BUILT_AT);
+        // Email count far beyond the file
+        try (var channel = Files.newByteChannel(indexFile, StandardOpenOption.WRITE)) {
+            channel.position(2 * Integer.BYTES + Long.BYTES).write(ByteBuffer.allocate(Integer.BYTES).putInt(0, 1_000_000));
+        }
+
+        assertTrue(new MappedGlobalFolderIndexStore(indexFile).loadGlobalFolderIndex().isEmpty());
+    }
+}
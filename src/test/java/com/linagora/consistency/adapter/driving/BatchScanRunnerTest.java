@@ -0,0 +1,69 @@
+package com.linagora.consistency.adapter.driving;
+
+import com.linagora.consistency.domain.model.*;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchScanRunnerTest {
+
+    private final Email user = Email.of("john@example.com");
+    private final FolderId folderId = FolderId.of("550e8400-e29b-41d4-a716-446655440000");
+
+    @Test
+    void shouldExitWithZeroAndWriteEmptyReportWhenConsistent() throws IOException {
+        // Given
+        BatchScanRunner runner = new BatchScanRunner(InconsistencyReport::empty);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        int status = runner.run(output, BatchScanRunner.Format.JSON);
+
+        // Then
+        assertEquals(BatchScanRunner.EXIT_CONSISTENT, status);
+        JsonNode json = JsonMapper.builder().build().readTree(output.toByteArray());
+        assertEquals(0, json.get("summary").get("totalInconsistencies").asInt());
+    }
+
+    @Test
+    void shouldExitWithOneAndStreamReportWhenInconsistent() throws IOException {
+        // Given
+        InconsistencyReport report = InconsistencyReport.of(List.of(
+            Inconsistency.missingInGlobal(folderId, user, FolderName.of("Personal"))
+        ));
+        BatchScanRunner runner = new BatchScanRunner(() -> report);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        int status = runner.run(output, BatchScanRunner.Format.JSON);
+
+        // Then
+        assertEquals(BatchScanRunner.EXIT_INCONSISTENT, status);
+        JsonNode json = JsonMapper.builder().build().readTree(output.toByteArray());
+        assertEquals("MISSING_IN_GLOBAL", json.get("inconsistencies").get(0).get("type").asString());
+        assertEquals(folderId.getValue(), json.get("inconsistencies").get(0).get("folderId").asString());
+    }
+
+    @Test
+    void shouldWriteBinaryEncoding() throws IOException {
+        // Given
+        InconsistencyReport report = InconsistencyReport.of(List.of(
+            Inconsistency.missingInGlobal(folderId, user, FolderName.of("Personal"))
+        ));
+        BatchScanRunner runner = new BatchScanRunner(() -> report);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        runner.run(output, BatchScanRunner.Format.BINARY);
+
+        // Then
+        assertArrayEquals(BinaryReportWriter.MAGIC, Arrays.copyOf(output.toByteArray(), BinaryReportWriter.MAGIC.length));
+    }
+}
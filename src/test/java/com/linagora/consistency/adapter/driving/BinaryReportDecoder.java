@@ -0,0 +1,104 @@
+package com.linagora.consistency.adapter.driving;
+
+import com.linagora.consistency.domain.model.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reference decoder for the binary format of {@link BinaryReportWriter}, as a consumer would implement it.
+ */
+final class BinaryReportDecoder {
+
+    private BinaryReportDecoder() {
+    }
+
+    /**
+     * Decodes a whole document, checking that nothing follows the last record.
+     */
+    static InconsistencyReport decode(byte[] bytes) {
+        ByteBuffer input = ByteBuffer.wrap(bytes);
+        byte[] magic = new byte[3];
+        input.get(magic);
+        assertArrayEquals(BinaryReportWriter.MAGIC, magic);
+        assertEquals(BinaryReportWriter.VERSION, input.get());
+
+        InconsistencyType[] types = new InconsistencyType[(int) readVarInt(input)];
+        boolean[] carriesFolderId = new boolean[types.length];
+        boolean[] carriesGlobalFolderId = new boolean[types.length];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = InconsistencyType.valueOf(readString(input, (int) readVarInt(input)));
+            byte flags = input.get();
+            carriesFolderId[i] = (flags & 1) != 0;
+            carriesGlobalFolderId[i] = (flags & 2) != 0;
+        }
+
+        long total = readVarInt(input);
+        for (int i = 0; i < types.length; i++) {
+            readVarInt(input); // counts by type, recomputed by the report
+        }
+
+        Email[] emails = new Email[(int) readVarInt(input)];
+        for (int i = 0; i < emails.length; i++) {
+            emails[i] = Email.of(readString(input, (int) readVarInt(input)));
+        }
+
+        List<Inconsistency> inconsistencies = new ArrayList<>();
+        while (inconsistencies.size() < total) {
+            int typeIndex = (int) readVarInt(input);
+            InconsistencyType type = types[typeIndex];
+            long runLength = readVarInt(input);
+            for (int i = 0; i < runLength; i++) {
+                FolderId folderId = carriesFolderId[typeIndex]
+                    ? FolderId.of(new UUID(input.getLong(), input.getLong()).toString())
+                    : null;
+                FolderId globalFolderId = carriesGlobalFolderId[typeIndex]
+                    ? FolderId.of(new UUID(input.getLong(), input.getLong()).toString())
+                    : null;
+                Email email = emails[(int) readVarInt(input)];
+                FolderName globalName = readNullableName(input);
+                FolderName userName = readNullableName(input);
+                inconsistencies.add(switch (type) {
+                    case NAME_MISMATCH -> Inconsistency.nameMismatch(folderId, email, globalName, userName);
+                    case MISSING_IN_GLOBAL -> Inconsistency.missingInGlobal(folderId, email, userName);
+                    case MISSING_IN_USER_FOLDERS -> Inconsistency.missingInUserFolders(folderId, email, globalName);
+                    case ID_MISMATCH -> Inconsistency.idMismatch(folderId, globalFolderId, email, globalName, userName);
+                    case DUPLICATE_IN_GLOBAL -> Inconsistency.duplicateInGlobal(folderId, email, globalName);
+                    case CROSS_USER_ID_COLLISION -> Inconsistency.crossUserIdCollision(folderId, email, globalName);
+                    case ORPHANED_OWNER -> Inconsistency.orphanedOwner(folderId, email, globalName);
+                    case USER_WITHOUT_GLOBAL_FOLDERS -> Inconsistency.userWithoutGlobalFolders(email);
+                });
+            }
+        }
+        assertFalse(input.hasRemaining());
+        return InconsistencyReport.of(inconsistencies);
+    }
+
+    private static FolderName readNullableName(ByteBuffer input) {
+        long length = readVarInt(input);
+        return length == 0 ? null : FolderName.of(readString(input, (int) length - 1));
+    }
+
+    private static String readString(ByteBuffer input, int length) {
+        byte[] bytes = new byte[length];
+        input.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long readVarInt(ByteBuffer input) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = input.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
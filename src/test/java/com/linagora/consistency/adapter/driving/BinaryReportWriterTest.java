@@ -0,0 +1,87 @@
+package com.linagora.consistency.adapter.driving;
+
+import com.linagora.consistency.domain.model.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryReportWriterTest {
+
+    private final BinaryReportWriter writer = new BinaryReportWriter();
+
+    @Test
+    void shouldRoundTripReport() {
+        Email john = Email.of("john@example.com");
+        Email alice = Email.of("alice@example.com");
+        InconsistencyReport report = InconsistencyReport.of(List.of(
+            Inconsistency.nameMismatch(folderId(1), john, FolderName.of("Wrong name"), FolderName.of("Reçus")),
+            Inconsistency.missingInGlobal(folderId(2), john, FolderName.of("Personal")),
+            Inconsistency.missingInGlobal(folderId(3), alice, FolderName.of("Archive")),
+            Inconsistency.missingInUserFolders(folderId(4), alice, FolderName.of("Sent")),
+            Inconsistency.idMismatch(folderId(6), folderId(7), alice, FolderName.of("Drafts"), FolderName.of("Drafts")),
+            Inconsistency.userWithoutGlobalFolders(alice),
+            Inconsistency.orphanedOwner(folderId(5), Email.of("ghost@example.com"), FolderName.of("Inbox"))
+        ));
+
+        InconsistencyReport decoded = BinaryReportDecoder.decode(write(report));
+
+        assertEquals(report, decoded);
+        assertEquals(report.getCountsByType(), decoded.getCountsByType());
+    }
+
+    @Test
+    void shouldRoundTripLargeReportAcrossChunks() {
+        List<Inconsistency> inconsistencies = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            Email user = Email.of("user" + (i % 100) + "@example.com");
+            inconsistencies.add(i % 3 == 0
+                ? Inconsistency.missingInUserFolders(folderId(i), user, FolderName.of("Global " + i))
+                : Inconsistency.missingInGlobal(folderId(i), user, FolderName.of("User " + i)));
+        }
+        InconsistencyReport report = InconsistencyReport.of(inconsistencies);
+
+        assertEquals(report, BinaryReportDecoder.decode(write(report)));
+    }
+
+    @Test
+    void shouldBeMuchSmallerThanJson() {
+        Email user = Email.of("john.doe@example.com");
+        List<Inconsistency> inconsistencies = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            inconsistencies.add(Inconsistency.missingInGlobal(folderId(i), user, FolderName.of("Inbox")));
+        }
+        InconsistencyReport report = InconsistencyReport.of(inconsistencies);
+
+        int binarySize = write(report).length;
+        int jsonSize = new JsonReportWriter().write(report, DefaultDataBufferFactory.sharedInstance)
+            .map(buffer -> {
+                int size = buffer.readableByteCount();
+                DataBufferUtils.release(buffer);
+                return size;
+            })
+            .reduce(0, Integer::sum)
+            .block();
+
+        assertTrue(binarySize * 4 < jsonSize, "binary=" + binarySize + " json=" + jsonSize);
+    }
+
+    private byte[] write(InconsistencyReport report) {
+        DataBuffer joined = DefaultDataBufferFactory.sharedInstance.join(
+            writer.write(report, DefaultDataBufferFactory.sharedInstance).collectList().block()
+        );
+        byte[] bytes = new byte[joined.readableByteCount()];
+        joined.read(bytes);
+        DataBufferUtils.release(joined);
+        return bytes;
+    }
+
+    private FolderId folderId(int i) {
+        return FolderId.of(String.format("550e8400-e29b-41d4-a716-%012d", i));
+    }
+}
@@ -0,0 +1,56 @@
+package com.linagora.consistency.adapter.driving;
+
+import com.linagora.consistency.domain.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedReportCacheTest {
+
+    private final CompressedReportCache cache = new CompressedReportCache(new JsonReportWriter());
+
+    @Test
+    void shouldEncodeEachGenerationOnceForConcurrentRequests() throws Exception {
+        // Given
+        List<Inconsistency> inconsistencies = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            inconsistencies.add(Inconsistency.userWithoutGlobalFolders(Email.of("user" + i + "@example.com")));
+        }
+        InconsistencyReport report = InconsistencyReport.of(inconsistencies);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When
+        List<Future<CompressedReportCache.Snapshot>> snapshots = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            snapshots.add(executor.submit(() -> {
+                start.await();
+                return cache.snapshotOf(report);
+            }));
+        }
+        start.countDown();
+
+        // Then
+        CompressedReportCache.Snapshot first = snapshots.get(0).get();
+        for (Future<CompressedReportCache.Snapshot> snapshot : snapshots) {
+            assertSame(first, snapshot.get());
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    void shouldEncodeAgainForANewGeneration() {
+        CompressedReportCache.Snapshot first = cache.snapshotOf(InconsistencyReport.empty());
+        CompressedReportCache.Snapshot second = cache.snapshotOf(InconsistencyReport.empty());
+
+        assertNotSame(first, second);
+        assertArrayEquals(first.json(), second.json());
+    }
+}
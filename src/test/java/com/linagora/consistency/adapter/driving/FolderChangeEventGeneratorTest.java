@@ -0,0 +1,88 @@
+package com.linagora.consistency.adapter.driving;
+
+import com.linagora.consistency.domain.fake.FakeGlobalFolderIndexStore;
+import com.linagora.consistency.domain.fake.FakeGlobalFoldersRetriever;
+import com.linagora.consistency.domain.fake.FakeUserFoldersRetriever;
+import com.linagora.consistency.domain.fake.FakeUserRetriever;
+import com.linagora.consistency.domain.model.*;
+import com.linagora.consistency.domain.rule.InconsistencyRules;
+import com.linagora.consistency.domain.service.InconsistencyDetectionService;
+import com.linagora.consistency.domain.service.LiveConsistencyState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that live state fed by generated events matches a full scan of the resulting data.
+ */
+class FolderChangeEventGeneratorTest {
+
+    private FakeUserRetriever userRetriever;
+    private FakeUserFoldersRetriever userFoldersRetriever;
+    private FakeGlobalFoldersRetriever globalFoldersRetriever;
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void setUp() {
+        userRetriever = new FakeUserRetriever();
+        userFoldersRetriever = new FakeUserFoldersRetriever();
+        globalFoldersRetriever = new FakeGlobalFoldersRetriever();
+        executorService = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdown();
+    }
+
+    @Test
+    void liveStateShouldMatchFullScanOfGeneratedData() {
+        // Given
+        FolderChangeEventGenerator generator = new FolderChangeEventGenerator(20, 10, 42L);
+        LiveConsistencyState live = new LiveConsistencyState(
+            userRetriever,
+            userFoldersRetriever,
+            globalFoldersRetriever,
+            InconsistencyRules.defaults(),
+            executorService
+        );
+
+        // When
+        for (int i = 0; i < 5_000; i++) {
+            live.applyFolderChange(generator.next());
+        }
+
+        // Then
+        generator.getUsers().forEach(userRetriever::addUser);
+        generator.currentUserFolders().forEach(userFoldersRetriever::addUserFolders);
+        generator.currentGlobalFolders().forEach(globalFoldersRetriever::addGlobalFolder);
+        InconsistencyReport scanned = new InconsistencyDetectionService(
+            userRetriever,
+            userFoldersRetriever,
+            globalFoldersRetriever,
+            new FakeGlobalFolderIndexStore(),
+            InconsistencyRules.defaults(),
+            executorService
+        ).detectInconsistencies();
+
+        List<String> expected = folderScoped(scanned);
+        assertTrue(expected.size() > 0);
+        assertEquals(expected, folderScoped(live.liveInconsistencies()));
+    }
+
+    private List<String> folderScoped(InconsistencyReport report) {
+        // Ownership checks are only part of full scans
+        return report.getInconsistencies().stream()
+            .filter(inconsistency -> inconsistency.getType() != InconsistencyType.USER_WITHOUT_GLOBAL_FOLDERS)
+            .map(Inconsistency::toString)
+            .sorted()
+            .toList();
+    }
+}
@@ -0,0 +1,210 @@
+package com.linagora.consistency.adapter.driving;
+
+import com.linagora.consistency.domain.model.*;
+import com.linagora.consistency.domain.port.driving.ForDetectingInconsistencies;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InconsistencyControllerTest {
+
+    private InconsistencyReport report;
+    private InconsistencyRateEstimate estimate;
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        report = InconsistencyReport.of(List.of(
+            Inconsistency.missingInGlobal(
+                FolderId.of("550e8400-e29b-41d4-a716-446655440000"),
+                Email.of("john@example.com"),
+                FolderName.of("Inbox")
+            )
+        ));
+        InconsistencyRateEstimate.Interval interval = new InconsistencyRateEstimate.Interval(0.1, 0.07, 0.14);
+        estimate = InconsistencyRateEstimate.of(100_000, 383, 0.95, interval, Map.of(InconsistencyType.NAME_MISMATCH, interval));
+        client = WebTestClient.bindToController(new InconsistencyController(() -> report, email -> report, (confidence, margin) -> estimate, Optional.empty())).build();
+    }
+
+    @Test
+    void shouldInterruptTheScanWhenTheClientCancels() throws Exception {
+        // Given a scan that would take 30 seconds
+        CountDownLatch scanning = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        InconsistencyController controller = new InconsistencyController(() -> {
+            scanning.countDown();
+            try {
+                Thread.sleep(30_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while scanning", e);
+            }
+            return report;
+        }, email -> report, (confidence, margin) -> estimate, Optional.empty());
+        Disposable subscription = controller
+            .getInconsistencies(MockServerHttpRequest.get("/inconsistencies").build(), new MockServerHttpResponse(), null)
+            .subscribe(DataBufferUtils::release, error -> { });
+        assertTrue(scanning.await(5, TimeUnit.SECONDS));
+
+        // When
+        subscription.dispose();
+
+        // Then
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldScanWithinTheRequestedDeadline() {
+        // Given
+        InconsistencyReport partial = InconsistencyReport.partial(List.of(), 7, ScanCoverage.of(2, List.of(Email.of("alice@example.com"))));
+        List<Duration> deadlines = new ArrayList<>();
+        ForDetectingInconsistencies detector = new ForDetectingInconsistencies() {
+            @Override
+            public InconsistencyReport detectInconsistencies() {
+                return report;
+            }
+
+            @Override
+            public InconsistencyReport detectInconsistencies(Duration deadline) {
+                deadlines.add(deadline);
+                return partial;
+            }
+
+            @Override
+            public boolean supportsDeadline() {
+                return true;
+            }
+        };
+        WebTestClient boundedClient = WebTestClient
+            .bindToController(new InconsistencyController(detector, email -> report, (confidence, margin) -> estimate, Optional.empty()))
+            .build();
+
+        // When / Then
+        boundedClient.get().uri("/inconsistencies?deadline=5s")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.summary.partial").isEqualTo(true)
+            .jsonPath("$.summary.coveragePercent").isEqualTo(50.0)
+            .jsonPath("$.summary.uncheckedUsers[0]").isEqualTo("alice@example.com");
+        assertEquals(List.of(Duration.ofSeconds(5)), deadlines);
+    }
+
+    @Test
+    void shouldRejectNonPositiveDeadline() {
+        client.get().uri("/inconsistencies?deadline=0s")
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldRejectDeadlineWhenTheScanCannotStopEarly() {
+        client.get().uri("/inconsistencies?deadline=5s")
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldServeJsonByDefault() {
+        client.get().uri("/inconsistencies")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+            .expectBody()
+            .jsonPath("$.summary.totalInconsistencies").isEqualTo(1)
+            .jsonPath("$.inconsistencies[0].userFolderName").isEqualTo("Inbox");
+    }
+
+    @Test
+    void shouldServeBinaryWhenRequested() {
+        byte[] body = client.get().uri("/inconsistencies")
+            .accept(BinaryReportWriter.MEDIA_TYPE)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(BinaryReportWriter.MEDIA_TYPE)
+            .expectBody().returnResult().getResponseBody();
+
+        InconsistencyReport decoded = BinaryReportDecoder.decode(body);
+        assertEquals(report, decoded);
+        assertEquals(report.getCountsByType(), decoded.getCountsByType());
+    }
+
+    @Test
+    void shouldServePrecomputedGzipSnapshotWhenCachingIsEnabled() {
+        CompressedReportCache cache = new CompressedReportCache(new JsonReportWriter());
+        WebTestClient cachingClient = WebTestClient
+            .bindToController(new InconsistencyController(() -> report, email -> report, (confidence, margin) -> estimate, Optional.of(cache)))
+            .build();
+
+        byte[] body = cachingClient.get().uri("/inconsistencies")
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+            .expectBody().returnResult().getResponseBody();
+
+        assertArrayEquals(cache.snapshotOf(report).gzip(), body);
+    }
+
+    @Test
+    void shouldServeIdentitySnapshotWhenGzipIsNotAccepted() {
+        CompressedReportCache cache = new CompressedReportCache(new JsonReportWriter());
+        WebTestClient cachingClient = WebTestClient
+            .bindToController(new InconsistencyController(() -> report, email -> report, (confidence, margin) -> estimate, Optional.of(cache)))
+            .build();
+
+        cachingClient.get().uri("/inconsistencies")
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().doesNotExist(HttpHeaders.CONTENT_ENCODING)
+            .expectBody()
+            .jsonPath("$.summary.totalInconsistencies").isEqualTo(1);
+    }
+
+    @Test
+    void shouldServeSampledRatesInSampleMode() {
+        client.get().uri("/inconsistencies?mode=sample&confidence=0.95&margin=0.05")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.sampleSize").isEqualTo(383)
+            .jsonPath("$.inconsistentUsers.lower").isEqualTo(0.07)
+            .jsonPath("$.usersByType.NAME_MISMATCH.estimate").isEqualTo(0.1);
+    }
+
+    @Test
+    void shouldServeUserInconsistencies() {
+        client.get().uri("/inconsistencies/users/{email}", "john@example.com")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.inconsistencies[0].userEmail").isEqualTo("john@example.com");
+    }
+
+    @Test
+    void shouldRejectInvalidUserEmail() {
+        client.get().uri("/inconsistencies/users/{email}", "not-an-email")
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+}
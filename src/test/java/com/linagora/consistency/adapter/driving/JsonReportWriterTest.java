@@ -0,0 +1,173 @@
+package com.linagora.consistency.adapter.driving;
+
+import com.linagora.consistency.domain.model.*;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonReportWriterTest {
+
+    private final JsonReportWriter writer = new JsonReportWriter();
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    @Test
+    void shouldWriteEmptyReport() {
+        JsonNode json = writeAndParse(InconsistencyReport.empty());
+
+        assertEquals(0, json.get("summary").get("totalInconsistencies").asInt());
+        assertTrue(json.get("summary").get("countsByType").isEmpty());
+        assertTrue(json.get("inconsistencies").isEmpty());
+        assertNull(json.get("summary").get("globalIndexVersion"));
+    }
+
+    @Test
+    void shouldWriteGlobalIndexVersion() {
+        JsonNode json = writeAndParse(InconsistencyReport.of(List.of(), 42));
+
+        assertEquals(42, json.get("summary").get("globalIndexVersion").asLong());
+        assertTrue(json.get("summary").get("countsByType").isEmpty());
+    }
+
+    @Test
+    void shouldWritePartialCoverage() {
+        ScanCoverage coverage = ScanCoverage.of(3, List.of(Email.of("alice@example.com"), Email.of("bob@example.com")));
+
+        JsonNode json = writeAndParse(InconsistencyReport.partial(List.of(), 42, coverage));
+
+        JsonNode summary = json.get("summary");
+        assertEquals(42, summary.get("globalIndexVersion").asLong());
+        assertTrue(summary.get("partial").asBoolean());
+        assertEquals(33.33, summary.get("coveragePercent").asDouble());
+        assertEquals(1, summary.get("checkedUsers").asInt());
+        assertEquals(3, summary.get("totalUsers").asInt());
+        assertEquals("bob@example.com", summary.get("uncheckedUsers").get(1).asString());
+        assertTrue(json.get("inconsistencies").isEmpty());
+    }
+
+    @Test
+    void shouldWriteSameStructureAsApiContract() {
+        Email user = Email.of("john@example.com");
+        FolderId folderId = FolderId.of("550e8400-e29b-41d4-a716-446655440000");
+        InconsistencyReport report = InconsistencyReport.of(List.of(
+            Inconsistency.nameMismatch(folderId, user, FolderName.of("Wrong name"), FolderName.of("Receipts")),
+            Inconsistency.missingInGlobal(folderId, user, FolderName.of("Personal"))
+        ));
+
+        JsonNode json = writeAndParse(report);
+
+        assertEquals(2, json.get("summary").get("totalInconsistencies").asInt());
+        assertEquals(1, json.get("summary").get("countsByType").get("NAME_MISMATCH").asLong());
+        assertEquals(1, json.get("summary").get("countsByType").get("MISSING_IN_GLOBAL").asLong());
+
+        JsonNode first = json.get("inconsistencies").get(0);
+        assertEquals("NAME_MISMATCH", first.get("type").asString());
+        assertEquals(folderId.getValue(), first.get("folderId").asString());
+        assertEquals("john@example.com", first.get("userEmail").asString());
+        assertEquals("Wrong name", first.get("globalFolderName").asString());
+        assertEquals("Receipts", first.get("userFolderName").asString());
+
+        JsonNode second = json.get("inconsistencies").get(1);
+        assertTrue(second.get("globalFolderName").isNull());
+        assertEquals("Personal", second.get("userFolderName").asString());
+    }
+
+    @Test
+    void shouldEscapeAndEncodeNames() {
+        String name = "Reçus \"2024\" \\ \t 日本 📁 \u0001";
+        InconsistencyReport report = InconsistencyReport.of(List.of(
+            Inconsistency.missingInGlobal(
+                FolderId.of("550e8400-e29b-41d4-a716-446655440000"),
+                Email.of("john@example.com"),
+                FolderName.of(name)
+            )
+        ));
+
+        JsonNode json = writeAndParse(report);
+
+        assertEquals(name, json.get("inconsistencies").get(0).get("userFolderName").asString());
+    }
+
+    @Test
+    void shouldSplitLargeReportsIntoSeveralBuffers() {
+        Email user = Email.of("john@example.com");
+        List<Inconsistency> inconsistencies = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            FolderId folderId = FolderId.of(String.format("550e8400-e29b-41d4-a716-%012d", i));
+            inconsistencies.add(Inconsistency.missingInGlobal(folderId, user, FolderName.of("Folder " + i)));
+        }
+
+        List<DataBuffer> buffers = writer.write(InconsistencyReport.of(inconsistencies), DefaultDataBufferFactory.sharedInstance)
+            .collectList()
+            .block();
+
+        assertTrue(buffers.size() > 1);
+        JsonNode json = objectMapper.readTree(join(buffers));
+        assertEquals(5_000, json.get("inconsistencies").size());
+        assertEquals("Folder 4999", json.get("inconsistencies").get(4_999).get("userFolderName").asString());
+    }
+
+    @Test
+    void shouldAllocateNothingPerInconsistencyBeyondTheOutputBuffers() {
+        // Given
+        Email user = Email.of("john@example.com");
+        List<Inconsistency> inconsistencies = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            FolderId folderId = FolderId.of(new UUID(i, i).toString());
+            inconsistencies.add(Inconsistency.nameMismatch(folderId, user, FolderName.of("Réception " + i), FolderName.of("Inbox \"" + i + "\"")));
+        }
+        InconsistencyReport report = InconsistencyReport.of(inconsistencies, 1);
+        for (int warmUp = 0; warmUp < 5; warmUp++) {
+            drain(report);
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        // When
+        long before = threads.getCurrentThreadAllocatedBytes();
+        long bufferBytes = drain(report);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        // Then - chunk bookkeeping only, well under a byte per inconsistency
+        long overhead = allocated - bufferBytes;
+        assertTrue(overhead < inconsistencies.size(), "allocated " + overhead + " bytes besides the output buffers");
+    }
+
+    /**
+     * Writes the report, releasing each chunk as a server would once sent.
+     *
+     * @return total capacity of the output buffers
+     */
+    private long drain(InconsistencyReport report) {
+        long[] bufferBytes = {0};
+        writer.write(report, DefaultDataBufferFactory.sharedInstance).subscribe(buffer -> {
+            bufferBytes[0] += buffer.capacity();
+            DataBufferUtils.release(buffer);
+        });
+        return bufferBytes[0];
+    }
+
+    private JsonNode writeAndParse(InconsistencyReport report) {
+        List<DataBuffer> buffers = writer.write(report, DefaultDataBufferFactory.sharedInstance)
+            .collectList()
+            .block();
+        return objectMapper.readTree(join(buffers));
+    }
+
+    private String join(List<DataBuffer> buffers) {
+        DataBuffer joined = DefaultDataBufferFactory.sharedInstance.join(buffers);
+        String json = joined.toString(StandardCharsets.UTF_8);
+        DataBufferUtils.release(joined);
+        return json;
+    }
+}
@@ -0,0 +1,142 @@
+package com.linagora.consistency.adapter.driving;
+
+import com.linagora.consistency.domain.fake.MutableClock;
+import com.linagora.consistency.domain.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportExporterTest {
+
+    @TempDir
+    Path directory;
+
+    private ExecutorService executorService;
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+
+    @BeforeEach
+    void setUp() {
+        executorService = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdown();
+    }
+
+    private InconsistencyReport reportOf(int size) {
+        Email user = Email.of("john@example.com");
+        List<Inconsistency> inconsistencies = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            FolderId folderId = FolderId.of(String.format("550e8400-e29b-41d4-a716-%012d", i));
+            inconsistencies.add(Inconsistency.nameMismatch(folderId, user, FolderName.of("Global " + i), FolderName.of("User, \"" + i + "\"")));
+        }
+        return InconsistencyReport.of(inconsistencies);
+    }
+
+    @Test
+    void shouldWriteSizeCappedCsvChunksListedInManifest() throws IOException {
+        // Given
+        ReportExporter exporter = new ReportExporter(directory, 4 * 1024, 3, false, executorService, clock);
+
+        // When
+        ReportExporter.ExportManifest manifest = exporter.export(reportOf(1_000), ReportExporter.Format.CSV);
+
+        // Then
+        Path exportDirectory = directory.resolve(manifest.exportId());
+        assertTrue(Files.isRegularFile(exportDirectory.resolve(ReportExporter.MANIFEST_FILE)));
+        assertEquals(1_000, manifest.totalRows());
+        assertTrue(manifest.chunks().size() > 3);
+        assertEquals(1_000, manifest.chunks().stream().mapToLong(ReportExporter.ExportedChunk::rows).sum());
+
+        List<String> rows = new ArrayList<>();
+        for (ReportExporter.ExportedChunk chunk : manifest.chunks()) {
+            byte[] content = Files.readAllBytes(exportDirectory.resolve(chunk.file()));
+            assertTrue(content.length <= 4 * 1024);
+            assertEquals(content.length, chunk.bytes());
+            assertEquals(sha256(content), chunk.sha256());
+            List<String> lines = new String(content, StandardCharsets.UTF_8).lines().toList();
+            assertEquals("type,folderId,userEmail,globalFolderName,userFolderName,globalFolderId", lines.get(0));
+            rows.addAll(lines.subList(1, lines.size()));
+        }
+        assertEquals(1_000, rows.size());
+        assertEquals("NAME_MISMATCH,550e8400-e29b-41d4-a716-000000000000,john@example.com,Global 0,\"User, \"\"0\"\"\",", rows.get(0));
+        assertTrue(rows.get(999).contains("-000000000999,"));
+    }
+
+    @Test
+    void shouldWriteGzipJsonLinesInReportOrder() throws IOException {
+        // Given
+        ReportExporter exporter = new ReportExporter(directory, 1024 * 1024, 2, true, executorService, clock);
+        InconsistencyReport report = reportOf(10);
+
+        // When
+        ReportExporter.ExportManifest manifest = exporter.export(report, ReportExporter.Format.JSONL);
+
+        // Then
+        assertEquals(2, manifest.chunks().size());
+        List<JsonNode> rows = new ArrayList<>();
+        for (ReportExporter.ExportedChunk chunk : manifest.chunks()) {
+            Path file = directory.resolve(manifest.exportId()).resolve(chunk.file());
+            assertTrue(chunk.file().endsWith(".jsonl.gz"));
+            assertEquals(sha256(Files.readAllBytes(file)), chunk.sha256());
+            try (InputStream input = new GZIPInputStream(Files.newInputStream(file))) {
+                for (String line : new String(input.readAllBytes(), StandardCharsets.UTF_8).lines().toList()) {
+                    rows.add(JsonMapper.builder().build().readTree(line));
+                }
+            }
+        }
+        assertEquals(10, rows.size());
+        assertEquals("User, \"9\"", rows.get(9).get("userFolderName").asString());
+        assertEquals("NAME_MISMATCH", rows.get(0).get("type").asString());
+    }
+
+    @Test
+    void shouldWriteOnlyManifestForEmptyReport() {
+        ReportExporter exporter = new ReportExporter(directory, 1024, 4, false, executorService, clock);
+
+        ReportExporter.ExportManifest manifest = exporter.export(InconsistencyReport.empty(), ReportExporter.Format.CSV);
+
+        assertTrue(manifest.chunks().isEmpty());
+        assertTrue(Files.isRegularFile(directory.resolve(manifest.exportId()).resolve(ReportExporter.MANIFEST_FILE)));
+    }
+
+    @Test
+    void shouldGiveExportsStartedAtTheSameInstantTheirOwnDirectory() {
+        ReportExporter exporter = new ReportExporter(directory, 1024, 4, false, executorService, clock);
+
+        ReportExporter.ExportManifest first = exporter.export(reportOf(10), ReportExporter.Format.CSV);
+        ReportExporter.ExportManifest second = exporter.export(reportOf(10), ReportExporter.Format.CSV);
+
+        assertEquals(first.exportedAt(), second.exportedAt());
+        assertNotEquals(first.exportId(), second.exportId());
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
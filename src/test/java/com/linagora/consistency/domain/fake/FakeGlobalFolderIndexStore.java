@@ -0,0 +1,36 @@
+package com.linagora.consistency.domain.fake;
+
+import com.linagora.consistency.domain.model.GlobalFolder;
+import com.linagora.consistency.domain.model.GlobalFolderIndex;
+import com.linagora.consistency.domain.port.driven.ForStoringGlobalFolderIndex;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Fake implementation of ForStoringGlobalFolderIndex for testing.
+ * Test Double pattern - Fake (not a Mock).
+ */
+public class FakeGlobalFolderIndexStore implements ForStoringGlobalFolderIndex {
+
+    private StoredIndex storedIndex;
+
+    public void preload(List<GlobalFolder> globalFolders, Instant builtAt) {
+        storedIndex = new StoredIndex(GlobalFolderIndex.of(globalFolders), builtAt);
+    }
+
+    @Override
+    public Optional<StoredIndex> loadGlobalFolderIndex() {
+        return Optional.ofNullable(storedIndex);
+    }
+
+    @Override
+    public void storeGlobalFolderIndex(GlobalFolderIndex globalFolderIndex, Instant builtAt) {
+        storedIndex = new StoredIndex(globalFolderIndex, builtAt);
+    }
+
+    public boolean hasStoredIndex() {
+        return storedIndex != null;
+    }
+}
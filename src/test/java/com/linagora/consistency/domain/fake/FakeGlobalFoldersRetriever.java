@@ -13,6 +13,7 @@ import java.util.List;
 public class FakeGlobalFoldersRetriever implements ForRetrievingGlobalFolders {
 
     private final List<GlobalFolder> globalFolders = new ArrayList<>();
+    private int retrievalCount;
 
     public void addGlobalFolder(GlobalFolder folder) {
         globalFolders.add(folder);
@@ -20,9 +21,14 @@ public class FakeGlobalFoldersRetriever implements ForRetrievingGlobalFolders {
 
     @Override
     public List<GlobalFolder> retrieveAllGlobalFolders() {
+        retrievalCount++;
         return new ArrayList<>(globalFolders);
     }
 
+    public int getRetrievalCount() {
+        return retrievalCount;
+    }
+
     public void clear() {
         globalFolders.clear();
     }
@@ -0,0 +1,44 @@
+package com.linagora.consistency.domain.fake;
+
+import com.linagora.consistency.domain.model.ReportSummary;
+import com.linagora.consistency.domain.port.driven.ForStoringReportHistory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Fake implementation of ForStoringReportHistory for testing.
+ * Test Double pattern - Fake (not a Mock).
+ */
+public class FakeReportHistoryStore implements ForStoringReportHistory {
+
+    private final List<ReportSummary> storedSummaries = new ArrayList<>();
+
+    public void preload(List<ReportSummary> summaries) {
+        storedSummaries.addAll(summaries);
+    }
+
+    @Override
+    public List<ReportSummary> loadReportSummaries(int limit) {
+        return storedSummaries.subList(Math.max(0, storedSummaries.size() - limit), storedSummaries.size()).stream()
+            .map(ReportSummary::withoutDetails)
+            .toList();
+    }
+
+    @Override
+    public Optional<ReportSummary> loadReportSummary(long generation) {
+        return storedSummaries.stream()
+            .filter(summary -> summary.getGeneration() == generation)
+            .findFirst();
+    }
+
+    @Override
+    public void appendReportSummary(ReportSummary summary) {
+        storedSummaries.add(summary);
+    }
+
+    public List<ReportSummary> getStoredSummaries() {
+        return List.copyOf(storedSummaries);
+    }
+}
@@ -4,7 +4,10 @@ import com.linagora.consistency.domain.model.Email;
 import com.linagora.consistency.domain.model.UserFolders;
 import com.linagora.consistency.domain.port.driven.ForRetrievingUserFolders;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -14,6 +17,7 @@ import java.util.Map;
 public class FakeUserFoldersRetriever implements ForRetrievingUserFolders {
 
     private final Map<Email, UserFolders> userFoldersMap = new HashMap<>();
+    private final List<Email> requestedUsers = Collections.synchronizedList(new ArrayList<>());
 
     public void addUserFolders(UserFolders userFolders) {
         userFoldersMap.put(userFolders.getUserEmail(), userFolders);
@@ -21,9 +25,17 @@ public class FakeUserFoldersRetriever implements ForRetrievingUserFolders {
 
     @Override
     public UserFolders retrieveFoldersForUser(Email userEmail) {
+        requestedUsers.add(userEmail);
         return userFoldersMap.getOrDefault(userEmail, UserFolders.of(userEmail, java.util.Collections.emptyList()));
     }
 
+    /**
+     * @return users whose folders were retrieved, in call order
+     */
+    public List<Email> getRequestedUsers() {
+        return List.copyOf(requestedUsers);
+    }
+
     public void clear() {
         userFoldersMap.clear();
     }
@@ -2,6 +2,8 @@ package com.linagora.consistency.domain.model;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.UUID;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class FolderIdTest {
@@ -33,4 +35,45 @@ class FolderIdTest {
         assertEquals(id1, id2);
         assertEquals(id1.hashCode(), id2.hashCode());
     }
+
+    @Test
+    void shouldKeepParsedUuidBits() {
+        String uuid = "550e8400-e29b-41d4-a716-446655440000";
+        FolderId folderId = FolderId.of(uuid);
+
+        assertEquals(UUID.fromString(uuid).getMostSignificantBits(), folderId.getMostSignificantBits());
+        assertEquals(UUID.fromString(uuid).getLeastSignificantBits(), folderId.getLeastSignificantBits());
+    }
+
+    @Test
+    void shouldParseUpperCaseAndNonCanonicalUuids() {
+        FolderId upperCase = FolderId.of("550E8400-E29B-41D4-A716-446655440000");
+        FolderId shortForm = FolderId.of("1-2-3-4-5");
+
+        assertEquals(UUID.fromString("550e8400-e29b-41d4-a716-446655440000").getMostSignificantBits(), upperCase.getMostSignificantBits());
+        assertEquals(UUID.fromString("1-2-3-4-5").getLeastSignificantBits(), shortForm.getLeastSignificantBits());
+    }
+
+    @Test
+    void shouldThrowExceptionForInvalidCanonicalUuid() {
+        assertThrows(IllegalArgumentException.class, () -> FolderId.of("550e8400-e29b-41d4-a716-44665544000g"));
+        assertThrows(IllegalArgumentException.class, () -> FolderId.of("550e8400xe29b-41d4-a716-446655440000"));
+        assertThrows(IllegalArgumentException.class, () -> FolderId.of("550e8400-e29b-41d4-a716-44665544000\u00e9"));
+    }
+
+    @Test
+    void shouldCreateSameFolderIdFromTrustedSource() {
+        String uuid = "550e8400-e29b-41d4-a716-446655440000";
+
+        assertEquals(FolderId.of(uuid), FolderId.trusted(uuid));
+    }
+
+    @Test
+    void shouldValidateMalformedIdsFromTrustedSource() {
+        assertThrows(IllegalArgumentException.class, () -> FolderId.trusted("550e8400-e29b-41d4-a716-44665544000g"));
+        assertThrows(IllegalArgumentException.class, () -> FolderId.trusted("550e8400-e29b-41d4-a716-44665544000\u00e1"));
+        assertThrows(IllegalArgumentException.class, () -> FolderId.trusted("550e8400xe29b-41d4-a716-446655440000"));
+        assertThrows(IllegalArgumentException.class, () -> FolderId.trusted("550e8400"));
+        assertEquals(FolderId.of("1-2-3-4-5"), FolderId.trusted("1-2-3-4-5"));
+    }
 }
@@ -0,0 +1,68 @@
+package com.linagora.consistency.domain.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NameEquivalenceTest {
+
+    // Decomposed (e + combining acute accent) and precomposed spellings
+    private final FolderName decomposed = FolderName.of("Re\u0301sume\u0301");
+    private final FolderName precomposed = FolderName.of("R\u00e9sum\u00e9");
+
+    @Test
+    void shouldOnlyMatchEqualNamesWhenExact() {
+        NameEquivalence exact = NameEquivalence.exact();
+
+        assertTrue(exact.equivalent(FolderName.of("Inbox"), FolderName.of("Inbox")));
+        assertFalse(exact.equivalent(FolderName.of("Inbox"), FolderName.of("inbox")));
+        assertFalse(exact.equivalent(decomposed, precomposed));
+        assertSame(exact, NameEquivalence.of(NameEquivalence.Normalization.NONE, false, false));
+    }
+
+    @Test
+    void shouldMatchCanonicallyEquivalentNamesUnderNfc() {
+        NameEquivalence nfc = NameEquivalence.of(NameEquivalence.Normalization.NFC, false, false);
+
+        assertTrue(nfc.equivalent(decomposed, precomposed));
+        assertFalse(nfc.equivalent(FolderName.of("ﬁles"), FolderName.of("files")));
+    }
+
+    @Test
+    void shouldMatchCompatibilityEquivalentNamesUnderNfkc() {
+        NameEquivalence nfkc = NameEquivalence.of(NameEquivalence.Normalization.NFKC, false, false);
+
+        assertTrue(nfkc.equivalent(FolderName.of("ﬁles"), FolderName.of("files")));
+        assertTrue(nfkc.equivalent(FolderName.of("Ｉｎｂｏｘ"), FolderName.of("Inbox")));
+    }
+
+    @Test
+    void shouldFoldCaseOfCompatibilityCharactersUnderNfkc() {
+        NameEquivalence nfkcFolding = NameEquivalence.of(NameEquivalence.Normalization.NFKC, true, false);
+
+        // Letterlike symbols have no case mapping of their own, NFKC maps them to capitals
+        assertTrue(nfkcFolding.equivalent(FolderName.of("\u210Come"), FolderName.of("home")));
+        assertTrue(nfkcFolding.equivalent(FolderName.of("\u2115ews"), FolderName.of("news")));
+        assertTrue(nfkcFolding.equivalent(FolderName.of("Ｉｎｂｏｘ"), FolderName.of("inbox")));
+    }
+
+    @Test
+    void shouldFoldCaseAndTrimWhitespace() {
+        NameEquivalence folding = NameEquivalence.of(NameEquivalence.Normalization.NONE, true, true);
+
+        assertTrue(folding.equivalent(FolderName.of(" INBOX\t"), FolderName.of("inbox")));
+        assertTrue(folding.equivalent(FolderName.of("Straße"), FolderName.of("STRASSE")));
+        assertFalse(folding.equivalent(FolderName.of("In box"), FolderName.of("inbox")));
+    }
+
+    @Test
+    void shouldCacheKeyOnFolderName() {
+        NameEquivalence folding = NameEquivalence.of(NameEquivalence.Normalization.NFC, true, false);
+        FolderName name = FolderName.of("INBOX");
+
+        NameEquivalence.Key first = name.keyUnder(folding);
+
+        assertSame(first, name.keyUnder(folding));
+        assertEquals("inbox", first.value());
+    }
+}
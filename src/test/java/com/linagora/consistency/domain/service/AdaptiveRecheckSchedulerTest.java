@@ -0,0 +1,278 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.fake.MutableClock;
+import com.linagora.consistency.domain.model.*;
+import com.linagora.consistency.domain.port.driving.ForDetectingInconsistencies;
+import com.linagora.consistency.domain.port.driving.ForDetectingUserInconsistencies;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveRecheckSchedulerTest {
+
+    private static final Email HOT = Email.of("hot@example.com");
+    private static final FolderId FOLDER_ID = FolderId.of("550e8400-e29b-41d4-a716-446655440000");
+
+    private final AtomicInteger fullScans = new AtomicInteger();
+    private final List<Email> userChecks = Collections.synchronizedList(new ArrayList<>());
+    private final Map<Email, InconsistencyReport> userReports = new HashMap<>();
+    private InconsistencyReport fullScanReport;
+    private CountDownLatch fullScanRelease = new CountDownLatch(0);
+    private MutableClock clock;
+    private ExecutorService executorService;
+    private AdaptiveRecheckScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        executorService = Executors.newFixedThreadPool(2);
+        fullScanReport = InconsistencyReport.of(List.of(
+            Inconsistency.nameMismatch(FOLDER_ID, HOT, FolderName.of("INBOX"), FolderName.of("Inbox")),
+            Inconsistency.orphanedOwner(FOLDER_ID, Email.of("ghost@example.com"), FolderName.of("Archive"))
+        ));
+        scheduler = new AdaptiveRecheckScheduler(
+            () -> {
+                fullScans.incrementAndGet();
+                awaitFullScanRelease();
+                return fullScanReport;
+            },
+            user -> {
+                userChecks.add(user);
+                return userReports.getOrDefault(user, InconsistencyReport.empty());
+            },
+            executorService,
+            Duration.ofMinutes(5),
+            Duration.ofHours(6),
+            clock
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdown();
+    }
+
+    @Test
+    void shouldServeMergedReportWithoutUpstreamCalls() {
+        // Given
+        InconsistencyReport first = scheduler.detectInconsistencies();
+
+        // When
+        InconsistencyReport second = scheduler.detectInconsistencies();
+
+        // Then
+        assertSame(first, second);
+        assertEquals(2, first.getTotalCount());
+        assertEquals(1, fullScans.get());
+    }
+
+    @Test
+    void shouldRecheckOnlyHotUsersBetweenFullScans() {
+        // Given
+        scheduler.tick();
+        assertEquals(Set.of(HOT), scheduler.hotUsers());
+
+        // When - the hot user fixed the folder
+        clock.advance(Duration.ofMinutes(5));
+        scheduler.tick();
+
+        // Then - only their own inconsistency is refreshed, global ones are kept
+        assertEquals(List.of(HOT), userChecks);
+        assertEquals(1, fullScans.get());
+        InconsistencyReport report = scheduler.detectInconsistencies();
+        assertEquals(1, report.getTotalCount());
+        assertEquals(InconsistencyType.ORPHANED_OWNER, report.getInconsistencies().get(0).getType());
+    }
+
+    @Test
+    void shouldRefreshTheGlobalIndexOncePerBatchOfRechecks() {
+        // Given
+        AtomicInteger indexRefreshes = new AtomicInteger();
+        AdaptiveRecheckScheduler refreshing = new AdaptiveRecheckScheduler(
+            () -> fullScanReport,
+            new ForDetectingUserInconsistencies() {
+                @Override
+                public InconsistencyReport detectInconsistenciesForUser(Email userEmail) {
+                    assertEquals(1, indexRefreshes.get(), "index must be refreshed before the rechecks");
+                    userChecks.add(userEmail);
+                    return InconsistencyReport.empty();
+                }
+
+                @Override
+                public void refreshGlobalIndex() {
+                    indexRefreshes.incrementAndGet();
+                }
+            },
+            executorService,
+            Duration.ofMinutes(5),
+            Duration.ofHours(6),
+            clock
+        );
+        refreshing.tick();
+        assertEquals(0, indexRefreshes.get());
+
+        // When
+        clock.advance(Duration.ofMinutes(4));
+        refreshing.tick();
+        clock.advance(Duration.ofMinutes(1));
+        refreshing.tick();
+
+        // Then - none on the full scan nor when nobody is due
+        assertEquals(List.of(HOT), userChecks);
+        assertEquals(1, indexRefreshes.get());
+    }
+
+    @Test
+    void shouldNotRecheckBeforeHotIntervalElapses() {
+        // Given
+        scheduler.tick();
+
+        // When
+        clock.advance(Duration.ofMinutes(4));
+        scheduler.tick();
+
+        // Then
+        assertTrue(userChecks.isEmpty());
+    }
+
+    @Test
+    void shouldCoolDownUsersThatStayConsistent() {
+        // Given
+        scheduler.tick();
+
+        // When - consistent on every recheck, heat halving each time
+        for (int i = 0; i < 5; i++) {
+            clock.advance(Duration.ofMinutes(5));
+            scheduler.tick();
+        }
+
+        // Then
+        assertTrue(scheduler.hotUsers().isEmpty());
+        int checks = userChecks.size();
+        clock.advance(Duration.ofMinutes(5));
+        scheduler.tick();
+        assertEquals(checks, userChecks.size());
+    }
+
+    @Test
+    void shouldRunFullScanOnColdInterval() {
+        // Given
+        scheduler.tick();
+
+        // When
+        clock.advance(Duration.ofHours(6));
+        scheduler.tick();
+
+        // Then
+        assertEquals(2, fullScans.get());
+    }
+
+    @Test
+    void shouldKeepGlobalIndexVersionWhileRechecksUseTheSameSnapshot() {
+        // Given
+        fullScanReport = InconsistencyReport.of(fullScanReport.getInconsistencies(), 7);
+        userReports.put(HOT, InconsistencyReport.of(List.of(), 7));
+        scheduler.tick();
+        assertEquals(OptionalLong.of(7), scheduler.detectInconsistencies().getGlobalIndexVersion());
+
+        // When - rechecked against the same snapshot
+        clock.advance(Duration.ofMinutes(5));
+        scheduler.tick();
+
+        // Then
+        assertEquals(OptionalLong.of(7), scheduler.detectInconsistencies().getGlobalIndexVersion());
+
+        // When - rechecked against a newer snapshot
+        userReports.put(HOT, InconsistencyReport.of(List.of(), 8));
+        clock.advance(Duration.ofMinutes(5));
+        scheduler.tick();
+
+        // Then - the merged report mixes two downloads
+        assertTrue(scheduler.detectInconsistencies().getGlobalIndexVersion().isEmpty());
+    }
+
+    @Test
+    void shouldServePreviousReportWhileFullScanRuns() throws Exception {
+        // Given
+        InconsistencyReport previous = scheduler.detectInconsistencies();
+        fullScanRelease = new CountDownLatch(1);
+        clock.advance(Duration.ofHours(6));
+        Future<?> tick = executorService.submit(scheduler::tick);
+        while (fullScans.get() < 2) {
+            Thread.onSpinWait();
+        }
+
+        // When
+        InconsistencyReport during = scheduler.detectInconsistencies();
+        Set<Email> hotUsers = scheduler.hotUsers();
+
+        // Then - readers do not wait for the running scan
+        assertSame(previous, during);
+        assertEquals(Set.of(HOT), hotUsers);
+        fullScanRelease.countDown();
+        tick.get(5, TimeUnit.SECONDS);
+        assertNotSame(previous, scheduler.detectInconsistencies());
+    }
+
+    @Test
+    void shouldForwardDeadlineWithoutMergingPartialReports() {
+        // Given
+        InconsistencyReport partial = InconsistencyReport.partial(List.of(), 7, ScanCoverage.of(2, List.of(HOT)));
+        List<Duration> deadlines = new ArrayList<>();
+        AdaptiveRecheckScheduler bounded = new AdaptiveRecheckScheduler(
+            new ForDetectingInconsistencies() {
+                @Override
+                public InconsistencyReport detectInconsistencies() {
+                    fullScans.incrementAndGet();
+                    return fullScanReport;
+                }
+
+                @Override
+                public InconsistencyReport detectInconsistencies(Duration deadline) {
+                    deadlines.add(deadline);
+                    return partial;
+                }
+
+                @Override
+                public boolean supportsDeadline() {
+                    return true;
+                }
+            },
+            user -> InconsistencyReport.empty(),
+            executorService,
+            Duration.ofMinutes(5),
+            Duration.ofHours(6),
+            clock
+        );
+
+        // When
+        InconsistencyReport detected = bounded.detectInconsistencies(Duration.ofSeconds(5));
+
+        // Then
+        assertSame(partial, detected);
+        assertTrue(bounded.supportsDeadline());
+        assertEquals(List.of(Duration.ofSeconds(5)), deadlines);
+        assertEquals(0, fullScans.get());
+        InconsistencyReport merged = bounded.detectInconsistencies();
+        assertFalse(merged.isPartial());
+        assertEquals(2, merged.getTotalCount());
+        assertEquals(1, fullScans.get());
+    }
+
+    private void awaitFullScanRelease() {
+        try {
+            fullScanRelease.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+}
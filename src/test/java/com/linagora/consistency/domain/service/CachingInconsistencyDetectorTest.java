@@ -0,0 +1,125 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.fake.MutableClock;
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.InconsistencyReport;
+import com.linagora.consistency.domain.model.ScanCoverage;
+import com.linagora.consistency.domain.port.driving.ForDetectingInconsistencies;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingInconsistencyDetectorTest {
+
+    private final AtomicInteger scans = new AtomicInteger();
+    private final ForDetectingInconsistencies delegate = () -> {
+        scans.incrementAndGet();
+        return InconsistencyReport.empty();
+    };
+    private MutableClock clock;
+    private CachingInconsistencyDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        detector = new CachingInconsistencyDetector(delegate, Duration.ofSeconds(60), clock);
+    }
+
+    @Test
+    void shouldServeSameGenerationWhileFresh() {
+        InconsistencyReport first = detector.detectInconsistencies();
+        clock.advance(Duration.ofSeconds(59));
+        InconsistencyReport second = detector.detectInconsistencies();
+
+        assertSame(first, second);
+        assertEquals(1, scans.get());
+    }
+
+    @Test
+    void shouldScanAgainOnceStale() {
+        InconsistencyReport first = detector.detectInconsistencies();
+        clock.advance(Duration.ofSeconds(60));
+        InconsistencyReport second = detector.detectInconsistencies();
+
+        assertNotSame(first, second);
+        assertEquals(2, scans.get());
+    }
+
+    @Test
+    void shouldNotCachePartialReports() {
+        // Given
+        InconsistencyReport partial = InconsistencyReport.partial(List.of(), 1, ScanCoverage.of(1, List.of(Email.of("john@example.com"))));
+        CachingInconsistencyDetector bounded = new CachingInconsistencyDetector(new ForDetectingInconsistencies() {
+            @Override
+            public InconsistencyReport detectInconsistencies() {
+                scans.incrementAndGet();
+                return InconsistencyReport.empty();
+            }
+
+            @Override
+            public InconsistencyReport detectInconsistencies(Duration deadline) {
+                scans.incrementAndGet();
+                return partial;
+            }
+        }, Duration.ofSeconds(60), clock);
+
+        // When
+        InconsistencyReport first = bounded.detectInconsistencies(Duration.ofSeconds(5));
+        InconsistencyReport complete = bounded.detectInconsistencies();
+        InconsistencyReport cached = bounded.detectInconsistencies(Duration.ofSeconds(5));
+
+        // Then
+        assertSame(partial, first);
+        assertFalse(complete.isPartial());
+        assertSame(complete, cached);
+        assertEquals(2, scans.get());
+    }
+
+    @Test
+    void shouldNotMakeDeadlineCallersWaitForAnotherScan() throws Exception {
+        // Given an unbounded scan in progress
+        InconsistencyReport partial = InconsistencyReport.partial(List.of(), 1, ScanCoverage.of(1, List.of(Email.of("john@example.com"))));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CachingInconsistencyDetector bounded = new CachingInconsistencyDetector(new ForDetectingInconsistencies() {
+            @Override
+            public InconsistencyReport detectInconsistencies() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return InconsistencyReport.empty();
+            }
+
+            @Override
+            public InconsistencyReport detectInconsistencies(Duration deadline) {
+                return partial;
+            }
+        }, Duration.ofSeconds(60), clock);
+        CompletableFuture<InconsistencyReport> unbounded = CompletableFuture.supplyAsync(bounded::detectInconsistencies);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        try {
+            // When
+            InconsistencyReport report = CompletableFuture.supplyAsync(() -> bounded.detectInconsistencies(Duration.ofSeconds(5)))
+                .get(5, TimeUnit.SECONDS);
+
+            // Then: its own partial scan, without waiting for the unbounded one
+            assertSame(partial, report);
+        } finally {
+            release.countDown();
+        }
+        assertSame(unbounded.get(5, TimeUnit.SECONDS), bounded.detectInconsistencies(Duration.ofSeconds(5)));
+    }
+}
@@ -0,0 +1,83 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.FolderId;
+import com.linagora.consistency.domain.model.FolderName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalFolderSorterTest {
+
+    @TempDir
+    Path spillDirectory;
+
+    @Test
+    void shouldMergeMoreRunsThanTheFanInInSeveralPasses() throws IOException {
+        // Given: a budget with room for a single read buffer, so at most two runs are merged at once
+        List<FolderRecord> records = new ArrayList<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 500; i++) {
+            records.add(record("user" + random.nextInt(50) + "@example.com", i));
+        }
+
+        try (ExternalFolderSorter sorter = new ExternalFolderSorter(spillDirectory, 2048)) {
+            records.forEach(sorter::add);
+            assertTrue(sorter.runCount() > 2);
+
+            // When
+            List<FolderRecord> sorted = new ArrayList<>();
+            sorter.sorted().forEachRemaining(sorted::add);
+
+            // Then
+            records.sort(FolderRecord.SORT_ORDER);
+            assertEquals(records, sorted);
+            try (Stream<Path> runs = Files.list(spillDirectory)) {
+                assertTrue(runs.count() <= 2, "intermediate runs must be deleted");
+            }
+        }
+        try (Stream<Path> leftovers = Files.list(spillDirectory)) {
+            assertEquals(0, leftovers.count());
+        }
+    }
+
+    @Test
+    void shouldSpillNamesLongerThan64Kilobytes() {
+        // Given
+        FolderRecord longName = new FolderRecord(
+            Email.of("john@example.com"),
+            FolderId.of("550e8400-e29b-41d4-a716-446655440000"),
+            FolderName.of("é".repeat(40_000)),
+            0
+        );
+
+        try (ExternalFolderSorter sorter = new ExternalFolderSorter(spillDirectory, 1024)) {
+            sorter.add(longName);
+            sorter.add(record("alice@example.com", 1));
+
+            // When
+            List<FolderRecord> sorted = new ArrayList<>();
+            sorter.sorted().forEachRemaining(sorted::add);
+
+            // Then
+            assertEquals(2, sorter.runCount());
+            assertEquals(List.of(record("alice@example.com", 1), longName), sorted);
+        }
+    }
+
+    private static FolderRecord record(String email, long sequence) {
+        return new FolderRecord(
+            Email.of(email),
+            FolderId.of(new UUID(0, sequence).toString()),
+            FolderName.of("Folder " + sequence),
+            sequence
+        );
+    }
+}
@@ -0,0 +1,193 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.fake.FakeGlobalFolderIndexStore;
+import com.linagora.consistency.domain.fake.FakeGlobalFoldersRetriever;
+import com.linagora.consistency.domain.fake.MutableClock;
+import com.linagora.consistency.domain.model.*;
+import com.linagora.consistency.domain.rule.InconsistencyRules;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GlobalIndexCacheTest {
+
+    private static final Email USER = Email.of("john@example.com");
+    private static final GlobalFolder INBOX = GlobalFolder.of(FolderId.of("550e8400-e29b-41d4-a716-446655440000"), USER, FolderName.of("Inbox"));
+    private static final GlobalFolder SENT = GlobalFolder.of(FolderId.of("550e8400-e29b-41d4-a716-446655440001"), USER, FolderName.of("Sent"));
+
+    private FakeGlobalFoldersRetriever globalFoldersRetriever;
+    private FakeGlobalFolderIndexStore globalFolderIndexStore;
+    private MutableClock clock;
+    private GlobalIndexCache cache;
+
+    @BeforeEach
+    void setUp() {
+        globalFoldersRetriever = new FakeGlobalFoldersRetriever();
+        globalFolderIndexStore = new FakeGlobalFolderIndexStore();
+        clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        globalFoldersRetriever.addGlobalFolder(INBOX);
+        cache = new GlobalIndexCache(globalFoldersRetriever, globalFolderIndexStore, InconsistencyRules.defaults(),
+            Duration.ofMinutes(10), Duration.ofMinutes(2), clock);
+    }
+
+    @Test
+    void shouldReuseSnapshotUntilTheStalenessDeadline() {
+        // Given
+        GlobalIndexCache.Snapshot first = cache.forFullScan();
+
+        // When
+        clock.advance(Duration.ofMinutes(9));
+        GlobalIndexCache.Snapshot reused = cache.forFullScan();
+        clock.advance(Duration.ofMinutes(1));
+        GlobalIndexCache.Snapshot expired = cache.forFullScan();
+
+        // Then
+        assertSame(first, reused);
+        assertEquals(1, first.version());
+        assertEquals(2, expired.version());
+        assertEquals(2, globalFoldersRetriever.getRetrievalCount());
+    }
+
+    @Test
+    void shouldRefreshNowWhateverTheAgeOfTheSnapshot() {
+        // Given
+        cache.forUserCheck();
+        globalFoldersRetriever.addGlobalFolder(SENT);
+
+        // When
+        clock.advance(Duration.ofMinutes(1));
+        cache.refreshNow();
+
+        // Then
+        GlobalIndexCache.Snapshot current = cache.forUserCheck();
+        assertEquals(2, current.version());
+        assertEquals(2, current.index().folderCountOf(USER));
+        assertEquals(2, globalFoldersRetriever.getRetrievalCount());
+    }
+
+    @Test
+    void shouldRefreshAheadOfTheDeadline() {
+        // Given
+        cache.forFullScan();
+        globalFoldersRetriever.addGlobalFolder(SENT);
+
+        // When
+        clock.advance(Duration.ofMinutes(7));
+        cache.refreshIfDue();
+        long beforeRefreshPoint = cache.forFullScan().version();
+        clock.advance(Duration.ofMinutes(1));
+        cache.refreshIfDue();
+        GlobalIndexCache.Snapshot refreshed = cache.forFullScan();
+
+        // Then
+        assertEquals(1, beforeRefreshPoint);
+        assertEquals(2, refreshed.version());
+        assertEquals(2, refreshed.index().folderCountOf(USER));
+        assertEquals(2, globalFoldersRetriever.getRetrievalCount());
+    }
+
+    @Test
+    void shouldServeTheCurrentSnapshotWhileRefreshing() throws Exception {
+        // Given a refresh blocked in the download
+        CountDownLatch downloading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        int[] downloads = {0};
+        GlobalIndexCache blockingCache = new GlobalIndexCache(() -> {
+            if (downloads[0]++ > 0) {
+                downloading.countDown();
+                await(release);
+            }
+            return List.of(INBOX);
+        }, globalFolderIndexStore, InconsistencyRules.defaults(), Duration.ofMinutes(10), Duration.ofMinutes(2), clock);
+        GlobalIndexCache.Snapshot first = blockingCache.forFullScan();
+        clock.advance(Duration.ofMinutes(9));
+        CompletableFuture<Void> refresh = CompletableFuture.runAsync(blockingCache::refreshIfDue);
+        assertTrue(downloading.await(5, TimeUnit.SECONDS));
+
+        // When
+        GlobalIndexCache.Snapshot duringRefresh = blockingCache.forFullScan();
+        GlobalIndexCache.Snapshot duringRefreshForUser = blockingCache.forUserCheck();
+        release.countDown();
+        refresh.get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertSame(first, duringRefresh);
+        assertSame(first, duringRefreshForUser);
+        assertEquals(2, blockingCache.forFullScan().version());
+    }
+
+    @Test
+    void shouldStartUserChecksFromTheStoredIndexButDownloadForFullScans() {
+        // Given
+        globalFolderIndexStore.preload(List.of(INBOX, SENT), clock.instant().minus(Duration.ofMinutes(9)));
+
+        // When
+        GlobalIndexCache.Snapshot stored = cache.forUserCheck();
+        GlobalIndexCache.Snapshot downloaded = cache.forFullScan();
+
+        // Then
+        assertFalse(stored.downloaded());
+        assertEquals(2, stored.index().folderCountOf(USER));
+        assertTrue(downloaded.downloaded());
+        assertEquals(2, downloaded.version());
+        assertEquals(1, globalFoldersRetriever.getRetrievalCount());
+    }
+
+    @Test
+    void shouldAgeStoredIndexFromWhenItWasBuilt() {
+        // Given an index stored before the last restart, older than the staleness deadline
+        globalFolderIndexStore.preload(List.of(INBOX, SENT), clock.instant().minus(Duration.ofMinutes(10)));
+
+        // When
+        GlobalIndexCache.Snapshot snapshot = cache.forUserCheck();
+
+        // Then
+        assertTrue(snapshot.downloaded());
+        assertEquals(1, snapshot.index().folderCountOf(USER));
+        assertEquals(1, globalFoldersRetriever.getRetrievalCount());
+    }
+
+    @Test
+    void shouldKeepGlobalFolderInconsistenciesWithTheSnapshot() {
+        // Given the same folder listed twice
+        globalFoldersRetriever.addGlobalFolder(INBOX);
+
+        // When
+        GlobalIndexCache.Snapshot snapshot = cache.forFullScan();
+
+        // Then
+        assertEquals(1, snapshot.globalInconsistencies().size());
+        assertSame(snapshot, cache.forFullScan());
+    }
+
+    @Test
+    void shouldDownloadOnEveryFullScanWithoutStaleness() {
+        // Given
+        GlobalIndexCache uncached = GlobalIndexCache.withoutStaleness(globalFoldersRetriever, globalFolderIndexStore, InconsistencyRules.defaults());
+
+        // When
+        uncached.forFullScan();
+        uncached.refreshIfDue();
+        uncached.forFullScan();
+        uncached.forUserCheck();
+
+        // Then
+        assertEquals(2, globalFoldersRetriever.getRetrievalCount());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
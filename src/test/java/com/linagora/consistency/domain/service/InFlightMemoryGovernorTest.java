@@ -0,0 +1,122 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.model.Email;
+import com.linagora.consistency.domain.model.FolderId;
+import com.linagora.consistency.domain.model.FolderName;
+import com.linagora.consistency.domain.model.MemoryBudgetStatistics;
+import com.linagora.consistency.domain.model.UserFolder;
+import com.linagora.consistency.domain.model.UserFolders;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InFlightMemoryGovernorTest {
+
+    @Test
+    void shouldAdmitWithinTheBudgetOnly() {
+        // Given
+        InFlightMemoryGovernor governor = new InFlightMemoryGovernor(100);
+
+        // When
+        boolean first = governor.tryAdmit(60);
+        boolean second = governor.tryAdmit(40);
+        boolean third = governor.tryAdmit(1);
+
+        // Then
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(third);
+        assertEquals(MemoryBudgetStatistics.of(100, 100, 100, 2, 1), governor.statistics());
+    }
+
+    @Test
+    void shouldAdmitAUserLargerThanTheBudgetWhenNothingIsInFlight() {
+        // Given
+        InFlightMemoryGovernor governor = new InFlightMemoryGovernor(100);
+
+        // When
+        boolean admitted = governor.tryAdmit(500);
+
+        // Then
+        assertTrue(admitted);
+        assertFalse(governor.tryAdmit(1));
+        assertEquals(5.0, governor.statistics().getUtilization());
+    }
+
+    @Test
+    void shouldTrackRetainedSizeAndPeak() {
+        // Given
+        InFlightMemoryGovernor governor = new InFlightMemoryGovernor(100);
+        governor.tryAdmit(50);
+
+        // When the folders turn out larger than estimated, then are compared
+        governor.resize(50, 80);
+        governor.release(80);
+
+        // Then
+        MemoryBudgetStatistics statistics = governor.statistics();
+        assertEquals(0, statistics.getInFlightBytes());
+        assertEquals(80, statistics.getPeakInFlightBytes());
+    }
+
+    @Test
+    void shouldWaitForOtherScansToRelease() throws Exception {
+        // Given another scan holding the whole budget
+        InFlightMemoryGovernor governor = new InFlightMemoryGovernor(100);
+        governor.tryAdmit(100);
+        CountDownLatch admitted = new CountDownLatch(1);
+        Thread waiting = new Thread(() -> {
+            try {
+                governor.admit(10);
+                admitted.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiting.start();
+
+        // When
+        assertFalse(admitted.await(100, TimeUnit.MILLISECONDS));
+        governor.release(100);
+
+        // Then
+        assertTrue(admitted.await(5, TimeUnit.SECONDS));
+        assertEquals(10, governor.statistics().getInFlightBytes());
+        assertEquals(1, governor.statistics().getDeferredAdmissions());
+    }
+
+    @Test
+    void shouldGiveUpWaitingAfterTheTimeout() throws Exception {
+        // Given another scan holding the whole budget
+        InFlightMemoryGovernor governor = new InFlightMemoryGovernor(100);
+        governor.tryAdmit(100);
+
+        // When
+        boolean admitted = governor.admit(10, TimeUnit.MILLISECONDS.toNanos(50));
+
+        // Then
+        assertFalse(admitted);
+        assertEquals(100, governor.statistics().getInFlightBytes());
+    }
+
+    @Test
+    void shouldEstimateFetchedFoldersFromTheirContent() {
+        // Given
+        Email user = Email.of("john@example.com");
+        UserFolders small = UserFolders.of(user, List.of(
+            UserFolder.of(FolderId.of("550e8400-e29b-41d4-a716-446655440000"), FolderName.of("Inbox"))
+        ));
+        UserFolders large = UserFolders.of(user, List.of(
+            UserFolder.of(FolderId.of("550e8400-e29b-41d4-a716-446655440000"), FolderName.of("Inbox")),
+            UserFolder.of(FolderId.of("550e8400-e29b-41d4-a716-446655440001"), FolderName.of("A much longer folder name"))
+        ));
+
+        // When / Then
+        assertTrue(InFlightMemoryGovernor.estimateRetainedBytes(large) > InFlightMemoryGovernor.estimateRetainedBytes(small));
+        assertTrue(InFlightMemoryGovernor.estimateRetainedBytes(1_000) > InFlightMemoryGovernor.estimateRetainedBytes(10));
+    }
+}
@@ -1,16 +1,34 @@
 package com.linagora.consistency.domain.service;
 
+import com.linagora.consistency.domain.fake.FakeGlobalFolderIndexStore;
 import com.linagora.consistency.domain.fake.FakeGlobalFoldersRetriever;
 import com.linagora.consistency.domain.fake.FakeUserFoldersRetriever;
 import com.linagora.consistency.domain.fake.FakeUserRetriever;
 import com.linagora.consistency.domain.model.*;
+import com.linagora.consistency.domain.rule.InconsistencyRules;
+import com.linagora.consistency.domain.rule.NameMismatchRule;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -23,6 +41,7 @@ class InconsistencyDetectionServiceTest {
     private FakeUserRetriever userRetriever;
     private FakeUserFoldersRetriever userFoldersRetriever;
     private FakeGlobalFoldersRetriever globalFoldersRetriever;
+    private FakeGlobalFolderIndexStore globalFolderIndexStore;
     private ExecutorService executorService;
     private InconsistencyDetectionService service;
 
@@ -31,12 +50,15 @@ class InconsistencyDetectionServiceTest {
         userRetriever = new FakeUserRetriever();
         userFoldersRetriever = new FakeUserFoldersRetriever();
         globalFoldersRetriever = new FakeGlobalFoldersRetriever();
+        globalFolderIndexStore = new FakeGlobalFolderIndexStore();
         executorService = Executors.newFixedThreadPool(2);
 
         service = new InconsistencyDetectionService(
             userRetriever,
             userFoldersRetriever,
             globalFoldersRetriever,
+            globalFolderIndexStore,
+            InconsistencyRules.defaults(),
             executorService
         );
     }
@@ -106,7 +128,7 @@ class InconsistencyDetectionServiceTest {
 
         Inconsistency inconsistency = report.getInconsistencies().get(0);
         assertEquals(InconsistencyType.NAME_MISMATCH, inconsistency.getType());
-        assertEquals(folderId, inconsistency.getFolderId());
+        assertEquals(folderId, inconsistency.getFolderId().orElseThrow());
         assertEquals(userEmail, inconsistency.getUserEmail());
         assertEquals(globalFolderName, inconsistency.getGlobalFolderName().orElseThrow());
         assertEquals(userFolderName, inconsistency.getUserFolderName().orElseThrow());
@@ -129,12 +151,13 @@ class InconsistencyDetectionServiceTest {
         // When
         InconsistencyReport report = service.detectInconsistencies();
 
-        // Then
-        assertEquals(1, report.getTotalCount());
+        // Then - the user also owns no global folder at all
+        assertEquals(2, report.getTotalCount());
+        assertEquals(1L, report.getCountsByType().get(InconsistencyType.USER_WITHOUT_GLOBAL_FOLDERS));
 
         Inconsistency inconsistency = report.getInconsistencies().get(0);
         assertEquals(InconsistencyType.MISSING_IN_GLOBAL, inconsistency.getType());
-        assertEquals(folderId, inconsistency.getFolderId());
+        assertEquals(folderId, inconsistency.getFolderId().orElseThrow());
         assertEquals(userEmail, inconsistency.getUserEmail());
         assertTrue(inconsistency.getGlobalFolderName().isEmpty());
         assertEquals(folderName, inconsistency.getUserFolderName().orElseThrow());
@@ -163,7 +186,7 @@ class InconsistencyDetectionServiceTest {
 
         Inconsistency inconsistency = report.getInconsistencies().get(0);
         assertEquals(InconsistencyType.MISSING_IN_USER_FOLDERS, inconsistency.getType());
-        assertEquals(folderId, inconsistency.getFolderId());
+        assertEquals(folderId, inconsistency.getFolderId().orElseThrow());
         assertEquals(userEmail, inconsistency.getUserEmail());
         assertEquals(folderName, inconsistency.getGlobalFolderName().orElseThrow());
         assertTrue(inconsistency.getUserFolderName().isEmpty());
@@ -194,9 +217,10 @@ class InconsistencyDetectionServiceTest {
         InconsistencyReport report = service.detectInconsistencies();
 
         // Then
-        assertEquals(2, report.getTotalCount());
+        assertEquals(3, report.getTotalCount());
         assertEquals(1L, report.getCountsByType().get(InconsistencyType.NAME_MISMATCH));
         assertEquals(1L, report.getCountsByType().get(InconsistencyType.MISSING_IN_GLOBAL));
+        assertEquals(1L, report.getCountsByType().get(InconsistencyType.USER_WITHOUT_GLOBAL_FOLDERS));
     }
 
     @Test
@@ -228,4 +252,656 @@ class InconsistencyDetectionServiceTest {
         assertEquals(2, report.getTotalCount());
         assertTrue(report.hasInconsistencies());
     }
+
+    @Test
+    void shouldDetectDuplicateInGlobal() {
+        // Given
+        Email userEmail = Email.of("dup@example.com");
+        FolderId folderId = FolderId.of("550e8400-e29b-41d4-a716-446655440030");
+
+        userRetriever.addUser(userEmail);
+        userFoldersRetriever.addUserFolders(UserFolders.of(userEmail, List.of(UserFolder.of(folderId, FolderName.of("Inbox")))));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(folderId, userEmail, FolderName.of("Inbox")));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(folderId, userEmail, FolderName.of("Inbox copy")));
+
+        // When
+        InconsistencyReport report = service.detectInconsistencies();
+
+        // Then - first global row is kept for comparison, the repetition is reported
+        assertEquals(1, report.getTotalCount());
+
+        Inconsistency inconsistency = report.getInconsistencies().get(0);
+        assertEquals(InconsistencyType.DUPLICATE_IN_GLOBAL, inconsistency.getType());
+        assertEquals(folderId, inconsistency.getFolderId().orElseThrow());
+        assertEquals(userEmail, inconsistency.getUserEmail());
+        assertEquals(FolderName.of("Inbox copy"), inconsistency.getGlobalFolderName().orElseThrow());
+    }
+
+    @Test
+    void shouldDetectCrossUserIdCollision() {
+        // Given
+        Email owner = Email.of("owner@example.com");
+        Email other = Email.of("other@example.com");
+        FolderId folderId = FolderId.of("550e8400-e29b-41d4-a716-446655440031");
+
+        userRetriever.addUser(owner);
+        userRetriever.addUser(other);
+        userFoldersRetriever.addUserFolders(UserFolders.of(owner, List.of(UserFolder.of(folderId, FolderName.of("Inbox")))));
+        userFoldersRetriever.addUserFolders(UserFolders.of(other, List.of(UserFolder.of(folderId, FolderName.of("Shared")))));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(folderId, owner, FolderName.of("Inbox")));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(folderId, other, FolderName.of("Shared")));
+
+        // When
+        InconsistencyReport report = service.detectInconsistencies();
+
+        // Then
+        assertEquals(1, report.getTotalCount());
+
+        Inconsistency inconsistency = report.getInconsistencies().get(0);
+        assertEquals(InconsistencyType.CROSS_USER_ID_COLLISION, inconsistency.getType());
+        assertEquals(folderId, inconsistency.getFolderId().orElseThrow());
+        assertEquals(other, inconsistency.getUserEmail());
+    }
+
+    @Test
+    void shouldReportRepetitionOfCollidingIdAsDuplicateOfItsOwnersRow() {
+        // Given
+        Email owner = Email.of("owner@example.com");
+        Email other = Email.of("other@example.com");
+        FolderId folderId = FolderId.of("550e8400-e29b-41d4-a716-446655440032");
+
+        userRetriever.addUser(owner);
+        userRetriever.addUser(other);
+        userFoldersRetriever.addUserFolders(UserFolders.of(owner, List.of(UserFolder.of(folderId, FolderName.of("Inbox")))));
+        userFoldersRetriever.addUserFolders(UserFolders.of(other, List.of(UserFolder.of(folderId, FolderName.of("Shared")))));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(folderId, owner, FolderName.of("Inbox")));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(folderId, other, FolderName.of("Shared")));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(folderId, other, FolderName.of("Shared copy")));
+
+        // When
+        InconsistencyReport report = service.detectInconsistencies();
+
+        // Then - the other owner's second row is the one its index drops
+        assertEquals(List.of(
+            Inconsistency.crossUserIdCollision(folderId, other, FolderName.of("Shared")),
+            Inconsistency.duplicateInGlobal(folderId, other, FolderName.of("Shared copy"))
+        ), report.getInconsistencies());
+    }
+
+    @Test
+    void shouldDetectOrphanedOwner() {
+        // Given
+        Email listed = Email.of("listed@example.com");
+        Email ghost = Email.of("ghost@example.com");
+        FolderId listedFolder = FolderId.of("550e8400-e29b-41d4-a716-446655440034");
+        FolderId ghostFolder = FolderId.of("550e8400-e29b-41d4-a716-446655440035");
+
+        userRetriever.addUser(listed);
+        userFoldersRetriever.addUserFolders(UserFolders.of(listed, List.of(UserFolder.of(listedFolder, FolderName.of("Inbox")))));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(listedFolder, listed, FolderName.of("Inbox")));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(ghostFolder, ghost, FolderName.of("Archive")));
+
+        // When
+        InconsistencyReport report = service.detectInconsistencies();
+
+        // Then
+        assertEquals(1, report.getTotalCount());
+
+        Inconsistency inconsistency = report.getInconsistencies().get(0);
+        assertEquals(InconsistencyType.ORPHANED_OWNER, inconsistency.getType());
+        assertEquals(ghostFolder, inconsistency.getFolderId().orElseThrow());
+        assertEquals(ghost, inconsistency.getUserEmail());
+        assertEquals(FolderName.of("Archive"), inconsistency.getGlobalFolderName().orElseThrow());
+    }
+
+    @Test
+    void shouldDetectUserWithoutGlobalFolders() {
+        // Given
+        Email userEmail = Email.of("empty@example.com");
+        userRetriever.addUser(userEmail);
+        userFoldersRetriever.addUserFolders(UserFolders.of(userEmail, List.of()));
+
+        // When
+        InconsistencyReport report = service.detectInconsistencies();
+
+        // Then
+        assertEquals(1, report.getTotalCount());
+
+        Inconsistency inconsistency = report.getInconsistencies().get(0);
+        assertEquals(InconsistencyType.USER_WITHOUT_GLOBAL_FOLDERS, inconsistency.getType());
+        assertEquals(userEmail, inconsistency.getUserEmail());
+        assertTrue(inconsistency.getFolderId().isEmpty());
+    }
+
+    @Test
+    void shouldOnlyRunConfiguredRules() {
+        // Given
+        service = new InconsistencyDetectionService(
+            userRetriever,
+            userFoldersRetriever,
+            globalFoldersRetriever,
+            globalFolderIndexStore,
+            InconsistencyRules.of(List.of(new NameMismatchRule())),
+            executorService
+        );
+        Email userEmail = Email.of("rules@example.com");
+        FolderId renamed = FolderId.of("550e8400-e29b-41d4-a716-446655440032");
+        FolderId userOnly = FolderId.of("550e8400-e29b-41d4-a716-446655440033");
+
+        userRetriever.addUser(userEmail);
+        userFoldersRetriever.addUserFolders(UserFolders.of(userEmail, List.of(
+            UserFolder.of(renamed, FolderName.of("Inbox")),
+            UserFolder.of(userOnly, FolderName.of("Drafts"))
+        )));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(renamed, userEmail, FolderName.of("INBOX")));
+
+        // When
+        InconsistencyReport report = service.detectInconsistencies();
+
+        // Then
+        assertEquals(1, report.getTotalCount());
+        assertEquals(InconsistencyType.NAME_MISMATCH, report.getInconsistencies().get(0).getType());
+    }
+
+    @Test
+    void shouldNotReportNamesEquivalentUnderConfiguredEquivalence() {
+        // Given
+        service = new InconsistencyDetectionService(
+            userRetriever,
+            userFoldersRetriever,
+            globalFoldersRetriever,
+            globalFolderIndexStore,
+            InconsistencyRules.defaults(NameEquivalence.of(NameEquivalence.Normalization.NFC, true, true)),
+            executorService
+        );
+        Email userEmail = Email.of("equivalence@example.com");
+        FolderId accented = FolderId.of("550e8400-e29b-41d4-a716-446655440034");
+        FolderId renamed = FolderId.of("550e8400-e29b-41d4-a716-446655440035");
+
+        userRetriever.addUser(userEmail);
+        userFoldersRetriever.addUserFolders(UserFolders.of(userEmail, List.of(
+            UserFolder.of(accented, FolderName.of("Re\u0301sume\u0301s ")),
+            UserFolder.of(renamed, FolderName.of("Inbox"))
+        )));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(accented, userEmail, FolderName.of("R\u00c9SUM\u00c9S")));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(renamed, userEmail, FolderName.of("Archive")));
+
+        // When
+        InconsistencyReport report = service.detectInconsistencies();
+
+        // Then
+        assertEquals(1, report.getTotalCount());
+        assertEquals(renamed, report.getInconsistencies().get(0).getFolderId().orElseThrow());
+    }
+
+    @Test
+    void shouldPairMissingFoldersWithEquivalentNamesAsIdMismatch() {
+        // Given
+        service = new InconsistencyDetectionService(
+            userRetriever,
+            userFoldersRetriever,
+            globalFoldersRetriever,
+            globalFolderIndexStore,
+            InconsistencyRules.defaults(NameEquivalence.of(NameEquivalence.Normalization.NONE, true, false)).withIdDriftPairing(),
+            executorService
+        );
+        Email userEmail = Email.of("drift@example.com");
+        FolderId recreated = FolderId.of("550e8400-e29b-41d4-a716-446655440040");
+        FolderId original = FolderId.of("550e8400-e29b-41d4-a716-446655440041");
+        FolderId userOnly = FolderId.of("550e8400-e29b-41d4-a716-446655440042");
+        FolderId globalOnly = FolderId.of("550e8400-e29b-41d4-a716-446655440043");
+
+        userRetriever.addUser(userEmail);
+        userFoldersRetriever.addUserFolders(UserFolders.of(userEmail, List.of(
+            UserFolder.of(recreated, FolderName.of("Projects")),
+            UserFolder.of(userOnly, FolderName.of("Personal"))
+        )));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(original, userEmail, FolderName.of("PROJECTS")));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(globalOnly, userEmail, FolderName.of("Archive")));
+
+        // When
+        InconsistencyReport report = service.detectInconsistencies();
+
+        // Then
+        assertEquals(List.of(
+            Inconsistency.idMismatch(recreated, original, userEmail, FolderName.of("PROJECTS"), FolderName.of("Projects")),
+            Inconsistency.missingInGlobal(userOnly, userEmail, FolderName.of("Personal")),
+            Inconsistency.missingInUserFolders(globalOnly, userEmail, FolderName.of("Archive"))
+        ), report.getInconsistencies());
+        assertEquals(1L, report.getCountsByType().get(InconsistencyType.ID_MISMATCH));
+    }
+
+    @Test
+    void shouldPairIdDriftOfLargeFolderListsInLinearTime() {
+        // Given
+        service = new InconsistencyDetectionService(
+            userRetriever,
+            userFoldersRetriever,
+            globalFoldersRetriever,
+            globalFolderIndexStore,
+            InconsistencyRules.defaults().withIdDriftPairing(),
+            executorService
+        );
+        Email userEmail = Email.of("bulk@example.com");
+        List<UserFolder> userFolders = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            userFolders.add(UserFolder.of(FolderId.of(new UUID(1, i).toString()), FolderName.of("Folder " + i)));
+            globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(FolderId.of(new UUID(2, i).toString()), userEmail, FolderName.of("Folder " + (49_999 - i))));
+        }
+        userRetriever.addUser(userEmail);
+        userFoldersRetriever.addUserFolders(UserFolders.of(userEmail, userFolders));
+
+        // When
+        InconsistencyReport report = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> service.detectInconsistencies());
+
+        // Then
+        assertEquals(50_000, report.getTotalCount());
+        assertEquals(50_000L, report.getCountsByType().get(InconsistencyType.ID_MISMATCH));
+        Inconsistency first = report.getInconsistencies().get(0);
+        assertEquals(FolderId.of(new UUID(2, 49_999).toString()), first.getGlobalFolderId().orElseThrow());
+    }
+
+    @Test
+    void shouldReportTheSameWhenOversizedUsersAreSplit() {
+        // Given a service account with many folders of every kind, next to small users
+        Email serviceAccount = Email.of("archive-bot@example.com");
+        userRetriever.addUser(Email.of("small@example.com"));
+        userRetriever.addUser(serviceAccount);
+        userFoldersRetriever.addUserFolders(UserFolders.of(Email.of("small@example.com"), List.of(
+            UserFolder.of(FolderId.of(new UUID(9, 0).toString()), FolderName.of("Inbox"))
+        )));
+        List<UserFolder> userFolders = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            FolderId folderId = FolderId.of(new UUID(1, i).toString());
+            FolderName name = FolderName.of("Folder " + i);
+            switch (i % 4) {
+                case 0 -> userFolders.add(UserFolder.of(folderId, name));
+                case 1 -> globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(folderId, serviceAccount, name));
+                case 2 -> {
+                    userFolders.add(UserFolder.of(folderId, name));
+                    globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(folderId, serviceAccount, FolderName.of("Renamed " + i)));
+                }
+                default -> {
+                    // Recreated under another id, paired as id drift
+                    userFolders.add(UserFolder.of(folderId, name));
+                    globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(FolderId.of(new UUID(2, i).toString()), serviceAccount, name));
+                }
+            }
+        }
+        userFoldersRetriever.addUserFolders(UserFolders.of(serviceAccount, userFolders));
+        InconsistencyRules rules = InconsistencyRules.defaults().withIdDriftPairing();
+
+        // When
+        InconsistencyReport sequential = new InconsistencyDetectionService(userRetriever, userFoldersRetriever,
+            globalIndexCache(rules), rules, executorService, Integer.MAX_VALUE, InFlightMemoryGovernor.unbounded()).detectInconsistencies();
+        InconsistencyReport split = new InconsistencyDetectionService(userRetriever, userFoldersRetriever,
+            globalIndexCache(rules), rules, executorService, 7, InFlightMemoryGovernor.unbounded()).detectInconsistencies();
+
+        // Then
+        assertEquals(250L, split.getCountsByType().get(InconsistencyType.ID_MISMATCH));
+        assertEquals(sequential.getInconsistencies(), split.getInconsistencies());
+    }
+
+    @Test
+    void shouldRunComparisonsOutsideTheFetchExecutor() {
+        // Given a fetch executor and a comparison executor counting their tasks
+        userRetriever.addUser(Email.of("john@example.com"));
+        userRetriever.addUser(Email.of("jane@example.com"));
+        AtomicInteger fetches = new AtomicInteger();
+        AtomicInteger comparisons = new AtomicInteger();
+        ExecutorService fetchExecutor = countingExecutor(fetches);
+        ExecutorService comparisonExecutor = countingExecutor(comparisons);
+        InconsistencyRules rules = InconsistencyRules.defaults();
+
+        try {
+            // When
+            new InconsistencyDetectionService(userRetriever, userFoldersRetriever, globalIndexCache(rules), rules,
+                fetchExecutor, comparisonExecutor, 1, InFlightMemoryGovernor.unbounded()).detectInconsistencies();
+
+            // Then: one fetch per user, and every comparison task on the other executor
+            assertEquals(2, fetches.get());
+            assertTrue(comparisons.get() > 0);
+        } finally {
+            fetchExecutor.shutdown();
+            comparisonExecutor.shutdown();
+        }
+    }
+
+    private static ExecutorService countingExecutor(AtomicInteger tasks) {
+        return new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()) {
+            @Override
+            protected void beforeExecute(Thread thread, Runnable task) {
+                tasks.incrementAndGet();
+            }
+        };
+    }
+
+    @Test
+    void shouldFetchUsersWithMostGlobalFoldersFirst() {
+        // Given a single worker, so that fetches happen in submission order
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        service = new InconsistencyDetectionService(userRetriever, userFoldersRetriever, globalFoldersRetriever,
+            globalFolderIndexStore, InconsistencyRules.defaults(), singleThread);
+        List<Email> users = List.of(Email.of("a@example.com"), Email.of("b@example.com"), Email.of("c@example.com"));
+        int[] globalFolderCounts = {1, 5, 3};
+        for (int u = 0; u < users.size(); u++) {
+            userRetriever.addUser(users.get(u));
+            for (int f = 0; f < globalFolderCounts[u]; f++) {
+                globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(FolderId.of(new UUID(u, f).toString()), users.get(u), FolderName.of("F" + f)));
+            }
+        }
+
+        // When
+        InconsistencyReport report;
+        try {
+            report = service.detectInconsistencies();
+        } finally {
+            singleThread.shutdown();
+        }
+
+        // Then users are fetched longest first, but reported in their own order
+        assertEquals(List.of(users.get(1), users.get(2), users.get(0)), userFoldersRetriever.getRequestedUsers());
+        assertEquals(users.get(0), report.getInconsistencies().get(0).getUserEmail());
+    }
+
+    @Test
+    void shouldCompareUsersOneByOneWhenTheMemoryBudgetIsExhausted() {
+        // Given a budget smaller than any user, so that only one user is held at a time
+        long largestUser = 0;
+        for (int u = 0; u < 5; u++) {
+            Email user = Email.of("user" + u + "@example.com");
+            userRetriever.addUser(user);
+            List<UserFolder> folders = new ArrayList<>();
+            for (int f = 0; f <= u; f++) {
+                FolderId folderId = FolderId.of(new UUID(u, f).toString());
+                folders.add(UserFolder.of(folderId, FolderName.of("Folder " + f)));
+                globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(folderId, user, FolderName.of(f % 2 == 0 ? "Folder " + f : "Other")));
+            }
+            UserFolders userFolders = UserFolders.of(user, folders);
+            userFoldersRetriever.addUserFolders(userFolders);
+            largestUser = Math.max(largestUser, Math.max(
+                InFlightMemoryGovernor.estimateRetainedBytes(folders.size()),
+                InFlightMemoryGovernor.estimateRetainedBytes(userFolders)
+            ));
+        }
+        InFlightMemoryGovernor memoryGovernor = new InFlightMemoryGovernor(1);
+        InconsistencyDetectionService governed = new InconsistencyDetectionService(userRetriever, userFoldersRetriever,
+            globalIndexCache(InconsistencyRules.defaults()), InconsistencyRules.defaults(), executorService,
+            InconsistencyDetectionService.DEFAULT_SPLIT_SIZE, memoryGovernor);
+
+        // When
+        InconsistencyReport report = governed.detectInconsistencies();
+
+        // Then the scan is slower but reports the same, and holds nothing afterwards
+        assertEquals(service.detectInconsistencies().getInconsistencies(), report.getInconsistencies());
+        assertEquals(6L, report.getCountsByType().get(InconsistencyType.NAME_MISMATCH));
+        MemoryBudgetStatistics statistics = memoryGovernor.statistics();
+        assertEquals(5, statistics.getAdmittedFetches());
+        assertEquals(4, statistics.getDeferredAdmissions());
+        assertEquals(largestUser, statistics.getPeakInFlightBytes());
+        assertEquals(0, statistics.getInFlightBytes());
+    }
+
+    @Test
+    void shouldReleaseTheMemoryBudgetWhenAFetchFails() {
+        // Given
+        userRetriever.addUser(Email.of("ok@example.com"));
+        userRetriever.addUser(Email.of("broken@example.com"));
+        InFlightMemoryGovernor memoryGovernor = new InFlightMemoryGovernor(1024 * 1024);
+        InconsistencyDetectionService governed = new InconsistencyDetectionService(userRetriever,
+            userEmail -> {
+                if (userEmail.equals(Email.of("broken@example.com"))) {
+                    throw new IllegalStateException("Upstream unavailable");
+                }
+                return UserFolders.of(userEmail, List.of());
+            },
+            globalIndexCache(InconsistencyRules.defaults()), InconsistencyRules.defaults(), executorService,
+            InconsistencyDetectionService.DEFAULT_SPLIT_SIZE, memoryGovernor);
+
+        // When
+        RuntimeException error = assertThrows(RuntimeException.class, governed::detectInconsistencies);
+
+        // Then
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertEquals(0, memoryGovernor.statistics().getInFlightBytes());
+    }
+
+    @Test
+    void shouldStopUpstreamCallsWithinMillisecondsWhenTheScanIsInterrupted() throws Exception {
+        // Given upstream calls that would each take 30 seconds
+        for (int i = 0; i < 50; i++) {
+            userRetriever.addUser(Email.of("user" + i + "@example.com"));
+        }
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger interrupted = new AtomicInteger();
+        InconsistencyDetectionService slow = new InconsistencyDetectionService(userRetriever,
+            userEmail -> {
+                started.incrementAndGet();
+                try {
+                    Thread.sleep(30_000);
+                } catch (InterruptedException e) {
+                    interrupted.incrementAndGet();
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while fetching " + userEmail, e);
+                }
+                return UserFolders.of(userEmail, List.of());
+            },
+            globalFoldersRetriever, globalFolderIndexStore, InconsistencyRules.defaults(), executorService);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Thread scan = new Thread(() -> {
+            try {
+                slow.detectInconsistencies();
+            } catch (RuntimeException e) {
+                failure.set(e);
+            }
+        });
+        scan.start();
+        while (started.get() < 2) {
+            Thread.onSpinWait();
+        }
+
+        // When - what cancelling the subscription of GET /inconsistencies does to the scan thread
+        long start = System.nanoTime();
+        scan.interrupt();
+        scan.join(5_000);
+        while (interrupted.get() < 2 && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5)) {
+            Thread.onSpinWait();
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        Thread.sleep(100);
+
+        // Then
+        assertFalse(scan.isAlive());
+        assertEquals("Interrupted while fetching user folders", failure.get().getMessage());
+        assertEquals(2, interrupted.get());
+        assertTrue(elapsed.compareTo(Duration.ofSeconds(1)) < 0, "took " + elapsed);
+        assertEquals(2, started.get());
+    }
+
+    @Test
+    void shouldReturnPartialReportOfTheUsersCheckedByTheDeadline() throws Exception {
+        // Given a user answering at once and two users whose fetches never finish
+        Email fast = Email.of("fast@example.com");
+        Email slow = Email.of("slow@example.com");
+        Email stuck = Email.of("stuck@example.com");
+        FolderId folderId = FolderId.of("550e8400-e29b-41d4-a716-446655440040");
+        List.of(fast, slow, stuck).forEach(userRetriever::addUser);
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(folderId, fast, FolderName.of("INBOX_OLD")));
+        AtomicInteger cancelledFetches = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        InconsistencyDetectionService bounded = new InconsistencyDetectionService(userRetriever,
+            userEmail -> {
+                if (userEmail.equals(fast)) {
+                    return UserFolders.of(fast, List.of(UserFolder.of(folderId, FolderName.of("Inbox"))));
+                }
+                try {
+                    Thread.sleep(30_000);
+                } catch (InterruptedException e) {
+                    cancelledFetches.incrementAndGet();
+                    Thread.currentThread().interrupt();
+                }
+                return UserFolders.of(userEmail, List.of());
+            },
+            globalFoldersRetriever, globalFolderIndexStore, InconsistencyRules.defaults(), pool);
+
+        // When
+        long start = System.nanoTime();
+        InconsistencyReport report = bounded.detectInconsistencies(Duration.ofMillis(200));
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        // Then
+        assertTrue(report.isPartial());
+        ScanCoverage coverage = report.getCoverage().orElseThrow();
+        assertEquals(List.of(slow, stuck), coverage.getUncheckedUsers());
+        assertEquals(1, coverage.getCheckedUsers());
+        assertEquals(100.0 / 3, coverage.getPercentage(), 1e-9);
+        assertEquals(1, report.getCountsByType().get(InconsistencyType.NAME_MISMATCH));
+        assertEquals(2, report.getCountsByType().get(InconsistencyType.USER_WITHOUT_GLOBAL_FOLDERS));
+        assertEquals(2, cancelledFetches.get());
+        assertTrue(elapsed.compareTo(Duration.ofSeconds(2)) < 0, "took " + elapsed);
+    }
+
+    @Test
+    void shouldReturnCompleteReportWhenTheScanEndsBeforeTheDeadline() {
+        // Given
+        Email userEmail = Email.of("john@example.com");
+        FolderId folderId = FolderId.of("550e8400-e29b-41d4-a716-446655440041");
+        userRetriever.addUser(userEmail);
+        userFoldersRetriever.addUserFolders(UserFolders.of(userEmail, List.of(UserFolder.of(folderId, FolderName.of("Inbox")))));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(folderId, userEmail, FolderName.of("INBOX_OLD")));
+
+        // When
+        InconsistencyReport bounded = service.detectInconsistencies(Duration.ofSeconds(30));
+
+        // Then
+        assertFalse(bounded.isPartial());
+        assertTrue(bounded.getCoverage().isEmpty());
+        assertEquals(service.detectInconsistencies(), bounded);
+    }
+
+    @Test
+    void shouldRejectNonPositiveDeadline() {
+        assertThrows(IllegalArgumentException.class, () -> service.detectInconsistencies(Duration.ZERO));
+    }
+
+    @Test
+    void shouldRecordScanAndUserComparisonEvents() throws Exception {
+        // Given
+        Email userEmail = Email.of("john@example.com");
+        userRetriever.addUser(userEmail);
+        userFoldersRetriever.addUserFolders(UserFolders.of(userEmail, List.of(
+            UserFolder.of(FolderId.of("550e8400-e29b-41d4-a716-446655440000"), FolderName.of("Inbox"))
+        )));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(
+            FolderId.of("550e8400-e29b-41d4-a716-446655440001"), userEmail, FolderName.of("Sent")
+        ));
+        Path file = Files.createTempFile("scan-", ".jfr");
+
+        // When
+        try (Recording recording = new Recording()) {
+            recording.enable(ScanEvent.class);
+            recording.enable(UserComparisonEvent.class);
+            recording.start();
+            service.detectInconsistencies();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        // Then
+        try {
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            RecordedEvent scan = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.linagora.consistency.Scan"))
+                .findFirst().orElseThrow();
+            assertEquals(1, scan.getInt("users"));
+            assertEquals(1, scan.getLong("globalIndexVersion"));
+            assertEquals(2, scan.getInt("inconsistencies"));
+            assertFalse(scan.getDuration("userComparison").isNegative());
+            RecordedEvent comparison = events.stream()
+                .filter(event -> event.getEventType().getName().equals("com.linagora.consistency.UserComparison"))
+                .findFirst().orElseThrow();
+            assertEquals("john@example.com", comparison.getString("email"));
+            assertEquals(1, comparison.getInt("userFolders"));
+            assertEquals(1, comparison.getInt("globalFolders"));
+            assertEquals(2, comparison.getInt("inconsistencies"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void shouldReuseCachedGlobalIndexAcrossScansAndRecordItsVersion() {
+        // Given
+        Email userEmail = Email.of("john@example.com");
+        userRetriever.addUser(userEmail);
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(
+            FolderId.of("550e8400-e29b-41d4-a716-446655440000"), userEmail, FolderName.of("Inbox")
+        ));
+        GlobalIndexCache cache = new GlobalIndexCache(globalFoldersRetriever, globalFolderIndexStore,
+            InconsistencyRules.defaults(), Duration.ofMinutes(10), Duration.ofMinutes(1), Clock.systemUTC());
+        InconsistencyDetectionService cached = new InconsistencyDetectionService(userRetriever, userFoldersRetriever,
+            cache, InconsistencyRules.defaults(), executorService, InconsistencyDetectionService.DEFAULT_SPLIT_SIZE,
+            InFlightMemoryGovernor.unbounded());
+
+        // When
+        InconsistencyReport first = cached.detectInconsistencies();
+        InconsistencyReport second = cached.detectInconsistencies();
+        InconsistencyReport userCheck = cached.detectInconsistenciesForUser(userEmail);
+
+        // Then
+        assertEquals(1, globalFoldersRetriever.getRetrievalCount());
+        assertEquals(first, second);
+        assertEquals(1, first.getGlobalIndexVersion().getAsLong());
+        assertEquals(1, second.getGlobalIndexVersion().getAsLong());
+        assertEquals(1, userCheck.getGlobalIndexVersion().getAsLong());
+    }
+
+    @Test
+    void shouldStoreGlobalIndexOnFullScan() {
+        // When
+        service.detectInconsistencies();
+
+        // Then
+        assertTrue(globalFolderIndexStore.hasStoredIndex());
+    }
+
+    @Test
+    void shouldDetectUserInconsistenciesFromStoredIndexWithoutDownloading() {
+        // Given
+        Email userEmail = Email.of("warm@example.com");
+        FolderId folderId = FolderId.of("550e8400-e29b-41d4-a716-446655440030");
+        userFoldersRetriever.addUserFolders(UserFolders.of(userEmail, List.of(UserFolder.of(folderId, FolderName.of("Inbox")))));
+        globalFolderIndexStore.preload(List.of(GlobalFolder.of(folderId, userEmail, FolderName.of("INBOX_OLD"))), Instant.now());
+
+        // When
+        InconsistencyReport report = service.detectInconsistenciesForUser(userEmail);
+
+        // Then
+        assertEquals(1, report.getTotalCount());
+        assertEquals(InconsistencyType.NAME_MISMATCH, report.getInconsistencies().get(0).getType());
+        assertEquals(0, globalFoldersRetriever.getRetrievalCount());
+    }
+
+    @Test
+    void shouldDownloadGlobalFoldersForUserCheckWhenNoIndexIsStored() {
+        // Given
+        Email userEmail = Email.of("cold@example.com");
+        FolderId folderId = FolderId.of("550e8400-e29b-41d4-a716-446655440031");
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(folderId, userEmail, FolderName.of("Sent")));
+
+        // When
+        InconsistencyReport first = service.detectInconsistenciesForUser(userEmail);
+        InconsistencyReport second = service.detectInconsistenciesForUser(userEmail);
+
+        // Then
+        assertEquals(InconsistencyType.MISSING_IN_USER_FOLDERS, first.getInconsistencies().get(0).getType());
+        assertEquals(first, second);
+        assertEquals(1, globalFoldersRetriever.getRetrievalCount());
+    }
+
+    private GlobalIndexCache globalIndexCache(InconsistencyRules rules) {
+        return GlobalIndexCache.withoutStaleness(globalFoldersRetriever, globalFolderIndexStore, rules);
+    }
 }
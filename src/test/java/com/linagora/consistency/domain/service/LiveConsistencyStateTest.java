@@ -0,0 +1,173 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.fake.FakeGlobalFolderIndexStore;
+import com.linagora.consistency.domain.fake.FakeGlobalFoldersRetriever;
+import com.linagora.consistency.domain.fake.FakeUserFoldersRetriever;
+import com.linagora.consistency.domain.fake.FakeUserRetriever;
+import com.linagora.consistency.domain.model.*;
+import com.linagora.consistency.domain.rule.InconsistencyRules;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveConsistencyStateTest {
+
+    private static final Email USER = Email.of("john@example.com");
+    private static final FolderId FOLDER_ID = FolderId.of("550e8400-e29b-41d4-a716-446655440000");
+
+    private FakeUserRetriever userRetriever;
+    private FakeUserFoldersRetriever userFoldersRetriever;
+    private FakeGlobalFoldersRetriever globalFoldersRetriever;
+    private ExecutorService executorService;
+    private LiveConsistencyState state;
+
+    @BeforeEach
+    void setUp() {
+        userRetriever = new FakeUserRetriever();
+        userFoldersRetriever = new FakeUserFoldersRetriever();
+        globalFoldersRetriever = new FakeGlobalFoldersRetriever();
+        executorService = Executors.newFixedThreadPool(2);
+        state = new LiveConsistencyState(
+            userRetriever,
+            userFoldersRetriever,
+            globalFoldersRetriever,
+            InconsistencyRules.defaults(),
+            executorService
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdown();
+    }
+
+    @Test
+    void shouldTrackRenamesIncrementally() {
+        // Given
+        state.applyFolderChange(FolderChangeEvent.created(FolderChangeEvent.Side.GLOBAL, USER, FOLDER_ID, FolderName.of("Inbox")));
+        state.applyFolderChange(FolderChangeEvent.created(FolderChangeEvent.Side.USER, USER, FOLDER_ID, FolderName.of("Inbox")));
+        assertFalse(state.liveInconsistencies().hasInconsistencies());
+
+        // When
+        state.applyFolderChange(FolderChangeEvent.renamed(FolderChangeEvent.Side.USER, USER, FOLDER_ID, FolderName.of("Received")));
+
+        // Then
+        InconsistencyReport report = state.liveInconsistenciesForUser(USER);
+        assertEquals(1, report.getTotalCount());
+        assertEquals(InconsistencyType.NAME_MISMATCH, report.getInconsistencies().get(0).getType());
+        assertEquals(report.getInconsistencies(), state.liveInconsistencies().getInconsistencies());
+
+        // When renamed back
+        state.applyFolderChange(FolderChangeEvent.renamed(FolderChangeEvent.Side.USER, USER, FOLDER_ID, FolderName.of("Inbox")));
+
+        // Then
+        assertFalse(state.liveInconsistencies().hasInconsistencies());
+    }
+
+    @Test
+    void shouldReportDeletedUserFolderAsMissing() {
+        // Given
+        state.applyFolderChange(FolderChangeEvent.created(FolderChangeEvent.Side.GLOBAL, USER, FOLDER_ID, FolderName.of("Sent")));
+        state.applyFolderChange(FolderChangeEvent.created(FolderChangeEvent.Side.USER, USER, FOLDER_ID, FolderName.of("Sent")));
+
+        // When
+        state.applyFolderChange(FolderChangeEvent.deleted(FolderChangeEvent.Side.USER, USER, FOLDER_ID));
+
+        // Then
+        InconsistencyReport report = state.liveInconsistencies();
+        assertEquals(1, report.getTotalCount());
+        assertEquals(InconsistencyType.MISSING_IN_USER_FOLDERS, report.getInconsistencies().get(0).getType());
+    }
+
+    @Test
+    void shouldPairIdDriftLikeFullScans() {
+        // Given
+        FolderId driftedId = FolderId.of("550e8400-e29b-41d4-a716-446655440001");
+        InconsistencyRules rules = InconsistencyRules.defaults().withIdDriftPairing();
+        LiveConsistencyState pairingState = new LiveConsistencyState(
+            userRetriever,
+            userFoldersRetriever,
+            globalFoldersRetriever,
+            rules,
+            executorService
+        );
+        userRetriever.addUser(USER);
+        userFoldersRetriever.addUserFolders(UserFolders.of(USER, List.of(UserFolder.of(FOLDER_ID, FolderName.of("Drafts")))));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(driftedId, USER, FolderName.of("Drafts")));
+
+        // When
+        pairingState.applyFolderChange(FolderChangeEvent.created(FolderChangeEvent.Side.USER, USER, FOLDER_ID, FolderName.of("Drafts")));
+        pairingState.applyFolderChange(FolderChangeEvent.created(FolderChangeEvent.Side.GLOBAL, USER, driftedId, FolderName.of("Drafts")));
+
+        // Then
+        InconsistencyReport fullScan = new InconsistencyDetectionService(
+            userRetriever,
+            userFoldersRetriever,
+            globalFoldersRetriever,
+            new FakeGlobalFolderIndexStore(),
+            rules,
+            executorService
+        ).detectInconsistencies();
+        assertEquals(
+            List.of(Inconsistency.idMismatch(FOLDER_ID, driftedId, USER, FolderName.of("Drafts"), FolderName.of("Drafts"))),
+            fullScan.getInconsistencies()
+        );
+        assertEquals(fullScan.getInconsistencies(), pairingState.liveInconsistenciesForUser(USER).getInconsistencies());
+        assertEquals(fullScan.getInconsistencies(), pairingState.liveInconsistencies().getInconsistencies());
+    }
+
+    @Test
+    void shouldAdjustOnlyTheChangedUserInTheAggregate() {
+        // Given
+        Email alice = Email.of("alice@example.com");
+        FolderId aliceFolderId = FolderId.of("550e8400-e29b-41d4-a716-446655440009");
+        state.applyFolderChange(FolderChangeEvent.created(FolderChangeEvent.Side.USER, USER, FOLDER_ID, FolderName.of("Inbox")));
+        state.applyFolderChange(FolderChangeEvent.created(FolderChangeEvent.Side.USER, alice, aliceFolderId, FolderName.of("Sent")));
+        InconsistencyReport before = state.liveInconsistencies();
+        assertEquals(2, before.getTotalCount());
+        assertSame(before, state.liveInconsistencies());
+
+        // When
+        state.applyFolderChange(FolderChangeEvent.created(FolderChangeEvent.Side.GLOBAL, USER, FOLDER_ID, FolderName.of("Inbox")));
+
+        // Then
+        InconsistencyReport after = state.liveInconsistencies();
+        assertEquals(1, after.getTotalCount());
+        assertEquals(alice, after.getInconsistencies().get(0).getUserEmail());
+        assertFalse(state.liveInconsistenciesForUser(USER).hasInconsistencies());
+        assertEquals(after.getInconsistencies(), state.liveInconsistenciesForUser(alice).getInconsistencies());
+    }
+
+    @Test
+    void shouldReturnEmptyReportForUntrackedUser() {
+        assertFalse(state.liveInconsistenciesForUser(Email.of("nobody@example.com")).hasInconsistencies());
+    }
+
+    @Test
+    void shouldReplaceStateOnReconcile() {
+        // Given - live state drifted from the sources
+        state.applyFolderChange(FolderChangeEvent.created(FolderChangeEvent.Side.USER, USER, FOLDER_ID, FolderName.of("Stale")));
+        assertEquals(1, state.liveInconsistencies().getTotalCount());
+
+        userRetriever.addUser(USER);
+        userFoldersRetriever.addUserFolders(UserFolders.of(USER, List.of(UserFolder.of(FOLDER_ID, FolderName.of("Inbox")))));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(FOLDER_ID, USER, FolderName.of("INBOX")));
+
+        // When
+        state.reconcile();
+
+        // Then
+        InconsistencyReport report = state.liveInconsistencies();
+        assertEquals(1, report.getTotalCount());
+        Inconsistency inconsistency = report.getInconsistencies().get(0);
+        assertEquals(InconsistencyType.NAME_MISMATCH, inconsistency.getType());
+        assertEquals(FolderName.of("INBOX"), inconsistency.getGlobalFolderName().orElseThrow());
+        assertEquals(FolderName.of("Inbox"), inconsistency.getUserFolderName().orElseThrow());
+    }
+}
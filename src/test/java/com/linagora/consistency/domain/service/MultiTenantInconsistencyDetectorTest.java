@@ -0,0 +1,127 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.fake.MutableClock;
+import com.linagora.consistency.domain.model.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultiTenantInconsistencyDetectorTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+    private ExecutorService executorService;
+    private ExecutorService coordinatorExecutor;
+    private WeightedFairExecutor fairExecutor;
+
+    @BeforeEach
+    void setUp() {
+        executorService = Executors.newFixedThreadPool(2);
+        coordinatorExecutor = Executors.newCachedThreadPool();
+        fairExecutor = new WeightedFairExecutor(executorService, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+        coordinatorExecutor.shutdownNow();
+    }
+
+    private InconsistencyReport reportOf(String email) {
+        return InconsistencyReport.of(List.of(Inconsistency.userWithoutGlobalFolders(Email.of(email))));
+    }
+
+    @Test
+    void shouldScanAllTenantsConcurrentlyWithSeparateReports() {
+        // Given two tenants whose scans only complete once both have started
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        MultiTenantInconsistencyDetector detector = new MultiTenantInconsistencyDetector(List.of(
+            new MultiTenantInconsistencyDetector.Tenant("acme", () -> {
+                awaitOther(bothStarted);
+                return reportOf("john@acme.com");
+            }, fairExecutor.lane("acme", 1, 2)),
+            new MultiTenantInconsistencyDetector.Tenant("globex", () -> {
+                awaitOther(bothStarted);
+                return InconsistencyReport.empty();
+            }, fairExecutor.lane("globex", 1, 2))
+        ), coordinatorExecutor, clock);
+
+        // When
+        Map<String, TenantScanResult> results = detector.detectAllTenants();
+
+        // Then
+        assertEquals(List.of("acme", "globex"), List.copyOf(results.keySet()));
+        assertEquals(1, results.get("acme").getReport().orElseThrow().getTotalCount());
+        assertEquals(0, results.get("globex").getReport().orElseThrow().getTotalCount());
+        List<TenantStatistics> statistics = detector.statistics();
+        assertEquals(1, statistics.get(0).getScans());
+        assertEquals(1, statistics.get(0).getLastScanInconsistencies());
+        assertEquals(Duration.ZERO, statistics.get(1).getLastScanDuration().orElseThrow());
+    }
+
+    @Test
+    void shouldReturnEmptyForUnknownTenantAndCountFailures() {
+        // Given
+        MultiTenantInconsistencyDetector detector = new MultiTenantInconsistencyDetector(List.of(
+            new MultiTenantInconsistencyDetector.Tenant("acme", () -> {
+                throw new IllegalStateException("upstream down");
+            }, fairExecutor.lane("acme", 1, 1))
+        ), coordinatorExecutor, clock);
+
+        // When / Then
+        assertTrue(detector.detectInconsistencies("unknown").isEmpty());
+        assertThrows(IllegalStateException.class, () -> detector.detectInconsistencies("acme"));
+        TenantStatistics statistics = detector.statistics().get(0);
+        assertEquals(1, statistics.getFailedScans());
+        assertTrue(statistics.getLastScanAt().isEmpty());
+    }
+
+    @Test
+    void shouldKeepReportsOfOtherTenantsWhenOneFails() {
+        // Given
+        MultiTenantInconsistencyDetector detector = new MultiTenantInconsistencyDetector(List.of(
+            new MultiTenantInconsistencyDetector.Tenant("acme", () -> {
+                throw new IllegalStateException("upstream down");
+            }, fairExecutor.lane("acme", 1, 1)),
+            new MultiTenantInconsistencyDetector.Tenant("globex", () -> reportOf("jane@globex.com"), fairExecutor.lane("globex", 1, 1))
+        ), coordinatorExecutor, clock);
+
+        // When
+        Map<String, TenantScanResult> results = detector.detectAllTenants();
+
+        // Then
+        assertFalse(results.get("acme").isSuccessful());
+        assertTrue(results.get("acme").getError().orElseThrow().contains("upstream down"));
+        assertEquals(1, results.get("globex").getReport().orElseThrow().getTotalCount());
+        assertEquals(1, detector.statistics().get(0).getFailedScans());
+    }
+
+    @Test
+    void shouldRejectDuplicateTenantNames() {
+        MultiTenantInconsistencyDetector.Tenant tenant = new MultiTenantInconsistencyDetector.Tenant(
+            "acme", InconsistencyReport::empty, fairExecutor.lane("acme", 1, 1));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> new MultiTenantInconsistencyDetector(List.of(tenant, tenant), coordinatorExecutor, clock));
+    }
+
+    private static void awaitOther(CountDownLatch bothStarted) {
+        bothStarted.countDown();
+        try {
+            assertTrue(bothStarted.await(5, TimeUnit.SECONDS), "tenant scans did not overlap");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+}
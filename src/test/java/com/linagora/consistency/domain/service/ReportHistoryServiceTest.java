@@ -0,0 +1,182 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.fake.FakeReportHistoryStore;
+import com.linagora.consistency.domain.fake.MutableClock;
+import com.linagora.consistency.domain.model.*;
+import com.linagora.consistency.domain.port.driving.ForDetectingInconsistencies;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportHistoryServiceTest {
+
+    private final Email john = Email.of("john@example.com");
+    private final Email alice = Email.of("alice@example.com");
+    private final FolderId inbox = FolderId.of("550e8400-e29b-41d4-a716-446655440000");
+    private final FolderId sent = FolderId.of("550e8400-e29b-41d4-a716-446655440001");
+    private final FolderId archive = FolderId.of("550e8400-e29b-41d4-a716-446655440002");
+
+    private FakeReportHistoryStore store;
+    private MutableClock clock;
+
+    @BeforeEach
+    void setUp() {
+        store = new FakeReportHistoryStore();
+        clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+    }
+
+    @Test
+    void shouldRecordEachDetectedReportAsNextGeneration() {
+        // Given
+        ReportHistoryService history = new ReportHistoryService(store, 10, clock);
+        InconsistencyReport report = InconsistencyReport.of(List.of(
+            Inconsistency.missingInGlobal(inbox, john, FolderName.of("Inbox")),
+            Inconsistency.missingInGlobal(sent, john, FolderName.of("Sent")),
+            Inconsistency.missingInUserFolders(archive, alice, FolderName.of("Archive"))
+        ));
+        ForDetectingInconsistencies detector = history.recording(() -> report);
+
+        // When
+        InconsistencyReport detected = detector.detectInconsistencies();
+        clock.advance(Duration.ofHours(1));
+        detector.detectInconsistencies();
+
+        // Then
+        assertSame(report, detected);
+        List<ReportSummary> trend = history.trend(10);
+        assertEquals(List.of(1L, 2L), trend.stream().map(ReportSummary::getGeneration).toList());
+        assertEquals(clock.instant(), trend.get(1).getGeneratedAt());
+        assertEquals(3, trend.get(1).getTotalCount());
+        assertEquals(2L, trend.get(1).getCountsByType().get(InconsistencyType.MISSING_IN_GLOBAL));
+        assertEquals(Map.of(john, 2, alice, 1), trend.get(1).getCountsByUser());
+        assertEquals(trend, store.getStoredSummaries());
+    }
+
+    @Test
+    void shouldNotRecordPartialReports() {
+        // Given
+        ReportHistoryService history = new ReportHistoryService(store, 10, clock);
+        InconsistencyReport partial = InconsistencyReport.partial(List.of(), 1, ScanCoverage.of(2, List.of(alice)));
+        ForDetectingInconsistencies detector = history.recording(new ForDetectingInconsistencies() {
+            @Override
+            public InconsistencyReport detectInconsistencies() {
+                return InconsistencyReport.empty();
+            }
+
+            @Override
+            public InconsistencyReport detectInconsistencies(Duration deadline) {
+                return partial;
+            }
+        });
+
+        // When
+        InconsistencyReport detected = detector.detectInconsistencies(Duration.ofSeconds(5));
+
+        // Then
+        assertSame(partial, detected);
+        assertTrue(history.trend(10).isEmpty());
+    }
+
+    @Test
+    void shouldDiffGenerationsFromFingerprints() {
+        // Given
+        ReportHistoryService history = new ReportHistoryService(store, 10, clock);
+        Inconsistency kept = Inconsistency.missingInGlobal(inbox, john, FolderName.of("Inbox"));
+        history.record(InconsistencyReport.of(List.of(
+            kept,
+            Inconsistency.nameMismatch(sent, john, FolderName.of("Sent"), FolderName.of("Envoyés"))
+        )));
+        history.record(InconsistencyReport.of(List.of(
+            kept,
+            Inconsistency.missingInUserFolders(archive, alice, FolderName.of("Archive")),
+            Inconsistency.missingInUserFolders(sent, alice, FolderName.of("Sent"))
+        )));
+
+        // When
+        ReportDiff diff = history.latestDiff().orElseThrow();
+
+        // Then
+        assertEquals(1, diff.getFromGeneration());
+        assertEquals(2, diff.getToGeneration());
+        assertEquals(1, diff.getUnchangedInconsistencies());
+        assertEquals(2, diff.getAddedInconsistencies());
+        assertEquals(1, diff.getResolvedInconsistencies());
+        assertEquals(Map.of(InconsistencyType.NAME_MISMATCH, -1L, InconsistencyType.MISSING_IN_USER_FOLDERS, 2L), diff.getCountDeltasByType());
+        assertEquals(Map.of(john, -1, alice, 2), diff.getCountDeltasByUser());
+    }
+
+    @Test
+    void shouldKeepDetailsOfLatestGenerationsOnlyAndLoadOlderOnesFromStore() {
+        // Given
+        ReportHistoryService history = new ReportHistoryService(store, 10, clock);
+        Inconsistency resolved = Inconsistency.missingInGlobal(inbox, john, FolderName.of("Inbox"));
+        history.record(InconsistencyReport.of(List.of(resolved)));
+        history.record(InconsistencyReport.empty());
+        history.record(InconsistencyReport.empty());
+
+        // When
+        List<ReportSummary> trend = history.trend(10);
+        ReportDiff diff = history.diff(1, 3).orElseThrow();
+
+        // Then
+        assertEquals(List.of(false, true, true), trend.stream().map(ReportSummary::hasDetails).toList());
+        assertEquals(1, trend.get(0).getInconsistentUsers());
+        assertEquals(1, diff.getResolvedInconsistencies());
+        assertEquals(Map.of(john, -1), diff.getCountDeltasByUser());
+    }
+
+    @Test
+    void shouldReloadDetailsOfLatestGenerationsOnRestart() {
+        // Given
+        ReportHistoryService previous = new ReportHistoryService(store, 10, clock);
+        previous.record(InconsistencyReport.empty());
+        previous.record(InconsistencyReport.empty());
+        previous.record(InconsistencyReport.of(List.of(Inconsistency.missingInGlobal(inbox, john, FolderName.of("Inbox")))));
+
+        // When
+        ReportHistoryService restarted = new ReportHistoryService(store, 10, clock);
+
+        // Then
+        assertEquals(List.of(false, true, true), restarted.trend(10).stream().map(ReportSummary::hasDetails).toList());
+        assertEquals(Map.of(john, 1), restarted.latestDiff().orElseThrow().getCountDeltasByUser());
+    }
+
+    @Test
+    void shouldContinueNumberingAfterStoredGenerationsAndKeepOnlyRetainedOnes() {
+        // Given
+        ReportHistoryService previous = new ReportHistoryService(store, 10, clock);
+        previous.record(InconsistencyReport.empty());
+        previous.record(InconsistencyReport.empty());
+        previous.record(InconsistencyReport.empty());
+
+        // When
+        ReportHistoryService restarted = new ReportHistoryService(store, 2, clock);
+        restarted.record(InconsistencyReport.empty());
+
+        // Then
+        assertEquals(List.of(3L, 4L), restarted.trend(10).stream().map(ReportSummary::getGeneration).toList());
+        assertTrue(restarted.diff(3, 4).isPresent());
+        assertTrue(restarted.diff(1, 4).isEmpty());
+    }
+
+    @Test
+    void shouldReturnEmptyDiffWithFewerThanTwoGenerations() {
+        ReportHistoryService history = new ReportHistoryService(store, 10, clock);
+        history.record(InconsistencyReport.empty());
+
+        assertTrue(history.latestDiff().isEmpty());
+    }
+
+    @Test
+    void shouldRejectNonPositiveTrendLimit() {
+        ReportHistoryService history = new ReportHistoryService(store, 10, clock);
+
+        assertThrows(IllegalArgumentException.class, () -> history.trend(0));
+    }
+}
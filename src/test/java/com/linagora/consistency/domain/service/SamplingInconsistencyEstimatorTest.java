@@ -0,0 +1,125 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.fake.FakeUserRetriever;
+import com.linagora.consistency.domain.model.*;
+import com.linagora.consistency.domain.port.driving.ForDetectingUserInconsistencies;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SamplingInconsistencyEstimatorTest {
+
+    private static final FolderId FOLDER_ID = FolderId.of("550e8400-e29b-41d4-a716-446655440000");
+
+    private final AtomicInteger userChecks = new AtomicInteger();
+    private FakeUserRetriever userRetriever;
+    private ExecutorService executorService;
+    private SamplingInconsistencyEstimator estimator;
+
+    @BeforeEach
+    void setUp() {
+        userRetriever = new FakeUserRetriever();
+        executorService = Executors.newFixedThreadPool(4);
+        // One user in five is inconsistent, in both domains
+        estimator = new SamplingInconsistencyEstimator(
+            userRetriever,
+            user -> {
+                userChecks.incrementAndGet();
+                int index = Integer.parseInt(user.getValue().substring(4, user.getValue().indexOf('@')));
+                return index % 5 == 0
+                    ? InconsistencyReport.of(List.of(Inconsistency.missingInGlobal(FOLDER_ID, user, FolderName.of("Inbox"))))
+                    : InconsistencyReport.empty();
+            },
+            executorService,
+            new Random(42)
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdown();
+    }
+
+    @Test
+    void shouldComputeStandardQuantilesAndSampleSizes() {
+        assertEquals(1.959964, SamplingInconsistencyEstimator.inverseStandardNormal(0.975), 1e-6);
+        assertEquals(-2.326348, SamplingInconsistencyEstimator.inverseStandardNormal(0.01), 1e-6);
+        assertEquals(383, SamplingInconsistencyEstimator.sampleSize(100_000, 1.959964, 0.05));
+        assertEquals(10, SamplingInconsistencyEstimator.sampleSize(10, 1.959964, 0.05));
+    }
+
+    @Test
+    void shouldEstimateRatesFromSample() {
+        // Given
+        addUsers(8_000, "example.com");
+        addUsers(2_000, "other.org");
+
+        // When
+        InconsistencyRateEstimate estimate = estimator.estimateInconsistencyRates(0.95, 0.05);
+
+        // Then
+        assertEquals(10_000, estimate.getPopulationSize());
+        assertEquals(370, estimate.getSampleSize());
+        assertEquals(370, userChecks.get());
+        InconsistencyRateEstimate.Interval interval = estimate.getInconsistentUsers();
+        assertTrue(interval.lower() <= 0.2 && 0.2 <= interval.upper(), interval.toString());
+        assertTrue(interval.upper() - interval.lower() <= 0.1, interval.toString());
+        assertEquals(interval, estimate.getUsersByType().get(InconsistencyType.MISSING_IN_GLOBAL));
+        assertEquals(0, estimate.getUsersByType().get(InconsistencyType.NAME_MISMATCH).estimate());
+        assertEquals(ForDetectingUserInconsistencies.USER_CHECK_TYPES, estimate.getUsersByType().keySet());
+    }
+
+    @Test
+    void shouldKeepTheWeightOfDomainsTooSmallToBeSampled() {
+        // Given - 1,000 domains of 100 users, each worth 0.37 sampled users under proportional allocation
+        for (int d = 0; d < 1_000; d++) {
+            addUsers(100, "domain" + d + ".org");
+        }
+
+        // When
+        double sum = 0;
+        int runs = 20;
+        for (int i = 0; i < runs; i++) {
+            InconsistencyRateEstimate estimate = estimator.estimateInconsistencyRates(0.95, 0.05);
+            assertEquals(383, estimate.getSampleSize());
+            sum += estimate.getInconsistentUsers().estimate();
+        }
+
+        // Then - centered on the true rate
+        assertEquals(0.2, sum / runs, 0.01);
+    }
+
+    @Test
+    void shouldReturnExactRateWhenEveryUserIsSampled() {
+        // Given
+        addUsers(50, "example.com");
+
+        // When
+        InconsistencyRateEstimate estimate = estimator.estimateInconsistencyRates(0.95, 0.01);
+
+        // Then
+        assertEquals(50, estimate.getSampleSize());
+        assertEquals(new InconsistencyRateEstimate.Interval(0.2, 0.2, 0.2), estimate.getInconsistentUsers());
+    }
+
+    @Test
+    void shouldRejectInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> estimator.estimateInconsistencyRates(1.5, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> estimator.estimateInconsistencyRates(0.95, 0));
+    }
+
+    private void addUsers(int count, String domain) {
+        int offset = userRetriever.retrieveAllUsers().size();
+        for (int i = 0; i < count; i++) {
+            userRetriever.addUser(Email.of("user" + (offset + i) + "@" + domain));
+        }
+    }
+}
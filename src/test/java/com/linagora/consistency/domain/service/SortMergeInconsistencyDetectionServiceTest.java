@@ -0,0 +1,202 @@
+package com.linagora.consistency.domain.service;
+
+import com.linagora.consistency.domain.fake.FakeGlobalFolderIndexStore;
+import com.linagora.consistency.domain.fake.FakeGlobalFoldersRetriever;
+import com.linagora.consistency.domain.fake.FakeUserFoldersRetriever;
+import com.linagora.consistency.domain.fake.FakeUserRetriever;
+import com.linagora.consistency.domain.model.*;
+import com.linagora.consistency.domain.rule.InconsistencyRules;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the out-of-core path reports exactly what the in-memory path reports.
+ */
+class SortMergeInconsistencyDetectionServiceTest {
+
+    @TempDir
+    Path spillDirectory;
+
+    private FakeUserRetriever userRetriever;
+    private FakeUserFoldersRetriever userFoldersRetriever;
+    private FakeGlobalFoldersRetriever globalFoldersRetriever;
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void setUp() {
+        userRetriever = new FakeUserRetriever();
+        userFoldersRetriever = new FakeUserFoldersRetriever();
+        globalFoldersRetriever = new FakeGlobalFoldersRetriever();
+        executorService = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdown();
+    }
+
+    @Test
+    void shouldProduceSameReportAsInMemoryPathWhenSpilling() throws IOException {
+        generateDataset(new Random(42), 200);
+
+        InconsistencyReport expected = inMemoryService().detectInconsistencies();
+        InconsistencyReport actual = sortMergeService(16 * 1024).detectInconsistencies();
+
+        assertTrue(expected.getTotalCount() > 0);
+        assertEquals(sorted(expected), sorted(actual));
+        assertEquals(expected.getCountsByType(), actual.getCountsByType());
+        try (Stream<Path> leftovers = Files.list(spillDirectory)) {
+            assertEquals(0, leftovers.count(), "sorted runs must be deleted");
+        }
+    }
+
+    @Test
+    void shouldProduceSameReportAsInMemoryPathWithinBudget() {
+        generateDataset(new Random(7), 20);
+
+        InconsistencyReport expected = inMemoryService().detectInconsistencies();
+        InconsistencyReport actual = sortMergeService(64L * 1024 * 1024).detectInconsistencies();
+
+        assertEquals(sorted(expected), sorted(actual));
+    }
+
+    @Test
+    void shouldVersionEachScanFromTheSharedSequence() {
+        generateDataset(new Random(3), 5);
+        long[] lastVersion = {41};
+        SortMergeInconsistencyDetectionService service = new SortMergeInconsistencyDetectionService(
+            userRetriever,
+            userFoldersRetriever,
+            globalFoldersRetriever,
+            InconsistencyRules.defaults(),
+            executorService,
+            spillDirectory,
+            1024,
+            () -> ++lastVersion[0]
+        );
+
+        assertEquals(OptionalLong.of(42), service.detectInconsistencies().getGlobalIndexVersion());
+        assertEquals(OptionalLong.of(43), service.detectInconsistencies().getGlobalIndexVersion());
+    }
+
+    @Test
+    void shouldKeepFirstGlobalFolderOnDuplicates() {
+        Email user = Email.of("dup@example.com");
+        FolderId folderId = FolderId.of("550e8400-e29b-41d4-a716-446655440000");
+        userRetriever.addUser(user);
+        userFoldersRetriever.addUserFolders(UserFolders.of(user, List.of(UserFolder.of(folderId, FolderName.of("Inbox")))));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(folderId, user, FolderName.of("Inbox")));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(folderId, user, FolderName.of("Other")));
+
+        InconsistencyReport report = sortMergeService(1024).detectInconsistencies();
+
+        assertEquals(1, report.getTotalCount());
+        assertEquals(InconsistencyType.DUPLICATE_IN_GLOBAL, report.getInconsistencies().get(0).getType());
+        assertEquals(FolderName.of("Other"), report.getInconsistencies().get(0).getGlobalFolderName().orElseThrow());
+    }
+
+    @Test
+    void shouldPairIdDriftWithinEachUser() {
+        Email john = Email.of("john@example.com");
+        Email alice = Email.of("alice@example.com");
+        FolderId userSideId = FolderId.of("550e8400-e29b-41d4-a716-446655440001");
+        FolderId globalSideId = FolderId.of("550e8400-e29b-41d4-a716-446655440002");
+        FolderId aliceGlobalId = FolderId.of("550e8400-e29b-41d4-a716-446655440003");
+        userRetriever.addUser(john);
+        userRetriever.addUser(alice);
+        userFoldersRetriever.addUserFolders(UserFolders.of(john, List.of(UserFolder.of(userSideId, FolderName.of("Drafts")))));
+        userFoldersRetriever.addUserFolders(UserFolders.of(alice, List.of()));
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(globalSideId, john, FolderName.of("Drafts")));
+        // Same name, other user: must not be paired with john's folder
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(aliceGlobalId, alice, FolderName.of("Drafts")));
+
+        InconsistencyReport report = new SortMergeInconsistencyDetectionService(
+            userRetriever,
+            userFoldersRetriever,
+            globalFoldersRetriever,
+            InconsistencyRules.defaults().withIdDriftPairing(),
+            executorService,
+            spillDirectory,
+            1024
+        ).detectInconsistencies();
+
+        assertEquals(List.of(
+            Inconsistency.missingInUserFolders(aliceGlobalId, alice, FolderName.of("Drafts")),
+            Inconsistency.idMismatch(userSideId, globalSideId, john, FolderName.of("Drafts"), FolderName.of("Drafts"))
+        ), report.getInconsistencies());
+    }
+
+    private void generateDataset(Random random, int userCount) {
+        for (int u = 0; u < userCount; u++) {
+            Email user = Email.of("user" + u + "@example.com");
+            userRetriever.addUser(user);
+            List<UserFolder> userFolders = new ArrayList<>();
+            int folderCount = random.nextInt(20);
+            for (int f = 0; f < folderCount; f++) {
+                FolderId folderId = FolderId.of(new UUID(random.nextLong(), random.nextLong()).toString());
+                FolderName name = FolderName.of("Folder " + random.nextInt(5));
+                switch (random.nextInt(4)) {
+                    case 0 -> userFolders.add(UserFolder.of(folderId, name));
+                    case 1 -> globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(folderId, user, name));
+                    case 2 -> {
+                        userFolders.add(UserFolder.of(folderId, name));
+                        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(folderId, user, FolderName.of("Renamed")));
+                    }
+                    default -> {
+                        userFolders.add(UserFolder.of(folderId, name));
+                        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(folderId, user, name));
+                    }
+                }
+            }
+            userFoldersRetriever.addUserFolders(UserFolders.of(user, userFolders));
+        }
+        // Global folders of an owner unknown to /users are ignored by both paths
+        globalFoldersRetriever.addGlobalFolder(GlobalFolder.of(
+            FolderId.of("550e8400-e29b-41d4-a716-446655449999"),
+            Email.of("ghost@example.com"),
+            FolderName.of("Ghost")
+        ));
+    }
+
+    private InconsistencyDetectionService inMemoryService() {
+        return new InconsistencyDetectionService(
+            userRetriever,
+            userFoldersRetriever,
+            globalFoldersRetriever,
+            new FakeGlobalFolderIndexStore(),
+            InconsistencyRules.defaults(),
+            executorService
+        );
+    }
+
+    private SortMergeInconsistencyDetectionService sortMergeService(long memoryBudgetBytes) {
+        return new SortMergeInconsistencyDetectionService(
+            userRetriever,
+            userFoldersRetriever,
+            globalFoldersRetriever,
+            InconsistencyRules.defaults(),
+            executorService,
+            spillDirectory,
+            memoryBudgetBytes
+        );
+    }
+
+    private List<String> sorted(InconsistencyReport report) {
+        return report.getInconsistencies().stream()
+            .map(Inconsistency::toString)
+            .sorted()
+            .toList();
+    }
+}
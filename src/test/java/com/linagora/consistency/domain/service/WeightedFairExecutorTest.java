@@ -0,0 +1,114 @@
+package com.linagora.consistency.domain.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeightedFairExecutorTest {
+
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void setUp() {
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void shouldShareThePoolByWeightWhenLanesAreBacklogged() throws Exception {
+        // Given a single slot, held while both lanes queue up
+        WeightedFairExecutor fairExecutor = new WeightedFairExecutor(executorService, 1);
+        WeightedFairExecutor.Lane heavy = fairExecutor.lane("heavy", 1, 1);
+        WeightedFairExecutor.Lane light = fairExecutor.lane("light", 3, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> blocker = heavy.submit(() -> {
+            release.await();
+            return null;
+        });
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(heavy.submit(() -> order.add("heavy")));
+        }
+        for (int i = 0; i < 30; i++) {
+            futures.add(light.submit(() -> order.add("light")));
+        }
+
+        // When
+        release.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        heavy.shutdown();
+        light.shutdown();
+        assertTrue(heavy.awaitTermination(5, TimeUnit.SECONDS) && light.awaitTermination(5, TimeUnit.SECONDS));
+
+        // Then the light lane gets three slots for each heavy one, although it queued last
+        assertEquals(130, order.size());
+        int lastLight = order.lastIndexOf("light");
+        assertTrue(lastLight < 42, "light lane finished at position " + lastLight);
+        assertEquals(30, light.getCompletedTasks());
+        assertEquals(101, heavy.getCompletedTasks());
+    }
+
+    @Test
+    void shouldNotRunMoreThanTheLaneQuota() throws Exception {
+        // Given
+        WeightedFairExecutor fairExecutor = new WeightedFairExecutor(executorService, 4);
+        WeightedFairExecutor.Lane lane = fairExecutor.lane("tenant", 1, 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(5);
+                running.decrementAndGet();
+                return null;
+            });
+        }
+
+        // When
+        for (Future<Void> future : lane.invokeAll(tasks)) {
+            future.get();
+        }
+        lane.shutdown();
+        assertTrue(lane.awaitTermination(5, TimeUnit.SECONDS));
+
+        // Then
+        assertEquals(2, maxRunning.get());
+        assertEquals(20, lane.getCompletedTasks());
+        assertEquals(0, lane.getQueuedTasks());
+        assertEquals(0, lane.getRunningTasks());
+    }
+
+    @Test
+    void shouldRejectTasksOnceLaneIsShutDown() throws InterruptedException {
+        WeightedFairExecutor.Lane lane = new WeightedFairExecutor(executorService, 4).lane("tenant", 1, 1);
+
+        lane.shutdown();
+
+        assertThrows(RejectedExecutionException.class, () -> lane.execute(() -> { }));
+        assertTrue(lane.awaitTermination(1, TimeUnit.SECONDS));
+        assertFalse(executorService.isShutdown());
+    }
+}